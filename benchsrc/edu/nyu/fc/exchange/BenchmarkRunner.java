@@ -0,0 +1,28 @@
+package edu.nyu.fc.exchange;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Utility class for running the exchange benchmarks with the GC profiler
+ * attached, which reports allocation rate per operation (gc.alloc.rate.norm)
+ * next to the throughput of every benchmark. An optional argument selects
+ * benchmarks by regular expression, all benchmarks of this package are run
+ * otherwise.
+ * 
+ * @author Yourii Martiak
+ *
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException {
+        String include = args.length > 0 ? args[0] : BenchmarkRunner.class
+                .getPackage().getName() + ".*Benchmark";
+        Options options = new OptionsBuilder().include(include)
+                .addProfiler(GCProfiler.class).build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,150 @@
+package edu.nyu.fc.exchange;
+
+import orderGenerator.NewOrder;
+import orderGenerator.OrderCxR;
+
+/**
+ * Helpers shared by the benchmarks, to select limit order book and order store
+ * implementations by name and to build inbound messages up front.
+ * 
+ * @author Yourii Martiak
+ *
+ */
+final class BenchmarkSupport {
+
+    /**
+     * Name of the {@link LimitOrderBook} implementation
+     */
+    static final String HASH = "hash";
+
+    /**
+     * Name of the {@link TickLadderLimitOrderBook} implementation
+     */
+    static final String LADDER = "ladder";
+
+    /**
+     * Name of the {@link LimitOrderPool} order store
+     */
+    static final String HEAP = "heap";
+
+    /**
+     * Name of the {@link OffHeapOrderStore} order store
+     */
+    static final String OFF_HEAP = "offheap";
+
+    /**
+     * Tick size used for all generated prices
+     */
+    static final double TICK_SIZE = TickSizeTable.DEFAULT_TICK_SIZE;
+
+    private BenchmarkSupport() {
+    }
+
+    /**
+     * Create limit order book factory for a given implementation name
+     * 
+     * @param impl implementation name
+     * @return limit order book factory
+     */
+    static ILimitOrderBookFactory newFactory(final String impl) {
+        if (HASH.equals(impl)) {
+            return new LimitOrderBookFactory();
+        } else if (LADDER.equals(impl)) {
+            return new TickLadderLimitOrderBookFactory();
+        }
+        throw new IllegalArgumentException("Invalid book implementation "
+                + impl);
+    }
+
+    /**
+     * Create order store for a given name
+     * 
+     * @param store order store name
+     * @return order store
+     */
+    static ILimitOrderStore newOrderStore(final String store) {
+        if (HEAP.equals(store)) {
+            return new LimitOrderPool(1 << 16);
+        } else if (OFF_HEAP.equals(store)) {
+            return new OffHeapOrderStore(1 << 16);
+        }
+        throw new IllegalArgumentException("Invalid order store " + store);
+    }
+
+    /**
+     * Convert price in ticks to price, always the same way, so that equal
+     * ticks give equal prices
+     * 
+     * @param tick
+     * @return price
+     */
+    static double toPrice(final long tick) {
+        return TickSizeTable.toPrice(tick, TICK_SIZE);
+    }
+
+    static class BenchNewOrder implements NewOrder {
+
+        private final String orderID;
+        private final String symbol;
+        private final int size;
+        private final double limitPrice;
+
+        BenchNewOrder(final String orderID, final String symbol,
+                final int size, final double limitPrice) {
+            this.orderID = orderID;
+            this.symbol = symbol;
+            this.size = size;
+            this.limitPrice = limitPrice;
+        }
+
+        @Override
+        public double getLimitPrice() {
+            return limitPrice;
+        }
+
+        @Override
+        public String getOrderId() {
+            return orderID;
+        }
+
+        @Override
+        public int getSize() {
+            return size;
+        }
+
+        @Override
+        public String getSymbol() {
+            return symbol;
+        }
+    }
+
+    static class BenchOrderCxR implements OrderCxR {
+
+        private final String orderID;
+        private final int size;
+        private final double limitPrice;
+
+        BenchOrderCxR(final String orderID, final int size,
+                final double limitPrice) {
+            this.orderID = orderID;
+            this.size = size;
+            this.limitPrice = limitPrice;
+        }
+
+        @Override
+        public double getLimitPrice() {
+            return limitPrice;
+        }
+
+        @Override
+        public String getOrderId() {
+            return orderID;
+        }
+
+        @Override
+        public int getSize() {
+            return size;
+        }
+    }
+
+}
@@ -0,0 +1,223 @@
+package edu.nyu.fc.exchange;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import orderGenerator.Message;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of {@link DoubleLimitBookAuction#handleMessage(Message)} and of
+ * batches of {@link #BATCH_SIZE} messages handed to
+ * {@link DoubleLimitBookAuction#handleMessages(Message[], int, int)} under a
+ * configurable mix of messages. Messages are generated up front from a fixed
+ * seed, so every run and every book implementation sees the same flow, and
+ * fills go to {@link NullTradeListener} to keep output out of the
+ * measurement. Mix is given in percent of all messages:
+ * <ul>
+ * <li>passive - new order resting within the book without crossing</li>
+ * <li>aggressive - new order sweeping one or more price levels of the
+ * opposite side</li>
+ * <li>cancel - cancel of a previously added passive order</li>
+ * <li>replace - the rest, replace of a previously added passive order at a
+ * new price</li>
+ * </ul>
+ * Books of every symbol are seeded with a given number of price levels per
+ * side before each iteration.
+ * 
+ * @author Yourii Martiak
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DoubleLimitBookAuctionBenchmark {
+
+    private static final long BASE_TICK = 10000;
+    private static final int ORDERS_PER_LEVEL = 4;
+    private static final int ORDER_SIZE = 100;
+
+    /**
+     * Number of messages per batch, a power of two so that batches never wrap
+     * around the generated messages
+     */
+    private static final int BATCH_SIZE = 16;
+
+    /**
+     * Book implementation, see {@link BenchmarkSupport#newFactory(String)}
+     */
+    @Param({ BenchmarkSupport.HASH, BenchmarkSupport.LADDER })
+    public String impl;
+
+    /**
+     * Order store, see {@link BenchmarkSupport#newOrderStore(String)}
+     */
+    @Param({ BenchmarkSupport.HEAP })
+    public String store;
+
+    @Param({ "1", "16" })
+    public int symbols;
+
+    /**
+     * Number of price levels per side seeded into the books of every symbol
+     */
+    @Param({ "10", "100" })
+    public int depth;
+
+    @Param({ "60" })
+    public int passivePercent;
+
+    @Param({ "10" })
+    public int aggressivePercent;
+
+    @Param({ "20" })
+    public int cancelPercent;
+
+    /**
+     * Number of generated messages, rounded up to a power of two. Messages
+     * are reused in a cycle, so this should exceed the number of messages
+     * handled per iteration to avoid reusing order IDs.
+     */
+    @Param({ "1048576" })
+    public int messageCount;
+
+    private DoubleLimitBookAuction auction;
+    private Message[] seedMessages;
+    private Message[] messages;
+    private int mask;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        if (passivePercent + aggressivePercent + cancelPercent > 100) {
+            throw new IllegalArgumentException("Invalid message mix");
+        }
+        final String[] symbolNames = new String[symbols];
+        final List<Message> seed = new ArrayList<Message>();
+        for (int s = 0; s < symbols; s++) {
+            symbolNames[s] = "SYM" + s;
+            for (int level = 1; level <= depth; level++) {
+                for (int i = 0; i < ORDERS_PER_LEVEL; i++) {
+                    seed.add(new BenchmarkSupport.BenchNewOrder("B" + s + "-"
+                            + level + "-" + i, symbolNames[s], ORDER_SIZE,
+                            BenchmarkSupport.toPrice(getMidTick(s) - level)));
+                    seed.add(new BenchmarkSupport.BenchNewOrder("A" + s + "-"
+                            + level + "-" + i, symbolNames[s], -ORDER_SIZE,
+                            BenchmarkSupport.toPrice(getMidTick(s) + level)));
+                }
+            }
+        }
+        seedMessages = seed.toArray(new Message[seed.size()]);
+
+        int length = BATCH_SIZE;
+        while (length < messageCount) {
+            length <<= 1;
+        }
+        messages = new Message[length];
+        mask = length - 1;
+        final Random random = new Random(42);
+        // passive orders that can still be canceled or replaced, with their
+        // symbol index and side kept alongside
+        final List<String> liveOrderIDs = new ArrayList<String>();
+        final List<int[]> liveOrders = new ArrayList<int[]>();
+        for (int i = 0; i < length; i++) {
+            final int r = random.nextInt(100);
+            final int s = random.nextInt(symbols);
+            final int side = random.nextBoolean() ? 1 : -1;
+            if (r < passivePercent || liveOrderIDs.isEmpty()
+                    && r >= passivePercent + aggressivePercent) {
+                final String orderID = "O" + i;
+                messages[i] = new BenchmarkSupport.BenchNewOrder(orderID,
+                        symbolNames[s], side * ORDER_SIZE, getPassivePrice(
+                                random, s, side));
+                liveOrderIDs.add(orderID);
+                liveOrders.add(new int[] { s, side });
+            } else if (r < passivePercent + aggressivePercent) {
+                // sweep up to a quarter of the book depth
+                final int levels = 1 + random.nextInt(Math.max(1, depth / 4));
+                messages[i] = new BenchmarkSupport.BenchNewOrder("O" + i,
+                        symbolNames[s], side * ORDER_SIZE * ORDERS_PER_LEVEL
+                                * levels, BenchmarkSupport.toPrice(getMidTick(s)
+                                + side * levels));
+            } else {
+                final int index = random.nextInt(liveOrderIDs.size());
+                final String orderID = liveOrderIDs.get(index);
+                final int[] order = liveOrders.get(index);
+                if (r < passivePercent + aggressivePercent + cancelPercent) {
+                    messages[i] = new BenchmarkSupport.BenchOrderCxR(orderID,
+                            0, 0);
+                    final int last = liveOrderIDs.size() - 1;
+                    liveOrderIDs.set(index, liveOrderIDs.get(last));
+                    liveOrders.set(index, liveOrders.get(last));
+                    liveOrderIDs.remove(last);
+                    liveOrders.remove(last);
+                } else {
+                    messages[i] = new BenchmarkSupport.BenchOrderCxR(orderID,
+                            order[1] * ORDER_SIZE, getPassivePrice(random,
+                                    order[0], order[1]));
+                }
+            }
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        auction = new DoubleLimitBookAuction(
+                BenchmarkSupport.newFactory(impl), new NullTradeListener(),
+                new TickSizeTable(), BenchmarkSupport.newOrderStore(store));
+        for (final Message message : seedMessages) {
+            auction.handleMessage(message);
+        }
+        next = 0;
+    }
+
+    @Benchmark
+    public void handleMessage() {
+        auction.handleMessage(messages[next++ & mask]);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void handleMessages() {
+        auction.handleMessages(messages, next & mask, BATCH_SIZE);
+        next += BATCH_SIZE;
+    }
+
+    private static long getMidTick(final int symbol) {
+        return BASE_TICK + symbol * 1000;
+    }
+
+    /**
+     * Get price within the seeded depth on a given side, not crossing the
+     * opposite side of the seeded book
+     * 
+     * @param random
+     * @param symbol
+     * @param side +1 for BID, -1 for ASK
+     * @return price
+     */
+    private double getPassivePrice(final Random random, final int symbol,
+            final int side) {
+        return BenchmarkSupport.toPrice(getMidTick(symbol) - side
+                * (1 + random.nextInt(depth)));
+    }
+
+}
@@ -0,0 +1,156 @@
+package edu.nyu.fc.exchange;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of a single ASK limit order book, comparing book implementations
+ * side by side. Every operation leaves the book in the state it found it in,
+ * so that book depth stays the same throughout the measurement.
+ * 
+ * @author Yourii Martiak
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LimitOrderBookBenchmark {
+
+    private static final long BASE_TICK = 10000;
+    private static final int ORDERS_PER_LEVEL = 4;
+    private static final int ORDER_POOL_SIZE = 1 << 12;
+    private static final int DEPTH_LEVELS = 10;
+    private static final int SWEEP_LEVELS = 8;
+
+    /**
+     * Book implementation, see {@link BenchmarkSupport#newFactory(String)}
+     */
+    @Param({ BenchmarkSupport.HASH, BenchmarkSupport.LADDER })
+    public String impl;
+
+    /**
+     * Number of price levels in the book
+     */
+    @Param({ "10", "1000" })
+    public int depth;
+
+    private ILimitOrderBook book;
+    private ILimitOrder[] orders;
+    private int next;
+    private final long[] ticks = new long[DEPTH_LEVELS];
+    private final long[] sizes = new long[DEPTH_LEVELS];
+    private final FillBuffer fills = new FillBuffer(64);
+    private ILimitOrder sweepOrder;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        book = BenchmarkSupport.newFactory(impl).newAskBook("BENCH");
+        for (int level = 0; level < depth; level++) {
+            for (int i = 0; i < ORDERS_PER_LEVEL; i++) {
+                book.addLast(new RestoredLimitOrder("S" + level + "-" + i,
+                        "BENCH", -100, BASE_TICK + level,
+                        BenchmarkSupport.TICK_SIZE));
+            }
+        }
+        // orders added by the benchmarks, spread randomly across the book
+        final Random random = new Random(42);
+        orders = new ILimitOrder[ORDER_POOL_SIZE];
+        for (int i = 0; i < orders.length; i++) {
+            orders[i] = new RestoredLimitOrder("P" + i, "BENCH", -100,
+                    BASE_TICK + random.nextInt(depth),
+                    BenchmarkSupport.TICK_SIZE);
+        }
+        // bid crossing all orders of the top levels of the book
+        sweepOrder = new RestoredLimitOrder("SWEEP", "BENCH", SWEEP_LEVELS
+                * ORDERS_PER_LEVEL * 100, BASE_TICK + SWEEP_LEVELS - 1,
+                BenchmarkSupport.TICK_SIZE);
+        next = 0;
+    }
+
+    /**
+     * Add order at the end of its price level queue and cancel it right away
+     * 
+     * @return whether the order was found for cancel
+     */
+    @Benchmark
+    public boolean addCancel() {
+        final ILimitOrder order = orders[next++ & (ORDER_POOL_SIZE - 1)];
+        book.addLast(order);
+
+        return book.remove(order);
+    }
+
+    /**
+     * Poll first order at the top of the book and queue it again at the end,
+     * as if it was fully filled and a new order came in at the same price
+     * 
+     * @return polled order
+     */
+    @Benchmark
+    public ILimitOrder pollAddLast() {
+        final ILimitOrder order = book.pollNextOrderFor(book.getBestTick());
+        book.addLast(order);
+
+        return order;
+    }
+
+    /**
+     * Poll first order at the top of the book and put it back in front, as
+     * if it was partially filled
+     * 
+     * @return polled order
+     */
+    @Benchmark
+    public ILimitOrder pollAddFirst() {
+        final ILimitOrder order = book.pollNextOrderFor(book.getBestTick());
+        book.addFirst(order);
+
+        return order;
+    }
+
+    /**
+     * Sweep all orders of the top levels of the book in one pass and put them
+     * back at their prices in the same time priority
+     * 
+     * @return quantity filled
+     */
+    @Benchmark
+    public int sweepRestore() {
+        final int filled = book.sweep(sweepOrder, fills);
+        for (int i = 0; i < fills.size(); i++) {
+            final ILimitOrder order = fills.getOrder(i);
+            order.setSize(-100);
+            book.addLast(order);
+        }
+        fills.clear();
+
+        return filled;
+    }
+
+    /**
+     * Collect aggregated depth of the top levels of the book
+     * 
+     * @return number of levels collected
+     */
+    @Benchmark
+    public int getDepth() {
+        return book.getDepth(ticks, sizes, DEPTH_LEVELS);
+    }
+
+}
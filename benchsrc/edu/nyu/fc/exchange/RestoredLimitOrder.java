@@ -0,0 +1,33 @@
+package edu.nyu.fc.exchange;
+
+/**
+ * Limit order built directly from its state, used by benchmarks to fill books
+ * without going through messages or an order store
+ * 
+ * @author Yourii Martiak
+ *
+ */
+public class RestoredLimitOrder extends AbstractLimitOrder {
+
+    private final String orderID;
+    private final String symbol;
+
+    public RestoredLimitOrder(final String orderID, final String symbol,
+            final int size, final long limitTick, final double tickSize) {
+        this.orderID = orderID;
+        this.symbol = symbol;
+        setSize(size);
+        setLimitTick(limitTick, tickSize);
+    }
+
+    @Override
+    public String getOrderId() {
+        return orderID;
+    }
+
+    @Override
+    public String getSymbol() {
+        return symbol;
+    }
+
+}
@@ -0,0 +1,77 @@
+package edu.nyu.fc.exchange;
+
+import java.util.concurrent.TimeUnit;
+
+import orderGenerator.Message;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of {@link SyntheticOrderFlow} on its own, and of
+ * {@link DoubleLimitBookAuction#handleMessage(Message)} driven by it, under
+ * skewed symbol popularity and bursts. Flow is generated as the auction
+ * handles it, so the auction benchmark includes the cost of generating.
+ * 
+ * @author Yourii Martiak
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SyntheticOrderFlowBenchmark {
+
+    /**
+     * Book implementation, see {@link BenchmarkSupport#newFactory(String)}
+     */
+    @Param({ BenchmarkSupport.HASH, BenchmarkSupport.LADDER })
+    public String impl;
+
+    @Param({ "100" })
+    public int symbols;
+
+    @Param({ "0", "1" })
+    public double zipfExponent;
+
+    @Param({ "0.5" })
+    public double burstiness;
+
+    @Param({ "65536" })
+    public int maxLiveOrders;
+
+    private SyntheticOrderFlow flow;
+    private DoubleLimitBookAuction auction;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        flow = new SyntheticOrderFlow(42, symbols, maxLiveOrders);
+        flow.setZipfExponent(zipfExponent);
+        flow.setBurstiness(burstiness);
+        auction = new DoubleLimitBookAuction(
+                BenchmarkSupport.newFactory(impl), new NullTradeListener());
+    }
+
+    @Benchmark
+    public Message next() {
+        return flow.next();
+    }
+
+    @Benchmark
+    public void handleMessage() {
+        auction.handleMessage(flow.next());
+    }
+
+}
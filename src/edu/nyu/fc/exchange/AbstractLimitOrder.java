@@ -0,0 +1,148 @@
+package edu.nyu.fc.exchange;
+
+/**
+ * Common state of the limit orders kept by limit order books, such as leaves
+ * quantity, limit price in ticks, order type, "dead" flag and the links used
+ * by the intrusive price level queues.
+ * 
+ * @author Yourii Martiak
+ */
+public abstract class AbstractLimitOrder implements ILimitOrder {
+
+    private boolean isDead;
+    private int size;
+    private OrderType orderType;
+    private long limitTick;
+    private double tickSize;
+    private PriceLevel priceLevel;
+    private ILimitOrder previous;
+    private ILimitOrder next;
+
+    @Override
+    public double getLimitPrice() {
+        return orderType == OrderType.MARKET ? Double.NaN : TickSizeTable
+                .toPrice(limitTick, tickSize);
+    }
+
+    @Override
+    public OrderType getOrderType() {
+        return orderType;
+    }
+
+    @Override
+    public long getLimitTick() {
+        return limitTick;
+    }
+
+    @Override
+    public double getTickSize() {
+        return tickSize;
+    }
+
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    @Override
+    public boolean isDead() {
+        return isDead;
+    }
+
+    @Override
+    public void setDead() {
+        isDead = true;
+    }
+
+    @Override
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    /**
+     * Set limit price from the inbound message, converting it to ticks and
+     * rounding it towards the less aggressive price for a given side. NaN
+     * limit price makes this a market order.
+     * 
+     * @param limitPrice
+     * @param tickSize
+     * @param isBid true for buy orders
+     */
+    protected void setLimitPrice(final double limitPrice,
+            final double tickSize, final boolean isBid) {
+        this.tickSize = tickSize;
+        if (Double.isNaN(limitPrice)) {
+            orderType = OrderType.MARKET;
+            limitTick = 0;
+        } else {
+            orderType = OrderType.LIMIT;
+            limitTick = isBid ? TickSizeTable.toBidTick(limitPrice, tickSize)
+                    : TickSizeTable.toAskTick(limitPrice, tickSize);
+        }
+    }
+
+    /**
+     * Set limit price already in ticks, making this a limit order
+     * 
+     * @param limitTick
+     * @param tickSize
+     */
+    protected void setLimitTick(final long limitTick, final double tickSize) {
+        this.orderType = OrderType.LIMIT;
+        this.limitTick = limitTick;
+        this.tickSize = tickSize;
+    }
+
+    /**
+     * Reset state of this order before it gets reused, making it live again
+     * and unlinking it from any price level queue
+     */
+    protected void reset() {
+        isDead = false;
+        size = 0;
+        priceLevel = null;
+        previous = null;
+        next = null;
+    }
+
+    @Override
+    public PriceLevel getPriceLevel() {
+        return priceLevel;
+    }
+
+    @Override
+    public void setPriceLevel(PriceLevel priceLevel) {
+        this.priceLevel = priceLevel;
+    }
+
+    @Override
+    public ILimitOrder getPrevious() {
+        return previous;
+    }
+
+    @Override
+    public void setPrevious(ILimitOrder previous) {
+        this.previous = previous;
+    }
+
+    @Override
+    public ILimitOrder getNext() {
+        return next;
+    }
+
+    @Override
+    public void setNext(ILimitOrder next) {
+        this.next = next;
+    }
+
+    @Override
+    public String toString() {
+        return getOrderId() + " : " + size + " " + getSymbol() + " @ " + getLimitPrice();
+    }
+
+    @Override
+    public String toStatusString() {
+        return String.format("%.2f,%s,%d\n", getLimitPrice(), size < 0 ? "ask" : "bid", size);
+    }
+
+}
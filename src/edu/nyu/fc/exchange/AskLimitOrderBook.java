@@ -15,14 +15,12 @@ public class AskLimitOrderBook extends LimitOrderBook {
      * available)
      */
     public AskLimitOrderBook() {
-        super(new TopOfAskBookComparator<Double>());
+        super(new TopOfAskBookComparator<PriceLevel>());
     }
 
     @Override
-    public double getBestPriceFor(double price) {
-        double topOfBookPrice = getBestPrice();
-        
-        return topOfBookPrice == 0 || topOfBookPrice > price ? price : topOfBookPrice;
+    protected boolean isBetter(final long tick, final long otherTick) {
+        return tick < otherTick;
     }
 
 }
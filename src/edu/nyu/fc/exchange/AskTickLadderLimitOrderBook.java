@@ -0,0 +1,44 @@
+package edu.nyu.fc.exchange;
+
+/**
+ * Concrete implementation of tick ladder limit order book functionality
+ * specific to ASK limit order books, where the lowest price slot is the top of
+ * the book.
+ * 
+ * @author Yourii Martiak
+ *
+ */
+public class AskTickLadderLimitOrderBook extends TickLadderLimitOrderBook {
+
+    /**
+     * Creates new instance of ASK limit order book backed by a tick ladder
+     * 
+     * @param ladderSize number of price levels allocated up front
+     */
+    public AskTickLadderLimitOrderBook(final int ladderSize) {
+        super(ladderSize);
+    }
+
+    /**
+     * Creates new instance of ASK limit order book backed by a tick ladder
+     * spanning a bounded number of price levels
+     * 
+     * @param ladderSize number of price levels allocated up front
+     * @param maxLadderSize largest number of price levels the ladder may span
+     */
+    public AskTickLadderLimitOrderBook(final int ladderSize,
+            final int maxLadderSize) {
+        super(ladderSize, maxLadderSize);
+    }
+
+    @Override
+    protected int getStep() {
+        return 1;
+    }
+
+    @Override
+    protected boolean isCrossing(final long tick, final long limitTick) {
+        return tick <= limitTick;
+    }
+
+}
@@ -0,0 +1,323 @@
+package edu.nyu.fc.exchange;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Runtime metrics of a running auction, published as an MXBean. Metrics are
+ * read from counters the matching thread keeps anyway, so publishing them
+ * adds no work to the matching thread, and reading them never stops it,
+ * which leaves some of them best-effort as described below. An auction split
+ * over shards is reported as a whole, by adding up the counters of every
+ * shard.
+ * <p>
+ * Message and fill counts are published by the matching thread with ordered
+ * stores. Book gauges - resting orders, price levels, order index size and
+ * per book statistics - are plain fields read while the matching thread
+ * keeps changing them. They are best-effort: each reflects at least every
+ * message counted by the last published message count, may include parts of
+ * later ones, and gauges read one after another may not agree with each
+ * other.
+ * <p>
+ * Message and fill rates are sampled once a second by a daemon timer while
+ * the metrics are registered, so all JMX clients see the same rates over the
+ * last second and reading them changes nothing.
+ * 
+ * @author Yourii Martiak
+ *
+ */
+public class AuctionMetrics implements IAuctionMetricsMXBean {
+
+    /**
+     * Domain of the object names of all auction MXBeans
+     */
+    public static final String DOMAIN = "edu.nyu.fc.exchange";
+
+    /**
+     * Period between samples of message and fill counts
+     */
+    static final long SAMPLE_PERIOD_MILLIS = 1000;
+
+    private final DoubleLimitBookAuction[] auctions;
+    private final OrderPipeline pipeline;
+    private final ShardedDoubleLimitBookAuction shardedAuction;
+    private ObjectName objectName;
+
+    /**
+     * Timer sampling rates while registered
+     */
+    private Timer timer;
+
+    /**
+     * Counts as of the previous sample
+     */
+    private long lastMessageCount;
+    private long lastFillCount;
+    private long lastSampleNanos;
+
+    private volatile double messageRate;
+    private volatile double fillRate;
+
+    /**
+     * Creates new metrics of an auction handling messages directly
+     * 
+     * @param auction
+     */
+    public AuctionMetrics(final DoubleLimitBookAuction auction) {
+        this(new DoubleLimitBookAuction[] { checkAuction(auction) }, null,
+                null);
+    }
+
+    /**
+     * Creates new metrics of an auction fed through an order pipeline
+     * 
+     * @param pipeline
+     */
+    public AuctionMetrics(final OrderPipeline pipeline) {
+        this(new DoubleLimitBookAuction[] { checkPipeline(pipeline)
+                .getMatchingAuction() }, pipeline, null);
+    }
+
+    /**
+     * Creates new metrics of an auction split over shards
+     * 
+     * @param shardedAuction
+     */
+    public AuctionMetrics(final ShardedDoubleLimitBookAuction shardedAuction) {
+        this(checkShardedAuction(shardedAuction).getShardAuctions(), null,
+                shardedAuction);
+    }
+
+    private AuctionMetrics(final DoubleLimitBookAuction[] auctions,
+            final OrderPipeline pipeline,
+            final ShardedDoubleLimitBookAuction shardedAuction) {
+        this.auctions = auctions;
+        this.pipeline = pipeline;
+        this.shardedAuction = shardedAuction;
+    }
+
+    private static DoubleLimitBookAuction checkAuction(
+            final DoubleLimitBookAuction auction) {
+        if (auction == null) {
+            throw new IllegalArgumentException("Missing auction");
+        }
+        return auction;
+    }
+
+    private static OrderPipeline checkPipeline(final OrderPipeline pipeline) {
+        if (pipeline == null) {
+            throw new IllegalArgumentException("Missing order pipeline");
+        }
+        return pipeline;
+    }
+
+    private static ShardedDoubleLimitBookAuction checkShardedAuction(
+            final ShardedDoubleLimitBookAuction shardedAuction) {
+        if (shardedAuction == null) {
+            throw new IllegalArgumentException("Missing sharded auction");
+        }
+        return shardedAuction;
+    }
+
+    /**
+     * Register these metrics with the platform MBean server and start
+     * sampling rates
+     * 
+     * @param name name of the auction, unique within the JVM
+     * @throws JMException if the name is invalid or already registered
+     */
+    public synchronized void register(final String name) throws JMException {
+        if (objectName != null) {
+            throw new IllegalStateException("Already registered as "
+                    + objectName);
+        }
+        final ObjectName newObjectName = new ObjectName(DOMAIN
+                + ":type=Auction,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this,
+                newObjectName);
+        objectName = newObjectName;
+
+        lastMessageCount = getMessageCount();
+        lastFillCount = getFillCount();
+        lastSampleNanos = System.nanoTime();
+        timer = new Timer("auction-metrics-" + name, true);
+        timer.scheduleAtFixedRate(new TimerTask() {
+
+            @Override
+            public void run() {
+                sample();
+            }
+        }, SAMPLE_PERIOD_MILLIS, SAMPLE_PERIOD_MILLIS);
+    }
+
+    /**
+     * Unregister these metrics from the platform MBean server, if registered,
+     * and stop sampling rates
+     * 
+     * @throws JMException
+     */
+    public synchronized void unregister() throws JMException {
+        if (objectName != null) {
+            timer.cancel();
+            timer = null;
+            messageRate = 0.0d;
+            fillRate = 0.0d;
+            final MBeanServer server = ManagementFactory
+                    .getPlatformMBeanServer();
+            server.unregisterMBean(objectName);
+            objectName = null;
+        }
+    }
+
+    /**
+     * Update rates from counts changed since the previous sample, unless
+     * sampling has stopped in the meantime
+     */
+    private synchronized void sample() {
+        if (timer == null) {
+            return;
+        }
+        final long messageCount = getMessageCount();
+        final long fillCount = getFillCount();
+        final long nanos = System.nanoTime();
+        final long elapsedNanos = nanos - lastSampleNanos;
+        if (elapsedNanos > 0) {
+            messageRate = (messageCount - lastMessageCount) * 1e9d
+                    / elapsedNanos;
+            fillRate = (fillCount - lastFillCount) * 1e9d / elapsedNanos;
+        }
+        lastMessageCount = messageCount;
+        lastFillCount = fillCount;
+        lastSampleNanos = nanos;
+    }
+
+    /**
+     * Get name these metrics are registered under
+     * 
+     * @return object name or null if not registered
+     */
+    public synchronized ObjectName getObjectName() {
+        return objectName;
+    }
+
+    @Override
+    public long getMessageCount() {
+        long count = 0;
+        for (final DoubleLimitBookAuction auction : auctions) {
+            count += auction.getMessageCount();
+        }
+        return count;
+    }
+
+    @Override
+    public double getMessageRate() {
+        return messageRate;
+    }
+
+    @Override
+    public long getFillCount() {
+        long count = 0;
+        for (final DoubleLimitBookAuction auction : auctions) {
+            count += auction.getFillCount();
+        }
+        return count;
+    }
+
+    @Override
+    public double getFillRate() {
+        return fillRate;
+    }
+
+    @Override
+    public int getSymbolCount() {
+        int count = 0;
+        for (final DoubleLimitBookAuction auction : auctions) {
+            for (final TopOfBook topOfBook : auction.getTopOfBookArray()) {
+                if (topOfBook != null) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public long getRestingOrderCount() {
+        long count = 0;
+        for (final DoubleLimitBookAuction auction : auctions) {
+            for (final TopOfBook topOfBook : auction.getTopOfBookArray()) {
+                if (topOfBook != null) {
+                    count += topOfBook.getBidBook().getOrderCount()
+                            + topOfBook.getAskBook().getOrderCount();
+                }
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public long getOrderIndexSize() {
+        long size = 0;
+        for (final DoubleLimitBookAuction auction : auctions) {
+            size += auction.getOrderIndexSize();
+        }
+        return size;
+    }
+
+    @Override
+    public long getPriceLevelCount() {
+        long count = 0;
+        for (final DoubleLimitBookAuction auction : auctions) {
+            for (final TopOfBook topOfBook : auction.getTopOfBookArray()) {
+                if (topOfBook != null) {
+                    count += topOfBook.getBidBook().getPriceLevelCount()
+                            + topOfBook.getAskBook().getPriceLevelCount();
+                }
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public double getMaxStaleLevelRatio() {
+        double ratio = 0.0d;
+        for (final BookMetrics book : getBooks()) {
+            ratio = Math.max(ratio, book.getStaleLevelRatio());
+        }
+        return ratio;
+    }
+
+    @Override
+    public int getInboundQueueDepth() {
+        if (pipeline != null) {
+            return pipeline.getQueueDepth();
+        } else if (shardedAuction != null) {
+            return shardedAuction.getQueueDepth();
+        }
+        return 0;
+    }
+
+    @Override
+    public List<BookMetrics> getBooks() {
+        final List<BookMetrics> books = new ArrayList<BookMetrics>();
+        for (final DoubleLimitBookAuction auction : auctions) {
+            for (final TopOfBook topOfBook : auction.getTopOfBookArray()) {
+                if (topOfBook != null) {
+                    books.add(new BookMetrics(topOfBook.getSymbol(), Side.BID,
+                            topOfBook.getBidBook()));
+                    books.add(new BookMetrics(topOfBook.getSymbol(), Side.ASK,
+                            topOfBook.getAskBook()));
+                }
+            }
+        }
+        return books;
+    }
+
+}
@@ -0,0 +1,55 @@
+package edu.nyu.fc.exchange;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Wait strategy spinning for a number of tries before it starts parking the
+ * waiting thread, which keeps latency low for short gaps without burning a
+ * core while idle for long.
+ * 
+ * @author Yourii Martiak
+ *
+ */
+public class BackoffWaitStrategy implements IWaitStrategy {
+
+    /**
+     * Default number of tries to spin before parking
+     */
+    public static final int DEFAULT_SPIN_TRIES = 1000;
+
+    /**
+     * Default time to park for once done spinning
+     */
+    public static final long DEFAULT_PARK_NANOS = 50000L;
+
+    private final int spinTries;
+    private final long parkNanos;
+
+    /**
+     * Creates new wait strategy with default spin tries and park time
+     */
+    public BackoffWaitStrategy() {
+        this(DEFAULT_SPIN_TRIES, DEFAULT_PARK_NANOS);
+    }
+
+    /**
+     * Creates new wait strategy with a given number of spin tries and park time
+     * 
+     * @param spinTries
+     * @param parkNanos
+     */
+    public BackoffWaitStrategy(final int spinTries, final long parkNanos) {
+        this.spinTries = spinTries;
+        this.parkNanos = parkNanos;
+    }
+
+    @Override
+    public int idle(final int tries) {
+        if (tries < spinTries) {
+            return tries + 1;
+        }
+        LockSupport.parkNanos(parkNanos);
+        return tries;
+    }
+
+}
@@ -0,0 +1,181 @@
+package edu.nyu.fc.exchange;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs many backtest sessions in parallel, every session through its own
+ * auction on a pool of worker threads, and adds up their statistics. Auctions
+ * share no mutable state, so sessions scale with the number of cores as long
+ * as there are at least as many sessions as threads.
+ * 
+ * @author Yourii Martiak
+ *
+ */
+public class BacktestRunner {
+
+    private final ILimitOrderBookFactory limitOrderBookFactory;
+    private final int threadCount;
+
+    /**
+     * Creates new backtest runner with a thread per core
+     * 
+     * @param limitOrderBookFactory factory of the books of every auction,
+     *            shared by all threads
+     */
+    public BacktestRunner(final ILimitOrderBookFactory limitOrderBookFactory) {
+        this(limitOrderBookFactory, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates new backtest runner
+     * 
+     * @param limitOrderBookFactory factory of the books of every auction,
+     *            shared by all threads
+     * @param threadCount number of worker threads
+     */
+    public BacktestRunner(final ILimitOrderBookFactory limitOrderBookFactory,
+            final int threadCount) {
+        if (limitOrderBookFactory == null) {
+            throw new IllegalArgumentException("Missing limit order book factory");
+        }
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("Invalid thread count "
+                    + threadCount);
+        }
+        this.limitOrderBookFactory = limitOrderBookFactory;
+        this.threadCount = threadCount;
+    }
+
+    /**
+     * Run sessions and wait for all of them to finish
+     * 
+     * @param sessions
+     * @return statistics of every session, in the order of the sessions
+     * @throws IOException if any session cannot be read
+     * @throws InterruptedException
+     */
+    public List<BacktestStatistics> run(
+            final List<? extends IBacktestSession> sessions)
+            throws IOException, InterruptedException {
+        final ExecutorService executor = Executors.newFixedThreadPool(Math
+                .min(threadCount, Math.max(1, sessions.size())));
+        try {
+            final List<Future<BacktestStatistics>> futures = new ArrayList<Future<BacktestStatistics>>(
+                    sessions.size());
+            for (final IBacktestSession session : sessions) {
+                futures.add(executor.submit(new Callable<BacktestStatistics>() {
+
+                    @Override
+                    public BacktestStatistics call() throws IOException {
+                        return runSession(session);
+                    }
+                }));
+            }
+            final List<BacktestStatistics> statistics = new ArrayList<BacktestStatistics>(
+                    sessions.size());
+            for (final Future<BacktestStatistics> future : futures) {
+                statistics.add(get(future));
+            }
+            return statistics;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Add up statistics of many sessions
+     * 
+     * @param statistics
+     * @return statistics of all sessions
+     */
+    public static BacktestStatistics total(
+            final List<BacktestStatistics> statistics) {
+        final BacktestStatistics total = new BacktestStatistics("TOTAL");
+        for (final BacktestStatistics sessionStatistics : statistics) {
+            total.add(sessionStatistics);
+        }
+        return total;
+    }
+
+    private BacktestStatistics runSession(final IBacktestSession session)
+            throws IOException {
+        final BacktestStatistics statistics = new BacktestStatistics(session
+                .getName());
+        final LatencyRecordingDoubleLimitBookAuction auction = new LatencyRecordingDoubleLimitBookAuction(
+                new DoubleLimitBookAuction(limitOrderBookFactory, statistics));
+        final long start = System.nanoTime();
+        final long messageCount = session.run(auction);
+        statistics.endSession(auction, messageCount, System.nanoTime() - start);
+        return statistics;
+    }
+
+    private static BacktestStatistics get(
+            final Future<BacktestStatistics> future) throws IOException,
+            InterruptedException {
+        try {
+            return future.get();
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * Run journals given as arguments, or a given number of synthetic
+     * sessions if the first argument is "synthetic", and print statistics of
+     * every session and of all of them
+     * 
+     * @param args
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public static void main(final String[] args) throws IOException,
+            InterruptedException {
+        if (args.length == 0) {
+            System.err.println("Usage: BacktestRunner <journal file>...\n"
+                    + "       BacktestRunner synthetic <sessions> <messages>");
+            return;
+        }
+        final List<IBacktestSession> sessions = new ArrayList<IBacktestSession>();
+        if ("synthetic".equals(args[0])) {
+            final int sessionCount = args.length > 1 ? Integer
+                    .parseInt(args[1]) : Runtime.getRuntime()
+                    .availableProcessors();
+            final long messageCount = args.length > 2 ? Long
+                    .parseLong(args[2]) : 1000000;
+            for (int i = 0; i < sessionCount; i++) {
+                sessions.add(new SyntheticBacktestSession(i + 1, 100, 65536,
+                        messageCount));
+            }
+        } else {
+            for (final String arg : args) {
+                sessions.add(new JournalBacktestSession(new File(arg)));
+            }
+        }
+        final long start = System.nanoTime();
+        final List<BacktestStatistics> statistics = new BacktestRunner(
+                new TickLadderLimitOrderBookFactory()).run(sessions);
+        final long elapsed = System.nanoTime() - start;
+        for (final BacktestStatistics sessionStatistics : statistics) {
+            System.out.print(sessionStatistics);
+        }
+        System.out.print(total(statistics));
+        System.out.println("Wall time " + elapsed / 1000000 + " ms");
+    }
+
+}
@@ -0,0 +1,174 @@
+package edu.nyu.fc.exchange;
+
+/**
+ * Statistics of one or more backtest sessions: number of messages, fills
+ * collected as the trade listener of the auction running a session, and
+ * latencies per message type. Statistics of every session are collected by
+ * the thread running it, and added up by {@link BacktestRunner} once all
+ * sessions are done.
+ * 
+ * @author Yourii Martiak
+ *
+ */
+public class BacktestStatistics implements ITradeListener {
+
+    private static final String[] MESSAGE_TYPE_NAMES = { "new passive",
+            "new aggressive", "cancel", "replace" };
+
+    private final String name;
+    private final LatencyHistogram[] latencyByType;
+    private int sessionCount;
+    private long messageCount;
+    private long runNanos;
+    private long tradeCount;
+    private long buyAggressorCount;
+    private long tradedQuantity;
+    private double tradedNotional;
+    private int maxFillQuantity;
+
+    /**
+     * Creates new empty statistics
+     * 
+     * @param name name of the session, or of the sessions added up
+     */
+    public BacktestStatistics(final String name) {
+        this.name = name;
+        this.latencyByType = new LatencyHistogram[MESSAGE_TYPE_NAMES.length];
+        for (int i = 0; i < latencyByType.length; i++) {
+            latencyByType[i] = new LatencyHistogram();
+        }
+    }
+
+    @Override
+    public void onTrade(final TradeEvent trade) {
+        tradeCount++;
+        if (trade.getAggressorSide() == Side.BID) {
+            buyAggressorCount++;
+        }
+        tradedQuantity += trade.getQuantity();
+        tradedNotional += trade.getPrice() * trade.getQuantity();
+        if (trade.getQuantity() > maxFillQuantity) {
+            maxFillQuantity = trade.getQuantity();
+        }
+    }
+
+    @Override
+    public void onEndOfBatch() {
+    }
+
+    /**
+     * Record end of a session run through an auction
+     * 
+     * @param auction auction the session was run through
+     * @param messageCount number of messages of the session
+     * @param runNanos time taken to run the session
+     */
+    void endSession(final LatencyRecordingDoubleLimitBookAuction auction,
+            final long messageCount, final long runNanos) {
+        sessionCount++;
+        this.messageCount += messageCount;
+        this.runNanos += runNanos;
+        for (int i = 0; i < latencyByType.length; i++) {
+            latencyByType[i].add(auction.getHistogram(i));
+        }
+    }
+
+    /**
+     * Add statistics of other sessions to these
+     * 
+     * @param other
+     */
+    public void add(final BacktestStatistics other) {
+        sessionCount += other.sessionCount;
+        messageCount += other.messageCount;
+        runNanos += other.runNanos;
+        tradeCount += other.tradeCount;
+        buyAggressorCount += other.buyAggressorCount;
+        tradedQuantity += other.tradedQuantity;
+        tradedNotional += other.tradedNotional;
+        maxFillQuantity = Math.max(maxFillQuantity, other.maxFillQuantity);
+        for (int i = 0; i < latencyByType.length; i++) {
+            latencyByType[i].add(other.latencyByType[i]);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getSessionCount() {
+        return sessionCount;
+    }
+
+    public long getMessageCount() {
+        return messageCount;
+    }
+
+    /**
+     * Get time taken to run the sessions, added up over all sessions no
+     * matter if they ran in parallel
+     * 
+     * @return run time in nanoseconds
+     */
+    public long getRunNanos() {
+        return runNanos;
+    }
+
+    public long getTradeCount() {
+        return tradeCount;
+    }
+
+    public long getBuyAggressorCount() {
+        return buyAggressorCount;
+    }
+
+    public long getTradedQuantity() {
+        return tradedQuantity;
+    }
+
+    public int getMaxFillQuantity() {
+        return maxFillQuantity;
+    }
+
+    public double getMeanFillQuantity() {
+        return tradeCount == 0 ? 0.0d : (double) tradedQuantity / tradeCount;
+    }
+
+    /**
+     * Get volume weighted average price of all fills
+     * 
+     * @return average price, 0 if nothing traded
+     */
+    public double getAveragePrice() {
+        return tradedQuantity == 0 ? 0.0d : tradedNotional / tradedQuantity;
+    }
+
+    /**
+     * Get histogram of latencies recorded for a given message type
+     * 
+     * @param type one of the message types of
+     *            {@link LatencyRecordingDoubleLimitBookAuction}
+     * @return histogram of all sessions
+     */
+    public LatencyHistogram getHistogram(final int type) {
+        return latencyByType[type];
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder(name).append(": ");
+        sb.append(String.format(
+                "sessions=%d messages=%d time=%dms trades=%d quantity=%d"
+                        + " meanFill=%.1f maxFill=%d buyAggressor=%.1f%% vwap=%.4f\n",
+                sessionCount, messageCount, runNanos / 1000000, tradeCount,
+                tradedQuantity, getMeanFillQuantity(), maxFillQuantity,
+                tradeCount == 0 ? 0.0d : 100.0d * buyAggressorCount
+                        / tradeCount, getAveragePrice()));
+        for (int i = 0; i < latencyByType.length; i++) {
+            sb.append(String.format("  %-15s", MESSAGE_TYPE_NAMES[i]));
+            latencyByType[i].appendSummary(sb).append('\n');
+        }
+        return sb.toString();
+    }
+
+}
@@ -15,14 +15,12 @@ public class BidLimitOrderBook extends LimitOrderBook {
      * available)
      */
     public BidLimitOrderBook() {
-        super(new TopOfBidBookComparator<Double>());
+        super(new TopOfBidBookComparator<PriceLevel>());
     }
 
     @Override
-    public double getBestPriceFor(double price) {
-        double topOfBookPrice = getBestPrice();
-        
-        return topOfBookPrice == 0 || topOfBookPrice < price ? price : topOfBookPrice;
+    protected boolean isBetter(final long tick, final long otherTick) {
+        return tick > otherTick;
     }
 
 }
@@ -0,0 +1,159 @@
+package edu.nyu.fc.exchange;
+
+/**
+ * Consistent copy of the top price levels of both books of a symbol, read
+ * from {@link BookDepthViews} by threads other than the matching thread.
+ * Instances are owned by the reading thread and overwritten on every read, so
+ * that reading does not allocate.
+ * 
+ * @author Yourii Martiak
+ *
+ */
+public class BookDepth {
+
+    private final long[] bidTicks;
+    private final long[] bidSizes;
+    private final long[] askTicks;
+    private final long[] askSizes;
+    private String symbol;
+    private double tickSize;
+    private long version;
+    private int bidCount;
+    private int askCount;
+
+    /**
+     * Creates new empty book depth
+     * 
+     * @param depth largest number of price levels per side
+     */
+    public BookDepth(final int depth) {
+        if (depth < 1) {
+            throw new IllegalArgumentException("Invalid depth " + depth);
+        }
+        bidTicks = new long[depth];
+        bidSizes = new long[depth];
+        askTicks = new long[depth];
+        askSizes = new long[depth];
+    }
+
+    /**
+     * Set symbol and version of the depth being read, called once the price
+     * levels have been read consistently
+     */
+    void set(final String symbol, final double tickSize, final long version,
+            final int bidCount, final int askCount) {
+        this.symbol = symbol;
+        this.tickSize = tickSize;
+        this.version = version;
+        this.bidCount = bidCount;
+        this.askCount = askCount;
+    }
+
+    long[] getBidTicks() {
+        return bidTicks;
+    }
+
+    long[] getBidSizes() {
+        return bidSizes;
+    }
+
+    long[] getAskTicks() {
+        return askTicks;
+    }
+
+    long[] getAskSizes() {
+        return askSizes;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public double getTickSize() {
+        return tickSize;
+    }
+
+    /**
+     * Get version of the depth, incremented every time depth of the symbol
+     * changes, so that readers can tell if anything changed since their last
+     * read
+     * 
+     * @return version
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public int getBidCount() {
+        return bidCount;
+    }
+
+    public int getAskCount() {
+        return askCount;
+    }
+
+    /**
+     * Get price of a bid price level
+     * 
+     * @param level zero for the top of the book
+     * @return price in ticks
+     */
+    public long getBidTick(final int level) {
+        checkLevel(level, bidCount);
+        return bidTicks[level];
+    }
+
+    public double getBidPrice(final int level) {
+        return TickSizeTable.toPrice(getBidTick(level), tickSize);
+    }
+
+    public long getBidSize(final int level) {
+        checkLevel(level, bidCount);
+        return bidSizes[level];
+    }
+
+    /**
+     * Get price of an ask price level
+     * 
+     * @param level zero for the top of the book
+     * @return price in ticks
+     */
+    public long getAskTick(final int level) {
+        checkLevel(level, askCount);
+        return askTicks[level];
+    }
+
+    public double getAskPrice(final int level) {
+        return TickSizeTable.toPrice(getAskTick(level), tickSize);
+    }
+
+    public long getAskSize(final int level) {
+        checkLevel(level, askCount);
+        return askSizes[level];
+    }
+
+    private static void checkLevel(final int level, final int count) {
+        if (level < 0 || level >= count) {
+            throw new IndexOutOfBoundsException("Level " + level + " count "
+                    + count);
+        }
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder(symbol).append(" v")
+                .append(version);
+        for (int i = 0; i < Math.max(bidCount, askCount); i++) {
+            sb.append("\n");
+            if (i < bidCount) {
+                sb.append(bidSizes[i]).append(" @ ").append(getBidPrice(i));
+            }
+            sb.append(" / ");
+            if (i < askCount) {
+                sb.append(askSizes[i]).append(" @ ").append(getAskPrice(i));
+            }
+        }
+        return sb.toString();
+    }
+
+}
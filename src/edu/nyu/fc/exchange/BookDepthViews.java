@@ -0,0 +1,250 @@
+package edu.nyu.fc.exchange;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Book update listener keeping a copy of the top price levels of both books
+ * of every symbol, which other threads can read consistently while the
+ * matching thread keeps changing the books. Every symbol has its own
+ * sequence lock: the matching thread makes the sequence odd, writes the depth
+ * and makes the sequence even again, without ever waiting for readers, while
+ * readers copy the depth and retry if the sequence was odd or changed in the
+ * meantime. Depth is only written when it changed, so readers rarely retry
+ * unless the top levels of a symbol change on every message.
+ * <p>
+ * Book updates must come from a single thread, any number of threads can
+ * read.
+ * 
+ * @author Yourii Martiak
+ *
+ */
+public class BookDepthViews implements IBookUpdateListener {
+
+    private final int depth;
+    private final IBookUpdateListener next;
+    private final ConcurrentMap<String, SymbolDepth> symbolDepthMap;
+
+    /**
+     * Depth collected from the books by the matching thread before being
+     * compared against the depth last written
+     */
+    private final long[] bidTicks;
+    private final long[] bidSizes;
+    private final long[] askTicks;
+    private final long[] askSizes;
+
+    /**
+     * Creates new book depth views
+     * 
+     * @param depth number of price levels kept per side
+     */
+    public BookDepthViews(final int depth) {
+        this(depth, null);
+    }
+
+    /**
+     * Creates new book depth views, passing every book update on to another
+     * listener, so that views can be kept along with market data publishing
+     * 
+     * @param depth number of price levels kept per side
+     * @param next listener notified after the views got updated, or null
+     */
+    public BookDepthViews(final int depth, final IBookUpdateListener next) {
+        if (depth < 1) {
+            throw new IllegalArgumentException("Invalid depth " + depth);
+        }
+        this.depth = depth;
+        this.next = next;
+        this.symbolDepthMap = new ConcurrentHashMap<String, SymbolDepth>();
+        this.bidTicks = new long[depth];
+        this.bidSizes = new long[depth];
+        this.askTicks = new long[depth];
+        this.askSizes = new long[depth];
+    }
+
+    @Override
+    public void onBookUpdated(final TopOfBook topOfBook) {
+        SymbolDepth symbolDepth = symbolDepthMap.get(topOfBook.getSymbol());
+        if (symbolDepth == null) {
+            symbolDepth = new SymbolDepth(topOfBook.getSymbol(),
+                    topOfBook.getTickSize(), depth);
+            symbolDepthMap.put(topOfBook.getSymbol(), symbolDepth);
+        }
+        final int bidCount = topOfBook.getBidBook().getDepth(bidTicks,
+                bidSizes, depth);
+        final int askCount = topOfBook.getAskBook().getDepth(askTicks,
+                askSizes, depth);
+        symbolDepth.write(bidTicks, bidSizes, bidCount, askTicks, askSizes,
+                askCount);
+        if (next != null) {
+            next.onBookUpdated(topOfBook);
+        }
+    }
+
+    /**
+     * Get number of price levels kept per side
+     * 
+     * @return depth
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Create book depth large enough to read views into
+     * 
+     * @return empty book depth
+     */
+    public BookDepth newBookDepth() {
+        return new BookDepth(depth);
+    }
+
+    /**
+     * Get symbols seen so far, safe to call from any thread
+     * 
+     * @return unmodifiable view of the symbols
+     */
+    public Set<String> getSymbols() {
+        return Collections.unmodifiableSet(symbolDepthMap.keySet());
+    }
+
+    /**
+     * Read consistent copy of the depth of a symbol, safe to call from any
+     * thread. Never blocks the matching thread, but may spin while the depth
+     * is being written.
+     * 
+     * @param symbol
+     * @param bookDepth depth to read into, created by {@link #newBookDepth()}
+     * @return false if no books of the symbol have been updated yet
+     */
+    public boolean read(final String symbol, final BookDepth bookDepth) {
+        final SymbolDepth symbolDepth = symbolDepthMap.get(symbol);
+        if (symbolDepth == null) {
+            return false;
+        }
+        symbolDepth.read(bookDepth);
+        return true;
+    }
+
+    /**
+     * Depth of a single symbol guarded by a sequence lock. Price levels are
+     * kept in an atomic array, so that every read of the depth is ordered
+     * between the two reads of the sequence. Layout of the array is bid
+     * count, ask count, then bid ticks, bid sizes, ask ticks and ask sizes.
+     */
+    private static final class SymbolDepth {
+
+        private final String symbol;
+        private final double tickSize;
+        private final int depth;
+        private final AtomicLong sequence;
+        private final AtomicLongArray levels;
+
+        /**
+         * Copy of the depth last written, only accessed by the matching
+         * thread
+         */
+        private final long[] writtenLevels;
+
+        private SymbolDepth(final String symbol, final double tickSize,
+                final int depth) {
+            this.symbol = symbol;
+            this.tickSize = tickSize;
+            this.depth = depth;
+            this.sequence = new AtomicLong();
+            this.levels = new AtomicLongArray(2 + 4 * depth);
+            this.writtenLevels = new long[2 + 4 * depth];
+        }
+
+        private void write(final long[] bidTicks, final long[] bidSizes,
+                final int bidCount, final long[] askTicks,
+                final long[] askSizes, final int askCount) {
+            if (isWritten(bidTicks, bidSizes, bidCount, askTicks, askSizes,
+                    askCount)) {
+                return;
+            }
+            writtenLevels[0] = bidCount;
+            writtenLevels[1] = askCount;
+            System.arraycopy(bidTicks, 0, writtenLevels, 2, bidCount);
+            System.arraycopy(bidSizes, 0, writtenLevels, 2 + depth, bidCount);
+            System.arraycopy(askTicks, 0, writtenLevels, 2 + 2 * depth,
+                    askCount);
+            System.arraycopy(askSizes, 0, writtenLevels, 2 + 3 * depth,
+                    askCount);
+
+            final long writeSequence = sequence.get() + 1;
+            // odd sequence tells readers the depth is being written
+            sequence.set(writeSequence);
+            levels.lazySet(0, bidCount);
+            levels.lazySet(1, askCount);
+            for (int i = 0; i < bidCount; i++) {
+                levels.lazySet(2 + i, bidTicks[i]);
+                levels.lazySet(2 + depth + i, bidSizes[i]);
+            }
+            for (int i = 0; i < askCount; i++) {
+                levels.lazySet(2 + 2 * depth + i, askTicks[i]);
+                levels.lazySet(2 + 3 * depth + i, askSizes[i]);
+            }
+            sequence.lazySet(writeSequence + 1);
+        }
+
+        private boolean isWritten(final long[] bidTicks,
+                final long[] bidSizes, final int bidCount,
+                final long[] askTicks, final long[] askSizes,
+                final int askCount) {
+            if (sequence.get() == 0 || writtenLevels[0] != bidCount
+                    || writtenLevels[1] != askCount) {
+                return false;
+            }
+            for (int i = 0; i < bidCount; i++) {
+                if (writtenLevels[2 + i] != bidTicks[i]
+                        || writtenLevels[2 + depth + i] != bidSizes[i]) {
+                    return false;
+                }
+            }
+            for (int i = 0; i < askCount; i++) {
+                if (writtenLevels[2 + 2 * depth + i] != askTicks[i]
+                        || writtenLevels[2 + 3 * depth + i] != askSizes[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void read(final BookDepth bookDepth) {
+            final long[] bidTicks = bookDepth.getBidTicks();
+            final long[] bidSizes = bookDepth.getBidSizes();
+            final long[] askTicks = bookDepth.getAskTicks();
+            final long[] askSizes = bookDepth.getAskSizes();
+            while (true) {
+                final long readSequence = sequence.get();
+                if ((readSequence & 1) != 0) {
+                    // being written, which takes a few dozen stores at most
+                    Thread.yield();
+                    continue;
+                }
+                final int bidCount = (int) levels.get(0);
+                final int askCount = (int) levels.get(1);
+                for (int i = 0; i < bidCount; i++) {
+                    bidTicks[i] = levels.get(2 + i);
+                    bidSizes[i] = levels.get(2 + depth + i);
+                }
+                for (int i = 0; i < askCount; i++) {
+                    askTicks[i] = levels.get(2 + 2 * depth + i);
+                    askSizes[i] = levels.get(2 + 3 * depth + i);
+                }
+                if (sequence.get() == readSequence) {
+                    bookDepth.set(symbol, tickSize, readSequence >>> 1,
+                            bidCount, askCount);
+                    return;
+                }
+            }
+        }
+    }
+
+}
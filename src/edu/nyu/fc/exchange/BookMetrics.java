@@ -0,0 +1,74 @@
+package edu.nyu.fc.exchange;
+
+/**
+ * Statistics of a single limit order book, read from the book when built and
+ * exposed through {@link IAuctionMetricsMXBean}.
+ * 
+ * @author Yourii Martiak
+ *
+ */
+public class BookMetrics {
+
+    private final String symbol;
+    private final Side side;
+    private final int orderCount;
+    private final int priceLevelCount;
+    private final int staleLevelCount;
+
+    /**
+     * Creates new book statistics
+     * 
+     * @param symbol
+     * @param side side of the book
+     * @param book
+     */
+    public BookMetrics(final String symbol, final Side side,
+            final ILimitOrderBook book) {
+        this.symbol = symbol;
+        this.side = side;
+        this.orderCount = book.getOrderCount();
+        this.priceLevelCount = book.getPriceLevelCount();
+        this.staleLevelCount = book.getStaleLevelCount();
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public String getSide() {
+        return side.name();
+    }
+
+    public int getOrderCount() {
+        return orderCount;
+    }
+
+    public int getPriceLevelCount() {
+        return priceLevelCount;
+    }
+
+    public int getStaleLevelCount() {
+        return staleLevelCount;
+    }
+
+    /**
+     * Get share of stale price levels among all price levels in the price
+     * index of the book. A ratio growing over time means more and more work
+     * skipping canceled prices to find the top of the book.
+     * 
+     * @return stale price level ratio between 0 and 1
+     */
+    public double getStaleLevelRatio() {
+        final int levelCount = priceLevelCount + staleLevelCount;
+        return levelCount == 0 ? 0.0d : (double) staleLevelCount / levelCount;
+    }
+
+    @Override
+    public String toString() {
+        return "BookMetrics [symbol=" + symbol + ", side=" + side
+                + ", orderCount=" + orderCount + ", priceLevelCount="
+                + priceLevelCount + ", staleLevelCount=" + staleLevelCount
+                + "]";
+    }
+
+}
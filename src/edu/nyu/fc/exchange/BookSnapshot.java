@@ -0,0 +1,206 @@
+package edu.nyu.fc.exchange;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Point-in-time snapshot of all limit order books of an auction, written to a
+ * compact binary file. Live orders are stored per price level in price/time
+ * priority, so that restoring a snapshot builds every price level in bulk and
+ * hands it over to the book in one step, rather than adding orders one by
+ * one. The order index is rebuilt from the restored price levels.
+ * <p>
+ * Snapshot also records position of the inbound message journal it
+ * corresponds to, so that only the tail of the journal needs to be replayed
+ * after restore.
+ * 
+ * <pre>
+ * header:  magic, version, journal position, trade sequence, symbol count
+ * symbol:  symbol, tick size, order count, BID levels, ASK levels
+ * levels:  level count, then per level: price in ticks, order count, orders
+ * order:   order ID, size
+ * </pre>
+ * 
+ * @author Yourii Martiak
+ *
+ */
+public class BookSnapshot {
+
+    static final int MAGIC = 0x4F534E50;
+    static final int VERSION = 2;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private BookSnapshot() {
+    }
+
+    /**
+     * Write snapshot of the books of an auction to a file. The snapshot is
+     * written next to the target file first, synced to the storage device and
+     * atomically moved in place of the target once complete, so a crash never
+     * leaves a partial snapshot behind.
+     * 
+     * @param auction
+     * @param journalPosition number of journal records reflected in the books
+     * @param file
+     * @throws IOException
+     */
+    public static void save(final DoubleLimitBookAuction auction,
+            final long journalPosition, final File file) throws IOException {
+        if (auction == null) {
+            throw new IllegalArgumentException("Missing auction");
+        }
+        final File tempFile = new File(file.getPath() + ".tmp");
+        final FileOutputStream fileOut = new FileOutputStream(tempFile);
+        final DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(fileOut, BUFFER_SIZE));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(journalPosition);
+            out.writeLong(auction.getTradeSequence());
+            out.writeInt(auction.getTopOfBooks().size());
+            for (final TopOfBook topOfBook : auction.getTopOfBooks()) {
+                final List<PriceLevel> bidLevels = topOfBook.getBidBook()
+                        .getPriceLevels();
+                final List<PriceLevel> askLevels = topOfBook.getAskBook()
+                        .getPriceLevels();
+                out.writeUTF(topOfBook.getSymbol());
+                out.writeDouble(topOfBook.getTickSize());
+                out.writeInt(getOrderCount(bidLevels)
+                        + getOrderCount(askLevels));
+                writeLevels(out, bidLevels);
+                writeLevels(out, askLevels);
+            }
+            out.flush();
+            fileOut.getFD().sync();
+        } finally {
+            out.close();
+        }
+        Files.move(tempFile.toPath(), file.toPath(),
+                StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Restore books of an auction from a snapshot file
+     * 
+     * @param file
+     * @param auction auction that has not handled any messages yet, using
+     *            the same tick sizes as the auction the snapshot was taken of
+     * @return number of journal records reflected in the restored books
+     * @throws IOException
+     */
+    public static long restore(final File file,
+            final DoubleLimitBookAuction auction) throws IOException {
+        if (auction == null) {
+            throw new IllegalArgumentException("Missing auction");
+        }
+        if (!auction.getTopOfBooks().isEmpty()) {
+            throw new IllegalStateException("Auction is not empty");
+        }
+        final DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE));
+        try {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a book snapshot " + file);
+            }
+            final long journalPosition = in.readLong();
+            final long tradeSequence = in.readLong();
+            final int symbolCount = in.readInt();
+            ILimitOrder[] orders = new ILimitOrder[64];
+            for (int i = 0; i < symbolCount; i++) {
+                final String symbol = in.readUTF();
+                final double tickSize = in.readDouble();
+                if (tickSize != auction.getTickSizeTable().getTickSize(symbol)) {
+                    throw new IOException("Tick size " + tickSize + " of "
+                            + symbol + " does not match the auction");
+                }
+                final int orderCount = in.readInt();
+                if (orders.length < orderCount) {
+                    orders = new ILimitOrder[orderCount];
+                }
+                final List<PriceLevel> bidLevels = readLevels(in, symbol,
+                        tickSize, orders, auction.getOrderStore());
+                final List<PriceLevel> askLevels = readLevels(in, symbol,
+                        tickSize, orders, auction.getOrderStore());
+                auction.restoreBooks(symbol, bidLevels, askLevels, orderCount);
+            }
+            auction.restoreTradeSequence(tradeSequence);
+
+            return journalPosition;
+        } finally {
+            in.close();
+        }
+    }
+
+    private static int getOrderCount(final List<PriceLevel> levels) {
+        int count = 0;
+        for (final PriceLevel level : levels) {
+            count += level.getOrderCount();
+        }
+
+        return count;
+    }
+
+    private static void writeLevels(final DataOutputStream out,
+            final List<PriceLevel> levels) throws IOException {
+        out.writeInt(levels.size());
+        for (final PriceLevel level : levels) {
+            out.writeLong(level.getTick());
+            out.writeInt(level.getOrderCount());
+            for (ILimitOrder order = level.peekFirst(); order != null; order = order
+                    .getNext()) {
+                out.writeUTF(order.getOrderId());
+                out.writeInt(order.getSize());
+            }
+        }
+    }
+
+    /**
+     * Read price levels of one side of the book, building each of them in
+     * bulk from its orders
+     * 
+     * @param in
+     * @param symbol
+     * @param tickSize tick size of the symbol
+     * @param orders scratch array large enough for all orders of the symbol
+     * @param orderStore store of the auction being restored
+     * @return price levels
+     * @throws IOException
+     */
+    private static List<PriceLevel> readLevels(final DataInputStream in,
+            final String symbol, final double tickSize,
+            final ILimitOrder[] orders, final ILimitOrderStore orderStore)
+            throws IOException {
+        final int levelCount = in.readInt();
+        final List<PriceLevel> levels = new ArrayList<PriceLevel>(levelCount);
+        for (int i = 0; i < levelCount; i++) {
+            final long tick = in.readLong();
+            final PriceLevel level = new PriceLevel(tick);
+            final int orderCount = in.readInt();
+            if (orderCount > orders.length) {
+                throw new IOException("Invalid order count " + orderCount);
+            }
+            for (int j = 0; j < orderCount; j++) {
+                orders[j] = orderStore.acquire(in.readUTF(), symbol,
+                        in.readInt(), tick, tickSize);
+            }
+            level.addAll(orders, orderCount);
+            levels.add(level);
+        }
+
+        return levels;
+    }
+
+}
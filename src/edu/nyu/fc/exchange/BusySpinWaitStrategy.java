@@ -0,0 +1,18 @@
+package edu.nyu.fc.exchange;
+
+/**
+ * Wait strategy that never gives up the CPU, giving the lowest and most stable
+ * latency at the cost of keeping a core fully busy while idle. Should only be
+ * used when every waiting thread can have a core of its own.
+ * 
+ * @author Yourii Martiak
+ *
+ */
+public class BusySpinWaitStrategy implements IWaitStrategy {
+
+    @Override
+    public int idle(final int tries) {
+        return tries + 1;
+    }
+
+}
@@ -0,0 +1,49 @@
+package edu.nyu.fc.exchange;
+
+import java.io.PrintStream;
+
+/**
+ * Trade listener printing every fill to a print stream. Fills are accumulated
+ * in a reusable buffer and printed once per batch rather than one by one.
+ * 
+ * @author Yourii Martiak
+ *
+ */
+public class ConsoleTradeListener implements ITradeListener {
+
+    private final PrintStream out;
+    private final StringBuilder sb;
+
+    /**
+     * Creates new trade listener printing to standard output
+     */
+    public ConsoleTradeListener() {
+        this(System.out);
+    }
+
+    /**
+     * Creates new trade listener printing to a given print stream
+     * 
+     * @param out
+     */
+    public ConsoleTradeListener(final PrintStream out) {
+        this.out = out;
+        this.sb = new StringBuilder(4096);
+    }
+
+    @Override
+    public void onTrade(final TradeEvent trade) {
+        sb.append("Order ").append(trade.getBidOrderID())
+                .append(" traded with order ").append(trade.getAskOrderID())
+                .append('\n');
+    }
+
+    @Override
+    public void onEndOfBatch() {
+        if (sb.length() > 0) {
+            out.print(sb);
+            sb.setLength(0);
+        }
+    }
+
+}
@@ -1,17 +1,17 @@
 package edu.nyu.fc.exchange;
 
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 import orderGenerator.Message;
 import orderGenerator.NewOrder;
 import orderGenerator.OrderCxR;
 
 /**
- * Implementation of double limit book auction. This implementation consists
- * mainly of two maps holding references to two sided books implementations -
- * bid and ask, keyed by the symbol.
+ * Implementation of double limit book auction. Symbols are interned to dense
+ * IDs on first sight, and the two sided books implementations - bid and ask -
+ * are held in an array indexed by the symbol ID.
  * 
  * @author Yourii Martiak
  *
@@ -19,147 +19,832 @@ import orderGenerator.OrderCxR;
 public class DoubleLimitBookAuction implements IDoubleLimitBookAuction {
     
     /**
-     * Map that holds references to ASK limit order books, that can be accessed
-     * through the symbol
+     * Registry interning symbols to dense IDs on first sight
      */
-    private final Map<String,ILimitOrderBook> askLimitOrderBookMap;
+    private final SymbolRegistry symbolRegistry;
     
     /**
-     * Map that holds references to BID limit order books, that can be accessed
-     * through the symbol
+     * Top of the book of every symbol indexed by symbol ID, along with
+     * references to its BID and ASK limit order books, so that routing a
+     * message to its books takes a single array access once the symbol is
+     * interned
      */
-    private final Map<String,ILimitOrderBook> bidLimitOrderBookMap;
+    private TopOfBook[] topOfBookArray;
+    
+    /**
+     * Factory used to create new limit order books on first sight of a symbol
+     */
+    private final ILimitOrderBookFactory limitOrderBookFactory;
+    
+    /**
+     * Tick sizes used to convert limit prices of inbound orders to ticks
+     */
+    private final TickSizeTable tickSizeTable;
+    
+    /**
+     * Index of orders resting in the books of this auction, keyed by order ID
+     * and used for quick access to an order in case of cancel. Orders are
+     * dropped from the index once fully filled or canceled.
+     */
+    private final OrderIndex orderIndex;
+    
+    /**
+     * Store of the orders of this auction, which orders are released back to
+     * once no longer live
+     */
+    private final ILimitOrderStore orderStore;
+    
+    /**
+     * Listener receiving fills produced by this auction
+     */
+    private final ITradeListener tradeListener;
+    
+    /**
+     * Fills collected while sweeping the opposite side book
+     */
+    private final FillBuffer fillBuffer;
+    
+    /**
+     * Trade event reused for every fill handed to the trade listener
+     */
+    private final TradeEvent tradeEvent;
+    
+    /**
+     * Sequence number of the last fill produced by this auction
+     */
+    private long tradeSequence;
+    
+    /**
+     * Number of messages handled and number of fills produced, written by the
+     * matching thread once per message or batch, and read by monitoring
+     * threads
+     */
+    private final AtomicLong messageCount;
+    private final AtomicLong fillCount;
+    
+    /**
+     * Recorder of stage latencies, if messages are being stamped
+     */
+    private StageLatencyRecorder stageLatencyRecorder;
+    
+    /**
+     * Time the message being handled entered the exchange, and time its
+     * matching started, only kept while messages are being stamped
+     */
+    private long ingressNanos;
+    private long matchNanos;
+    
+    /**
+     * Listener notified of top of the book changes, if any
+     */
+    private ITopOfBookListener topOfBookListener;
+    
+    /**
+     * Listener notified of every update to the books of a symbol, if any
+     */
+    private IBookUpdateListener bookUpdateListener;
+    
+    /**
+     * Cached representation of top of the book across all symbols, or null if
+     * top of the book of any symbol changed since it was built
+     */
+    private String topOfTheBooks;
 
     /**
-     * Creates new instance of double limit book auction
+     * Creates new instance of double limit book auction, printing fills to
+     * standard output
      */
     public DoubleLimitBookAuction() {
-        askLimitOrderBookMap = new HashMap<String,ILimitOrderBook>();
-        bidLimitOrderBookMap = new HashMap<String,ILimitOrderBook>();
+        this(new LimitOrderBookFactory());
+    }
+
+    /**
+     * Creates new instance of double limit book auction, where limit order
+     * books are created by a given factory, printing fills to standard output
+     * 
+     * @param limitOrderBookFactory
+     */
+    public DoubleLimitBookAuction(final ILimitOrderBookFactory limitOrderBookFactory) {
+        this(limitOrderBookFactory, new ConsoleTradeListener());
+    }
+
+    /**
+     * Creates new instance of double limit book auction, where limit order
+     * books are created by a given factory and fills are published to a given
+     * trade listener
+     * 
+     * @param limitOrderBookFactory
+     * @param tradeListener
+     */
+    public DoubleLimitBookAuction(final ILimitOrderBookFactory limitOrderBookFactory,
+            final ITradeListener tradeListener) {
+        this(limitOrderBookFactory, tradeListener, new TickSizeTable());
+    }
+
+    /**
+     * Creates new instance of double limit book auction, where limit order
+     * books are created by a given factory, fills are published to a given
+     * trade listener and limit prices are converted to ticks of the size
+     * configured per symbol
+     * 
+     * @param limitOrderBookFactory
+     * @param tradeListener
+     * @param tickSizeTable
+     */
+    public DoubleLimitBookAuction(final ILimitOrderBookFactory limitOrderBookFactory,
+            final ITradeListener tradeListener, final TickSizeTable tickSizeTable) {
+        this(limitOrderBookFactory, tradeListener, tickSizeTable,
+                new LimitOrderPool(1 << 16));
+    }
+
+    /**
+     * Creates new instance of double limit book auction, where limit order
+     * books are created by a given factory, fills are published to a given
+     * trade listener, limit prices are converted to ticks of the size
+     * configured per symbol and orders are kept by a given order store
+     * 
+     * @param limitOrderBookFactory
+     * @param tradeListener
+     * @param tickSizeTable
+     * @param orderStore
+     */
+    public DoubleLimitBookAuction(final ILimitOrderBookFactory limitOrderBookFactory,
+            final ITradeListener tradeListener, final TickSizeTable tickSizeTable,
+            final ILimitOrderStore orderStore) {
+        if (limitOrderBookFactory == null) {
+            throw new IllegalArgumentException("Missing limit order book factory");
+        }
+        if (tradeListener == null) {
+            throw new IllegalArgumentException("Missing trade listener");
+        }
+        if (tickSizeTable == null) {
+            throw new IllegalArgumentException("Missing tick size table");
+        }
+        if (orderStore == null) {
+            throw new IllegalArgumentException("Missing order store");
+        }
+        this.limitOrderBookFactory = limitOrderBookFactory;
+        this.tradeListener = tradeListener;
+        this.tickSizeTable = tickSizeTable;
+        this.tradeEvent = new TradeEvent();
+        this.fillBuffer = new FillBuffer(64);
+        orderIndex = new OrderIndex(1024);
+        this.orderStore = orderStore;
+        symbolRegistry = new SymbolRegistry(64);
+        topOfBookArray = new TopOfBook[64];
+        messageCount = new AtomicLong();
+        fillCount = new AtomicLong();
+    }
+    
+    /**
+     * Set listener to be notified whenever top of the book of any symbol
+     * changes
+     * 
+     * @param topOfBookListener listener or null to stop notifications
+     */
+    public void setTopOfBookListener(final ITopOfBookListener topOfBookListener) {
+        this.topOfBookListener = topOfBookListener;
     }
     
     /**
-     * Get ASK limit order book corresponding to a given symbol
+     * Set recorder of latencies of the stages every message goes through,
+     * enabling timestamps on messages and on the fills they produce. Must be
+     * set before messages get handled, and not be shared with other auctions.
+     * 
+     * @param stageLatencyRecorder recorder or null to stop stamping
+     */
+    public void setStageLatencyRecorder(
+            final StageLatencyRecorder stageLatencyRecorder) {
+        this.stageLatencyRecorder = stageLatencyRecorder;
+        tradeEvent.setTimestamps(0, 0, 0);
+    }
+    
+    /**
+     * Set listener to be notified after every message that updated books of
+     * any symbol
+     * 
+     * @param bookUpdateListener listener or null to stop notifications
+     */
+    public void setBookUpdateListener(final IBookUpdateListener bookUpdateListener) {
+        this.bookUpdateListener = bookUpdateListener;
+    }
+    
+    /**
+     * Get tick sizes used by this auction
+     * 
+     * @return tick size table
+     */
+    public TickSizeTable getTickSizeTable() {
+        return tickSizeTable;
+    }
+    
+    /**
+     * Get store keeping the orders of this auction
+     * 
+     * @return order store
+     */
+    ILimitOrderStore getOrderStore() {
+        return orderStore;
+    }
+    
+    /**
+     * Get top of the book for a given symbol, maintained after every message
+     * 
+     * @param symbol
+     * @return top of the book or null if the symbol has not been seen
+     */
+    public TopOfBook getTopOfBook(final String symbol) {
+        final int symbolId = symbolRegistry.getId(symbol);
+
+        return symbolId < 0 ? null : topOfBookArray[symbolId];
+    }
+    
+    /**
+     * Get top of the book corresponding to a given symbol, creating the BID and
+     * ASK limit order books on first sight of the symbol
      * 
      * @param symbol
-     * @return reference to the limit order book
+     * @return top of the book
+     */
+    private TopOfBook getTopOfBookForSymbol(final String symbol) {
+        final int symbolId = symbolRegistry.intern(symbol);
+        if (symbolId < topOfBookArray.length) {
+            final TopOfBook topOfBook = topOfBookArray[symbolId];
+            if (topOfBook != null) {
+                return topOfBook;
+            }
+        } else {
+            final TopOfBook[] newTopOfBookArray = new TopOfBook[topOfBookArray.length << 1];
+            System.arraycopy(topOfBookArray, 0, newTopOfBookArray, 0,
+                    topOfBookArray.length);
+            topOfBookArray = newTopOfBookArray;
+        }
+        final TopOfBook topOfBook = new TopOfBook(symbol,
+                tickSizeTable.getTickSize(symbol),
+                limitOrderBookFactory.newBidBook(symbol),
+                limitOrderBookFactory.newAskBook(symbol));
+        topOfBookArray[symbolId] = topOfBook;
+        return topOfBook;
+    }
+    
+    /**
+     * Refresh top of the book after a message, notifying the top of the book
+     * listener and invalidating cached representation only if anything
+     * changed
+     * 
+     * @param topOfBook
      */
-    private ILimitOrderBook getAskBookForSymbol(String symbol) {
-        ILimitOrderBook book = askLimitOrderBookMap.get(symbol);
-        if (book == null) {
-            book = new AskLimitOrderBook();
-            askLimitOrderBookMap.put(symbol, book);
+    private void updateTopOfBook(final TopOfBook topOfBook) {
+        if (topOfBook.update()) {
+            topOfTheBooks = null;
+            if (topOfBookListener != null) {
+                topOfBookListener.onTopOfBookChanged(topOfBook);
+            }
+        }
+        if (bookUpdateListener != null) {
+            bookUpdateListener.onBookUpdated(topOfBook);
         }
-        return book;
     }
     
     /**
-     * Get BID limit order book corresponding to a given symbol
+     * Get top of the book of every symbol seen by this auction, giving access
+     * to the BID and ASK limit order books of the symbol
+     * 
+     * @return top of the books in order of symbol IDs
+     */
+    List<TopOfBook> getTopOfBooks() {
+        final int symbolCount = symbolRegistry.size();
+        final List<TopOfBook> topOfBooks = new ArrayList<TopOfBook>(symbolCount);
+        for (int i = 0; i < symbolCount; i++) {
+            topOfBooks.add(topOfBookArray[i]);
+        }
+        return topOfBooks;
+    }
+
+    /**
+     * Get sequence number of the last fill produced by this auction
+     * 
+     * @return trade sequence
+     */
+    long getTradeSequence() {
+        return tradeSequence;
+    }
+
+    /**
+     * Restore books of a symbol from price levels built in bulk, making all
+     * their orders available for cancel. Only meant to be used on books that
+     * do not have any orders yet.
      * 
      * @param symbol
-     * @return reference to the limit order book
+     * @param bidLevels BID price levels with their orders already queued
+     * @param askLevels ASK price levels with their orders already queued
+     * @param orderCount total number of orders in all price levels
      */
-    private ILimitOrderBook getBidBookForSymbol(String symbol) {
-        ILimitOrderBook book = bidLimitOrderBookMap.get(symbol);
-        if (book == null) {
-            book = new BidLimitOrderBook();
-            bidLimitOrderBookMap.put(symbol, book);
+    void restoreBooks(final String symbol, final List<PriceLevel> bidLevels,
+            final List<PriceLevel> askLevels, final int orderCount) {
+        final TopOfBook topOfBook = getTopOfBookForSymbol(symbol);
+        orderIndex.ensureCapacity(orderIndex.size() + orderCount);
+        restoreLevels(topOfBook.getBidBook(), bidLevels);
+        restoreLevels(topOfBook.getAskBook(), askLevels);
+        updateTopOfBook(topOfBook);
+    }
+
+    private void restoreLevels(final ILimitOrderBook book,
+            final List<PriceLevel> levels) {
+        for (final PriceLevel level : levels) {
+            book.addPriceLevel(level);
+            for (ILimitOrder order = level.peekFirst(); order != null; order = order
+                    .getNext()) {
+                if (orderIndex.put(order) != null) {
+                    throw new IllegalArgumentException("Duplicate order "
+                            + order);
+                }
+            }
         }
-        return book;
+    }
+
+    /**
+     * Continue trade sequence numbers from a given sequence, used when the
+     * auction state gets restored
+     * 
+     * @param tradeSequence sequence number of the last fill
+     */
+    void restoreTradeSequence(final long tradeSequence) {
+        this.tradeSequence = tradeSequence;
+        fillCount.lazySet(tradeSequence);
+    }
+
+    /**
+     * Get number of messages handled so far, safe to call from any thread
+     * 
+     * @return message count
+     */
+    long getMessageCount() {
+        return messageCount.get();
+    }
+
+    /**
+     * Get number of fills produced so far, safe to call from any thread
+     * 
+     * @return fill count
+     */
+    long getFillCount() {
+        return fillCount.get();
+    }
+
+    /**
+     * Get number of orders in the order index, read without synchronization
+     * by monitoring threads, as of the last published counts or later
+     * 
+     * @return order index size
+     */
+    int getOrderIndexSize() {
+        // see getTopOfBookArray()
+        messageCount.get();
+        return orderIndex.size();
+    }
+
+    /**
+     * Check if an order with a given order ID is resting in the book and can
+     * be canceled, only safe to call from the matching thread
+     * 
+     * @param orderID
+     * @return true if the order ID is live
+     */
+    boolean isOrderLive(final String orderID) {
+        return orderIndex.get(orderID) != null;
+    }
+
+    /**
+     * Get top of the book of every symbol indexed by symbol ID, read without
+     * synchronization by monitoring threads, which must skip null entries.
+     * Books read through it reflect at least every message handled before
+     * counts were last published, and possibly parts of later ones.
+     * 
+     * @return top of the books, possibly not the latest array
+     */
+    TopOfBook[] getTopOfBookArray() {
+        // reading the count pairs with its ordered store in updateCounts(),
+        // so writes made to the books before that store are visible here
+        messageCount.get();
+        return topOfBookArray;
     }
 
     @Override
     public final void handleMessage(final Message message) {
-        if (message instanceof NewOrder) {
-            handleNewOrderMessage(new LimitOrder((NewOrder) message));
-        } else if (message instanceof OrderCxR) {
-            handleOrderCxRMessage((OrderCxR) message);
+        startMatch(0);
+        if (message instanceof NewOrder && isValid((NewOrder) message)) {
+            final NewOrder order = (NewOrder) message;
+            final TopOfBook topOfBook = getTopOfBookForSymbol(order.getSymbol());
+            handleNewOrder(orderStore.acquire(order,
+                    topOfBook.getTickSize()), topOfBook);
+        } else if (message instanceof OrderCxR && isValid((OrderCxR) message)) {
+            handleOrderCxR((OrderCxR) message);
         } else {
             System.err.println("Invalid message " + message);
         }
     }
 
+    /**
+     * Handle a batch of messages, publishing all resulting fills as one batch.
+     * Book lookup is skipped for new orders of the same symbol as the new
+     * order before them, so batches grouped by symbol are handled with one
+     * lookup per run of the symbol.
+     */
+    @Override
+    public final void handleMessages(final Message[] messages,
+            final int offset, final int length) {
+        checkRange(messages, offset, length);
+        final long lastTradeSequence = tradeSequence;
+        String lastSymbol = null;
+        TopOfBook topOfBook = null;
+        int i = offset;
+        try {
+            for (final int end = offset + length; i < end; i++) {
+                final Message message = messages[i];
+                startMatch(0);
+                if (message instanceof NewOrder && isValid((NewOrder) message)) {
+                    final NewOrder order = (NewOrder) message;
+                    final String symbol = order.getSymbol();
+                    if (symbol != lastSymbol && !symbol.equals(lastSymbol)) {
+                        topOfBook = getTopOfBookForSymbol(symbol);
+                        lastSymbol = symbol;
+                    }
+                    handleNewOrderMessage(orderStore.acquire(order,
+                            topOfBook.getTickSize()), topOfBook);
+                } else if (message instanceof OrderCxR
+                        && isValid((OrderCxR) message)) {
+                    handleOrderCxRMessage((OrderCxR) message);
+                } else {
+                    System.err.println("Invalid message " + message);
+                }
+                endMatch();
+            }
+        } finally {
+            // fills already published must be flushed even if the batch failed
+            if (tradeSequence != lastTradeSequence) {
+                tradeListener.onEndOfBatch();
+            }
+            updateCounts(i - offset);
+        }
+    }
+
+    /**
+     * Validate range of a batch of messages
+     * 
+     * @param messages
+     * @param offset
+     * @param length
+     */
+    static void checkRange(final Message[] messages, final int offset,
+            final int length) {
+        if (messages == null) {
+            throw new IllegalArgumentException("Missing messages");
+        }
+        if (offset < 0 || length < 0 || offset > messages.length - length) {
+            throw new IllegalArgumentException("Invalid range " + offset
+                    + ", " + length + " of " + messages.length + " messages");
+        }
+    }
+
+    /**
+     * Check that a new order carries everything the auction needs: order ID,
+     * symbol, non-zero size and a valid limit price
+     * 
+     * @param order
+     * @return true if the new order can be handled
+     */
+    static boolean isValid(final NewOrder order) {
+        return order.getOrderId() != null && order.getSymbol() != null
+                && order.getSize() != 0 && isValidPrice(order.getLimitPrice());
+    }
+
+    /**
+     * Check that a cancel or replace carries order ID, and a valid limit price
+     * unless it is a straight cancel
+     * 
+     * @param orderCxR
+     * @return true if the cancel or replace can be handled
+     */
+    static boolean isValid(final OrderCxR orderCxR) {
+        return orderCxR.getOrderId() != null
+                && (orderCxR.getSize() == 0 || isValidPrice(orderCxR
+                        .getLimitPrice()));
+    }
+
+    /**
+     * Check limit price, where NaN stands for a market order
+     * 
+     * @param price
+     * @return true if the price is either NaN or positive
+     */
+    private static boolean isValidPrice(final double price) {
+        return Double.isNaN(price) || (price > 0 && !Double.isInfinite(price));
+    }
+
+    /**
+     * Handle new order that has already been validated, publishing any
+     * resulting fills as one batch
+     * 
+     * @param order
+     * @param ingressNanos time the order entered the exchange, 0 if not known
+     */
+    final void handleNewOrder(final NewOrder order, final long ingressNanos) {
+        startMatch(ingressNanos);
+        final TopOfBook topOfBook = getTopOfBookForSymbol(order.getSymbol());
+        handleNewOrder(orderStore.acquire(order, topOfBook.getTickSize()),
+                topOfBook);
+    }
+
+    private void handleNewOrder(final ILimitOrder order,
+            final TopOfBook topOfBook) {
+        final long lastTradeSequence = tradeSequence;
+        handleNewOrderMessage(order, topOfBook);
+        endMatch();
+        if (tradeSequence != lastTradeSequence) {
+            tradeListener.onEndOfBatch();
+        }
+        updateCounts(1);
+    }
+
+    /**
+     * Handle order cancel or replace that has already been validated,
+     * publishing any resulting fills as one batch
+     * 
+     * @param orderCxR
+     * @param ingressNanos time the message entered the exchange, 0 if not
+     *            known
+     */
+    final void handleOrderCxR(final OrderCxR orderCxR, final long ingressNanos) {
+        startMatch(ingressNanos);
+        handleOrderCxR(orderCxR);
+    }
+
+    private void handleOrderCxR(final OrderCxR orderCxR) {
+        final long lastTradeSequence = tradeSequence;
+        handleOrderCxRMessage(orderCxR);
+        endMatch();
+        if (tradeSequence != lastTradeSequence) {
+            tradeListener.onEndOfBatch();
+        }
+        updateCounts(1);
+    }
+
+    /**
+     * Stamp start of matching of a message, if messages are being stamped
+     * 
+     * @param ingressNanos time the message entered the exchange, 0 if it
+     *            entered right here
+     */
+    private void startMatch(final long ingressNanos) {
+        if (stageLatencyRecorder != null) {
+            matchNanos = System.nanoTime();
+            this.ingressNanos = ingressNanos == 0 ? matchNanos : ingressNanos;
+        }
+    }
+
+    /**
+     * Record latencies of a message once matched, before its fills are
+     * flushed, if messages are being stamped
+     */
+    private void endMatch() {
+        if (stageLatencyRecorder != null) {
+            stageLatencyRecorder.recordMatch(ingressNanos, matchNanos,
+                    System.nanoTime());
+        }
+    }
+
+    /**
+     * Hand trade event over to the trade listener, stamped with the time of
+     * emission if messages are being stamped
+     */
+    private void emitTrade() {
+        if (stageLatencyRecorder != null) {
+            tradeEvent.setTimestamps(ingressNanos, matchNanos, System
+                    .nanoTime());
+        }
+        tradeListener.onTrade(tradeEvent);
+    }
+
+    /**
+     * Publish counts to monitoring threads with ordered stores, which cost no
+     * more than plain stores, as only the matching thread writes them
+     * 
+     * @param handledCount number of messages just handled
+     */
+    private void updateCounts(final int handledCount) {
+        messageCount.lazySet(messageCount.get() + handledCount);
+        if (fillCount.get() != tradeSequence) {
+            fillCount.lazySet(tradeSequence);
+        }
+    }
+
     /**
      * Handle new order, which may or may not result in execution against the
      * opposite side matching price limits (or best price for market orders).
+     * The opposite side is swept in a single pass, and the fills are published
+     * afterwards in the order they happened.
      * 
      * @param order
+     * @param topOfBook top of the book of the order's symbol
      */
-    private void handleNewOrderMessage(final ILimitOrder order) {
+    private void handleNewOrderMessage(final ILimitOrder order,
+            final TopOfBook topOfBook) {
         // first check if the order is buy or sell
         final int size = order.getSize();
-        final double limitPrice = order.getLimitPrice();
-        final String symbol = order.getSymbol();
-        final ILimitOrderBook bidLimitOrderBook = getBidBookForSymbol(symbol);
-        final ILimitOrderBook askLimitOrderBook = getAskBookForSymbol(symbol);
+        final ILimitOrderBook oppositeBook;
+        final ILimitOrderBook book;
+        final Side aggressorSide;
         if (size < 0) {
-            // handle sell, check if we have the opposite side order to cross
-            ILimitOrder bid = null;
-            do {
-                bid = bidLimitOrderBook
-                    .pollNextOrderFor(limitPrice); 
-                if (bid != null) {
-                    newTrade(bid, order);
-                    if (bid.getSize() > 0) {
-                        // put leaves quantity back in front of the queue for a
-                        // given price level
-                        bidLimitOrderBook.addFirst(bid);
-                    }
-                }
-            } while (order.getSize() < 0 && bid != null);
-            
-            if (order.getSize() < 0) {
-                // put leaves quantity at the end of the queue for a given
-                // price level
-                askLimitOrderBook.addLast(order);
-            }
+            oppositeBook = topOfBook.getBidBook();
+            book = topOfBook.getAskBook();
+            aggressorSide = Side.ASK;
         } else {
-            // handle buy, check if we have the opposite side to cross
-            ILimitOrder ask = null;
-            do {
-                ask = askLimitOrderBook
-                    .pollNextOrderFor(limitPrice);
-                if (ask != null) {
-                    newTrade(order, ask);
-                    if (ask.getSize() < 0) {
-                        // put leaves quantity back in front of the queue for a
-                        // given price level
-                        askLimitOrderBook.addFirst(ask);
-                    }
-                }                
-            } while (order.getSize() > 0 && ask != null);
+            oppositeBook = topOfBook.getAskBook();
+            book = topOfBook.getBidBook();
+            aggressorSide = Side.BID;
+        }
+
+        if (order.getOrderType() == OrderType.LIMIT
+                && !book.canRest(order.getLimitTick())) {
+            // rejected before it trades, as its leaves quantity would not fit
+            rejectOrder(order);
+            onOrderRetired(order);
+            orderStore.release(order);
+            return;
+        }
+
+        // check if we have the opposite side orders to cross
+        final int filled = oppositeBook.sweep(order, fillBuffer);
+        if (filled > 0) {
+            order.setSize(size < 0 ? size + filled : size - filled);
+            publishFills(order, aggressorSide);
+        }
+        if (order.getSize() != 0) {
+            // put leaves quantity at the end of the queue for a given price
+            // level
+            book.addLast(order);
+        }
+
+        if (order.getPriceLevel() != null) {
+            // make order available for cancel as it ended up resting in the book
+            orderIndex.put(order);
+        } else {
+            // order was either fully filled, or it is a market order, whose
+            // leaves quantity is never rested
+            onOrderRetired(order);
+            orderStore.release(order);
+        }
+        updateTopOfBook(topOfBook);
+    }
+
+    /**
+     * Report order whose limit price is out of range of its book
+     * 
+     * @param order
+     */
+    private static void rejectOrder(final ILimitOrder order) {
+        System.err.println("Rejected order " + order
+                + ", price out of range of the book");
+    }
 
-            if (order.getSize() > 0) {
-                // put leaves quantity at the end of the queue for a given
-                // price level
-                bidLimitOrderBook.addLast(order);
+    /**
+     * Publish fills collected by the last sweep, each at the price of the
+     * resting order, and retire resting orders that got fully filled
+     * 
+     * @param order incoming order that swept the book
+     * @param aggressorSide side of the incoming order
+     */
+    private void publishFills(final ILimitOrder order, final Side aggressorSide) {
+        final boolean isBid = aggressorSide == Side.BID;
+        final int fillCount = fillBuffer.size();
+        for (int i = 0; i < fillCount; i++) {
+            final ILimitOrder restingOrder = fillBuffer.getOrder(i);
+            tradeEvent.set(++tradeSequence, order.getSymbol(),
+                    isBid ? order.getOrderId() : restingOrder.getOrderId(),
+                    isBid ? restingOrder.getOrderId() : order.getOrderId(),
+                    restingOrder.getLimitPrice(), fillBuffer.getFillSize(i),
+                    aggressorSide);
+            emitTrade();
+            if (restingOrder.getSize() == 0) {
+                retireOrder(restingOrder);
             }
         }
+        fillBuffer.clear();
+    }
+
+    /**
+     * Drop fully filled order from the order index, unless a later order with
+     * the same order ID took its place there
+     * 
+     * @param order
+     */
+    private void retireOrder(final ILimitOrder order) {
+        orderIndex.remove(order.getOrderId(), order);
+        onOrderRetired(order);
+        orderStore.release(order);
+    }
+
+    /**
+     * Called once an order ID is no longer live in this auction, because the
+     * order has been fully filled, canceled, or was never rested. Subclasses
+     * may override this method to release any state they keep per order ID.
+     * The order gets reused afterwards, so it must not be retained.
+     * 
+     * @param order
+     */
+    protected void onOrderRetired(final ILimitOrder order) {
     }
 
     /**
      * Handle order cancels and replaces through this method. In case of straight
-     * cancel, orders get marked as "dead". In case of replace, a new order is
-     * also created.
+     * cancel, orders get marked as "dead" and unlinked from their price level
+     * queue. Replaces reducing size at the same price are amended in place,
+     * keeping their time priority. In case of any other replace, a new order is
+     * also created and matched.
      * 
      * @param orderCxR
      */
     private void handleOrderCxRMessage(final OrderCxR orderCxR) {
+        final ILimitOrder originalOrder = orderIndex.get(orderCxR.getOrderId());
+        if (originalOrder == null) {
+            return;
+        }
+        final TopOfBook topOfBook = getTopOfBookForSymbol(originalOrder.getSymbol());
+        if (isAmend(originalOrder, orderCxR)) {
+            originalOrder.getPriceLevel().resize(originalOrder, orderCxR.getSize());
+            updateTopOfBook(topOfBook);
+            return;
+        }
+
+        // replace the book cannot hold leaves the original order in place,
+        // checked while the original still rests, so before anything changes
+        final int size = orderCxR.getSize();
+        final ILimitOrder order = size != 0 ? orderStore.acquire(
+                originalOrder, orderCxR) : null;
+        if (order != null
+                && order.getOrderType() == OrderType.LIMIT
+                && !(size < 0 ? topOfBook.getAskBook() : topOfBook.getBidBook())
+                        .canRest(order.getLimitTick())) {
+            rejectOrder(order);
+            orderStore.release(order);
+            return;
+        }
+
         // first, cancel original order
-        final ILimitOrder originalOrder = LimitOrderBook
-                .cancelOriginalOrderFor(orderCxR);
+        orderIndex.remove(orderCxR.getOrderId(), originalOrder);
+        originalOrder.setDead();
+        final ILimitOrderBook book = originalOrder.getSize() < 0 ? topOfBook.getAskBook()
+                : topOfBook.getBidBook();
+        book.remove(originalOrder);
 
         // check if this is a straight cancel
-        final int size = orderCxR.getSize();
-        if (size != 0 && originalOrder != null) {
+        if (order != null) {
             // handle replace
-            handleNewOrderMessage(new LimitOrderReplace(originalOrder, orderCxR));
+            orderStore.release(originalOrder);
+            handleNewOrderMessage(order, topOfBook);
+        } else {
+            onOrderRetired(originalOrder);
+            orderStore.release(originalOrder);
+            updateTopOfBook(topOfBook);
         }
     }
 
+    /**
+     * Check if a replace can be applied to the resting order in place, which is
+     * the case if it keeps the side and limit price in ticks, and does not
+     * increase the size. Such a replace cannot cross the opposite side, as the
+     * resting order does not.
+     * 
+     * @param order resting order
+     * @param orderCxR
+     * @return true if the resting order can be amended in place
+     */
+    private static boolean isAmend(final ILimitOrder order,
+            final OrderCxR orderCxR) {
+        final int size = order.getSize();
+        final int newSize = orderCxR.getSize();
+        if (size > 0 ? newSize <= 0 || newSize > size : newSize >= 0
+                || newSize < size) {
+            return false;
+        }
+        final double limitPrice = orderCxR.getLimitPrice();
+        if (Double.isNaN(limitPrice)) {
+            return false;
+        }
+        final double tickSize = order.getTickSize();
+        final long limitTick = size > 0 ? TickSizeTable.toBidTick(limitPrice,
+                tickSize) : TickSizeTable.toAskTick(limitPrice, tickSize);
+
+        return limitTick == order.getLimitTick();
+    }
+
     @Override
-    public void newTrade(final ILimitOrder bid, final ILimitOrder ask) {
-        final int sizeDelta = bid.getSize() + ask.getSize();
+    public void newTrade(final ILimitOrder bid, final ILimitOrder ask,
+            final Side aggressorSide) {
+        final int bidSize = bid.getSize();
+        final int askSize = ask.getSize();
+        final int sizeDelta = bidSize + askSize;
         if (sizeDelta > 0) {
             // bid order has leaves quantity
             bid.setSize(sizeDelta);
@@ -174,38 +859,45 @@ public class DoubleLimitBookAuction implements IDoubleLimitBookAuction {
             ask.setSize(0);
         }
 
-        System.out.println(String.format("Order %s traded with order %s",
-                bid.getOrderId(), ask.getOrderId()));
+        // trade happens at the price of the order resting in the book
+        final double price = aggressorSide == Side.BID ? ask.getLimitPrice()
+                : bid.getLimitPrice();
+        tradeEvent.set(++tradeSequence, bid.getSymbol(), bid.getOrderId(),
+                ask.getOrderId(), price, Math.min(bidSize, -askSize),
+                aggressorSide);
+        emitTrade();
     }
 
     @Override
     public String getTopOfTheBooks() {
+        if (topOfTheBooks != null) {
+            return topOfTheBooks;
+        }
         StringBuilder sb = new StringBuilder("TOP OF BOOK\n============");
         sb.append("\nBID\n===\n");
-        Collection<ILimitOrderBook> bidBooks = bidLimitOrderBookMap.values();
-        for (ILimitOrderBook book : bidBooks) {
-            sb.append(book.getTopOfBook()).append("\n");
+        int symbolCount = symbolRegistry.size();
+        for (int i = 0; i < symbolCount; i++) {
+            sb.append(topOfBookArray[i].getBidString()).append("\n");
         }
         sb.append("\nASK\n===\n");
-        Collection<ILimitOrderBook> askBooks = askLimitOrderBookMap.values();
-        for (ILimitOrderBook book : askBooks) {
-            sb.append(book.getTopOfBook()).append("\n");
+        for (int i = 0; i < symbolCount; i++) {
+            sb.append(topOfBookArray[i].getAskString()).append("\n");
         }
-        return sb.toString();
+        topOfTheBooks = sb.toString();
+        return topOfTheBooks;
     }
     
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder("BOOK STATUS\n============");
         sb.append("\nBID\n===\n");
-        Collection<ILimitOrderBook> bidBooks = bidLimitOrderBookMap.values();
-        for (ILimitOrderBook book : bidBooks) {
-            sb.append(book).append("\n");
+        int symbolCount = symbolRegistry.size();
+        for (int i = 0; i < symbolCount; i++) {
+            sb.append(topOfBookArray[i].getBidBook()).append("\n");
         }
         sb.append("\nASK\n===\n");
-        Collection<ILimitOrderBook> askBooks = askLimitOrderBookMap.values();
-        for (ILimitOrderBook book : askBooks) {
-            sb.append(book).append("\n");
+        for (int i = 0; i < symbolCount; i++) {
+            sb.append(topOfBookArray[i].getAskBook()).append("\n");
         }
         return sb.toString();
     }
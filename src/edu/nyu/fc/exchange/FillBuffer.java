@@ -0,0 +1,97 @@
+package edu.nyu.fc.exchange;
+
+/**
+ * Reusable buffer of fills produced by sweeping a limit order book, holding
+ * the resting orders that traded along with the quantity each of them traded,
+ * in the order the fills happened. Fills are kept in parallel arrays, which
+ * only grow, so once warmed up sweeping does not allocate.
+ * 
+ * @author Yourii Martiak
+ *
+ */
+public class FillBuffer {
+
+    private ILimitOrder[] orders;
+    private int[] sizes;
+    private int size;
+
+    /**
+     * Creates new fill buffer with a given initial capacity
+     * 
+     * @param capacity
+     */
+    public FillBuffer(final int capacity) {
+        orders = new ILimitOrder[Math.max(capacity, 1)];
+        sizes = new int[orders.length];
+    }
+
+    /**
+     * Append a fill of a resting order
+     * 
+     * @param order resting order, already updated to its leaves quantity
+     * @param fillSize quantity traded, always positive
+     */
+    public void add(final ILimitOrder order, final int fillSize) {
+        if (size == orders.length) {
+            final ILimitOrder[] newOrders = new ILimitOrder[size << 1];
+            final int[] newSizes = new int[size << 1];
+            System.arraycopy(orders, 0, newOrders, 0, size);
+            System.arraycopy(sizes, 0, newSizes, 0, size);
+            orders = newOrders;
+            sizes = newSizes;
+        }
+        orders[size] = order;
+        sizes[size] = fillSize;
+        size++;
+    }
+
+    /**
+     * Get resting order of the fill at a given position
+     * 
+     * @param index
+     * @return resting order, fully filled orders have zero size and are no
+     *         longer in the book
+     */
+    public ILimitOrder getOrder(final int index) {
+        checkIndex(index);
+        return orders[index];
+    }
+
+    /**
+     * Get quantity traded by the fill at a given position
+     * 
+     * @param index
+     * @return quantity traded, always positive
+     */
+    public int getFillSize(final int index) {
+        checkIndex(index);
+        return sizes[index];
+    }
+
+    /**
+     * Get number of fills in the buffer
+     * 
+     * @return number of fills
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Drop all fills, keeping allocated capacity for reuse
+     */
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            orders[i] = null;
+        }
+        size = 0;
+    }
+
+    private void checkIndex(final int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " size "
+                    + size);
+        }
+    }
+
+}
@@ -0,0 +1,100 @@
+package edu.nyu.fc.exchange;
+
+import java.util.List;
+
+/**
+ * Management interface of {@link AuctionMetrics}, exposing runtime metrics of
+ * a running auction through JMX. Counts are exact as of a recent message,
+ * book statistics are read without stopping the matching thread and may lag
+ * slightly behind.
+ * 
+ * @author Yourii Martiak
+ *
+ */
+public interface IAuctionMetricsMXBean {
+
+    /**
+     * Get number of messages handled since start
+     * 
+     * @return message count
+     */
+    public long getMessageCount();
+
+    /**
+     * Get number of messages handled per second over the last second,
+     * sampled while the metrics are registered
+     * 
+     * @return message rate
+     */
+    public double getMessageRate();
+
+    /**
+     * Get number of fills produced since start
+     * 
+     * @return fill count
+     */
+    public long getFillCount();
+
+    /**
+     * Get number of fills produced per second over the last second,
+     * sampled while the metrics are registered
+     * 
+     * @return fill rate
+     */
+    public double getFillRate();
+
+    /**
+     * Get number of symbols with books
+     * 
+     * @return symbol count
+     */
+    public int getSymbolCount();
+
+    /**
+     * Get number of orders resting in all books, best-effort while the
+     * auction runs
+     * 
+     * @return resting order count
+     */
+    public long getRestingOrderCount();
+
+    /**
+     * Get number of orders in the order index, which should match the number
+     * of resting orders, best-effort while the auction runs
+     * 
+     * @return order index size
+     */
+    public long getOrderIndexSize();
+
+    /**
+     * Get number of non-empty price levels of all books, best-effort while
+     * the auction runs
+     * 
+     * @return price level count
+     */
+    public long getPriceLevelCount();
+
+    /**
+     * Get highest share of stale price levels in the price index of any book,
+     * see {@link BookMetrics#getStaleLevelRatio()}
+     * 
+     * @return stale price level ratio between 0 and 1
+     */
+    public double getMaxStaleLevelRatio();
+
+    /**
+     * Get number of messages waiting to be matched in the inbound queue, if
+     * the auction is fed through one
+     * 
+     * @return queue depth, 0 without an inbound queue
+     */
+    public int getInboundQueueDepth();
+
+    /**
+     * Get statistics of every book, best-effort while the auction runs
+     * 
+     * @return book statistics, two per symbol
+     */
+    public List<BookMetrics> getBooks();
+
+}
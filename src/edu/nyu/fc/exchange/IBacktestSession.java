@@ -0,0 +1,32 @@
+package edu.nyu.fc.exchange;
+
+import java.io.IOException;
+
+/**
+ * Interface for a recorded or generated trading session, which can be run
+ * through an auction by {@link BacktestRunner}. Sessions run on worker
+ * threads, each through its own auction, so a session must not share mutable
+ * state with other sessions.
+ * 
+ * @author Yourii Martiak
+ *
+ */
+public interface IBacktestSession {
+
+    /**
+     * Get name of the session, used to report its results
+     * 
+     * @return session name
+     */
+    public String getName();
+
+    /**
+     * Feed all messages of the session into an auction
+     * 
+     * @param auction
+     * @return number of messages
+     * @throws IOException if the session cannot be read
+     */
+    public long run(IDoubleLimitBookAuction auction) throws IOException;
+
+}
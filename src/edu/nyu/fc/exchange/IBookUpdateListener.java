@@ -0,0 +1,20 @@
+package edu.nyu.fc.exchange;
+
+/**
+ * This interface is used by the double limit book auction to notify clients
+ * that books of a symbol have been updated by a message. Unlike
+ * {@link edu.nyu.fc.exchange.ITopOfBookListener}, notifications are sent after
+ * every message touching the symbol, since changes may be deeper in the books.
+ */
+public interface IBookUpdateListener {
+
+    /**
+     * Receive notification that books of a symbol have been updated. The
+     * instance is owned by the auction and keeps changing, so it must not be
+     * retained.
+     * 
+     * @param topOfBook top of the book along with both books of the symbol
+     */
+    public void onBookUpdated(TopOfBook topOfBook);
+
+}
@@ -16,12 +16,25 @@ public interface IDoubleLimitBookAuction {
     public void handleMessage(Message message);
     
     /**
-     * Execute trade between two sides - bid and ask orders
+     * Handle a batch of messages in the order given, as if each of them was
+     * passed to {@link #handleMessage(Message)}, except that fills of the
+     * whole batch are delivered to the trade listener as one batch.
+     * 
+     * @param messages
+     * @param offset index of the first message to handle
+     * @param length number of messages to handle
+     */
+    public void handleMessages(Message[] messages, int offset, int length);
+    
+    /**
+     * Execute trade between two sides - bid and ask orders, and publish the
+     * resulting fill
      * 
      * @param bid - order to buy
      * @param ask - order to sell
+     * @param aggressorSide - side of the incoming order that crossed the book
      */
-    public void newTrade(ILimitOrder bid, ILimitOrder ask);
+    public void newTrade(ILimitOrder bid, ILimitOrder ask, Side aggressorSide);
     
     /**
      * Get string representation of top-of-the-book across all limit books
@@ -4,7 +4,11 @@ import orderGenerator.NewOrder;
 
 /**
  * This interface is used for marking orders invalid, as they are canceled in
- * the limit order book.
+ * the limit order book. Orders also carry links to their neighbors within the
+ * price level queue they are resting in, so that they can be unlinked from the
+ * queue in constant time. Limit price is kept in ticks, and
+ * {@link #getLimitPrice()} converts it back to price for reporting only,
+ * giving NaN for market orders.
  */
 public interface ILimitOrder extends NewOrder {
     
@@ -30,16 +34,74 @@ public interface ILimitOrder extends NewOrder {
     public void setSize(int size);
     
     /**
-     * Set limit price for this order
+     * Get type of this order
      * 
-     * @param limitPrice
+     * @return LIMIT or MARKET
      */
-    public void setLimitPrice(double limitPrice);
+    public OrderType getOrderType();
+    
+    /**
+     * Get limit price of this order in ticks, used for all price comparisons
+     * within the books. Limit price of the inbound message is rounded towards
+     * the less aggressive price if it is off the tick grid.
+     * 
+     * @return limit price in ticks, meaningless for market orders
+     */
+    public long getLimitTick();
+    
+    /**
+     * Get tick size of the symbol this order is for
+     * 
+     * @return minimum price increment
+     */
+    public double getTickSize();
     
     /**
      * Get string representation in the form of price, bid/ask, size
      * @return
      */
     public String toStatusString();
+    
+    /**
+     * Get price level queue this order is resting in
+     * 
+     * @return price level or null if the order is not resting in any book
+     */
+    public PriceLevel getPriceLevel();
+    
+    /**
+     * Set price level queue this order is resting in
+     * 
+     * @param priceLevel
+     */
+    public void setPriceLevel(PriceLevel priceLevel);
+    
+    /**
+     * Get order ahead of this one in the price level queue
+     * 
+     * @return previous order or null if this order is first
+     */
+    public ILimitOrder getPrevious();
+    
+    /**
+     * Set order ahead of this one in the price level queue
+     * 
+     * @param previous
+     */
+    public void setPrevious(ILimitOrder previous);
+    
+    /**
+     * Get order behind this one in the price level queue
+     * 
+     * @return next order or null if this order is last
+     */
+    public ILimitOrder getNext();
+    
+    /**
+     * Set order behind this one in the price level queue
+     * 
+     * @param next
+     */
+    public void setNext(ILimitOrder next);
 
 }
@@ -1,23 +1,51 @@
 package edu.nyu.fc.exchange;
 
+import java.util.List;
+
 
 /**
  * This interface defines a common contract for all implementing classes
- * (namely ask and bid limit order books) to interact with their clients.
+ * (namely ask and bid limit order books) to interact with their clients. All
+ * prices are in ticks, see {@link TickSizeTable}.
  */
 public interface ILimitOrderBook {
     
     /**
-     * Get next order for a given price level and remove from queue
+     * Get next order at the top of the book and remove from queue, as long as
+     * the top of the book crosses a given limit price of an opposite side
+     * order
+     * 
+     * @param limitTick limit price of the opposite side order in ticks
+     * @return next order as per time priority or null if either the book is
+     * empty or the top of the book does not cross the limit price
+     */
+    public ILimitOrder pollNextOrderFor(long limitTick);
+    
+    /**
+     * Get next order at the top of the book and remove from queue, regardless
+     * of its price, used to fill market orders
+     * 
+     * @return next order as per time priority or null if the book is empty
+     */
+    public ILimitOrder pollNextOrder();
+    
+    /**
+     * Fill an opposite side order against resting orders of this book in
+     * price/time priority, walking price levels from the top of the book for
+     * as long as they cross the order's limit price (or regardless of price for
+     * market orders), until the order's quantity is exhausted. Resting orders
+     * are updated to their leaves quantity in place, and fully filled ones are
+     * removed from the book. The order itself is left untouched.
      * 
-     * @param price to indicate price level
-     * @return next order as per time priority or null if either price level
-     * does not exist or all orders at this price level already done
+     * @param order opposite side order
+     * @param fills buffer receiving a fill per resting order traded
+     * @return total quantity filled, always positive or zero
      */
-    public ILimitOrder pollNextOrderFor(double price);
+    public int sweep(ILimitOrder order, FillBuffer fills);
     
     /**
-     * Put order at the end of a determined price level queue
+     * Put order at the end of a determined price level queue, market orders
+     * are never put in the book
      * 
      * @param limitOrder
      */
@@ -31,20 +59,98 @@ public interface ILimitOrderBook {
     public void addFirst(ILimitOrder limitOrder);
     
     /**
-     * Determine top of the book price (highest bid or lowest ask
+     * Unlink order from its price level queue, removing the price level once
+     * it becomes empty
+     * 
+     * @param limitOrder
+     * @return true if the order was resting in this book
+     */
+    public boolean remove(ILimitOrder limitOrder);
+    
+    /**
+     * Check if an order at a given price can be put in the book, which may
+     * not be the case for books covering a bounded range of prices
+     * 
+     * @param tick limit price in ticks
+     * @return true if the book can hold an order at the price
+     */
+    public boolean canRest(long tick);
+    
+    /**
+     * Determine top of the book price (highest bid or lowest ask)
+     * 
+     * @return best price in ticks if available, or zero otherwise
+     */
+    public long getBestTick();
+    
+    /**
+     * Get aggregate quantity of all orders at the top of the book price level
+     * 
+     * @return total quantity at best price, or zero if the book is empty
+     */
+    public long getBestSize();
+    
+    /**
+     * Get first order in time priority at the top of the book price level
+     * 
+     * @return top of book order or null if empty
+     */
+    public ILimitOrder getBestOrder();
+    
+    /**
+     * Get aggregated depth of the book, one entry per price level starting
+     * from the top of the book
+     * 
+     * @param ticks array receiving price of each level in ticks
+     * @param sizes array receiving aggregate quantity of each level
+     * @param maxLevels maximum number of levels to collect
+     * @return number of levels collected
+     */
+    public int getDepth(long[] ticks, long[] sizes, int maxLevels);
+    
+    /**
+     * Get all non-empty price levels of the book, starting from the top of
+     * the book
+     * 
+     * @return price levels in price priority
+     */
+    public List<PriceLevel> getPriceLevels();
+    
+    /**
+     * Add a price level, with orders already queued in it, to the book in a
+     * single step. Used to restore the book in bulk.
+     * 
+     * @param priceLevel price level not yet present in the book
+     * @throws IllegalArgumentException if the book already has orders at the
+     *             price of the level
+     */
+    public void addPriceLevel(PriceLevel priceLevel);
+    
+    /**
+     * Get number of orders resting in the book. Kept as the book changes, so
+     * it may be read by monitoring threads, seeing a recent value.
+     * 
+     * @return resting order count
+     */
+    public int getOrderCount();
+    
+    /**
+     * Get number of non-empty price levels of the book. Kept as the book
+     * changes, so it may be read by monitoring threads, seeing a recent value.
      * 
-     * @return best price if available, or zero otherwise
+     * @return price level count
      */
-    public double getBestPrice();
+    public int getPriceLevelCount();
     
     /**
-     * Get best price based on the top of the book in relation to a given
-     * limit price
+     * Get number of empty price levels the book still keeps in its price
+     * index, and has to skip when looking for the top of the book. Kept as the
+     * book changes, so it may be read by monitoring threads, seeing a recent
+     * value.
      * 
-     * @param price
-     * @return best top of the book price if better than a given limit price
+     * @return stale price level count
      */
-    public double getBestPriceFor(double price);
+    public int getStaleLevelCount();
     
     /**
      * Get top of book representation
@@ -0,0 +1,26 @@
+package edu.nyu.fc.exchange;
+
+/**
+ * This interface is used by the double limit book auction to create new ask
+ * and bid limit order books on first sight of a symbol, allowing clients to
+ * select which limit order book implementation backs the auction.
+ */
+public interface ILimitOrderBookFactory {
+
+    /**
+     * Create new ASK limit order book for a given symbol
+     * 
+     * @param symbol
+     * @return new empty ASK limit order book
+     */
+    public ILimitOrderBook newAskBook(String symbol);
+
+    /**
+     * Create new BID limit order book for a given symbol
+     * 
+     * @param symbol
+     * @return new empty BID limit order book
+     */
+    public ILimitOrderBook newBidBook(String symbol);
+
+}
@@ -0,0 +1,54 @@
+package edu.nyu.fc.exchange;
+
+import orderGenerator.NewOrder;
+import orderGenerator.OrderCxR;
+
+/**
+ * This interface defines where the auction keeps state of its orders. Orders
+ * are acquired from the store as messages come in, and released back once no
+ * longer live, so that implementations can reuse them. Implementations are
+ * not required to be thread safe.
+ */
+public interface ILimitOrderStore {
+
+    /**
+     * Get order initialized from a new order message
+     * 
+     * @param order
+     * @param tickSize tick size of the order's symbol
+     * @return limit order
+     */
+    public ILimitOrder acquire(NewOrder order, double tickSize);
+
+    /**
+     * Get order initialized as replacement of a given order
+     * 
+     * @param order original order being replaced
+     * @param replace
+     * @return limit order
+     */
+    public ILimitOrder acquire(ILimitOrder order, OrderCxR replace);
+
+    /**
+     * Get limit order initialized from a given state, used when books get
+     * restored
+     * 
+     * @param orderID
+     * @param symbol
+     * @param size leaves quantity
+     * @param limitTick limit price in ticks
+     * @param tickSize tick size of the symbol
+     * @return limit order
+     */
+    public ILimitOrder acquire(String orderID, String symbol, int size,
+            long limitTick, double tickSize);
+
+    /**
+     * Return order which is no longer live. Orders not acquired from this
+     * store are ignored. The order must not be used by the caller afterwards.
+     * 
+     * @param order
+     */
+    public void release(ILimitOrder order);
+
+}
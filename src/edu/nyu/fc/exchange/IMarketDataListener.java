@@ -0,0 +1,19 @@
+package edu.nyu.fc.exchange;
+
+import java.nio.ByteBuffer;
+
+/**
+ * This interface is used by the market depth publisher to hand encoded market
+ * data messages to their transport.
+ */
+public interface IMarketDataListener {
+
+    /**
+     * Receive encoded market data message. The buffer is reused by the caller,
+     * so its content must be consumed or copied before this method returns.
+     * 
+     * @param buffer message positioned at its first byte, limited at its end
+     */
+    public void onMarketData(ByteBuffer buffer);
+
+}
@@ -0,0 +1,19 @@
+package edu.nyu.fc.exchange;
+
+/**
+ * This interface is used by the double limit book auction to notify clients
+ * about changes to the top of the book of a symbol. Notifications are only
+ * sent when best price, aggregate quantity at best price or the first order in
+ * line actually changed as a result of a message.
+ */
+public interface ITopOfBookListener {
+
+    /**
+     * Receive notification of top of the book change. The instance is owned by
+     * the auction and keeps changing, so it must not be retained.
+     * 
+     * @param topOfBook
+     */
+    public void onTopOfBookChanged(TopOfBook topOfBook);
+
+}
@@ -0,0 +1,25 @@
+package edu.nyu.fc.exchange;
+
+/**
+ * This interface is used by the double limit book auction to publish fills.
+ * Trades are delivered one by one, followed by an end of batch notification
+ * once all trades resulting from a single message, or a single batch of
+ * messages, have been delivered.
+ */
+public interface ITradeListener {
+
+    /**
+     * Receive a fill. The event instance is reused by the caller, so it must
+     * not be retained after this method returns.
+     * 
+     * @param trade
+     */
+    public void onTrade(TradeEvent trade);
+
+    /**
+     * Receive notification that all trades of the current batch have been
+     * delivered, allowing implementations to flush any buffered output.
+     */
+    public void onEndOfBatch();
+
+}
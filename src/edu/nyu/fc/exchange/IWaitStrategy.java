@@ -0,0 +1,19 @@
+package edu.nyu.fc.exchange;
+
+/**
+ * This interface defines how a thread waits for work to become available, for
+ * instance a consumer waiting for new messages in a ring buffer or a producer
+ * waiting for a free slot.
+ */
+public interface IWaitStrategy {
+
+    /**
+     * Wait once, called repeatedly for as long as no work is available
+     * 
+     * @param tries number of times this method was called in a row, zero on
+     *            the first call after any work was found
+     * @return updated number of tries to pass in the next call
+     */
+    public int idle(int tries);
+
+}
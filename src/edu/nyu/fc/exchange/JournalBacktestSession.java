@@ -0,0 +1,34 @@
+package edu.nyu.fc.exchange;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Backtest session replaying a message journal written by
+ * {@link MessageJournal}.
+ * 
+ * @author Yourii Martiak
+ *
+ */
+public class JournalBacktestSession implements IBacktestSession {
+
+    private final File file;
+
+    public JournalBacktestSession(final File file) {
+        if (file == null) {
+            throw new IllegalArgumentException("Missing journal file");
+        }
+        this.file = file;
+    }
+
+    @Override
+    public String getName() {
+        return file.getName();
+    }
+
+    @Override
+    public long run(final IDoubleLimitBookAuction auction) throws IOException {
+        return new JournalReplayer(file).replay(auction);
+    }
+
+}
@@ -0,0 +1,231 @@
+package edu.nyu.fc.exchange;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+import orderGenerator.NewOrder;
+import orderGenerator.OrderCxR;
+
+/**
+ * Rebuilds auction state from a message journal written by
+ * {@link MessageJournal}. Records are read sequentially from read-only mapped
+ * regions of the journal file and fed straight into the auction.
+ * 
+ * @author Yourii Martiak
+ *
+ */
+public class JournalReplayer {
+
+    private static final Charset US_ASCII = Charset.forName("US-ASCII");
+
+    private final File file;
+
+    public JournalReplayer(final File file) {
+        if (file == null) {
+            throw new IllegalArgumentException("Missing journal file");
+        }
+        this.file = file;
+    }
+
+    /**
+     * Replay all journaled messages into an auction. Trades generated during
+     * replay go to the auction's trade listener, so an auction built with
+     * {@link NullTradeListener} rebuilds its books with trade output
+     * suppressed.
+     * 
+     * @param auction
+     * @return number of messages replayed
+     * @throws IOException
+     */
+    public long replay(final IDoubleLimitBookAuction auction)
+            throws IOException {
+        return replay(auction, 0);
+    }
+
+    /**
+     * Replay journaled messages into an auction, skipping a given number of
+     * messages at the start of the journal, typically the ones already
+     * reflected in a restored {@link BookSnapshot}
+     * 
+     * @param auction
+     * @param fromRecord number of messages to skip
+     * @return number of messages replayed
+     * @throws IOException
+     */
+    public long replay(final IDoubleLimitBookAuction auction,
+            final long fromRecord) throws IOException {
+        if (fromRecord < 0) {
+            throw new IllegalArgumentException("Invalid journal position "
+                    + fromRecord);
+        }
+        final RandomAccessFile journal = new RandomAccessFile(file, "r");
+        try {
+            final FileChannel channel = journal.getChannel();
+            final long fileSize = channel.size();
+            if (fileSize < MessageJournal.RECORD_SIZE) {
+                throw new IOException("Not a message journal " + file);
+            }
+            MessageJournal.checkHeader(channel.map(
+                    FileChannel.MapMode.READ_ONLY, 0,
+                    MessageJournal.RECORD_SIZE), file);
+            final byte[] chars = new byte[MessageJournal.MAX_ORDER_ID_LENGTH];
+            MappedByteBuffer region = null;
+            long regionStart = 0;
+            long position = (fromRecord + 1) * MessageJournal.RECORD_SIZE;
+            long count = 0;
+            while (position + MessageJournal.RECORD_SIZE <= fileSize) {
+                if (region == null
+                        || position - regionStart >= MessageJournal.REGION_SIZE) {
+                    regionStart = position;
+                    region = channel.map(FileChannel.MapMode.READ_ONLY,
+                            regionStart, Math.min(MessageJournal.REGION_SIZE,
+                                    fileSize - regionStart));
+                }
+                final int offset = (int) (position - regionStart);
+                final byte type = region.get(offset);
+                if (type == 0) {
+                    break;
+                }
+                final String orderId = getString(region,
+                        offset + MessageJournal.ORDER_ID_OFFSET, chars);
+                final int size = region.getInt(offset
+                        + MessageJournal.SIZE_OFFSET);
+                final double limitPrice = region.getDouble(offset
+                        + MessageJournal.PRICE_OFFSET);
+                if (type == MessageJournal.NEW_ORDER) {
+                    final String symbol = getString(region, offset
+                            + MessageJournal.SYMBOL_OFFSET, chars);
+                    auction.handleMessage(new JournalNewOrder(orderId, symbol,
+                            size, limitPrice));
+                } else if (type == MessageJournal.ORDER_CXR) {
+                    auction.handleMessage(new JournalOrderCxR(orderId, size,
+                            limitPrice));
+                } else {
+                    throw new IOException("Invalid record type " + type
+                            + " at " + position + " in " + file);
+                }
+                position += MessageJournal.RECORD_SIZE;
+                count++;
+            }
+            return count;
+        } finally {
+            journal.close();
+        }
+    }
+
+    private static String getString(final MappedByteBuffer region,
+            final int offset, final byte[] chars) {
+        final int length = region.get(offset);
+        for (int i = 0; i < length; i++) {
+            chars[i] = region.get(offset + 1 + i);
+        }
+        return new String(chars, 0, length, US_ASCII);
+    }
+
+    /**
+     * Replay journal given as the only argument and print the rebuilt
+     * top of the books
+     * 
+     * @param args
+     * @throws IOException
+     */
+    public static void main(final String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: JournalReplayer <journal file>");
+            return;
+        }
+        final DoubleLimitBookAuction auction = new DoubleLimitBookAuction(
+                new LimitOrderBookFactory(), new NullTradeListener());
+        final long start = System.nanoTime();
+        final long count = new JournalReplayer(new File(args[0]))
+                .replay(auction);
+        final long elapsed = System.nanoTime() - start;
+        System.out.println(auction.getTopOfTheBooks());
+        System.out.println("Replayed " + count + " messages in "
+                + elapsed / 1000000 + " ms");
+    }
+
+    private static class JournalNewOrder implements NewOrder {
+
+        private final String orderId;
+        private final String symbol;
+        private final int size;
+        private final double limitPrice;
+
+        JournalNewOrder(final String orderId, final String symbol,
+                final int size, final double limitPrice) {
+            this.orderId = orderId;
+            this.symbol = symbol;
+            this.size = size;
+            this.limitPrice = limitPrice;
+        }
+
+        @Override
+        public double getLimitPrice() {
+            return limitPrice;
+        }
+
+        @Override
+        public String getOrderId() {
+            return orderId;
+        }
+
+        @Override
+        public int getSize() {
+            return size;
+        }
+
+        @Override
+        public String getSymbol() {
+            return symbol;
+        }
+
+        @Override
+        public String toString() {
+            return "NewOrder [orderId=" + orderId + ", symbol=" + symbol
+                    + ", size=" + size + ", limitPrice=" + limitPrice + "]";
+        }
+
+    }
+
+    private static class JournalOrderCxR implements OrderCxR {
+
+        private final String orderId;
+        private final int size;
+        private final double limitPrice;
+
+        JournalOrderCxR(final String orderId, final int size,
+                final double limitPrice) {
+            this.orderId = orderId;
+            this.size = size;
+            this.limitPrice = limitPrice;
+        }
+
+        @Override
+        public double getLimitPrice() {
+            return limitPrice;
+        }
+
+        @Override
+        public String getOrderId() {
+            return orderId;
+        }
+
+        @Override
+        public int getSize() {
+            return size;
+        }
+
+        @Override
+        public String toString() {
+            return "OrderCxR [orderId=" + orderId + ", size=" + size
+                    + ", limitPrice=" + limitPrice + "]";
+        }
+
+    }
+
+}
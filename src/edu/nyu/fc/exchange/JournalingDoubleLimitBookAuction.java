@@ -0,0 +1,86 @@
+package edu.nyu.fc.exchange;
+
+import orderGenerator.Message;
+
+/**
+ * Auction decorator writing every inbound message to a {@link MessageJournal}
+ * before handing it over to the matching auction, so that the books can be
+ * rebuilt later with {@link JournalReplayer}. Messages the journal cannot
+ * encode are refused with an exception rather than matched unjournaled, so
+ * the journal always holds every message the auction has seen.
+ * 
+ * @author Yourii Martiak
+ *
+ */
+public class JournalingDoubleLimitBookAuction implements IDoubleLimitBookAuction {
+
+    private final IDoubleLimitBookAuction auction;
+    private final MessageJournal journal;
+
+    public JournalingDoubleLimitBookAuction(
+            final IDoubleLimitBookAuction auction, final MessageJournal journal) {
+        if (auction == null) {
+            throw new IllegalArgumentException("Missing auction");
+        }
+        if (journal == null) {
+            throw new IllegalArgumentException("Missing journal");
+        }
+        this.auction = auction;
+        this.journal = journal;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the message cannot be journaled, in
+     *             which case it is not handed over to the auction either
+     */
+    @Override
+    public void handleMessage(final Message message) {
+        journal.append(message);
+        auction.handleMessage(message);
+    }
+
+    /**
+     * Journal a batch of messages and hand it over to the auction as one
+     * batch.
+     * 
+     * @throws IllegalArgumentException if a message cannot be journaled, in
+     *             which case messages in front of it are journaled and handed
+     *             over to the auction, and the rest of the batch is not
+     */
+    @Override
+    public void handleMessages(final Message[] messages, final int offset,
+            final int length) {
+        DoubleLimitBookAuction.checkRange(messages, offset, length);
+        final int end = offset + length;
+        int i = offset;
+        try {
+            for (; i < end; i++) {
+                journal.append(messages[i]);
+            }
+        } finally {
+            if (i > offset) {
+                auction.handleMessages(messages, offset, i - offset);
+            }
+        }
+    }
+
+    @Override
+    public void newTrade(final ILimitOrder bid, final ILimitOrder ask,
+            final Side aggressorSide) {
+        auction.newTrade(bid, ask, aggressorSide);
+    }
+
+    @Override
+    public String getTopOfTheBooks() {
+        return auction.getTopOfTheBooks();
+    }
+
+    public IDoubleLimitBookAuction getAuction() {
+        return auction;
+    }
+
+    public MessageJournal getJournal() {
+        return journal;
+    }
+
+}
@@ -0,0 +1,209 @@
+package edu.nyu.fc.exchange;
+
+/**
+ * Histogram of latencies in nanoseconds with log-linear buckets, laid out the
+ * same way as in HdrHistogram. Values are grouped in buckets of doubling
+ * width, each split into the same number of linear sub-buckets, so that every
+ * recorded value is kept with a relative error below 1%, no matter its
+ * magnitude. Recording is a handful of shifts and an array increment, and
+ * never allocates.
+ * <p>
+ * Instances are not thread safe and are expected to be recorded and read by
+ * the same thread.
+ * 
+ * @author Yourii Martiak
+ *
+ */
+public class LatencyHistogram {
+
+    /**
+     * Number of bits addressing half of the sub-buckets of a bucket, giving
+     * 128 distinct values per doubling of magnitude
+     */
+    private static final int SUB_BUCKET_HALF_COUNT_MAGNITUDE = 7;
+    private static final int SUB_BUCKET_HALF_COUNT = 1 << SUB_BUCKET_HALF_COUNT_MAGNITUDE;
+    private static final int SUB_BUCKET_MASK = (SUB_BUCKET_HALF_COUNT << 1) - 1;
+
+    /**
+     * Default highest value tracked, one hour in nanoseconds
+     */
+    public static final long DEFAULT_HIGHEST_TRACKABLE_VALUE = 3600L * 1000000000L;
+
+    private final long highestTrackableValue;
+    private final long[] counts;
+    private long totalCount;
+    private long totalValue;
+    private long minValue;
+    private long maxValue;
+
+    /**
+     * Creates new histogram tracking values up to one hour in nanoseconds
+     */
+    public LatencyHistogram() {
+        this(DEFAULT_HIGHEST_TRACKABLE_VALUE);
+    }
+
+    /**
+     * Creates new histogram tracking values up to a given value, larger
+     * values are recorded as the highest trackable value
+     * 
+     * @param highestTrackableValue
+     */
+    public LatencyHistogram(final long highestTrackableValue) {
+        if (highestTrackableValue < SUB_BUCKET_MASK) {
+            throw new IllegalArgumentException("Invalid highest trackable value "
+                    + highestTrackableValue);
+        }
+        this.highestTrackableValue = highestTrackableValue;
+        this.counts = new long[getIndex(highestTrackableValue) + 1];
+        reset();
+    }
+
+    /**
+     * Record a single value
+     * 
+     * @param value latency in nanoseconds, negative values are recorded as 0
+     */
+    public void recordValue(final long value) {
+        final long v = value < 0 ? 0 : Math.min(value, highestTrackableValue);
+        counts[getIndex(v)]++;
+        totalCount++;
+        totalValue += v;
+        if (v < minValue) {
+            minValue = v;
+        }
+        if (v > maxValue) {
+            maxValue = v;
+        }
+    }
+
+    /**
+     * Add all values recorded by another histogram to this one
+     * 
+     * @param other histogram with the same highest trackable value
+     */
+    public void add(final LatencyHistogram other) {
+        if (other.counts.length != counts.length) {
+            throw new IllegalArgumentException("Invalid histogram " + other);
+        }
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        totalCount += other.totalCount;
+        totalValue += other.totalValue;
+        minValue = Math.min(minValue, other.minValue);
+        maxValue = Math.max(maxValue, other.maxValue);
+    }
+
+    /**
+     * Discard all recorded values
+     */
+    public void reset() {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = 0;
+        }
+        totalCount = 0;
+        totalValue = 0;
+        minValue = Long.MAX_VALUE;
+        maxValue = 0;
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    public long getMinValue() {
+        return totalCount == 0 ? 0 : minValue;
+    }
+
+    public long getMaxValue() {
+        return maxValue;
+    }
+
+    public double getMean() {
+        return totalCount == 0 ? 0.0d : (double) totalValue / totalCount;
+    }
+
+    /**
+     * Get value below or at which a given percentage of recorded values fall.
+     * The value reported is the highest value equivalent to the bucket the
+     * percentile falls into, capped by the maximum recorded value.
+     * 
+     * @param percentile between 0 and 100
+     * @return value at percentile or 0 if nothing was recorded
+     */
+    public long getValueAtPercentile(final double percentile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+        final double p = Math.min(Math.max(percentile, 0.0d), 100.0d);
+        final long countAtPercentile = Math.max(1,
+                (long) Math.ceil(p / 100.0d * totalCount));
+        long count = 0;
+        for (int i = 0; i < counts.length; i++) {
+            count += counts[i];
+            if (count >= countAtPercentile) {
+                return Math.min(getHighestEquivalentValue(i), maxValue);
+            }
+        }
+
+        return maxValue;
+    }
+
+    /**
+     * Append summary of the recorded values in nanoseconds
+     * 
+     * @param sb
+     * @return the same string builder
+     */
+    public StringBuilder appendSummary(final StringBuilder sb) {
+        sb.append(String.format(
+                "count=%d mean=%.0f p50=%d p90=%d p99=%d p99.9=%d p99.99=%d max=%d",
+                totalCount, getMean(), getValueAtPercentile(50.0d),
+                getValueAtPercentile(90.0d), getValueAtPercentile(99.0d),
+                getValueAtPercentile(99.9d), getValueAtPercentile(99.99d),
+                maxValue));
+        return sb;
+    }
+
+    /**
+     * Locate counts slot for a value. Bucket is given by magnitude of the
+     * value above the sub-bucket range, sub-bucket by its top bits.
+     * 
+     * @param value
+     * @return index into the counts array
+     */
+    private static int getIndex(final long value) {
+        final int bucketIndex = 63 - Long.numberOfLeadingZeros(value
+                | SUB_BUCKET_MASK) - SUB_BUCKET_HALF_COUNT_MAGNITUDE;
+        final int subBucketIndex = (int) (value >>> bucketIndex);
+
+        return ((bucketIndex + 1) << SUB_BUCKET_HALF_COUNT_MAGNITUDE)
+                + subBucketIndex - SUB_BUCKET_HALF_COUNT;
+    }
+
+    /**
+     * Get highest value that is recorded into a given counts slot
+     * 
+     * @param index into the counts array
+     * @return highest equivalent value
+     */
+    private static long getHighestEquivalentValue(final int index) {
+        int bucketIndex = (index >> SUB_BUCKET_HALF_COUNT_MAGNITUDE) - 1;
+        long subBucketIndex = (index & (SUB_BUCKET_HALF_COUNT - 1))
+                + SUB_BUCKET_HALF_COUNT;
+        if (bucketIndex < 0) {
+            subBucketIndex -= SUB_BUCKET_HALF_COUNT;
+            bucketIndex = 0;
+        }
+
+        return ((subBucketIndex + 1) << bucketIndex) - 1;
+    }
+
+    @Override
+    public String toString() {
+        return appendSummary(new StringBuilder("LatencyHistogram {")).append(
+                "}").toString();
+    }
+
+}
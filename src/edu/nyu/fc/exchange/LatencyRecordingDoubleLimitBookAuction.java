@@ -0,0 +1,232 @@
+package edu.nyu.fc.exchange;
+
+import java.io.PrintStream;
+
+import orderGenerator.Message;
+import orderGenerator.NewOrder;
+import orderGenerator.OrderCxR;
+
+/**
+ * Auction decorator recording latency of every handled message into
+ * {@link LatencyHistogram}s, split by message type and by number of fills the
+ * message produced. New orders count as aggressive once they produced at
+ * least one fill, and as passive otherwise.
+ * <p>
+ * Values are recorded into interval histograms, which are optionally printed
+ * and folded into the run totals once an interval elapses. Overhead of
+ * recording is two clock reads and two histogram updates per message.
+ * 
+ * @author Yourii Martiak
+ *
+ */
+public class LatencyRecordingDoubleLimitBookAuction implements IDoubleLimitBookAuction {
+
+    public static final int NEW_PASSIVE = 0;
+    public static final int NEW_AGGRESSIVE = 1;
+    public static final int CANCEL = 2;
+    public static final int REPLACE = 3;
+
+    private static final String[] MESSAGE_TYPE_NAMES = { "new passive",
+            "new aggressive", "cancel", "replace" };
+
+    /**
+     * Fill count ranges, each starting at a power of two
+     */
+    private static final String[] FILL_COUNT_NAMES = { "fills 0", "fills 1",
+            "fills 2-3", "fills 4-7", "fills 8+" };
+
+    private final DoubleLimitBookAuction auction;
+    private final LatencyHistogram[] intervalByType;
+    private final LatencyHistogram[] totalByType;
+    private final LatencyHistogram[] intervalByFills;
+    private final LatencyHistogram[] totalByFills;
+
+    /**
+     * Stream receiving interval dumps, or null if disabled
+     */
+    private final PrintStream intervalStream;
+    private final long intervalNanos;
+    private long intervalStart;
+
+    /**
+     * Creates new latency recording auction without interval dumps
+     * 
+     * @param auction
+     */
+    public LatencyRecordingDoubleLimitBookAuction(
+            final DoubleLimitBookAuction auction) {
+        this(auction, null, 0);
+    }
+
+    /**
+     * Creates new latency recording auction, printing latencies recorded
+     * during every interval to a given stream
+     * 
+     * @param auction
+     * @param intervalStream stream receiving interval dumps or null
+     * @param intervalMillis length of the interval in milliseconds, 0 to
+     *            disable interval dumps
+     */
+    public LatencyRecordingDoubleLimitBookAuction(
+            final DoubleLimitBookAuction auction,
+            final PrintStream intervalStream, final long intervalMillis) {
+        if (auction == null) {
+            throw new IllegalArgumentException("Missing auction");
+        }
+        if (intervalMillis < 0) {
+            throw new IllegalArgumentException("Invalid interval "
+                    + intervalMillis);
+        }
+        this.auction = auction;
+        this.intervalStream = intervalMillis > 0 ? intervalStream : null;
+        this.intervalNanos = intervalMillis * 1000000L;
+        intervalByType = newHistograms(MESSAGE_TYPE_NAMES.length);
+        totalByType = newHistograms(MESSAGE_TYPE_NAMES.length);
+        intervalByFills = newHistograms(FILL_COUNT_NAMES.length);
+        totalByFills = newHistograms(FILL_COUNT_NAMES.length);
+        intervalStart = System.nanoTime();
+    }
+
+    @Override
+    public void handleMessage(final Message message) {
+        final long lastTradeSequence = auction.getTradeSequence();
+        final long start = System.nanoTime();
+        auction.handleMessage(message);
+        final long stop = System.nanoTime();
+        final long fills = auction.getTradeSequence() - lastTradeSequence;
+        final long latency = stop - start;
+
+        final int type;
+        if (message instanceof OrderCxR) {
+            type = ((OrderCxR) message).getSize() == 0 ? CANCEL : REPLACE;
+        } else if (message instanceof NewOrder) {
+            type = fills == 0 ? NEW_PASSIVE : NEW_AGGRESSIVE;
+        } else {
+            return;
+        }
+        intervalByType[type].recordValue(latency);
+        intervalByFills[getFillCountIndex(fills)].recordValue(latency);
+
+        if (intervalStream != null && stop - intervalStart >= intervalNanos) {
+            intervalStream.print(getIntervalString());
+            endInterval(stop);
+        }
+    }
+
+    /**
+     * Handle a batch of messages one by one, as latency is recorded per
+     * message
+     */
+    @Override
+    public void handleMessages(final Message[] messages, final int offset,
+            final int length) {
+        DoubleLimitBookAuction.checkRange(messages, offset, length);
+        for (int i = offset, end = offset + length; i < end; i++) {
+            handleMessage(messages[i]);
+        }
+    }
+
+    @Override
+    public void newTrade(final ILimitOrder bid, final ILimitOrder ask,
+            final Side aggressorSide) {
+        auction.newTrade(bid, ask, aggressorSide);
+    }
+
+    @Override
+    public String getTopOfTheBooks() {
+        return auction.getTopOfTheBooks();
+    }
+
+    public DoubleLimitBookAuction getAuction() {
+        return auction;
+    }
+
+    /**
+     * Get histogram of all latencies recorded for a given message type
+     * 
+     * @param type one of NEW_PASSIVE, NEW_AGGRESSIVE, CANCEL or REPLACE
+     * @return histogram including the current interval
+     */
+    public LatencyHistogram getHistogram(final int type) {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        histogram.add(totalByType[type]);
+        histogram.add(intervalByType[type]);
+
+        return histogram;
+    }
+
+    /**
+     * Get string representation of latencies recorded since the last interval
+     * 
+     * @return latency percentiles per message type and fill count
+     */
+    public String getIntervalString() {
+        return appendHistograms(new StringBuilder("LATENCY INTERVAL (ns)\n"),
+                intervalByType, intervalByFills).toString();
+    }
+
+    /**
+     * Get string representation of latencies recorded over the whole run
+     * 
+     * @return latency percentiles per message type and fill count
+     */
+    public String getSummaryString() {
+        endInterval(System.nanoTime());
+
+        return appendHistograms(new StringBuilder("LATENCY SUMMARY (ns)\n"),
+                totalByType, totalByFills).toString();
+    }
+
+    private void endInterval(final long now) {
+        for (int i = 0; i < intervalByType.length; i++) {
+            totalByType[i].add(intervalByType[i]);
+            intervalByType[i].reset();
+        }
+        for (int i = 0; i < intervalByFills.length; i++) {
+            totalByFills[i].add(intervalByFills[i]);
+            intervalByFills[i].reset();
+        }
+        intervalStart = now;
+    }
+
+    private static StringBuilder appendHistograms(final StringBuilder sb,
+            final LatencyHistogram[] byType, final LatencyHistogram[] byFills) {
+        for (int i = 0; i < byType.length; i++) {
+            sb.append(String.format("%-15s", MESSAGE_TYPE_NAMES[i]));
+            byType[i].appendSummary(sb).append('\n');
+        }
+        for (int i = 0; i < byFills.length; i++) {
+            if (byFills[i].getTotalCount() > 0) {
+                sb.append(String.format("%-15s", FILL_COUNT_NAMES[i]));
+                byFills[i].appendSummary(sb).append('\n');
+            }
+        }
+
+        return sb;
+    }
+
+    /**
+     * Map number of fills to its range, ranges doubling in width
+     * 
+     * @param fills
+     * @return index of the fill count range
+     */
+    private static int getFillCountIndex(final long fills) {
+        if (fills == 0) {
+            return 0;
+        }
+
+        return Math.min(FILL_COUNT_NAMES.length - 1,
+                64 - Long.numberOfLeadingZeros(fills));
+    }
+
+    private static LatencyHistogram[] newHistograms(final int count) {
+        final LatencyHistogram[] histograms = new LatencyHistogram[count];
+        for (int i = 0; i < count; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+
+        return histograms;
+    }
+
+}
@@ -1,75 +1,154 @@
 package edu.nyu.fc.exchange;
 
 import orderGenerator.NewOrder;
+import orderGenerator.OrderCxR;
 
 /**
- * Implementation of new order that allows client to add additional information
- * to an existing NewOrder implementation, such as a flag to determine if the
- * order has been marked "dead"
+ * Limit order kept by the limit order books. Order ID and symbol are copied
+ * from the inbound message rather than wrapping it, so that the message can be
+ * released by the caller, and instances can be reinitialized and reused
+ * through {@link LimitOrderPool} once the order is no longer live.
  * 
  * @author Yourii Martiak
  */
-public class LimitOrder implements ILimitOrder {
+public class LimitOrder extends AbstractLimitOrder {
     
-    private final NewOrder order;
-    private boolean isDead;
-    private int size;
-    private double limitPrice;
+    private String orderID;
+    private String symbol;
+
+    /**
+     * Whether this order has been released to the pool and not reinitialized
+     * since
+     */
+    private boolean isReleased;
     
+    /**
+     * Creates new limit order using the default tick size
+     * 
+     * @param order
+     */
     public LimitOrder(NewOrder order) {
-        this.order = order;
-        setSize(order.getSize());
-        setLimitPrice(order.getLimitPrice());
+        this(order, TickSizeTable.DEFAULT_TICK_SIZE);
     }
 
-    @Override
-    public double getLimitPrice() {
-        return limitPrice;
+    /**
+     * Creates new limit order, converting its limit price to ticks of a given
+     * size
+     * 
+     * @param order
+     * @param tickSize tick size of the order's symbol
+     */
+    public LimitOrder(NewOrder order, double tickSize) {
+        set(order, tickSize);
     }
 
-    @Override
-    public String getOrderId() {
-        return order.getOrderId();
+    /**
+     * Creates new limit order replacing a given order, taking symbol and tick
+     * size from the original order and the rest from the cancel/replace
+     * request
+     * 
+     * @param order original order being replaced
+     * @param replace
+     */
+    public LimitOrder(ILimitOrder order, OrderCxR replace) {
+        set(order, replace);
     }
 
-    @Override
-    public int getSize() {
-        return size;
+    /**
+     * Creates new limit order to be initialized later, used by
+     * {@link LimitOrderPool}
+     */
+    LimitOrder() {
     }
 
-    @Override
-    public String getSymbol() {
-        return order.getSymbol();
+    /**
+     * Reinitialize this order from a new order message
+     * 
+     * @param order
+     * @param tickSize tick size of the order's symbol
+     * @return this order
+     */
+    final LimitOrder set(final NewOrder order, final double tickSize) {
+        reset();
+        this.orderID = order.getOrderId();
+        this.symbol = order.getSymbol();
+        setSize(order.getSize());
+        setLimitPrice(order.getLimitPrice(), tickSize, order.getSize() > 0);
+        return this;
     }
 
-    @Override
-    public boolean isDead() {
-        return isDead;
+    /**
+     * Reinitialize this order as replacement of a given order
+     * 
+     * @param order original order being replaced
+     * @param replace
+     * @return this order
+     */
+    final LimitOrder set(final ILimitOrder order, final OrderCxR replace) {
+        reset();
+        this.orderID = replace.getOrderId();
+        this.symbol = order.getSymbol();
+        setSize(replace.getSize());
+        setLimitPrice(replace.getLimitPrice(), order.getTickSize(),
+                replace.getSize() > 0);
+        return this;
     }
 
-    @Override
-    public void setDead() {
-        isDead = true;        
+    /**
+     * Reinitialize this order from a given state
+     * 
+     * @param orderID
+     * @param symbol
+     * @param size leaves quantity
+     * @param limitTick limit price in ticks
+     * @param tickSize tick size of the symbol
+     * @return this order
+     */
+    final LimitOrder set(final String orderID, final String symbol,
+            final int size, final long limitTick, final double tickSize) {
+        reset();
+        this.orderID = orderID;
+        this.symbol = symbol;
+        setSize(size);
+        setLimitTick(limitTick, tickSize);
+        return this;
     }
 
-    @Override
-    public void setSize(int size) {
-        this.size = size;     
+    /**
+     * Drop references held by this order, so that a pooled order does not keep
+     * strings of its last use reachable, and mark it released
+     */
+    final void clear() {
+        reset();
+        orderID = null;
+        symbol = null;
+        isReleased = true;
+    }
+
+    /**
+     * Check if this order has been released to the pool and not reinitialized
+     * since
+     * 
+     * @return true if released
+     */
+    final boolean isReleased() {
+        return isReleased;
     }
 
     @Override
-    public void setLimitPrice(double limitPrice) {
-        this.limitPrice = limitPrice;        
+    protected void reset() {
+        super.reset();
+        isReleased = false;
     }
-    
+
     @Override
-    public String toString() {
-        return order.getOrderId() + " : " + size + " " + order.getSymbol() + " @ " + limitPrice;
+    public String getOrderId() {
+        return orderID;
     }
 
     @Override
-    public String toStatusString() {
-        return String.format("%.2f,%s,%d\n", limitPrice, size < 0 ? "ask" : "bid", size);
+    public String getSymbol() {
+        return symbol;
     }
 
 }
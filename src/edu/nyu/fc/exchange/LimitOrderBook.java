@@ -1,14 +1,9 @@
 package edu.nyu.fc.exchange;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
-import java.util.Deque;
-import java.util.HashMap;
-import java.util.LinkedList;
-import java.util.Map;
-import java.util.PriorityQueue;
-import java.util.Queue;
-
-import orderGenerator.OrderCxR;
+import java.util.List;
 
 /**
  * Implementation of limit order book functionality, which is common between
@@ -21,23 +16,40 @@ import orderGenerator.OrderCxR;
 public abstract class LimitOrderBook implements ILimitOrderBook {
 
     /**
-     * Mapping of order IDs to actual orders. Used for quick access to an order
-     * in case of cancel. The map is define static, with an assumption that
-     * order IDs are unique across ask/bid books.
+     * Mapping of prices in ticks to the price level queues, having one queue
+     * per price level. This allows for execution of orders in price/time
+     * priority. Price levels are removed from this map as soon as they become
+     * empty.
      */
-    private static final Map<String, ILimitOrder> orderIDMap = new HashMap<String, ILimitOrder>(
-            1024);
-
+    private final PriceLevelMap priceLevelMap;
+    
     /**
-     * Mapping of price levels to the limit order queues, having one queue per
-     * price level. This allows for execution of orders in price/time priority.
+     * Priority queue used to determine top of the book price levels. Price
+     * levels removed from the book while not on top are left in the queue
+     * until they surface, and are recognized by being empty.
      */
-    private final Map<Double, Deque<ILimitOrder>> priceTimePriorityMap;
+    private final PriceLevelHeap pricePriorityQueue;
     
     /**
-     * Priority queue used to determine top of the book prices.
+     * Comparator used for sorting price levels
      */
-    private final Queue<Double> pricePriorityQueue;
+    private final Comparator<PriceLevel> comparator;
+    
+    /**
+     * Number of empty price levels still sitting in the priority queue
+     */
+    private int staleLevelCount;
+    
+    /**
+     * Number of orders resting in the book
+     */
+    private int orderCount;
+    
+    /**
+     * Empty price levels reused for new prices. Price levels are returned to
+     * the pool only once they have left both the map and the priority queue.
+     */
+    private final PriceLevelPool priceLevelPool;
 
     /**
      * Creates new limit order book, in which sorting order for price levels is
@@ -45,54 +57,63 @@ public abstract class LimitOrderBook implements ILimitOrderBook {
      * 
      * @param comparator used for sorting price levels
      */
-    public LimitOrderBook(final Comparator<Double> comparator) {
-        priceTimePriorityMap = new HashMap<Double, Deque<ILimitOrder>>(1024);
-        pricePriorityQueue = new PriorityQueue<Double>(11, comparator);
+    public LimitOrderBook(final Comparator<PriceLevel> comparator) {
+        this.comparator = comparator;
+        priceLevelMap = new PriceLevelMap(256);
+        pricePriorityQueue = new PriceLevelHeap(16, comparator);
+        priceLevelPool = new PriceLevelPool(1024);
     }
 
-    /**
-     * Locate original order corresponding to this OrderCxR request
-     * 
-     * @param orderCxR
-     *            cancel or replace request
-     * @return original order matching order ID specified in OrderCxR or null if
-     *         corresponding order not found
-     */
-    public static ILimitOrder cancelOriginalOrderFor(final OrderCxR orderCxR) {
-        final String orderID = orderCxR.getOrderId();
-        final ILimitOrder originalOrder = orderIDMap.get(orderID);
-        if (originalOrder != null) {
-            originalOrder.setDead();
-        }
-        return originalOrder;
-    }
-
-    @Override
-    public ILimitOrder pollNextOrderFor(final double price) {
-        ILimitOrder order = null;
-        // go over price levels trying to find active order until all price
-        // levels better or at given price have been explored
-        double bestPrice = getBestPriceFor(price);
-        for (Deque<ILimitOrder> list = priceTimePriorityMap.get(bestPrice); list != null
-                && !list.isEmpty(); list = priceTimePriorityMap.get(bestPrice)) {
-            do {
-                // poll orders from the queue while removing dead orders until
-                // we find first active order or reach the end of the queue
-                order = list.pollFirst();
-                if (list.isEmpty()) {
-                    // if no more orders for this price level exist, remove best
-                    // price from price priority queue and break out of the loop
-                    if (pricePriorityQueue.peek() == bestPrice) {
-                        pricePriorityQueue.remove();
-                    }
-                    break;
-                }
-            } while (order.isDead());
+    @Override
+    public ILimitOrder pollNextOrderFor(final long limitTick) {
+        final PriceLevel level = getBestLevel();
+        // only top of the book price level can be crossed, as long as it is
+        // better or at a given price
+        if (level == null || isBetter(limitTick, level.getTick())) {
+            return null;
+        }
+
+        return pollFirst(level);
+    }
+
+    @Override
+    public ILimitOrder pollNextOrder() {
+        final PriceLevel level = getBestLevel();
+        if (level == null) {
+            return null;
+        }
+
+        return pollFirst(level);
+    }
 
-            if (order != null) {
+    @Override
+    public int sweep(final ILimitOrder order, final FillBuffer fills) {
+        final boolean isMarket = order.getOrderType() == OrderType.MARKET;
+        final long limitTick = order.getLimitTick();
+        final int quantity = Math.abs(order.getSize());
+        int filled = 0;
+        while (filled < quantity) {
+            final PriceLevel level = getBestLevel();
+            if (level == null
+                    || !isMarket && isBetter(limitTick, level.getTick())) {
                 break;
             }
-            bestPrice = getBestPriceFor(price);
+            final int levelOrderCount = level.getOrderCount();
+            filled += level.fill(quantity - filled, fills);
+            orderCount -= levelOrderCount - level.getOrderCount();
+            if (level.isEmpty()) {
+                removeLevel(level);
+            }
+        }
+
+        return filled;
+    }
+
+    private ILimitOrder pollFirst(final PriceLevel level) {
+        final ILimitOrder order = level.pollFirst();
+        orderCount--;
+        if (level.isEmpty()) {
+            removeLevel(level);
         }
 
         return order;
@@ -100,90 +121,222 @@ public abstract class LimitOrderBook implements ILimitOrderBook {
 
     @Override
     public void addFirst(final ILimitOrder limitOrder) {
-        final double limitPrice = limitOrder.getLimitPrice();
-        if (Double.isNaN(limitPrice)) {
-            return;
+        final PriceLevel level = getLevelFor(limitOrder);
+        if (level != null) {
+            level.addFirst(limitOrder);
+            orderCount++;
         }
+    }
 
-        Deque<ILimitOrder> list = priceTimePriorityMap.get(limitPrice);
-        if (list == null) {
-            list = createNewPriceLevel(limitPrice);
-        } else if (list.isEmpty()) {
-            pricePriorityQueue.offer(limitPrice);
+    @Override
+    public void addLast(final ILimitOrder limitOrder) {
+        final PriceLevel level = getLevelFor(limitOrder);
+        if (level != null) {
+            level.addLast(limitOrder);
+            orderCount++;
         }
-        orderIDMap.put(limitOrder.getOrderId(), limitOrder);
-        list.offerFirst(limitOrder);
     }
 
     @Override
-    public void addLast(final ILimitOrder limitOrder) {
-        final double limitPrice = limitOrder.getLimitPrice();
-        if (Double.isNaN(limitPrice)) {
-            return;
+    public boolean remove(final ILimitOrder limitOrder) {
+        final PriceLevel level = limitOrder.getPriceLevel();
+        if (level == null || priceLevelMap.get(level.getTick()) != level) {
+            return false;
         }
 
-        Deque<ILimitOrder> list = priceTimePriorityMap.get(limitPrice);
-        if (list == null) {
-            list = createNewPriceLevel(limitPrice);
-        } else if (list.isEmpty()) {
-            pricePriorityQueue.offer(limitPrice);
+        level.remove(limitOrder);
+        orderCount--;
+        if (level.isEmpty()) {
+            removeLevel(level);
         }
-        orderIDMap.put(limitOrder.getOrderId(), limitOrder);
-        list.offerLast(limitOrder);
+
+        return true;
     }
 
+    /**
+     * Any price can be held, as price levels are hashed by price
+     */
     @Override
-    public double getBestPrice() {
-        final Double bestPrice = pricePriorityQueue.peek();
+    public boolean canRest(final long tick) {
+        return true;
+    }
+
+    @Override
+    public long getBestTick() {
+        final PriceLevel level = getBestLevel();
+
+        return level == null ? 0 : level.getTick();
+    }
+
+    @Override
+    public long getBestSize() {
+        final PriceLevel level = getBestLevel();
 
-        return bestPrice == null ? 0.0d : bestPrice;
+        return level == null ? 0 : level.getTotalSize();
     }
 
-    private Deque<ILimitOrder> createNewPriceLevel(final double limitPrice) {
-        final Deque<ILimitOrder> list = new LinkedList<ILimitOrder>();
-        priceTimePriorityMap.put(limitPrice, list);
-        pricePriorityQueue.offer(limitPrice);
+    @Override
+    public ILimitOrder getBestOrder() {
+        final PriceLevel level = getBestLevel();
 
-        return list;
+        return level == null ? null : level.peekFirst();
     }
 
+    /**
+     * Walk the priority queue from the top of the book in price order, so
+     * that only about as many price levels as requested get visited, however
+     * deep the book is
+     */
     @Override
-    public abstract double getBestPriceFor(double price);
+    public int getDepth(final long[] ticks, final long[] sizes,
+            final int maxLevels) {
+        return pricePriorityQueue.getDepth(ticks, sizes, maxLevels);
+    }
 
     @Override
-    public String getTopOfBook() {
-        ILimitOrder topOfBookOrder = null;
-        for (final double price : pricePriorityQueue) {
-            final Deque<ILimitOrder> list = priceTimePriorityMap.get(price);
-            if (list == null) {
-                return null;
+    public List<PriceLevel> getPriceLevels() {
+        final List<PriceLevel> levels = new ArrayList<PriceLevel>(
+                priceLevelMap.size());
+        for (int slot = 0; slot < priceLevelMap.getCapacity(); slot++) {
+            final PriceLevel level = priceLevelMap.getAt(slot);
+            if (level != null) {
+                levels.add(level);
             }
-            for (final ILimitOrder order : list) {
-                if (!order.isDead()) {
-                    topOfBookOrder = order;
-                    break;
+        }
+        Collections.sort(levels, comparator);
+
+        return levels;
+    }
+
+    @Override
+    public void addPriceLevel(final PriceLevel priceLevel) {
+        if (priceLevel.isEmpty()) {
+            throw new IllegalArgumentException("Invalid price level "
+                    + priceLevel);
+        }
+        if (priceLevelMap.get(priceLevel.getTick()) != null) {
+            throw new IllegalArgumentException("Price level already in book "
+                    + priceLevel);
+        }
+        priceLevelMap.put(priceLevel);
+        pricePriorityQueue.offer(priceLevel);
+        orderCount += priceLevel.getOrderCount();
+    }
+
+    @Override
+    public int getOrderCount() {
+        return orderCount;
+    }
+
+    @Override
+    public int getPriceLevelCount() {
+        return priceLevelMap.size();
+    }
+
+    @Override
+    public int getStaleLevelCount() {
+        return staleLevelCount;
+    }
+
+    /**
+     * Check if one price takes priority over the other in this book
+     * 
+     * @param tick price in ticks
+     * @param otherTick other price in ticks
+     * @return true if price is better than the other price
+     */
+    protected abstract boolean isBetter(long tick, long otherTick);
+
+    /**
+     * Locate price level queue for a given order, creating it if necessary
+     * 
+     * @param limitOrder
+     * @return price level or null for market orders
+     */
+    private PriceLevel getLevelFor(final ILimitOrder limitOrder) {
+        if (limitOrder.getOrderType() == OrderType.MARKET) {
+            return null;
+        }
+
+        final long limitTick = limitOrder.getLimitTick();
+        PriceLevel level = priceLevelMap.get(limitTick);
+        if (level == null) {
+            level = createNewPriceLevel(limitTick);
+        }
+
+        return level;
+    }
+
+    private PriceLevel createNewPriceLevel(final long limitTick) {
+        final PriceLevel level = priceLevelPool.acquire(limitTick);
+        priceLevelMap.put(level);
+        pricePriorityQueue.offer(level);
+
+        return level;
+    }
+
+    /**
+     * Remove empty price level from the book. The price level is dropped from
+     * the priority queue and returned to the pool right away only if on top,
+     * otherwise it is left there until it surfaces or the queue gets
+     * compacted.
+     * 
+     * @param level
+     */
+    private void removeLevel(final PriceLevel level) {
+        priceLevelMap.remove(level.getTick());
+        if (pricePriorityQueue.peek() == level) {
+            pricePriorityQueue.poll();
+            priceLevelPool.release(level);
+        } else if (++staleLevelCount > priceLevelMap.size() + 16) {
+            // too many empty price levels left behind, rebuild the queue
+            for (int i = 0; i < pricePriorityQueue.size(); i++) {
+                final PriceLevel staleLevel = pricePriorityQueue.get(i);
+                if (staleLevel.isEmpty()) {
+                    priceLevelPool.release(staleLevel);
                 }
             }
-            if (topOfBookOrder != null) {
-                return topOfBookOrder.toString();
+            pricePriorityQueue.clear();
+            for (int slot = 0; slot < priceLevelMap.getCapacity(); slot++) {
+                final PriceLevel mappedLevel = priceLevelMap.getAt(slot);
+                if (mappedLevel != null) {
+                    pricePriorityQueue.offer(mappedLevel);
+                }
             }
+            staleLevelCount = 0;
+        }
+    }
+
+    /**
+     * Get top of the book price level, discarding any empty price levels that
+     * surfaced to the top of the priority queue
+     * 
+     * @return best price level or null if the book is empty
+     */
+    private PriceLevel getBestLevel() {
+        PriceLevel level = pricePriorityQueue.peek();
+        while (level != null && level.isEmpty()) {
+            pricePriorityQueue.poll();
+            staleLevelCount--;
+            priceLevelPool.release(level);
+            level = pricePriorityQueue.peek();
         }
 
-        return null;
+        return level;
+    }
+
+    @Override
+    public String getTopOfBook() {
+        final ILimitOrder order = getBestOrder();
+        
+        return order == null ? null : order.toString();
     }
 
     @Override
     public String toString() {
         final StringBuilder sb = new StringBuilder();
-        for (final double price : pricePriorityQueue) {
-            final Deque<ILimitOrder> list = priceTimePriorityMap.get(price);
-            if (list != null) {
-                for (final ILimitOrder order : list) {
-                    if (!order.isDead()) {
-                        sb.append(order.toStatusString());
-                    }
-                }
-            }
+        for (final PriceLevel level : getPriceLevels()) {
+            level.appendStatusString(sb);
         }
 
         return sb.toString();
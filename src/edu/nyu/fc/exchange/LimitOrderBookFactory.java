@@ -0,0 +1,22 @@
+package edu.nyu.fc.exchange;
+
+/**
+ * Default limit order book factory, which creates books that keep price levels
+ * in a hash map and determine top of the book through a priority queue.
+ * 
+ * @author Yourii Martiak
+ *
+ */
+public class LimitOrderBookFactory implements ILimitOrderBookFactory {
+
+    @Override
+    public ILimitOrderBook newAskBook(final String symbol) {
+        return new AskLimitOrderBook();
+    }
+
+    @Override
+    public ILimitOrderBook newBidBook(final String symbol) {
+        return new BidLimitOrderBook();
+    }
+
+}
@@ -0,0 +1,115 @@
+package edu.nyu.fc.exchange;
+
+import orderGenerator.NewOrder;
+import orderGenerator.OrderCxR;
+
+/**
+ * Pool of limit orders, reused once orders are no longer live in the auction,
+ * so that handling messages does not allocate orders once the pool is warmed
+ * up. This is the default on-heap order store of the auction. Orders are
+ * kept in a stack, which is grown on demand up to a given number of pooled
+ * orders, beyond which released orders are left to the garbage collector.
+ * Not thread safe.
+ * 
+ * @author Yourii Martiak
+ *
+ */
+public class LimitOrderPool implements ILimitOrderStore {
+
+    private final int maxSize;
+    private LimitOrder[] orders;
+    private int size;
+
+    /**
+     * Creates new empty limit order pool
+     * 
+     * @param maxSize largest number of orders kept in the pool
+     */
+    public LimitOrderPool(final int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("Invalid pool size " + maxSize);
+        }
+        this.maxSize = maxSize;
+        this.orders = new LimitOrder[Math.min(maxSize, 64)];
+    }
+
+    /**
+     * Get number of orders currently available in the pool
+     * 
+     * @return number of pooled orders
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Take order from the pool, or create new one if the pool is empty, and
+     * initialize it from a new order message
+     * 
+     * @param order
+     * @param tickSize tick size of the order's symbol
+     * @return limit order
+     */
+    @Override
+    public LimitOrder acquire(final NewOrder order, final double tickSize) {
+        return size == 0 ? new LimitOrder(order, tickSize) : take().set(order,
+                tickSize);
+    }
+
+    /**
+     * Take order from the pool, or create new one if the pool is empty, and
+     * initialize it as replacement of a given order
+     * 
+     * @param order original order being replaced
+     * @param replace
+     * @return limit order
+     */
+    @Override
+    public LimitOrder acquire(final ILimitOrder order, final OrderCxR replace) {
+        return size == 0 ? new LimitOrder(order, replace) : take().set(order,
+                replace);
+    }
+
+    @Override
+    public LimitOrder acquire(final String orderID, final String symbol,
+            final int size, final long limitTick, final double tickSize) {
+        return (this.size == 0 ? new LimitOrder() : take()).set(orderID,
+                symbol, size, limitTick, tickSize);
+    }
+
+    private LimitOrder take() {
+        final LimitOrder order = orders[--size];
+        orders[size] = null;
+        return order;
+    }
+
+    /**
+     * Return order to the pool. Orders not created as {@link LimitOrder}
+     * are ignored. The order must not be used by the caller afterwards.
+     * 
+     * @param order
+     * @throws IllegalStateException if the order has already been released
+     */
+    @Override
+    public void release(final ILimitOrder order) {
+        if (!(order instanceof LimitOrder)) {
+            return;
+        }
+        final LimitOrder limitOrder = (LimitOrder) order;
+        if (limitOrder.isReleased()) {
+            throw new IllegalStateException("Order already released");
+        }
+        limitOrder.clear();
+        if (size == orders.length) {
+            if (size == maxSize) {
+                return;
+            }
+            final LimitOrder[] newOrders = new LimitOrder[(int) Math.min(
+                    (long) Math.max(size, 1) << 1, maxSize)];
+            System.arraycopy(orders, 0, newOrders, 0, size);
+            orders = newOrders;
+        }
+        orders[size++] = limitOrder;
+    }
+
+}
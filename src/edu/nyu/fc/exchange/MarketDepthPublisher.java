@@ -0,0 +1,312 @@
+package edu.nyu.fc.exchange;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Level 2 market data publisher, aggregating quantity per price level for the
+ * top levels of both books of every symbol. After every update to the books of
+ * a symbol, the new depth is compared against the depth last published and
+ * only the differences are sent as add, modify and delete entries. Depth is
+ * compared in ticks, and converted to prices using the tick size of the
+ * symbol only when encoded. Every so many updates of a symbol, a full snapshot
+ * is sent instead, so that consumers can recover from missed messages.
+ * Messages are encoded into a single reusable buffer using the following
+ * layout, all numbers in big endian order:
+ * 
+ * <pre>
+ * message header
+ *   byte    message type, SNAPSHOT or INCREMENTAL
+ *   long    sequence number, incremented by one for every message
+ *   byte    symbol length, followed by the symbol in US-ASCII
+ *   short   number of entries
+ * entry
+ *   byte    action, ADD, MODIFY or DELETE (snapshots only use ADD)
+ *   byte    side, ordinal of {@link edu.nyu.fc.exchange.Side}
+ *   byte    level, zero for the top of the book
+ *   double  price
+ *   long    aggregate quantity, zero for deletes
+ * </pre>
+ * 
+ * Within each side of an incremental message, deletes come first, from the
+ * worst level up, each giving the level of the depth last published. Adds and
+ * modifies follow from the top of the book down, each giving the level of the
+ * new depth. Applying entries in order to the list of levels of a side, by
+ * removing, inserting or replacing at the given level, rebuilds the new depth.
+ * 
+ * @author Yourii Martiak
+ *
+ */
+public class MarketDepthPublisher implements IBookUpdateListener {
+
+    public static final byte SNAPSHOT = 'S';
+    public static final byte INCREMENTAL = 'I';
+    public static final byte ADD = 'A';
+    public static final byte MODIFY = 'M';
+    public static final byte DELETE = 'D';
+
+    /**
+     * Default number of price levels published per side
+     */
+    public static final int DEFAULT_DEPTH = 10;
+
+    /**
+     * Default number of updates of a symbol between full snapshots
+     */
+    public static final int DEFAULT_SNAPSHOT_INTERVAL = 1000;
+
+    private static final Charset US_ASCII = Charset.forName("US-ASCII");
+    private static final int HEADER_SIZE = 1 + 8 + 1 + 255 + 2;
+    private static final int ENTRY_SIZE = 1 + 1 + 1 + 8 + 8;
+
+    private final int depth;
+    private final int snapshotInterval;
+    private final IMarketDataListener marketDataListener;
+    private final ByteBuffer buffer;
+    private final Map<String, DepthState> depthStateMap;
+
+    /**
+     * Depth collected from the books before being compared against the depth
+     * last published
+     */
+    private final long[] bidTicks;
+    private final long[] bidSizes;
+    private final long[] askTicks;
+    private final long[] askSizes;
+
+    private long sequence;
+    private int entryCount;
+
+    /**
+     * Tick size of the symbol of the message being encoded
+     */
+    private double tickSize;
+
+    /**
+     * Creates new market depth publisher with default depth and snapshot
+     * interval
+     * 
+     * @param marketDataListener
+     */
+    public MarketDepthPublisher(final IMarketDataListener marketDataListener) {
+        this(marketDataListener, DEFAULT_DEPTH, DEFAULT_SNAPSHOT_INTERVAL);
+    }
+
+    /**
+     * Creates new market depth publisher
+     * 
+     * @param marketDataListener
+     * @param depth number of price levels published per side
+     * @param snapshotInterval number of updates of a symbol between full
+     *            snapshots
+     */
+    public MarketDepthPublisher(final IMarketDataListener marketDataListener,
+            final int depth, final int snapshotInterval) {
+        if (marketDataListener == null) {
+            throw new IllegalArgumentException("Missing market data listener");
+        }
+        if (depth < 1 || depth > 255) {
+            throw new IllegalArgumentException("Invalid depth " + depth);
+        }
+        if (snapshotInterval < 1) {
+            throw new IllegalArgumentException("Invalid snapshot interval "
+                    + snapshotInterval);
+        }
+        this.marketDataListener = marketDataListener;
+        this.depth = depth;
+        this.snapshotInterval = snapshotInterval;
+        // at most every old level gets deleted and every new level added
+        this.buffer = ByteBuffer.allocate(HEADER_SIZE + 4 * depth * ENTRY_SIZE);
+        this.depthStateMap = new HashMap<String, DepthState>();
+        this.bidTicks = new long[depth];
+        this.bidSizes = new long[depth];
+        this.askTicks = new long[depth];
+        this.askSizes = new long[depth];
+    }
+
+    @Override
+    public void onBookUpdated(final TopOfBook topOfBook) {
+        DepthState state = depthStateMap.get(topOfBook.getSymbol());
+        if (state == null) {
+            state = new DepthState(topOfBook, depth);
+            depthStateMap.put(topOfBook.getSymbol(), state);
+        }
+        if (state.updateCount++ % snapshotInterval == 0) {
+            publishSnapshot(state);
+        } else {
+            publishIncremental(state);
+        }
+    }
+
+    /**
+     * Publish full snapshots for all symbols seen so far, for instance to let
+     * a new consumer build its books
+     */
+    public void publishSnapshots() {
+        for (final DepthState state : depthStateMap.values()) {
+            publishSnapshot(state);
+        }
+    }
+
+    /**
+     * Get sequence number of the last message published
+     * 
+     * @return sequence number or zero if nothing published yet
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    private void publishSnapshot(final DepthState state) {
+        final TopOfBook topOfBook = state.topOfBook;
+        state.bidCount = topOfBook.getBidBook().getDepth(state.bidTicks,
+                state.bidSizes, depth);
+        state.askCount = topOfBook.getAskBook().getDepth(state.askTicks,
+                state.askSizes, depth);
+
+        beginMessage(SNAPSHOT, state);
+        for (int i = 0; i < state.bidCount; i++) {
+            putEntry(ADD, Side.BID, i, state.bidTicks[i], state.bidSizes[i]);
+        }
+        for (int i = 0; i < state.askCount; i++) {
+            putEntry(ADD, Side.ASK, i, state.askTicks[i], state.askSizes[i]);
+        }
+        endMessage();
+    }
+
+    private void publishIncremental(final DepthState state) {
+        final TopOfBook topOfBook = state.topOfBook;
+        final int bidCount = topOfBook.getBidBook().getDepth(bidTicks,
+                bidSizes, depth);
+        final int askCount = topOfBook.getAskBook().getDepth(askTicks,
+                askSizes, depth);
+
+        beginMessage(INCREMENTAL, state);
+        putDeltas(Side.BID, state.bidTicks, state.bidSizes, state.bidCount,
+                bidTicks, bidSizes, bidCount);
+        putDeltas(Side.ASK, state.askTicks, state.askSizes, state.askCount,
+                askTicks, askSizes, askCount);
+        if (entryCount == 0) {
+            // nothing changed within published depth, discard the message
+            return;
+        }
+        endMessage();
+
+        System.arraycopy(bidTicks, 0, state.bidTicks, 0, bidCount);
+        System.arraycopy(bidSizes, 0, state.bidSizes, 0, bidCount);
+        state.bidCount = bidCount;
+        System.arraycopy(askTicks, 0, state.askTicks, 0, askCount);
+        System.arraycopy(askSizes, 0, state.askSizes, 0, askCount);
+        state.askCount = askCount;
+    }
+
+    /**
+     * Compare old and new depth of one side, both sorted from the top of the
+     * book, and encode the differences. Deletes are found walking both depths
+     * from the bottom, so that they are encoded before any add or modify, with
+     * the worst level first.
+     */
+    private void putDeltas(final Side side, final long[] oldTicks,
+            final long[] oldSizes, final int oldCount,
+            final long[] newTicks, final long[] newSizes, final int newCount) {
+        int i = oldCount - 1;
+        int j = newCount - 1;
+        while (i >= 0) {
+            if (j < 0 || isBetter(side, newTicks[j], oldTicks[i])) {
+                // old price level is gone or fell out of the published depth
+                putEntry(DELETE, side, i, oldTicks[i], 0);
+                i--;
+            } else if (isBetter(side, oldTicks[i], newTicks[j])) {
+                j--;
+            } else {
+                i--;
+                j--;
+            }
+        }
+
+        i = 0;
+        j = 0;
+        while (j < newCount) {
+            if (i < oldCount && isBetter(side, oldTicks[i], newTicks[j])) {
+                // already deleted
+                i++;
+            } else if (i >= oldCount || isBetter(side, newTicks[j], oldTicks[i])) {
+                putEntry(ADD, side, j, newTicks[j], newSizes[j]);
+                j++;
+            } else {
+                if (oldSizes[i] != newSizes[j]) {
+                    putEntry(MODIFY, side, j, newTicks[j], newSizes[j]);
+                }
+                i++;
+                j++;
+            }
+        }
+    }
+
+    private static boolean isBetter(final Side side, final long tick,
+            final long otherTick) {
+        return side == Side.BID ? tick > otherTick : tick < otherTick;
+    }
+
+    private void beginMessage(final byte messageType, final DepthState state) {
+        buffer.clear();
+        buffer.put(messageType);
+        buffer.putLong(sequence + 1);
+        buffer.put((byte) state.symbol.length);
+        buffer.put(state.symbol);
+        // entry count gets filled in once the message is complete
+        buffer.putShort((short) 0);
+        entryCount = 0;
+        tickSize = state.topOfBook.getTickSize();
+    }
+
+    private void putEntry(final byte action, final Side side, final int level,
+            final long tick, final long size) {
+        buffer.put(action);
+        buffer.put((byte) side.ordinal());
+        buffer.put((byte) level);
+        buffer.putDouble(TickSizeTable.toPrice(tick, tickSize));
+        buffer.putLong(size);
+        entryCount++;
+    }
+
+    private void endMessage() {
+        final int symbolLength = buffer.get(9) & 0xFF;
+        buffer.putShort(10 + symbolLength, (short) entryCount);
+        buffer.flip();
+        sequence++;
+        marketDataListener.onMarketData(buffer);
+    }
+
+    /**
+     * Depth of a single symbol as last published
+     */
+    private static final class DepthState {
+
+        private final TopOfBook topOfBook;
+        private final byte[] symbol;
+        private final long[] bidTicks;
+        private final long[] bidSizes;
+        private final long[] askTicks;
+        private final long[] askSizes;
+        private int bidCount;
+        private int askCount;
+        private int updateCount;
+
+        private DepthState(final TopOfBook topOfBook, final int depth) {
+            this.topOfBook = topOfBook;
+            this.symbol = topOfBook.getSymbol().getBytes(US_ASCII);
+            if (symbol.length > 255) {
+                throw new IllegalArgumentException("Symbol too long "
+                        + topOfBook.getSymbol());
+            }
+            this.bidTicks = new long[depth];
+            this.bidSizes = new long[depth];
+            this.askTicks = new long[depth];
+            this.askSizes = new long[depth];
+        }
+    }
+
+}
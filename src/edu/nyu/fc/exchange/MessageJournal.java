@@ -0,0 +1,218 @@
+package edu.nyu.fc.exchange;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import orderGenerator.Message;
+import orderGenerator.NewOrder;
+import orderGenerator.OrderCxR;
+
+/**
+ * Append-only binary journal of inbound messages, written through memory
+ * mapped regions of a file. Every message takes a fixed-size record, so that
+ * appending never allocates and replay can walk the file sequentially without
+ * parsing. The file starts with a header record, followed by message records
+ * laid out as follows:
+ * 
+ * <pre>
+ *  offset  size  content
+ *       0     1  record type, NEW_ORDER or ORDER_CXR (zero marks the end)
+ *       1     1  order ID length, followed by order ID in US-ASCII
+ *      65     1  symbol length, followed by symbol in US-ASCII (new orders)
+ *      81     4  size
+ *      85     8  limit price
+ * </pre>
+ * 
+ * Mapped regions are zero filled by the operating system as the file grows,
+ * so the first record with zero type marks the end of the journal, even after
+ * a crash. Opening an existing journal appends after its last record.
+ * 
+ * @author Yourii Martiak
+ *
+ */
+public class MessageJournal {
+
+    public static final byte NEW_ORDER = 'N';
+    public static final byte ORDER_CXR = 'C';
+
+    /**
+     * Size of every record, including the header
+     */
+    public static final int RECORD_SIZE = 96;
+
+    public static final int MAX_ORDER_ID_LENGTH = 63;
+    public static final int MAX_SYMBOL_LENGTH = 15;
+
+    static final int MAGIC = 0x4F4A4E4C;
+    static final int VERSION = 1;
+    static final int ORDER_ID_OFFSET = 1;
+    static final int SYMBOL_OFFSET = 65;
+    static final int SIZE_OFFSET = 81;
+    static final int PRICE_OFFSET = 85;
+
+    /**
+     * Number of records mapped at a time
+     */
+    static final int RECORDS_PER_REGION = 1 << 20;
+
+    static final long REGION_SIZE = (long) RECORD_SIZE * RECORDS_PER_REGION;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private MappedByteBuffer region;
+    private long regionStart;
+    private long recordCount;
+
+    /**
+     * Creates new journal or opens an existing one for appending
+     * 
+     * @param file
+     * @throws IOException
+     */
+    public MessageJournal(final File file) throws IOException {
+        this.file = new RandomAccessFile(file, "rw");
+        this.channel = this.file.getChannel();
+        final boolean isNew = channel.size() == 0;
+        mapRegion(0);
+        if (isNew) {
+            region.putInt(0, MAGIC);
+            region.putInt(4, VERSION);
+            region.putInt(8, RECORD_SIZE);
+        } else {
+            checkHeader(region, file);
+            // skip over records already in the journal
+            long position = RECORD_SIZE;
+            while (true) {
+                if (position - regionStart >= REGION_SIZE) {
+                    mapRegion(position);
+                }
+                if (region.get((int) (position - regionStart)) == 0) {
+                    break;
+                }
+                position += RECORD_SIZE;
+                recordCount++;
+            }
+        }
+    }
+
+    /**
+     * Verify that a region starting at the beginning of the file holds a valid
+     * journal header
+     * 
+     * @param region
+     * @param file
+     * @throws IOException if the header does not match
+     */
+    static void checkHeader(final MappedByteBuffer region, final File file)
+            throws IOException {
+        if (region.getInt(0) != MAGIC || region.getInt(4) != VERSION
+                || region.getInt(8) != RECORD_SIZE) {
+            throw new IOException("Not a message journal " + file);
+        }
+    }
+
+    /**
+     * Append message to the journal
+     * 
+     * @param message new order or cancel/replace
+     */
+    public void append(final Message message) {
+        final long position = (recordCount + 1) * RECORD_SIZE;
+        if (position - regionStart >= REGION_SIZE) {
+            try {
+                mapRegion(position);
+            } catch (final IOException e) {
+                throw new IllegalStateException("Failed to grow journal", e);
+            }
+        }
+        final int offset = (int) (position - regionStart);
+        if (message instanceof NewOrder) {
+            final NewOrder order = (NewOrder) message;
+            putString(offset + ORDER_ID_OFFSET, order.getOrderId(),
+                    MAX_ORDER_ID_LENGTH, message);
+            putString(offset + SYMBOL_OFFSET, order.getSymbol(),
+                    MAX_SYMBOL_LENGTH, message);
+            region.putInt(offset + SIZE_OFFSET, order.getSize());
+            region.putDouble(offset + PRICE_OFFSET, order.getLimitPrice());
+            region.put(offset, NEW_ORDER);
+        } else if (message instanceof OrderCxR) {
+            final OrderCxR orderCxR = (OrderCxR) message;
+            putString(offset + ORDER_ID_OFFSET, orderCxR.getOrderId(),
+                    MAX_ORDER_ID_LENGTH, message);
+            region.put(offset + SYMBOL_OFFSET, (byte) 0);
+            region.putInt(offset + SIZE_OFFSET, orderCxR.getSize());
+            region.putDouble(offset + PRICE_OFFSET, orderCxR.getLimitPrice());
+            region.put(offset, ORDER_CXR);
+        } else {
+            throw new IllegalArgumentException("Invalid message " + message);
+        }
+        recordCount++;
+    }
+
+    /**
+     * Get number of messages in the journal
+     * 
+     * @return number of messages
+     */
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Flush journal content of the current region to the storage device
+     */
+    public void flush() {
+        region.force();
+    }
+
+    /**
+     * Flush and close the journal
+     * 
+     * @throws IOException
+     */
+    public void close() throws IOException {
+        flush();
+        channel.close();
+        file.close();
+    }
+
+    private void putString(final int offset, final String s,
+            final int maxLength, final Message message) {
+        if (s == null) {
+            throw new IllegalArgumentException("Invalid message " + message);
+        }
+        final int length = s.length();
+        if (length > maxLength) {
+            throw new IllegalArgumentException("Value too long to journal " + s);
+        }
+        region.put(offset, (byte) length);
+        for (int i = 0; i < length; i++) {
+            final char c = s.charAt(i);
+            if (c > 127) {
+                throw new IllegalArgumentException(
+                        "Only US-ASCII values can be journaled " + s);
+            }
+            region.put(offset + 1 + i, (byte) c);
+        }
+    }
+
+    /**
+     * Map region of the file holding a given position, growing the file if
+     * necessary
+     * 
+     * @param position
+     * @throws IOException
+     */
+    private void mapRegion(final long position) throws IOException {
+        if (region != null) {
+            region.force();
+        }
+        regionStart = position - position % REGION_SIZE;
+        region = channel.map(FileChannel.MapMode.READ_WRITE, regionStart,
+                REGION_SIZE);
+    }
+
+}
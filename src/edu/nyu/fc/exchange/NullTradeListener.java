@@ -0,0 +1,20 @@
+package edu.nyu.fc.exchange;
+
+/**
+ * Trade listener discarding all fills, used whenever trade output needs to be
+ * suppressed, for instance while replaying a journal.
+ * 
+ * @author Yourii Martiak
+ *
+ */
+public class NullTradeListener implements ITradeListener {
+
+    @Override
+    public void onTrade(final TradeEvent trade) {
+    }
+
+    @Override
+    public void onEndOfBatch() {
+    }
+
+}
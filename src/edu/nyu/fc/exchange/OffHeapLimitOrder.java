@@ -0,0 +1,191 @@
+package edu.nyu.fc.exchange;
+
+import java.nio.ByteBuffer;
+
+/**
+ * View of a limit order kept in a record of {@link OffHeapOrderStore}. Every
+ * accessor reads and writes the record in direct memory, except for the price
+ * level the order is resting in, which is an on-heap object. Views are bound
+ * to a record while its order is live, and reused for other records once
+ * released, so a view must not be used once its order has been released.
+ * 
+ * @author Yourii Martiak
+ *
+ */
+public final class OffHeapLimitOrder implements ILimitOrder {
+
+    private final OffHeapOrderStore store;
+    private OffHeapOrderStore.Segment segment;
+    private ByteBuffer buffer;
+    private int slot;
+    private int offset;
+    private int record;
+    private PriceLevel priceLevel;
+
+    OffHeapLimitOrder(final OffHeapOrderStore store) {
+        this.store = store;
+        this.record = -1;
+    }
+
+    /**
+     * Bind this view to a record of a given segment
+     * 
+     * @param segment
+     * @param slot position of the record in the segment
+     * @param record record number
+     */
+    void bind(final OffHeapOrderStore.Segment segment, final int slot,
+            final int record) {
+        this.segment = segment;
+        this.buffer = segment.buffer;
+        this.slot = slot;
+        this.offset = slot * OffHeapOrderStore.RECORD_SIZE;
+        this.record = record;
+    }
+
+    /**
+     * Detach this view from its record once the order is released
+     */
+    void unbind() {
+        segment = null;
+        buffer = null;
+        priceLevel = null;
+        record = -1;
+    }
+
+    OffHeapOrderStore getStore() {
+        return store;
+    }
+
+    /**
+     * Get number of the record holding this order
+     * 
+     * @return record number, -1 once the order is released
+     */
+    public int getRecord() {
+        return record;
+    }
+
+    /**
+     * Get time the order entered the store
+     * 
+     * @return timestamp as given by {@link System#nanoTime()}, 0 unless the
+     *         store stamps orders
+     */
+    public long getTimestamp() {
+        return buffer.getLong(offset + OffHeapOrderStore.TIMESTAMP);
+    }
+
+    @Override
+    public String getOrderId() {
+        return segment.orderIDs[slot];
+    }
+
+    @Override
+    public String getSymbol() {
+        return segment.symbols[slot];
+    }
+
+    @Override
+    public int getSize() {
+        return buffer.getInt(offset + OffHeapOrderStore.SIZE);
+    }
+
+    @Override
+    public void setSize(final int size) {
+        buffer.putInt(offset + OffHeapOrderStore.SIZE, size);
+    }
+
+    @Override
+    public double getLimitPrice() {
+        return getOrderType() == OrderType.MARKET ? Double.NaN : TickSizeTable
+                .toPrice(getLimitTick(), getTickSize());
+    }
+
+    @Override
+    public boolean isDead() {
+        return (getFlags() & OffHeapOrderStore.DEAD) != 0;
+    }
+
+    @Override
+    public void setDead() {
+        buffer.putInt(offset + OffHeapOrderStore.FLAGS, getFlags()
+                | OffHeapOrderStore.DEAD);
+    }
+
+    @Override
+    public OrderType getOrderType() {
+        return (getFlags() & OffHeapOrderStore.MARKET) != 0 ? OrderType.MARKET
+                : OrderType.LIMIT;
+    }
+
+    private int getFlags() {
+        return buffer.getInt(offset + OffHeapOrderStore.FLAGS);
+    }
+
+    @Override
+    public long getLimitTick() {
+        return buffer.getLong(offset + OffHeapOrderStore.LIMIT_TICK);
+    }
+
+    @Override
+    public double getTickSize() {
+        return buffer.getDouble(offset + OffHeapOrderStore.TICK_SIZE);
+    }
+
+    @Override
+    public PriceLevel getPriceLevel() {
+        return priceLevel;
+    }
+
+    @Override
+    public void setPriceLevel(final PriceLevel priceLevel) {
+        this.priceLevel = priceLevel;
+    }
+
+    @Override
+    public ILimitOrder getPrevious() {
+        return store.getOrder(buffer.getInt(offset + OffHeapOrderStore.PREVIOUS));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the order is not kept by the same
+     *             store
+     */
+    @Override
+    public void setPrevious(final ILimitOrder previous) {
+        buffer.putInt(offset + OffHeapOrderStore.PREVIOUS,
+                store.getRecord(previous));
+    }
+
+    @Override
+    public ILimitOrder getNext() {
+        return store.getOrder(buffer.getInt(offset + OffHeapOrderStore.NEXT));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the order is not kept by the same
+     *             store
+     */
+    @Override
+    public void setNext(final ILimitOrder next) {
+        buffer.putInt(offset + OffHeapOrderStore.NEXT, store.getRecord(next));
+    }
+
+    @Override
+    public String toString() {
+        if (record < 0) {
+            return "released order";
+        }
+        return getOrderId() + " : " + getSize() + " " + getSymbol() + " @ "
+                + getLimitPrice();
+    }
+
+    @Override
+    public String toStatusString() {
+        final int size = getSize();
+        return String.format("%.2f,%s,%d\n", getLimitPrice(), size < 0 ? "ask"
+                : "bid", size);
+    }
+
+}
@@ -0,0 +1,316 @@
+package edu.nyu.fc.exchange;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import orderGenerator.NewOrder;
+import orderGenerator.OrderCxR;
+
+/**
+ * Order store keeping state of orders in fixed size records of direct memory
+ * segments, for books deep enough that on-heap orders and the links between
+ * them put pressure on the old generation. Every record holds size, limit
+ * price in ticks, tick size, flags, entry timestamp and the links of the price
+ * level queue as record numbers, so resting orders do not reference each other
+ * on heap. What remains on heap per live order is a small
+ * {@link OffHeapLimitOrder} view, bound to its record on acquire and taken
+ * back on release into a small pool of views shared by all records, along
+ * with references to the order ID and symbol strings of the inbound message.
+ * Free records keep nothing on heap.
+ * <p>
+ * Records are laid out as follows, in native byte order:
+ * 
+ * <pre>
+ * offset  size  field
+ *      0     4  flags - dead, market
+ *      4     4  size
+ *      8     8  limit price in ticks
+ *     16     8  tick size
+ *     24     8  entry timestamp in nanoseconds, 0 unless stamped
+ *     32     4  previous record or -1
+ *     36     4  next record or -1, also links records free for reuse
+ * </pre>
+ * 
+ * Segments are added as the number of live orders grows and never released,
+ * released records are reused first. Releasing an order twice fails, unless
+ * its view has been handed out again in the meantime. Not thread safe.
+ * 
+ * @author Yourii Martiak
+ *
+ */
+public class OffHeapOrderStore implements ILimitOrderStore {
+
+    static final int RECORD_SIZE = 40;
+    static final int FLAGS = 0;
+    static final int SIZE = 4;
+    static final int LIMIT_TICK = 8;
+    static final int TICK_SIZE = 16;
+    static final int TIMESTAMP = 24;
+    static final int PREVIOUS = 32;
+    static final int NEXT = 36;
+
+    static final int DEAD = 1;
+    static final int MARKET = 2;
+
+    /**
+     * Largest number of records allowed in a single segment
+     */
+    public static final int MAX_SEGMENT_RECORDS = 1 << 24;
+
+    /**
+     * Largest number of released views kept for reuse
+     */
+    public static final int MAX_POOLED_VIEWS = 64;
+
+    private final boolean isTimestamped;
+
+    private final int segmentShift;
+    private final int segmentMask;
+    private Segment[] segments;
+    private int segmentCount;
+
+    /**
+     * Number of records ever handed out, records above are not initialized
+     */
+    private int recordCount;
+
+    /**
+     * First record free for reuse or -1
+     */
+    private int freeRecord;
+    private int size;
+
+    /**
+     * Views taken back from released orders
+     */
+    private final OffHeapLimitOrder[] views;
+    private int viewCount;
+
+    /**
+     * Creates new order store, leaving entry timestamps of orders unset
+     * 
+     * @param segmentRecords number of records per memory segment, must be a
+     *            power of two
+     */
+    public OffHeapOrderStore(final int segmentRecords) {
+        this(segmentRecords, false);
+    }
+
+    /**
+     * Creates new order store
+     * 
+     * @param segmentRecords number of records per memory segment, must be a
+     *            power of two
+     * @param isTimestamped whether to stamp orders with the time they enter
+     *            the store, which costs a clock read per order
+     */
+    public OffHeapOrderStore(final int segmentRecords,
+            final boolean isTimestamped) {
+        if (segmentRecords < 1 || segmentRecords > MAX_SEGMENT_RECORDS
+                || Integer.bitCount(segmentRecords) != 1) {
+            throw new IllegalArgumentException("Invalid segment size "
+                    + segmentRecords);
+        }
+        this.segmentShift = Integer.numberOfTrailingZeros(segmentRecords);
+        this.segmentMask = segmentRecords - 1;
+        this.isTimestamped = isTimestamped;
+        this.segments = new Segment[8];
+        this.freeRecord = -1;
+        this.views = new OffHeapLimitOrder[MAX_POOLED_VIEWS];
+    }
+
+    /**
+     * Get number of orders acquired and not yet released
+     * 
+     * @return number of live orders
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get number of records allocated in direct memory
+     * 
+     * @return number of records, live or free
+     */
+    public long getCapacity() {
+        return (long) segmentCount << segmentShift;
+    }
+
+    @Override
+    public OffHeapLimitOrder acquire(final NewOrder order, final double tickSize) {
+        final int size = order.getSize();
+        final double limitPrice = order.getLimitPrice();
+        final boolean isMarket = Double.isNaN(limitPrice);
+        final long limitTick = isMarket ? 0 : size > 0 ? TickSizeTable
+                .toBidTick(limitPrice, tickSize) : TickSizeTable.toAskTick(
+                limitPrice, tickSize);
+
+        return init(order.getOrderId(), order.getSymbol(), size, isMarket,
+                limitTick, tickSize);
+    }
+
+    @Override
+    public OffHeapLimitOrder acquire(final ILimitOrder order,
+            final OrderCxR replace) {
+        final int size = replace.getSize();
+        final double limitPrice = replace.getLimitPrice();
+        final double tickSize = order.getTickSize();
+        final boolean isMarket = Double.isNaN(limitPrice);
+        final long limitTick = isMarket ? 0 : size > 0 ? TickSizeTable
+                .toBidTick(limitPrice, tickSize) : TickSizeTable.toAskTick(
+                limitPrice, tickSize);
+
+        return init(replace.getOrderId(), order.getSymbol(), size, isMarket,
+                limitTick, tickSize);
+    }
+
+    @Override
+    public OffHeapLimitOrder acquire(final String orderID, final String symbol,
+            final int size, final long limitTick, final double tickSize) {
+        return init(orderID, symbol, size, false, limitTick, tickSize);
+    }
+
+    /**
+     * Return record of a given order for reuse, along with its view. Orders
+     * of other stores are ignored.
+     * 
+     * @throws IllegalStateException if the order has already been released
+     */
+    @Override
+    public void release(final ILimitOrder order) {
+        if (!(order instanceof OffHeapLimitOrder)) {
+            return;
+        }
+        final OffHeapLimitOrder offHeapOrder = (OffHeapLimitOrder) order;
+        if (offHeapOrder.getStore() != this) {
+            return;
+        }
+        final int record = offHeapOrder.getRecord();
+        if (record < 0) {
+            throw new IllegalStateException("Order already released");
+        }
+        final Segment segment = segments[record >>> segmentShift];
+        final int slot = record & segmentMask;
+        segment.orderIDs[slot] = null;
+        segment.symbols[slot] = null;
+        segment.orders[slot] = null;
+        offHeapOrder.unbind();
+        if (viewCount < views.length) {
+            views[viewCount++] = offHeapOrder;
+        }
+        segment.buffer.putInt(slot * RECORD_SIZE + NEXT, freeRecord);
+        freeRecord = record;
+        size--;
+    }
+
+    private OffHeapLimitOrder init(final String orderID, final String symbol,
+            final int size, final boolean isMarket, final long limitTick,
+            final double tickSize) {
+        final int record = allocate();
+        final Segment segment = segments[record >>> segmentShift];
+        final int slot = record & segmentMask;
+        final int offset = slot * RECORD_SIZE;
+        final ByteBuffer buffer = segment.buffer;
+        buffer.putInt(offset + FLAGS, isMarket ? MARKET : 0);
+        buffer.putInt(offset + SIZE, size);
+        buffer.putLong(offset + LIMIT_TICK, limitTick);
+        buffer.putDouble(offset + TICK_SIZE, tickSize);
+        buffer.putLong(offset + TIMESTAMP, isTimestamped ? System.nanoTime()
+                : 0);
+        buffer.putInt(offset + PREVIOUS, -1);
+        buffer.putInt(offset + NEXT, -1);
+        segment.orderIDs[slot] = orderID;
+        segment.symbols[slot] = symbol;
+        final OffHeapLimitOrder order;
+        if (viewCount > 0) {
+            order = views[--viewCount];
+            views[viewCount] = null;
+        } else {
+            order = new OffHeapLimitOrder(this);
+        }
+        order.bind(segment, slot, record);
+        segment.orders[slot] = order;
+        this.size++;
+
+        return order;
+    }
+
+    /**
+     * Take record free for reuse, or the next record never used, adding new
+     * segment if necessary
+     * 
+     * @return record number
+     */
+    private int allocate() {
+        if (freeRecord >= 0) {
+            final int record = freeRecord;
+            freeRecord = segments[record >>> segmentShift].buffer.getInt(
+                    (record & segmentMask) * RECORD_SIZE + NEXT);
+            return record;
+        }
+        if (recordCount == (long) segmentCount << segmentShift) {
+            if ((long) (segmentCount + 1) << segmentShift > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Order store is full");
+            }
+            if (segmentCount == segments.length) {
+                final Segment[] newSegments = new Segment[segmentCount << 1];
+                System.arraycopy(segments, 0, newSegments, 0, segmentCount);
+                segments = newSegments;
+            }
+            segments[segmentCount++] = new Segment(segmentMask + 1);
+        }
+
+        return recordCount++;
+    }
+
+    /**
+     * Get order view of a given live record
+     * 
+     * @param record record number or -1
+     * @return order or null if the record number is -1
+     */
+    OffHeapLimitOrder getOrder(final int record) {
+        return record < 0 ? null : segments[record >>> segmentShift].orders[record
+                & segmentMask];
+    }
+
+    /**
+     * Get record number of a given order
+     * 
+     * @param order order of this store or null
+     * @return record number or -1 if the order is null
+     */
+    int getRecord(final ILimitOrder order) {
+        if (order == null) {
+            return -1;
+        }
+        if (!(order instanceof OffHeapLimitOrder)
+                || ((OffHeapLimitOrder) order).getStore() != this
+                || ((OffHeapLimitOrder) order).getRecord() < 0) {
+            throw new IllegalArgumentException("Order not in store " + order);
+        }
+        return ((OffHeapLimitOrder) order).getRecord();
+    }
+
+    /**
+     * Memory segment holding a fixed number of records, along with the order
+     * ID and symbol references and order views of its live records
+     */
+    static final class Segment {
+
+        final ByteBuffer buffer;
+        final String[] orderIDs;
+        final String[] symbols;
+        final OffHeapLimitOrder[] orders;
+
+        private Segment(final int records) {
+            buffer = ByteBuffer.allocateDirect(records * RECORD_SIZE).order(
+                    ByteOrder.nativeOrder());
+            orderIDs = new String[records];
+            symbols = new String[records];
+            orders = new OffHeapLimitOrder[records];
+        }
+    }
+
+}
@@ -0,0 +1,228 @@
+package edu.nyu.fc.exchange;
+
+/**
+ * Index of resting orders keyed by their order IDs, used for quick access to
+ * an order in case of cancel. Implemented as an open addressing hash table with
+ * linear probing, which keeps the primitive hash code of every order ID next to
+ * the order, so that probing compares ints and only calls equals on a hash
+ * match. No entry objects are allocated, and removed entries are backward
+ * shifted instead of leaving tombstones behind.
+ * 
+ * @author Yourii Martiak
+ *
+ */
+public class OrderIndex {
+
+    /**
+     * Largest capacity the table is allowed to grow to
+     */
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private int[] hashes;
+    private ILimitOrder[] orders;
+    private int mask;
+    private int size;
+    private int resizeThreshold;
+
+    /**
+     * Creates new order index with a given expected number of orders
+     * 
+     * @param expectedSize
+     */
+    public OrderIndex(final int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Invalid expected size "
+                    + expectedSize);
+        }
+        int capacity = 16;
+        while (capacity < expectedSize * 2 && capacity < MAX_CAPACITY) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    /**
+     * Get number of orders in this index
+     * 
+     * @return number of orders
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Locate order by its order ID
+     * 
+     * @param orderID
+     * @return order or null if not found
+     */
+    public ILimitOrder get(final String orderID) {
+        final int slot = find(orderID, hash(orderID));
+
+        return slot < 0 ? null : orders[slot];
+    }
+
+    /**
+     * Add order to the index, replacing any order with the same order ID
+     * 
+     * @param order
+     * @return order previously indexed with the same order ID or null
+     */
+    public ILimitOrder put(final ILimitOrder order) {
+        final String orderID = order.getOrderId();
+        final int hash = hash(orderID);
+        int slot = hash & mask;
+        while (orders[slot] != null) {
+            if (hashes[slot] == hash && orderID.equals(orders[slot].getOrderId())) {
+                final ILimitOrder previous = orders[slot];
+                orders[slot] = order;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        hashes[slot] = hash;
+        orders[slot] = order;
+        if (++size > resizeThreshold) {
+            resize(orders.length << 1);
+        }
+
+        return null;
+    }
+
+    /**
+     * Remove order from the index
+     * 
+     * @param orderID
+     * @return removed order or null if not found
+     */
+    public ILimitOrder remove(final String orderID) {
+        final int slot = find(orderID, hash(orderID));
+        if (slot < 0) {
+            return null;
+        }
+
+        return removeAt(slot);
+    }
+
+    /**
+     * Remove order from the index only if it is the order indexed under its
+     * order ID, so that retiring an order shadowed by a later order with the
+     * same order ID leaves the later order indexed
+     * 
+     * @param orderID
+     * @param order
+     * @return true if the order was removed
+     */
+    public boolean remove(final String orderID, final ILimitOrder order) {
+        final int slot = find(orderID, hash(orderID));
+        if (slot < 0 || orders[slot] != order) {
+            return false;
+        }
+
+        removeAt(slot);
+        return true;
+    }
+
+    private ILimitOrder removeAt(int slot) {
+        final ILimitOrder removed = orders[slot];
+        // shift following entries of the same probe sequence back into the
+        // freed slot, so that lookups never need to step over tombstones
+        int next = (slot + 1) & mask;
+        while (orders[next] != null) {
+            final int home = hashes[next] & mask;
+            if (((next - home) & mask) >= ((next - slot) & mask)) {
+                hashes[slot] = hashes[next];
+                orders[slot] = orders[next];
+                slot = next;
+            }
+            next = (next + 1) & mask;
+        }
+        hashes[slot] = 0;
+        orders[slot] = null;
+        size--;
+
+        return removed;
+    }
+
+    /**
+     * Grow the index up front, so that a given number of orders can be added
+     * without resizing on the way
+     * 
+     * @param expectedSize
+     */
+    public void ensureCapacity(final int expectedSize) {
+        int capacity = orders.length;
+        while (capacity < expectedSize * 2 && capacity < MAX_CAPACITY) {
+            capacity <<= 1;
+        }
+        if (capacity > orders.length) {
+            resize(capacity);
+        }
+    }
+
+    /**
+     * Remove all orders from the index
+     */
+    public void clear() {
+        for (int i = 0; i < orders.length; i++) {
+            orders[i] = null;
+            hashes[i] = 0;
+        }
+        size = 0;
+    }
+
+    private int find(final String orderID, final int hash) {
+        int slot = hash & mask;
+        while (orders[slot] != null) {
+            if (hashes[slot] == hash && orderID.equals(orders[slot].getOrderId())) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        return -1;
+    }
+
+    private void allocate(final int capacity) {
+        hashes = new int[capacity];
+        orders = new ILimitOrder[capacity];
+        mask = capacity - 1;
+        resizeThreshold = capacity == MAX_CAPACITY ? Integer.MAX_VALUE
+                : capacity >> 1;
+    }
+
+    private void resize(final int capacity) {
+        final int[] oldHashes = hashes;
+        final ILimitOrder[] oldOrders = orders;
+        allocate(capacity);
+        for (int i = 0; i < oldOrders.length; i++) {
+            if (oldOrders[i] != null) {
+                int slot = oldHashes[i] & mask;
+                while (orders[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                hashes[slot] = oldHashes[i];
+                orders[slot] = oldOrders[i];
+            }
+        }
+    }
+
+    /**
+     * Spread bits of the string hash code, since order IDs often differ only
+     * in their trailing characters
+     * 
+     * @param orderID
+     * @return spread hash code
+     */
+    private static int hash(final String orderID) {
+        final int h = orderID.hashCode() * 0x9E3779B9;
+
+        return h ^ (h >>> 16);
+    }
+
+    @Override
+    public String toString() {
+        return "OrderIndex {size=" + size + ", capacity=" + orders.length + "}";
+    }
+
+}
@@ -0,0 +1,379 @@
+package edu.nyu.fc.exchange;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import orderGenerator.Message;
+import orderGenerator.NewOrder;
+import orderGenerator.OrderCxR;
+
+/**
+ * Staged pipeline in front of a double limit book auction. Inbound messages are
+ * written by a single producer into slots pre-allocated in a ring buffer, and
+ * flow through the following stages, each running on its own thread:
+ * <ol>
+ * <li>decode stage, validating messages the same way the auction does</li>
+ * <li>matching stage, running valid messages through the auction, which takes
+ * orders from its own order store</li>
+ * <li>trade publishing stage, delivering fills to the trade listener through a
+ * {@link edu.nyu.fc.exchange.RingBufferTradeListener}</li>
+ * </ol>
+ * Every stage follows the sequence of the stage in front of it, so slots are
+ * never copied between stages, and a slot is reused by the producer only once
+ * the matching stage is done with it. This lets parsing and validation overlap
+ * with matching, and absorbs bursts without blocking the producer.
+ * <p>
+ * A stage failing on a message stops, and the failure is rethrown to the
+ * producer by the next {@link #publish(Message)} and by {@link #close()}.
+ * 
+ * @author Yourii Martiak
+ *
+ */
+public class OrderPipeline {
+
+    /**
+     * Default number of slots in the ring buffer
+     */
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    private final Slot[] ring;
+    private final int mask;
+    private final IWaitStrategy waitStrategy;
+
+    /**
+     * Sequence of the last message written by the producer
+     */
+    private final AtomicLong publishedSequence;
+
+    /**
+     * Sequence of the last message owned by the producer, only accessed by the
+     * producer thread
+     */
+    private long claimedSequence;
+
+    /**
+     * Last known sequence of the matching stage, only accessed by the producer
+     * thread
+     */
+    private long cachedMatchedSequence;
+
+    private final DoubleLimitBookAuction auction;
+    private final RingBufferTradeListener tradePublisher;
+    private final Stage decodeStage;
+    private final Stage matchStage;
+
+    /**
+     * Number of messages rejected by the decode stage
+     */
+    private final AtomicLong rejectedCount;
+
+    /**
+     * First failure of any stage, which stops the pipeline
+     */
+    private volatile Throwable failure;
+
+    /**
+     * Whether messages get stamped on publishing, only accessed by the
+     * publishing thread
+     */
+    private boolean isStamping;
+
+    /**
+     * Creates new pipeline with default capacity and wait strategy
+     * 
+     * @param limitOrderBookFactory
+     * @param tradeListener listener receiving fills on the trade publishing
+     *            stage
+     */
+    public OrderPipeline(final ILimitOrderBookFactory limitOrderBookFactory,
+            final ITradeListener tradeListener) {
+        this(limitOrderBookFactory, tradeListener, DEFAULT_CAPACITY,
+                new BackoffWaitStrategy());
+    }
+
+    /**
+     * Creates new pipeline and starts all of its stages
+     * 
+     * @param limitOrderBookFactory
+     * @param tradeListener listener receiving fills on the trade publishing
+     *            stage
+     * @param capacity number of slots in the ring buffers, must be a power of
+     *            two
+     * @param waitStrategy used by all stages while waiting
+     */
+    public OrderPipeline(final ILimitOrderBookFactory limitOrderBookFactory,
+            final ITradeListener tradeListener, final int capacity,
+            final IWaitStrategy waitStrategy) {
+        if (capacity < 1 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException(
+                    "Capacity must be a power of two " + capacity);
+        }
+        if (waitStrategy == null) {
+            throw new IllegalArgumentException("Missing wait strategy");
+        }
+        this.ring = new Slot[capacity];
+        for (int i = 0; i < capacity; i++) {
+            ring[i] = new Slot();
+        }
+        this.mask = capacity - 1;
+        this.waitStrategy = waitStrategy;
+        this.publishedSequence = new AtomicLong(-1);
+        this.claimedSequence = -1;
+        this.cachedMatchedSequence = -1;
+        this.rejectedCount = new AtomicLong();
+        this.tradePublisher = new RingBufferTradeListener(tradeListener,
+                capacity, waitStrategy);
+        this.auction = new DoubleLimitBookAuction(limitOrderBookFactory,
+                tradePublisher);
+
+        this.decodeStage = new Stage("pipeline-decode", publishedSequence) {
+
+            @Override
+            protected void process(final Slot slot) {
+                decode(slot);
+            }
+        };
+        this.matchStage = new Stage("pipeline-match", decodeStage.sequence) {
+
+            @Override
+            protected void process(final Slot slot) {
+                match(slot);
+            }
+        };
+        decodeStage.thread.start();
+        matchStage.thread.start();
+    }
+
+    /**
+     * Put message into the pipeline, waiting for a free slot if the pipeline
+     * is full. Must always be called from the same thread.
+     * 
+     * @param message
+     * @throws IllegalStateException if a stage has failed
+     */
+    public void publish(final Message message) {
+        checkFailure();
+        final long sequence = claimedSequence + 1;
+        final long wrapPoint = sequence - ring.length;
+        if (wrapPoint > cachedMatchedSequence) {
+            int tries = 0;
+            while (wrapPoint > (cachedMatchedSequence = matchStage.sequence.get())) {
+                checkFailure();
+                tries = waitStrategy.idle(tries);
+            }
+        }
+        final Slot slot = ring[(int) sequence & mask];
+        slot.message = message;
+        slot.ingressNanos = isStamping ? System.nanoTime() : 0;
+        claimedSequence = sequence;
+        publishedSequence.lazySet(sequence);
+    }
+
+    /**
+     * Wait for all published messages to go through every stage, and stop all
+     * stage threads
+     * 
+     * @throws InterruptedException
+     * @throws IllegalStateException if a stage has failed
+     */
+    public void close() throws InterruptedException {
+        decodeStage.stop();
+        matchStage.stop();
+        tradePublisher.close();
+        checkFailure();
+    }
+
+    /**
+     * Rethrow failure of a stage to the producer
+     */
+    private void checkFailure() {
+        final Throwable stageFailure = failure;
+        if (stageFailure != null) {
+            throw new IllegalStateException("Pipeline stage failed",
+                    stageFailure);
+        }
+    }
+
+    /**
+     * Get auction behind this pipeline. Its state may only be inspected once
+     * the pipeline has been closed.
+     * 
+     * @return double limit book auction
+     */
+    public IDoubleLimitBookAuction getAuction() {
+        return auction;
+    }
+
+    /**
+     * Set recorder of latencies of the stages every message goes through,
+     * stamping messages as they get published. Must be called from the
+     * publishing thread before the first message gets published.
+     * 
+     * @param stageLatencyRecorder recorder, which should also be the trade
+     *            listener of the pipeline or sit downstream of it, or null to
+     *            stop stamping
+     */
+    public void setStageLatencyRecorder(
+            final StageLatencyRecorder stageLatencyRecorder) {
+        isStamping = stageLatencyRecorder != null;
+        auction.setStageLatencyRecorder(stageLatencyRecorder);
+    }
+
+    /**
+     * Get number of messages published but not yet through the match stage,
+     * safe to call from any thread
+     * 
+     * @return number of messages in the pipeline
+     */
+    public int getQueueDepth() {
+        return (int) (publishedSequence.get() - matchStage.sequence.get());
+    }
+
+    /**
+     * Get auction behind this pipeline, for monitoring while it runs
+     * 
+     * @return double limit book auction
+     */
+    DoubleLimitBookAuction getMatchingAuction() {
+        return auction;
+    }
+
+    /**
+     * Get number of messages rejected by the decode stage
+     * 
+     * @return number of rejected messages
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * Validate message, so that the matching stage only gets messages the
+     * auction can handle
+     * 
+     * @param slot
+     */
+    private void decode(final Slot slot) {
+        final Message message = slot.message;
+        slot.order = null;
+        slot.orderCxR = null;
+        if (message instanceof NewOrder) {
+            final NewOrder order = (NewOrder) message;
+            if (DoubleLimitBookAuction.isValid(order)) {
+                slot.order = order;
+            }
+        } else if (message instanceof OrderCxR) {
+            final OrderCxR orderCxR = (OrderCxR) message;
+            if (DoubleLimitBookAuction.isValid(orderCxR)) {
+                slot.orderCxR = orderCxR;
+            }
+        }
+        if (slot.order == null && slot.orderCxR == null) {
+            rejectedCount.lazySet(rejectedCount.get() + 1);
+            System.err.println("Invalid message " + message);
+        }
+    }
+
+    /**
+     * Run validated message through the auction
+     * 
+     * @param slot
+     */
+    private void match(final Slot slot) {
+        if (slot.order != null) {
+            auction.handleNewOrder(slot.order, slot.ingressNanos);
+        } else if (slot.orderCxR != null) {
+            auction.handleOrderCxR(slot.orderCxR, slot.ingressNanos);
+        }
+        // release references so that slots do not hold on to old messages
+        slot.message = null;
+        slot.order = null;
+        slot.orderCxR = null;
+    }
+
+    /**
+     * Pre-allocated ring buffer entry, carrying a message through all stages
+     */
+    private static final class Slot {
+        private Message message;
+        private NewOrder order;
+        private OrderCxR orderCxR;
+
+        /**
+         * Time the message got published, 0 unless messages are stamped
+         */
+        private long ingressNanos;
+    }
+
+    /**
+     * Pipeline stage processing slots on its own thread, following the
+     * sequence of the stage in front of it
+     */
+    private abstract class Stage implements Runnable {
+
+        private final AtomicLong upstreamSequence;
+        private final AtomicLong sequence;
+        private final Thread thread;
+        private volatile boolean isRunning;
+
+        private Stage(final String name, final AtomicLong upstreamSequence) {
+            this.upstreamSequence = upstreamSequence;
+            this.sequence = new AtomicLong(-1);
+            this.isRunning = true;
+            this.thread = new Thread(this, name);
+            thread.setDaemon(true);
+        }
+
+        /**
+         * Process single slot
+         * 
+         * @param slot
+         */
+        protected abstract void process(Slot slot);
+
+        /**
+         * Process slots as upstream makes them available, until stopped or
+         * until processing fails, in which case the failure is recorded for
+         * the producer and the stage stops at the failed slot
+         */
+        @Override
+        public void run() {
+            long nextSequence = sequence.get() + 1;
+            int tries = 0;
+            try {
+                while (true) {
+                    final long availableSequence = upstreamSequence.get();
+                    if (availableSequence >= nextSequence) {
+                        for (; nextSequence <= availableSequence; nextSequence++) {
+                            process(ring[(int) nextSequence & mask]);
+                        }
+                        sequence.lazySet(availableSequence);
+                        tries = 0;
+                    } else if (!isRunning
+                            && upstreamSequence.get() < nextSequence) {
+                        break;
+                    } else {
+                        tries = waitStrategy.idle(tries);
+                    }
+                }
+            } catch (final Throwable e) {
+                if (failure == null) {
+                    failure = e;
+                }
+                // slots processed before the failed one are done
+                sequence.lazySet(nextSequence - 1);
+            }
+        }
+
+        /**
+         * Let the stage process everything its upstream has produced, and stop
+         * its thread. Upstream must be stopped first.
+         * 
+         * @throws InterruptedException
+         */
+        private void stop() throws InterruptedException {
+            isRunning = false;
+            thread.join();
+        }
+    }
+
+}
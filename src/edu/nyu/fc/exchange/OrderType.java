@@ -0,0 +1,21 @@
+package edu.nyu.fc.exchange;
+
+/**
+ * Types of orders handled by the double limit book auction
+ * 
+ * @author Yourii Martiak
+ *
+ */
+public enum OrderType {
+    /**
+     * Order trading at its limit price or better, resting in the book with
+     * any leaves quantity
+     */
+    LIMIT,
+
+    /**
+     * Order trading at any price available, never resting in the book,
+     * signaled by NaN limit price of inbound messages
+     */
+    MARKET
+}
@@ -0,0 +1,43 @@
+package edu.nyu.fc.exchange;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Wait strategy parking the waiting thread for a fixed amount of time on every
+ * try, trading latency for low CPU usage while idle.
+ * 
+ * @author Yourii Martiak
+ *
+ */
+public class ParkWaitStrategy implements IWaitStrategy {
+
+    /**
+     * Default time to park for
+     */
+    public static final long DEFAULT_PARK_NANOS = 100000L;
+
+    private final long parkNanos;
+
+    /**
+     * Creates new wait strategy with default park time
+     */
+    public ParkWaitStrategy() {
+        this(DEFAULT_PARK_NANOS);
+    }
+
+    /**
+     * Creates new wait strategy with a given park time
+     * 
+     * @param parkNanos
+     */
+    public ParkWaitStrategy(final long parkNanos) {
+        this.parkNanos = parkNanos;
+    }
+
+    @Override
+    public int idle(final int tries) {
+        LockSupport.parkNanos(parkNanos);
+        return tries + 1;
+    }
+
+}
@@ -0,0 +1,50 @@
+package edu.nyu.fc.exchange;
+
+import java.util.Iterator;
+
+import javax.management.JMException;
+
+import orderGenerator.Message;
+import orderGenerator.OrdersIterator;
+
+/**
+ * Utility class for running a double limit order book auction simulation
+ * through a staged order pipeline, where decoding, matching and trade
+ * publishing all run on their own threads. Like the silent runner, only the
+ * end summary results are printed out. Pass "spin" as the first argument to
+ * busy-spin while waiting instead of backing off. Runtime metrics of the
+ * auction, including depth of the pipeline, are published through JMX while
+ * it runs. Pass "stamp" as the last argument to stamp every message and print
+ * latency of every stage at the end.
+ *
+ * @author Yourii Martiak
+ */
+public class PipelineRunner {
+    
+    public static void main(String[] args) throws InterruptedException, JMException {
+        IWaitStrategy waitStrategy = args.length > 0 && "spin".equals(args[0]) ? new BusySpinWaitStrategy()
+                : new BackoffWaitStrategy();
+        StageLatencyRecorder recorder = args.length > 0 && "stamp".equals(args[args.length - 1]) ? new StageLatencyRecorder(
+                new ConsoleTradeListener()) : null;
+        OrderPipeline pipeline = new OrderPipeline(new LimitOrderBookFactory(),
+                recorder != null ? recorder : new ConsoleTradeListener(),
+                OrderPipeline.DEFAULT_CAPACITY, waitStrategy);
+        pipeline.setStageLatencyRecorder(recorder);
+        new AuctionMetrics(pipeline).register("pipeline");
+        Iterator<Message> iterator = OrdersIterator.getIterator();
+        int i = 0;
+        long start = System.nanoTime();
+        while (iterator.hasNext()) {
+            Message message = iterator.next();
+            pipeline.publish(message);
+            i++;
+        }
+        pipeline.close();
+        long stop = System.nanoTime();
+        System.out.println(pipeline.getAuction());
+        if (recorder != null) {
+            System.out.println(recorder.getSummaryString());
+        }
+        System.out.println(String.format("\n===\nRun time: %dns. averaging %dns. per message, %d rejected\n", stop-start, (stop-start)/i, pipeline.getRejectedCount()));
+    }
+}
@@ -0,0 +1,266 @@
+package edu.nyu.fc.exchange;
+
+/**
+ * Queue of limit orders resting at the same price, kept in time priority. The
+ * queue is intrusive, meaning orders themselves carry links to their neighbors
+ * within the price level, so any order can be unlinked in constant time once
+ * it gets canceled, without walking the queue.
+ * 
+ * @author Yourii Martiak
+ *
+ */
+public class PriceLevel implements Comparable<PriceLevel> {
+
+    private long tick;
+    private ILimitOrder head;
+    private ILimitOrder tail;
+    private int orderCount;
+    private long totalSize;
+
+    /**
+     * Creates new empty price level
+     * 
+     * @param tick price in ticks
+     */
+    public PriceLevel(final long tick) {
+        this.tick = tick;
+    }
+
+    /**
+     * Get price of this price level
+     * 
+     * @return price in ticks
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * Move empty price level to a new price, used when price levels are reused
+     * 
+     * @param tick price in ticks
+     */
+    void setTick(final long tick) {
+        if (head != null) {
+            throw new IllegalStateException("Price level in use " + this);
+        }
+        this.tick = tick;
+    }
+
+    /**
+     * Check if any orders rest at this price level
+     * 
+     * @return true if there are no orders in the queue
+     */
+    public boolean isEmpty() {
+        return head == null;
+    }
+
+    /**
+     * Get number of orders resting at this price level
+     * 
+     * @return number of orders
+     */
+    public int getOrderCount() {
+        return orderCount;
+    }
+
+    /**
+     * Get aggregate quantity of all orders resting at this price level
+     * 
+     * @return total quantity, always positive regardless of the side
+     */
+    public long getTotalSize() {
+        return totalSize;
+    }
+
+    /**
+     * Get first order in time priority without removing it from the queue
+     * 
+     * @return first order or null if the price level is empty
+     */
+    public ILimitOrder peekFirst() {
+        return head;
+    }
+
+    /**
+     * Put order in front of the queue
+     * 
+     * @param order
+     */
+    public void addFirst(final ILimitOrder order) {
+        order.setPriceLevel(this);
+        order.setPrevious(null);
+        order.setNext(head);
+        if (head == null) {
+            tail = order;
+        } else {
+            head.setPrevious(order);
+        }
+        head = order;
+        orderCount++;
+        totalSize += Math.abs(order.getSize());
+    }
+
+    /**
+     * Put order at the end of the queue
+     * 
+     * @param order
+     */
+    public void addLast(final ILimitOrder order) {
+        order.setPriceLevel(this);
+        order.setPrevious(tail);
+        order.setNext(null);
+        if (tail == null) {
+            head = order;
+        } else {
+            tail.setNext(order);
+        }
+        tail = order;
+        orderCount++;
+        totalSize += Math.abs(order.getSize());
+    }
+
+    /**
+     * Append a batch of orders at the end of the queue in a single pass, used
+     * to build price levels in bulk
+     * 
+     * @param orders orders in time priority
+     * @param count number of orders to take from the array
+     */
+    public void addAll(final ILimitOrder[] orders, final int count) {
+        for (int i = 0; i < count; i++) {
+            final ILimitOrder order = orders[i];
+            order.setPriceLevel(this);
+            order.setPrevious(tail);
+            order.setNext(null);
+            if (tail == null) {
+                head = order;
+            } else {
+                tail.setNext(order);
+            }
+            tail = order;
+            totalSize += Math.abs(order.getSize());
+        }
+        orderCount += count;
+    }
+
+    /**
+     * Fill a given quantity against orders of this price level in time
+     * priority. Partially filled order keeps its place in front of the queue,
+     * fully filled orders are unlinked from the queue.
+     * 
+     * @param quantity quantity to fill, always positive
+     * @param fills buffer receiving a fill per order traded
+     * @return quantity filled, less than requested only if the price level
+     *         got exhausted
+     */
+    public int fill(final int quantity, final FillBuffer fills) {
+        int filled = 0;
+        while (head != null && filled < quantity) {
+            final ILimitOrder order = head;
+            final int size = order.getSize();
+            final int available = Math.abs(size);
+            final int fillSize = Math.min(available, quantity - filled);
+            if (fillSize == available) {
+                remove(order);
+                order.setSize(0);
+            } else {
+                order.setSize(size > 0 ? size - fillSize : size + fillSize);
+                totalSize -= fillSize;
+            }
+            fills.add(order, fillSize);
+            filled += fillSize;
+        }
+        return filled;
+    }
+
+    /**
+     * Change size of an order resting at this price level in place, keeping
+     * its place in the queue
+     * 
+     * @param order
+     * @param size new size of the same sign as the current one
+     * @return true if the order was resting at this price level
+     */
+    public boolean resize(final ILimitOrder order, final int size) {
+        if (order.getPriceLevel() != this) {
+            return false;
+        }
+
+        totalSize += Math.abs(size) - Math.abs(order.getSize());
+        order.setSize(size);
+
+        return true;
+    }
+
+    /**
+     * Remove first order in time priority from the queue
+     * 
+     * @return first order or null if the price level is empty
+     */
+    public ILimitOrder pollFirst() {
+        final ILimitOrder order = head;
+        if (order != null) {
+            remove(order);
+        }
+        return order;
+    }
+
+    /**
+     * Unlink order from the queue
+     * 
+     * @param order
+     * @return true if the order was resting at this price level
+     */
+    public boolean remove(final ILimitOrder order) {
+        if (order.getPriceLevel() != this) {
+            return false;
+        }
+
+        final ILimitOrder previous = order.getPrevious();
+        final ILimitOrder next = order.getNext();
+        if (previous == null) {
+            head = next;
+        } else {
+            previous.setNext(next);
+        }
+        if (next == null) {
+            tail = previous;
+        } else {
+            next.setPrevious(previous);
+        }
+        order.setPrevious(null);
+        order.setNext(null);
+        order.setPriceLevel(null);
+        orderCount--;
+        totalSize -= Math.abs(order.getSize());
+
+        return true;
+    }
+
+    @Override
+    public int compareTo(final PriceLevel priceLevel) {
+        return tick < priceLevel.tick ? -1 : (tick == priceLevel.tick ? 0 : 1);
+    }
+
+    /**
+     * Append string representation of all orders resting at this price level
+     * in time priority
+     * 
+     * @param sb
+     * @return the same string builder
+     */
+    public StringBuilder appendStatusString(final StringBuilder sb) {
+        for (ILimitOrder order = head; order != null; order = order.getNext()) {
+            sb.append(order.toStatusString());
+        }
+        return sb;
+    }
+
+    @Override
+    public String toString() {
+        return tick + " x " + orderCount;
+    }
+
+}
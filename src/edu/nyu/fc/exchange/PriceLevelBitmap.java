@@ -0,0 +1,188 @@
+package edu.nyu.fc.exchange;
+
+/**
+ * Hierarchical bitmap of non-empty price level slots. The bottom layer has a
+ * bit per slot, and every layer above has a bit per word of the layer below,
+ * set while that word has any bit set. Searching for the next set bit in
+ * either direction scans at most one word per layer on the way up and one on
+ * the way down, so it takes a few word scans regardless of how many empty
+ * slots lie in between.
+ * 
+ * @author Yourii Martiak
+ *
+ */
+public class PriceLevelBitmap {
+
+    /**
+     * Layers of the bitmap, from the bottom layer with a bit per slot up to
+     * the top layer of a single word
+     */
+    private final long[][] layers;
+    private final int size;
+
+    /**
+     * Creates new bitmap with all bits clear
+     * 
+     * @param size number of slots
+     */
+    public PriceLevelBitmap(final int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Invalid bitmap size " + size);
+        }
+        this.size = size;
+        int layerCount = 1;
+        for (int bits = size; bits > 64; bits = (bits + 63) >>> 6) {
+            layerCount++;
+        }
+        layers = new long[layerCount][];
+        int bits = size;
+        for (int i = 0; i < layerCount; i++) {
+            layers[i] = new long[(bits + 63) >>> 6];
+            bits = layers[i].length;
+        }
+    }
+
+    /**
+     * Get number of slots
+     * 
+     * @return number of slots
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Check if bit of a given slot is set
+     * 
+     * @param slot
+     * @return true if set
+     */
+    public boolean get(final int slot) {
+        return (layers[0][slot >>> 6] & (1L << slot)) != 0;
+    }
+
+    /**
+     * Set bit of a given slot
+     * 
+     * @param slot
+     */
+    public void set(final int slot) {
+        int bit = slot;
+        for (int i = 0; i < layers.length; i++) {
+            final long[] words = layers[i];
+            final int word = bit >>> 6;
+            final long before = words[word];
+            words[word] = before | (1L << bit);
+            if (before != 0) {
+                // layers above already know this word is not empty
+                return;
+            }
+            bit = word;
+        }
+    }
+
+    /**
+     * Clear bit of a given slot
+     * 
+     * @param slot
+     */
+    public void clear(final int slot) {
+        int bit = slot;
+        for (int i = 0; i < layers.length; i++) {
+            final long[] words = layers[i];
+            final int word = bit >>> 6;
+            words[word] &= ~(1L << bit);
+            if (words[word] != 0) {
+                // word still not empty, layers above stay as they are
+                return;
+            }
+            bit = word;
+        }
+    }
+
+    /**
+     * Clear all bits
+     */
+    public void clear() {
+        for (final long[] words : layers) {
+            for (int i = 0; i < words.length; i++) {
+                words[i] = 0;
+            }
+        }
+    }
+
+    /**
+     * Find the first set bit at or after a given slot
+     * 
+     * @param from slot to start from
+     * @return slot of the set bit or -1 if there is none
+     */
+    public int nextSetBit(final int from) {
+        if (from >= size) {
+            return -1;
+        }
+        int bit = Math.max(from, 0);
+        int layer = 0;
+        while (true) {
+            if (layer == layers.length) {
+                return -1;
+            }
+            final long[] words = layers[layer];
+            final int word = bit >>> 6;
+            if (word >= words.length) {
+                return -1;
+            }
+            final long bits = words[word] & (-1L << bit);
+            if (bits != 0) {
+                bit = (word << 6) + Long.numberOfTrailingZeros(bits);
+                break;
+            }
+            bit = word + 1;
+            layer++;
+        }
+        while (layer > 0) {
+            layer--;
+            bit = (bit << 6) + Long.numberOfTrailingZeros(layers[layer][bit]);
+        }
+
+        return bit;
+    }
+
+    /**
+     * Find the last set bit at or before a given slot
+     * 
+     * @param from slot to start from
+     * @return slot of the set bit or -1 if there is none
+     */
+    public int previousSetBit(final int from) {
+        if (from < 0) {
+            return -1;
+        }
+        int bit = Math.min(from, size - 1);
+        int layer = 0;
+        while (true) {
+            if (layer == layers.length) {
+                return -1;
+            }
+            final int word = bit >>> 6;
+            final long bits = layers[layer][word] & (-1L >>> (63 - (bit & 63)));
+            if (bits != 0) {
+                bit = (word << 6) + 63 - Long.numberOfLeadingZeros(bits);
+                break;
+            }
+            if (word == 0) {
+                return -1;
+            }
+            bit = word - 1;
+            layer++;
+        }
+        while (layer > 0) {
+            layer--;
+            bit = (bit << 6) + 63
+                    - Long.numberOfLeadingZeros(layers[layer][bit]);
+        }
+
+        return bit;
+    }
+
+}
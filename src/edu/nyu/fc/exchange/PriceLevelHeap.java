@@ -0,0 +1,226 @@
+package edu.nyu.fc.exchange;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Binary heap of price levels, used by the limit order book to keep the top of
+ * the book in front. Works like {@link java.util.PriorityQueue}, except that
+ * the heap layout is open to {@link #getDepth(long[], long[], int)}, which
+ * walks price levels from the top of the book in price order and stops as
+ * soon as enough levels are collected, instead of visiting every level.
+ * Not thread safe.
+ *
+ * @author Yourii Martiak
+ *
+ */
+public class PriceLevelHeap {
+
+    private final Comparator<PriceLevel> comparator;
+    private PriceLevel[] levels;
+    private int size;
+
+    /**
+     * Heap positions still to visit while walking the heap in price order,
+     * itself kept as a heap ordered by the price levels at those positions
+     */
+    private int[] candidates;
+
+    /**
+     * Creates new empty price level heap
+     *
+     * @param initialCapacity
+     * @param comparator used for sorting price levels, best first
+     */
+    public PriceLevelHeap(final int initialCapacity,
+            final Comparator<PriceLevel> comparator) {
+        if (comparator == null) {
+            throw new IllegalArgumentException("Missing comparator");
+        }
+        this.comparator = comparator;
+        this.levels = new PriceLevel[Math.max(initialCapacity, 1)];
+        this.candidates = new int[16];
+    }
+
+    /**
+     * Get number of price levels in the heap, empty ones included
+     *
+     * @return number of price levels
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get price level at a given position of the heap, in no particular order
+     *
+     * @param index
+     * @return price level
+     */
+    public PriceLevel get(final int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " size "
+                    + size);
+        }
+        return levels[index];
+    }
+
+    /**
+     * Add price level to the heap
+     *
+     * @param level
+     */
+    public void offer(final PriceLevel level) {
+        if (size == levels.length) {
+            levels = Arrays.copyOf(levels, size << 1);
+        }
+        int i = size++;
+        while (i > 0) {
+            final int parent = (i - 1) >>> 1;
+            if (comparator.compare(level, levels[parent]) >= 0) {
+                break;
+            }
+            levels[i] = levels[parent];
+            i = parent;
+        }
+        levels[i] = level;
+    }
+
+    /**
+     * Get best price level without removing it
+     *
+     * @return best price level or null if the heap is empty
+     */
+    public PriceLevel peek() {
+        return size == 0 ? null : levels[0];
+    }
+
+    /**
+     * Remove best price level
+     *
+     * @return best price level or null if the heap is empty
+     */
+    public PriceLevel poll() {
+        if (size == 0) {
+            return null;
+        }
+        final PriceLevel best = levels[0];
+        final PriceLevel last = levels[--size];
+        levels[size] = null;
+        if (size > 0) {
+            int i = 0;
+            final int half = size >>> 1;
+            while (i < half) {
+                int child = (i << 1) + 1;
+                final int right = child + 1;
+                if (right < size
+                        && comparator.compare(levels[right], levels[child]) < 0) {
+                    child = right;
+                }
+                if (comparator.compare(last, levels[child]) <= 0) {
+                    break;
+                }
+                levels[i] = levels[child];
+                i = child;
+            }
+            levels[i] = last;
+        }
+
+        return best;
+    }
+
+    /**
+     * Remove all price levels
+     */
+    public void clear() {
+        Arrays.fill(levels, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * Get aggregated depth of non-empty price levels, starting from the top
+     * of the book. Only the price levels collected and the ones next to them
+     * in the heap get visited, along with any empty levels above them.
+     *
+     * @param ticks array receiving price of each level in ticks
+     * @param sizes array receiving aggregate quantity of each level
+     * @param maxLevels maximum number of levels to collect
+     * @return number of levels collected
+     */
+    public int getDepth(final long[] ticks, final long[] sizes,
+            final int maxLevels) {
+        if (size == 0 || maxLevels <= 0) {
+            return 0;
+        }
+        int count = 0;
+        int candidateCount = 0;
+        candidates[candidateCount++] = 0;
+        while (candidateCount > 0 && count < maxLevels) {
+            final int index = candidates[0];
+            candidateCount = removeCandidate(candidateCount);
+            final PriceLevel level = levels[index];
+            if (!level.isEmpty()) {
+                ticks[count] = level.getTick();
+                sizes[count] = level.getTotalSize();
+                count++;
+            }
+            final int child = (index << 1) + 1;
+            if (child < size) {
+                candidateCount = addCandidate(child, candidateCount);
+                if (child + 1 < size) {
+                    candidateCount = addCandidate(child + 1, candidateCount);
+                }
+            }
+        }
+
+        return count;
+    }
+
+    private int addCandidate(final int index, final int candidateCount) {
+        if (candidateCount == candidates.length) {
+            candidates = Arrays.copyOf(candidates, candidateCount << 1);
+        }
+        final PriceLevel level = levels[index];
+        int i = candidateCount;
+        while (i > 0) {
+            final int parent = (i - 1) >>> 1;
+            if (comparator.compare(level, levels[candidates[parent]]) >= 0) {
+                break;
+            }
+            candidates[i] = candidates[parent];
+            i = parent;
+        }
+        candidates[i] = index;
+
+        return candidateCount + 1;
+    }
+
+    private int removeCandidate(final int candidateCount) {
+        final int newCount = candidateCount - 1;
+        if (newCount == 0) {
+            return 0;
+        }
+        final int last = candidates[newCount];
+        final PriceLevel lastLevel = levels[last];
+        int i = 0;
+        final int half = newCount >>> 1;
+        while (i < half) {
+            int child = (i << 1) + 1;
+            final int right = child + 1;
+            if (right < newCount
+                    && comparator.compare(levels[candidates[right]],
+                            levels[candidates[child]]) < 0) {
+                child = right;
+            }
+            if (comparator.compare(lastLevel, levels[candidates[child]]) <= 0) {
+                break;
+            }
+            candidates[i] = candidates[child];
+            i = child;
+        }
+        candidates[i] = last;
+
+        return newCount;
+    }
+
+}
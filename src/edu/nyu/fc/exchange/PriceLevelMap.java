@@ -0,0 +1,194 @@
+package edu.nyu.fc.exchange;
+
+/**
+ * Map of price levels keyed by their price in ticks, used by the limit order
+ * book to locate price level queues. Implemented as an open addressing hash
+ * table with linear probing over primitive long keys, so that no price gets
+ * boxed and no entry objects are allocated. Removed entries are backward
+ * shifted instead of leaving tombstones behind.
+ * 
+ * @author Yourii Martiak
+ *
+ */
+public class PriceLevelMap {
+
+    /**
+     * Largest capacity the table is allowed to grow to
+     */
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private long[] ticks;
+    private PriceLevel[] levels;
+    private int mask;
+    private int size;
+    private int resizeThreshold;
+
+    /**
+     * Creates new price level map with a given expected number of price levels
+     * 
+     * @param expectedSize
+     */
+    public PriceLevelMap(final int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Invalid expected size "
+                    + expectedSize);
+        }
+        int capacity = 16;
+        while (capacity < expectedSize * 2 && capacity < MAX_CAPACITY) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    /**
+     * Get number of price levels in this map
+     * 
+     * @return number of price levels
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Locate price level by its price
+     * 
+     * @param tick price in ticks
+     * @return price level or null if not found
+     */
+    public PriceLevel get(final long tick) {
+        int slot = hash(tick) & mask;
+        while (levels[slot] != null) {
+            if (ticks[slot] == tick) {
+                return levels[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        return null;
+    }
+
+    /**
+     * Add price level keyed by its own price, replacing any price level at the
+     * same price
+     * 
+     * @param level
+     * @return replaced price level or null if there was none
+     */
+    public PriceLevel put(final PriceLevel level) {
+        final long tick = level.getTick();
+        int slot = hash(tick) & mask;
+        while (levels[slot] != null) {
+            if (ticks[slot] == tick) {
+                final PriceLevel previous = levels[slot];
+                levels[slot] = level;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        ticks[slot] = tick;
+        levels[slot] = level;
+        if (++size > resizeThreshold) {
+            resize(levels.length << 1);
+        }
+
+        return null;
+    }
+
+    /**
+     * Remove price level from the map
+     * 
+     * @param tick price in ticks
+     * @return removed price level or null if not found
+     */
+    public PriceLevel remove(final long tick) {
+        int slot = hash(tick) & mask;
+        while (levels[slot] != null && ticks[slot] != tick) {
+            slot = (slot + 1) & mask;
+        }
+        if (levels[slot] == null) {
+            return null;
+        }
+
+        final PriceLevel removed = levels[slot];
+        // shift following entries of the same probe sequence back into the
+        // freed slot, so that lookups never need to step over tombstones
+        int next = (slot + 1) & mask;
+        while (levels[next] != null) {
+            final int home = hash(ticks[next]) & mask;
+            if (((next - home) & mask) >= ((next - slot) & mask)) {
+                ticks[slot] = ticks[next];
+                levels[slot] = levels[next];
+                slot = next;
+            }
+            next = (next + 1) & mask;
+        }
+        ticks[slot] = 0;
+        levels[slot] = null;
+        size--;
+
+        return removed;
+    }
+
+    /**
+     * Get number of slots in the table, used to iterate over all price levels
+     * together with {@link #getAt(int)} without allocating an iterator
+     * 
+     * @return number of slots
+     */
+    public int getCapacity() {
+        return levels.length;
+    }
+
+    /**
+     * Get price level in a given slot of the table
+     * 
+     * @param slot between zero and capacity
+     * @return price level or null if the slot is free
+     */
+    public PriceLevel getAt(final int slot) {
+        return levels[slot];
+    }
+
+    private void allocate(final int capacity) {
+        ticks = new long[capacity];
+        levels = new PriceLevel[capacity];
+        mask = capacity - 1;
+        resizeThreshold = capacity == MAX_CAPACITY ? Integer.MAX_VALUE
+                : capacity >> 1;
+    }
+
+    private void resize(final int capacity) {
+        final long[] oldTicks = ticks;
+        final PriceLevel[] oldLevels = levels;
+        allocate(capacity);
+        for (int i = 0; i < oldLevels.length; i++) {
+            if (oldLevels[i] != null) {
+                int slot = hash(oldTicks[i]) & mask;
+                while (levels[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                ticks[slot] = oldTicks[i];
+                levels[slot] = oldLevels[i];
+            }
+        }
+    }
+
+    /**
+     * Spread bits of the price, since adjacent prices would otherwise fill
+     * adjacent slots and form long probe sequences
+     * 
+     * @param tick
+     * @return spread hash code
+     */
+    private static int hash(final long tick) {
+        final long h = tick * 0x9E3779B97F4A7C15L;
+
+        return (int) (h ^ (h >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        return "PriceLevelMap {size=" + size + ", capacity=" + levels.length + "}";
+    }
+
+}
@@ -0,0 +1,79 @@
+package edu.nyu.fc.exchange;
+
+/**
+ * Pool of empty price levels, reused once price levels are dropped from a
+ * book, so that opening and closing price levels does not allocate once the
+ * pool is warmed up. Price levels are kept in a stack, which is grown on
+ * demand up to a given number of pooled levels, beyond which released levels
+ * are left to the garbage collector. Not thread safe.
+ * 
+ * @author Yourii Martiak
+ *
+ */
+public class PriceLevelPool {
+
+    private final int maxSize;
+    private PriceLevel[] levels;
+    private int size;
+
+    /**
+     * Creates new empty price level pool
+     * 
+     * @param maxSize largest number of price levels kept in the pool
+     */
+    public PriceLevelPool(final int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("Invalid pool size " + maxSize);
+        }
+        this.maxSize = maxSize;
+        this.levels = new PriceLevel[Math.min(maxSize, 64)];
+    }
+
+    /**
+     * Get number of price levels currently available in the pool
+     * 
+     * @return number of pooled price levels
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Take price level from the pool, or create new one if the pool is empty
+     * 
+     * @param tick price in ticks
+     * @return empty price level
+     */
+    public PriceLevel acquire(final long tick) {
+        if (size == 0) {
+            return new PriceLevel(tick);
+        }
+        final PriceLevel level = levels[--size];
+        levels[size] = null;
+        level.setTick(tick);
+        return level;
+    }
+
+    /**
+     * Return empty price level to the pool. The price level must no longer be
+     * referenced by any book.
+     * 
+     * @param level
+     */
+    public void release(final PriceLevel level) {
+        if (!level.isEmpty()) {
+            throw new IllegalArgumentException("Invalid price level " + level);
+        }
+        if (size == levels.length) {
+            if (size == maxSize) {
+                return;
+            }
+            final PriceLevel[] newLevels = new PriceLevel[(int) Math.min(
+                    (long) Math.max(size, 1) << 1, maxSize)];
+            System.arraycopy(levels, 0, newLevels, 0, size);
+            levels = newLevels;
+        }
+        levels[size++] = level;
+    }
+
+}
@@ -0,0 +1,161 @@
+package edu.nyu.fc.exchange;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Trade listener handing fills off to another listener running on its own
+ * consumer thread, so that the matching thread never blocks on the output. Fills
+ * are copied into trade events pre-allocated in a ring buffer, and made visible
+ * to the consumer once per batch. The consumer drains everything published so
+ * far in one go and notifies its listener of the end of batch after each
+ * drain. This listener must be fed by a single producer thread.
+ * 
+ * @author Yourii Martiak
+ *
+ */
+public class RingBufferTradeListener implements ITradeListener {
+
+    /**
+     * Default number of trade events in the ring buffer
+     */
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    private final ITradeListener consumer;
+    private final IWaitStrategy waitStrategy;
+    private final TradeEvent[] ring;
+    private final int mask;
+
+    /**
+     * Sequence of the last trade event visible to the consumer
+     */
+    private final AtomicLong publishedSequence;
+
+    /**
+     * Sequence of the last trade event delivered by the consumer
+     */
+    private final AtomicLong consumedSequence;
+
+    /**
+     * Sequence of the last trade event written by the producer, only accessed
+     * by the producer thread
+     */
+    private long claimedSequence;
+
+    /**
+     * Last known consumed sequence, only accessed by the producer thread
+     */
+    private long cachedConsumedSequence;
+
+    private final Thread consumerThread;
+    private volatile boolean isRunning;
+
+    /**
+     * Creates new ring buffer trade listener with default capacity
+     * 
+     * @param consumer listener receiving trades on the consumer thread
+     */
+    public RingBufferTradeListener(final ITradeListener consumer) {
+        this(consumer, DEFAULT_CAPACITY, new BackoffWaitStrategy());
+    }
+
+    /**
+     * Creates new ring buffer trade listener and starts its consumer thread
+     * 
+     * @param consumer listener receiving trades on the consumer thread
+     * @param capacity number of trade events in the ring buffer, must be a
+     *            power of two
+     * @param waitStrategy used by both producer and consumer while waiting
+     */
+    public RingBufferTradeListener(final ITradeListener consumer,
+            final int capacity, final IWaitStrategy waitStrategy) {
+        if (consumer == null) {
+            throw new IllegalArgumentException("Missing trade listener");
+        }
+        if (capacity < 1 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException(
+                    "Capacity must be a power of two " + capacity);
+        }
+        if (waitStrategy == null) {
+            throw new IllegalArgumentException("Missing wait strategy");
+        }
+        this.consumer = consumer;
+        this.waitStrategy = waitStrategy;
+        this.ring = new TradeEvent[capacity];
+        for (int i = 0; i < capacity; i++) {
+            ring[i] = new TradeEvent();
+        }
+        this.mask = capacity - 1;
+        this.publishedSequence = new AtomicLong(-1);
+        this.consumedSequence = new AtomicLong(-1);
+        this.claimedSequence = -1;
+        this.cachedConsumedSequence = -1;
+        this.isRunning = true;
+        this.consumerThread = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                consume();
+            }
+        }, "trade-publisher");
+        consumerThread.setDaemon(true);
+        consumerThread.start();
+    }
+
+    @Override
+    public void onTrade(final TradeEvent trade) {
+        final long sequence = claimedSequence + 1;
+        final long wrapPoint = sequence - ring.length;
+        if (wrapPoint > cachedConsumedSequence) {
+            // ring buffer is full, let the consumer see everything written so
+            // far and wait for it to free up a slot
+            publishedSequence.lazySet(claimedSequence);
+            int tries = 0;
+            while (wrapPoint > (cachedConsumedSequence = consumedSequence.get())) {
+                tries = waitStrategy.idle(tries);
+            }
+        }
+        ring[(int) sequence & mask].copyFrom(trade);
+        claimedSequence = sequence;
+    }
+
+    @Override
+    public void onEndOfBatch() {
+        publishedSequence.lazySet(claimedSequence);
+    }
+
+    /**
+     * Publish any pending trades, wait for the consumer to deliver all of them
+     * and stop the consumer thread
+     * 
+     * @throws InterruptedException
+     */
+    public void close() throws InterruptedException {
+        onEndOfBatch();
+        isRunning = false;
+        consumerThread.join();
+    }
+
+    /**
+     * Consumer loop, draining published trade events in batches until closed
+     */
+    private void consume() {
+        long nextSequence = consumedSequence.get() + 1;
+        int tries = 0;
+        while (true) {
+            final long availableSequence = publishedSequence.get();
+            if (availableSequence >= nextSequence) {
+                for (; nextSequence <= availableSequence; nextSequence++) {
+                    consumer.onTrade(ring[(int) nextSequence & mask]);
+                }
+                consumer.onEndOfBatch();
+                consumedSequence.lazySet(availableSequence);
+                tries = 0;
+            } else if (!isRunning && publishedSequence.get() < nextSequence) {
+                break;
+            } else {
+                tries = waitStrategy.idle(tries);
+            }
+        }
+    }
+
+}
@@ -7,25 +7,37 @@ import orderGenerator.OrdersIterator;
 
 /**
  * Utility class for running a double limit order book auction simulation. This
- * simulation is verbose, where a top of the book is printed after each message
- * that is being processed. Verbose information printing incurs a significant
- * amount of additional overhead.
+ * simulation is verbose, where a top of the book is printed every time it
+ * changes as a result of a message being processed. Verbose information
+ * printing incurs a significant amount of additional overhead.
  *
  * @author Yourii Martiak
  */
 public class Runner {
     
-    public static void main(String[] args) {
-        IDoubleLimitBookAuction auction = new DoubleLimitBookAuction();
+    public static void main(String[] args) throws InterruptedException {
+        RingBufferTradeListener tradeListener = new RingBufferTradeListener(
+                new ConsoleTradeListener());
+        DoubleLimitBookAuction auction = new DoubleLimitBookAuction(
+                new LimitOrderBookFactory(), tradeListener);
+        auction.setTopOfBookListener(new ITopOfBookListener() {
+
+            @Override
+            public void onTopOfBookChanged(TopOfBook topOfBook) {
+                System.out.println(topOfBook);
+            }
+        });
         Iterator<Message> iterator = OrdersIterator.getIterator();
         int i = 0;
         long start = System.nanoTime();
         while (iterator.hasNext()) {
             Message message = iterator.next();
             auction.handleMessage(message);
-            System.out.println(auction.getTopOfTheBooks());
+            i++;
         }
         long stop = System.nanoTime();
+        tradeListener.close();
+        System.out.println(auction.getTopOfTheBooks());
         System.out.println(auction);
         System.out.println(String.format("\n===\nRun time: %dns. averaging %dns. per message\n", stop-start, (stop-start)/i));
     }
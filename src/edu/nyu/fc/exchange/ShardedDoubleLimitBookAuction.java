@@ -0,0 +1,449 @@
+package edu.nyu.fc.exchange;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import orderGenerator.Message;
+import orderGenerator.NewOrder;
+import orderGenerator.OrderCxR;
+
+/**
+ * Implementation of double limit book auction that spreads symbols across a
+ * number of shards, each running its own double limit book auction on its own
+ * worker thread. Every symbol is hashed to exactly one shard, so each shard is
+ * the single writer of its ask and bid books and no locking is needed while
+ * matching. Messages are handed to the shards through per-shard inbound queues.
+ * Cancels and replaces do not carry a symbol, so order IDs are routed to the
+ * shard their new order went to, for as long as the order is live. Each new
+ * order gets its own route, and a shard only drops a route it has already
+ * seen the new order of, so an order ID reused while the shard lags behind is
+ * never left without its route.
+ * <p>
+ * Messages must be submitted from a single thread. Fills of each shard are
+ * collected per message and delivered to the trade listener as one batch while
+ * holding the listener's lock, so that any listener can be used and trades of
+ * the same symbol are always delivered in the order they happened. Trade
+ * sequence numbers are assigned at delivery, so they are global across shards
+ * and follow the order in which the listener receives trades.
+ * <p>
+ * A shard failing on a message stops, and the failure is rethrown to the
+ * submitter by the next {@link #handleMessage(Message)}, by {@link #drain()}
+ * and by {@link #close()}.
+ * 
+ * @author Yourii Martiak
+ *
+ */
+public class ShardedDoubleLimitBookAuction implements IDoubleLimitBookAuction {
+
+    /**
+     * Default number of messages each shard inbound queue can hold
+     */
+    public static final int DEFAULT_QUEUE_CAPACITY = 1 << 14;
+
+    private final Shard[] shards;
+
+    /**
+     * Mapping of live order IDs to the routes of their latest new orders
+     */
+    private final ConcurrentMap<String, Route> orderRoutingMap;
+
+    /**
+     * Listener receiving fills from all shards
+     */
+    private final ITradeListener tradeListener;
+
+    private final IWaitStrategy waitStrategy;
+
+    /**
+     * Sequence number of the last trade delivered, guarded by the trade
+     * listener's lock
+     */
+    private long tradeSequence;
+
+    /**
+     * First failure of any shard, which stops that shard
+     */
+    private volatile Throwable failure;
+
+    /**
+     * Creates new sharded double limit book auction with default inbound
+     * queue capacity and wait strategy
+     * 
+     * @param shardCount number of shards, each running on its own thread
+     * @param limitOrderBookFactory
+     * @param tradeListener
+     */
+    public ShardedDoubleLimitBookAuction(final int shardCount,
+            final ILimitOrderBookFactory limitOrderBookFactory,
+            final ITradeListener tradeListener) {
+        this(shardCount, limitOrderBookFactory, tradeListener,
+                DEFAULT_QUEUE_CAPACITY, new BackoffWaitStrategy());
+    }
+
+    /**
+     * Creates new sharded double limit book auction and starts its shards
+     * 
+     * @param shardCount number of shards, each running on its own thread
+     * @param limitOrderBookFactory
+     * @param tradeListener
+     * @param queueCapacity capacity of each shard inbound queue, must be a
+     *            power of two
+     * @param waitStrategy used by idle shards and by the caller while an
+     *            inbound queue is full
+     */
+    public ShardedDoubleLimitBookAuction(final int shardCount,
+            final ILimitOrderBookFactory limitOrderBookFactory,
+            final ITradeListener tradeListener, final int queueCapacity,
+            final IWaitStrategy waitStrategy) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("Invalid shard count "
+                    + shardCount);
+        }
+        if (tradeListener == null) {
+            throw new IllegalArgumentException("Missing trade listener");
+        }
+        if (waitStrategy == null) {
+            throw new IllegalArgumentException("Missing wait strategy");
+        }
+        this.tradeListener = tradeListener;
+        this.waitStrategy = waitStrategy;
+        this.orderRoutingMap = new ConcurrentHashMap<String, Route>(1024);
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(i, limitOrderBookFactory, queueCapacity);
+        }
+        for (final Shard shard : shards) {
+            shard.thread.start();
+        }
+    }
+
+    @Override
+    public void handleMessage(final Message message) {
+        checkFailure();
+        if (message instanceof NewOrder) {
+            final NewOrder order = (NewOrder) message;
+            final Shard shard = getShardForSymbol(order.getSymbol());
+            // route is in place before the shard can retire the order
+            orderRoutingMap.put(order.getOrderId(), new Route(shard,
+                    shard.submittedCount + 1));
+            shard.submit(message);
+        } else if (message instanceof OrderCxR) {
+            // cancels of orders no longer live are dropped right here, just
+            // like the auction would ignore them, and straight cancels end
+            // the route right away
+            final OrderCxR orderCxR = (OrderCxR) message;
+            final Route route = orderCxR.getSize() == 0 ? orderRoutingMap
+                    .remove(orderCxR.getOrderId()) : orderRoutingMap
+                    .get(orderCxR.getOrderId());
+            if (route != null) {
+                route.shard.submit(message);
+            }
+        } else {
+            System.err.println("Invalid message " + message);
+        }
+    }
+
+    /**
+     * Route a batch of messages to the shards one by one. Fills are still
+     * delivered per message, as the messages of a batch are matched by
+     * different shards.
+     */
+    @Override
+    public void handleMessages(final Message[] messages, final int offset,
+            final int length) {
+        DoubleLimitBookAuction.checkRange(messages, offset, length);
+        for (int i = offset, end = offset + length; i < end; i++) {
+            handleMessage(messages[i]);
+        }
+    }
+
+    /**
+     * Determine shard responsible for a given symbol
+     * 
+     * @param symbol
+     * @return shard
+     */
+    private Shard getShardForSymbol(final String symbol) {
+        final int h = symbol.hashCode() * 0x9E3779B9;
+
+        return shards[((h ^ (h >>> 16)) & Integer.MAX_VALUE) % shards.length];
+    }
+
+    /**
+     * Get number of shards
+     * 
+     * @return number of shards
+     */
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    /**
+     * Get number of messages waiting in the inbound queues of all shards,
+     * safe to call from any thread
+     * 
+     * @return number of queued messages
+     */
+    public int getQueueDepth() {
+        int depth = 0;
+        for (final Shard shard : shards) {
+            depth += shard.queue.size();
+        }
+        return depth;
+    }
+
+    /**
+     * Get auctions of all shards, for monitoring while they run
+     * 
+     * @return auction of every shard
+     */
+    DoubleLimitBookAuction[] getShardAuctions() {
+        final DoubleLimitBookAuction[] auctions = new DoubleLimitBookAuction[shards.length];
+        for (int i = 0; i < shards.length; i++) {
+            auctions[i] = shards[i].auction;
+        }
+        return auctions;
+    }
+
+    /**
+     * Wait until all messages submitted so far have been processed by the
+     * shards. Must be called from the thread submitting messages.
+     */
+    public void drain() {
+        for (final Shard shard : shards) {
+            int tries = 0;
+            while (shard.processedCount.get() < shard.submittedCount) {
+                checkFailure();
+                tries = waitStrategy.idle(tries);
+            }
+        }
+    }
+
+    /**
+     * Wait until all messages submitted so far have been processed and stop
+     * all shard threads
+     * 
+     * @throws InterruptedException
+     */
+    public void close() throws InterruptedException {
+        try {
+            drain();
+        } finally {
+            for (final Shard shard : shards) {
+                shard.isRunning = false;
+            }
+            for (final Shard shard : shards) {
+                shard.thread.join();
+            }
+        }
+    }
+
+    /**
+     * Rethrow failure of a shard to the submitter
+     */
+    private void checkFailure() {
+        final Throwable shardFailure = failure;
+        if (shardFailure != null) {
+            throw new IllegalStateException("Auction shard failed",
+                    shardFailure);
+        }
+    }
+
+    /**
+     * Execute trade on the shard of the symbol traded, once all messages
+     * submitted so far have been processed, and deliver the fill right away.
+     * Must be called from the thread submitting messages.
+     */
+    @Override
+    public void newTrade(final ILimitOrder bid, final ILimitOrder ask,
+            final Side aggressorSide) {
+        final Shard shard = getShardForSymbol(bid.getSymbol());
+        // the shard thread leaves its auction alone while its queue is empty
+        drain();
+        shard.auction.newTrade(bid, ask, aggressorSide);
+        shard.auction.shardTradeListener.onEndOfBatch();
+    }
+
+    /**
+     * Get string representation of top of the book across all shards, once
+     * all messages submitted so far have been processed
+     */
+    @Override
+    public String getTopOfTheBooks() {
+        drain();
+        final StringBuilder sb = new StringBuilder();
+        for (final Shard shard : shards) {
+            sb.append(shard.auction.getTopOfTheBooks());
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        drain();
+        final StringBuilder sb = new StringBuilder();
+        for (final Shard shard : shards) {
+            sb.append(shard.auction);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Single shard of the auction, owning a double limit book auction, its
+     * inbound queue and the worker thread draining it
+     */
+    private final class Shard implements Runnable {
+
+        private final SingleProducerQueue<Message> queue;
+        private final ShardAuction auction;
+        private final Thread thread;
+
+        /**
+         * Number of messages processed by the worker thread
+         */
+        private final AtomicLong processedCount;
+
+        /**
+         * Number of messages submitted, only accessed by the submitting thread
+         */
+        private long submittedCount;
+
+        private volatile boolean isRunning;
+
+        private Shard(final int index,
+                final ILimitOrderBookFactory limitOrderBookFactory,
+                final int queueCapacity) {
+            this.queue = new SingleProducerQueue<Message>(queueCapacity,
+                    waitStrategy);
+            this.auction = new ShardAuction(this, limitOrderBookFactory);
+            this.processedCount = new AtomicLong();
+            this.isRunning = true;
+            this.thread = new Thread(this, "auction-shard-" + index);
+            thread.setDaemon(true);
+        }
+
+        private void submit(final Message message) {
+            submittedCount++;
+            int tries = 0;
+            while (!queue.offer(message)) {
+                checkFailure();
+                tries = waitStrategy.idle(tries);
+            }
+        }
+
+        /**
+         * Process messages as they arrive, until stopped or until processing
+         * fails, in which case the failure is recorded for the submitter and
+         * the shard stops without counting the failed message as processed
+         */
+        @Override
+        public void run() {
+            int tries = 0;
+            try {
+                while (true) {
+                    final Message message = queue.poll();
+                    if (message != null) {
+                        auction.handleMessage(message);
+                        processedCount.lazySet(processedCount.get() + 1);
+                        tries = 0;
+                    } else if (!isRunning) {
+                        break;
+                    } else {
+                        tries = waitStrategy.idle(tries);
+                    }
+                }
+            } catch (final Throwable e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Route of a new order to its shard
+     */
+    private static final class Route {
+
+        private final Shard shard;
+
+        /**
+         * Position of the new order among messages submitted to the shard
+         */
+        private final long position;
+
+        private Route(final Shard shard, final long position) {
+            this.shard = shard;
+            this.position = position;
+        }
+    }
+
+    /**
+     * Double limit book auction of a single shard, releasing order routing as
+     * soon as orders are no longer live
+     */
+    private final class ShardAuction extends DoubleLimitBookAuction {
+
+        private final Shard shard;
+        private final ShardTradeListener shardTradeListener;
+
+        private ShardAuction(final Shard shard,
+                final ILimitOrderBookFactory limitOrderBookFactory) {
+            this(shard, limitOrderBookFactory, new ShardTradeListener());
+        }
+
+        private ShardAuction(final Shard shard,
+                final ILimitOrderBookFactory limitOrderBookFactory,
+                final ShardTradeListener shardTradeListener) {
+            super(limitOrderBookFactory, shardTradeListener);
+            this.shard = shard;
+            this.shardTradeListener = shardTradeListener;
+        }
+
+        /**
+         * Drop the route of the order ID, unless an order with the same ID is
+         * still live here, or the route belongs to a new order this shard has
+         * not seen yet, or to another shard. The route is only removed if it
+         * has not been replaced in the meantime.
+         */
+        @Override
+        protected void onOrderRetired(final ILimitOrder order) {
+            final String orderID = order.getOrderId();
+            if (isOrderLive(orderID)) {
+                return;
+            }
+            final Route route = orderRoutingMap.get(orderID);
+            if (route != null && route.shard == shard
+                    && route.position <= shard.processedCount.get() + 1) {
+                orderRoutingMap.remove(orderID, route);
+            }
+        }
+    }
+
+    /**
+     * Trade listener collecting fills of a single shard and delivering them to
+     * the shared trade listener one batch at a time
+     */
+    private final class ShardTradeListener implements ITradeListener {
+
+        private final TradeBuffer tradeBuffer = new TradeBuffer(64);
+
+        @Override
+        public void onTrade(final TradeEvent trade) {
+            tradeBuffer.add(trade);
+        }
+
+        @Override
+        public void onEndOfBatch() {
+            synchronized (tradeListener) {
+                for (int i = 0, size = tradeBuffer.size(); i < size; i++) {
+                    tradeBuffer.get(i).setSequence(++tradeSequence);
+                }
+                tradeBuffer.publishTo(tradeListener);
+            }
+            tradeBuffer.clear();
+        }
+    }
+
+}
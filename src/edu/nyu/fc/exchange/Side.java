@@ -0,0 +1,19 @@
+package edu.nyu.fc.exchange;
+
+/**
+ * Sides of the double limit book auction
+ * 
+ * @author Yourii Martiak
+ *
+ */
+public enum Side {
+    /**
+     * Buy side, orders with positive size
+     */
+    BID,
+
+    /**
+     * Sell side, orders with negative size
+     */
+    ASK
+}
@@ -2,20 +2,32 @@ package edu.nyu.fc.exchange;
 
 import java.util.Iterator;
 
+import javax.management.JMException;
+
 import orderGenerator.Message;
 import orderGenerator.OrdersIterator;
 
 /**
  * Utility class for running a double limit order book auction simulation. This
  * simulation is "silent", meaning only the end summary results are printed out
- * to avoid additional overhead.
+ * to avoid additional overhead. Latency of every message is recorded by
+ * message type and number of fills, and printed at the end of the run, as well
+ * as every interval given in milliseconds as the only argument (one second by
+ * default, 0 to disable). Runtime metrics of the auction are published
+ * through JMX while it runs.
  *
  * @author Yourii Martiak
  */
 public class SilentRunner {
     
-    public static void main(String[] args) {
-        IDoubleLimitBookAuction auction = new DoubleLimitBookAuction();
+    public static void main(String[] args) throws InterruptedException, JMException {
+        RingBufferTradeListener tradeListener = new RingBufferTradeListener(
+                new ConsoleTradeListener());
+        long intervalMillis = args.length > 0 ? Long.parseLong(args[0]) : 1000;
+        LatencyRecordingDoubleLimitBookAuction auction = new LatencyRecordingDoubleLimitBookAuction(
+                new DoubleLimitBookAuction(new LimitOrderBookFactory(),
+                        tradeListener), System.out, intervalMillis);
+        new AuctionMetrics(auction.getAuction()).register("silent");
         Iterator<Message> iterator = OrdersIterator.getIterator();
         int i = 0;
         long start = System.nanoTime();
@@ -25,7 +37,9 @@ public class SilentRunner {
             i++;
         }
         long stop = System.nanoTime();
-        System.out.println(auction);
+        tradeListener.close();
+        System.out.println(auction.getAuction());
+        System.out.println(auction.getSummaryString());
         System.out.println(String.format("\n===\nRun time: %dns. averaging %dns. per message\n", stop-start, (stop-start)/i));
     }
 }
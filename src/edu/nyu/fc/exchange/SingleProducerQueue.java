@@ -0,0 +1,136 @@
+package edu.nyu.fc.exchange;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded lock-free queue for handing objects from exactly one producer thread
+ * to exactly one consumer thread. Backed by a pre-allocated array used as a
+ * ring buffer, where each side caches the other side's position and only reads
+ * it again when the cached value says the queue looks full or empty.
+ * 
+ * @author Yourii Martiak
+ *
+ * @param <E> type of elements held in this queue
+ */
+public class SingleProducerQueue<E> {
+
+    private final Object[] buffer;
+    private final int mask;
+    private final IWaitStrategy waitStrategy;
+
+    /**
+     * Position of the next element to be taken by the consumer
+     */
+    private final AtomicLong head;
+
+    /**
+     * Position of the next element to be written by the producer
+     */
+    private final AtomicLong tail;
+
+    /**
+     * Last known head, only accessed by the producer thread
+     */
+    private long cachedHead;
+
+    /**
+     * Last known tail, only accessed by the consumer thread
+     */
+    private long cachedTail;
+
+    /**
+     * Creates new queue of a given capacity
+     * 
+     * @param capacity number of elements, must be a power of two
+     * @param waitStrategy used by the producer while the queue is full
+     */
+    public SingleProducerQueue(final int capacity,
+            final IWaitStrategy waitStrategy) {
+        if (capacity < 1 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException(
+                    "Capacity must be a power of two " + capacity);
+        }
+        if (waitStrategy == null) {
+            throw new IllegalArgumentException("Missing wait strategy");
+        }
+        this.buffer = new Object[capacity];
+        this.mask = capacity - 1;
+        this.waitStrategy = waitStrategy;
+        this.head = new AtomicLong();
+        this.tail = new AtomicLong();
+    }
+
+    /**
+     * Add element at the tail of the queue if there is room for it
+     * 
+     * @param element
+     * @return true if added, false if the queue is full
+     */
+    public boolean offer(final E element) {
+        final long position = tail.get();
+        if (position - cachedHead >= buffer.length) {
+            cachedHead = head.get();
+            if (position - cachedHead >= buffer.length) {
+                return false;
+            }
+        }
+        buffer[(int) position & mask] = element;
+        tail.lazySet(position + 1);
+
+        return true;
+    }
+
+    /**
+     * Add element at the tail of the queue, waiting for room if necessary
+     * 
+     * @param element
+     */
+    public void put(final E element) {
+        int tries = 0;
+        while (!offer(element)) {
+            tries = waitStrategy.idle(tries);
+        }
+    }
+
+    /**
+     * Take element from the head of the queue
+     * 
+     * @return element or null if the queue is empty
+     */
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        final long position = head.get();
+        if (position >= cachedTail) {
+            cachedTail = tail.get();
+            if (position >= cachedTail) {
+                return null;
+            }
+        }
+        final int index = (int) position & mask;
+        final E element = (E) buffer[index];
+        buffer[index] = null;
+        head.lazySet(position + 1);
+
+        return element;
+    }
+
+    /**
+     * Get number of elements currently in the queue, as seen by the calling
+     * thread
+     * 
+     * @return number of elements
+     */
+    public int size() {
+        return (int) (tail.get() - head.get());
+    }
+
+    /**
+     * Check if the queue is currently empty, as seen by the calling thread
+     * 
+     * @return true if there are no elements in the queue
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+}
@@ -0,0 +1,113 @@
+package edu.nyu.fc.exchange;
+
+/**
+ * Recorder of latencies of every stage a message goes through on its way
+ * from entering the exchange to its fills reaching their consumer, from the
+ * timestamps an auction puts on messages and on trade events once given this
+ * recorder. Stages are:
+ * <ul>
+ * <li>queue - from entering the exchange until matching starts, which is
+ * time spent in the inbound queue of an {@link OrderPipeline}, and 0 for
+ * messages handed to the auction directly</li>
+ * <li>match - from start to end of matching, for every message</li>
+ * <li>emit - from start of matching until a fill is handed to the trade
+ * listener of the auction, for every fill</li>
+ * <li>publish - from handing a fill to the trade listener of the auction
+ * until it reaches this recorder, for every fill</li>
+ * <li>total - from entering the exchange until a fill reaches this recorder,
+ * for every fill</li>
+ * </ul>
+ * This recorder is a trade listener passing fills on to the consumer, and
+ * should be placed right in front of it, downstream of any trade publisher.
+ * Queue and match latencies are recorded by the matching thread, the rest by
+ * the thread delivering fills, so histograms should only be read once both
+ * are done.
+ * 
+ * @author Yourii Martiak
+ *
+ */
+public class StageLatencyRecorder implements ITradeListener {
+
+    public static final int QUEUE = 0;
+    public static final int MATCH = 1;
+    public static final int EMIT = 2;
+    public static final int PUBLISH = 3;
+    public static final int TOTAL = 4;
+
+    private static final String[] STAGE_NAMES = { "queue", "match", "emit",
+            "publish", "total" };
+
+    private final ITradeListener tradeListener;
+    private final LatencyHistogram[] histograms;
+
+    /**
+     * Creates new stage latency recorder
+     * 
+     * @param tradeListener consumer of the fills
+     */
+    public StageLatencyRecorder(final ITradeListener tradeListener) {
+        if (tradeListener == null) {
+            throw new IllegalArgumentException("Missing trade listener");
+        }
+        this.tradeListener = tradeListener;
+        this.histograms = new LatencyHistogram[STAGE_NAMES.length];
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Record latencies of a matched message, called by the matching thread
+     * 
+     * @param ingressNanos time the message entered the exchange
+     * @param matchNanos time matching started
+     * @param endNanos time matching ended
+     */
+    void recordMatch(final long ingressNanos, final long matchNanos,
+            final long endNanos) {
+        histograms[QUEUE].recordValue(matchNanos - ingressNanos);
+        histograms[MATCH].recordValue(endNanos - matchNanos);
+    }
+
+    @Override
+    public void onTrade(final TradeEvent trade) {
+        final long emitNanos = trade.getEmitNanos();
+        if (emitNanos != 0) {
+            final long now = System.nanoTime();
+            histograms[EMIT].recordValue(emitNanos - trade.getMatchNanos());
+            histograms[PUBLISH].recordValue(now - emitNanos);
+            histograms[TOTAL].recordValue(now - trade.getIngressNanos());
+        }
+        tradeListener.onTrade(trade);
+    }
+
+    @Override
+    public void onEndOfBatch() {
+        tradeListener.onEndOfBatch();
+    }
+
+    /**
+     * Get histogram of latencies of a given stage
+     * 
+     * @param stage one of QUEUE, MATCH, EMIT, PUBLISH or TOTAL
+     * @return histogram
+     */
+    public LatencyHistogram getHistogram(final int stage) {
+        return histograms[stage];
+    }
+
+    /**
+     * Get string representation of latencies of all stages
+     * 
+     * @return latency percentiles per stage
+     */
+    public String getSummaryString() {
+        final StringBuilder sb = new StringBuilder("STAGE LATENCY (ns)\n");
+        for (int i = 0; i < histograms.length; i++) {
+            sb.append(String.format("%-15s", STAGE_NAMES[i]));
+            histograms[i].appendSummary(sb).append('\n');
+        }
+        return sb.toString();
+    }
+
+}
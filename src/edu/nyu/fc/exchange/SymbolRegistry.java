@@ -0,0 +1,157 @@
+package edu.nyu.fc.exchange;
+
+/**
+ * Registry interning symbols to dense int IDs, assigned in order of first
+ * sight starting from zero, so that per-symbol state can be kept in arrays
+ * indexed by symbol ID. Lookup is an open addressing hash table with linear
+ * probing, which compares the cached string hash codes before calling equals
+ * and never allocates once the symbol has been seen.
+ * 
+ * @author Yourii Martiak
+ *
+ */
+public class SymbolRegistry {
+
+    /**
+     * Largest capacity the table is allowed to grow to
+     */
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private String[] keys;
+    private int[] hashes;
+    private int[] ids;
+    private int mask;
+    private int resizeThreshold;
+
+    /**
+     * Symbols indexed by their IDs
+     */
+    private String[] symbols;
+    private int size;
+
+    /**
+     * Creates new symbol registry with a given expected number of symbols
+     * 
+     * @param expectedSize
+     */
+    public SymbolRegistry(final int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Invalid expected size "
+                    + expectedSize);
+        }
+        int capacity = 16;
+        while (capacity < expectedSize * 2 && capacity < MAX_CAPACITY) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+        symbols = new String[Math.max(expectedSize, 16)];
+    }
+
+    /**
+     * Get number of symbols registered
+     * 
+     * @return number of symbols, one more than the highest symbol ID
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get ID of a symbol, registering the symbol on first sight
+     * 
+     * @param symbol
+     * @return symbol ID
+     */
+    public int intern(final String symbol) {
+        final int hash = symbol.hashCode();
+        int slot = hash & mask;
+        while (keys[slot] != null) {
+            if (hashes[slot] == hash && symbol.equals(keys[slot])) {
+                return ids[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        final int id = size++;
+        if (id == symbols.length) {
+            final String[] newSymbols = new String[symbols.length << 1];
+            System.arraycopy(symbols, 0, newSymbols, 0, id);
+            symbols = newSymbols;
+        }
+        symbols[id] = symbol;
+        keys[slot] = symbol;
+        hashes[slot] = hash;
+        ids[slot] = id;
+        if (size > resizeThreshold) {
+            resize(keys.length << 1);
+        }
+
+        return id;
+    }
+
+    /**
+     * Get ID of a symbol without registering it
+     * 
+     * @param symbol
+     * @return symbol ID or -1 if the symbol has not been registered
+     */
+    public int getId(final String symbol) {
+        final int hash = symbol.hashCode();
+        int slot = hash & mask;
+        while (keys[slot] != null) {
+            if (hashes[slot] == hash && symbol.equals(keys[slot])) {
+                return ids[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Get symbol registered under a given ID
+     * 
+     * @param id symbol ID
+     * @return symbol
+     */
+    public String getSymbol(final int id) {
+        if (id < 0 || id >= size) {
+            throw new IllegalArgumentException("Invalid symbol ID " + id);
+        }
+
+        return symbols[id];
+    }
+
+    private void allocate(final int capacity) {
+        keys = new String[capacity];
+        hashes = new int[capacity];
+        ids = new int[capacity];
+        mask = capacity - 1;
+        resizeThreshold = capacity == MAX_CAPACITY ? Integer.MAX_VALUE
+                : capacity >> 1;
+    }
+
+    private void resize(final int capacity) {
+        final String[] oldKeys = keys;
+        final int[] oldHashes = hashes;
+        final int[] oldIds = ids;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                int slot = oldHashes[i] & mask;
+                while (keys[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                hashes[slot] = oldHashes[i];
+                ids[slot] = oldIds[i];
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SymbolRegistry {size=" + size + ", capacity=" + keys.length + "}";
+    }
+
+}
@@ -0,0 +1,64 @@
+package edu.nyu.fc.exchange;
+
+/**
+ * Backtest session running a given number of messages of a
+ * {@link SyntheticOrderFlow}, so that sessions with different seeds stand in
+ * for different trading days. Override {@link #configure(SyntheticOrderFlow)}
+ * to shape the flow.
+ * 
+ * @author Yourii Martiak
+ *
+ */
+public class SyntheticBacktestSession implements IBacktestSession {
+
+    private final long seed;
+    private final int symbolCount;
+    private final int maxLiveOrders;
+    private final long messageCount;
+
+    /**
+     * Creates new synthetic session
+     * 
+     * @param seed random seed of the flow
+     * @param symbolCount number of symbols
+     * @param maxLiveOrders number of order IDs
+     * @param messageCount number of messages in the session
+     */
+    public SyntheticBacktestSession(final long seed, final int symbolCount,
+            final int maxLiveOrders, final long messageCount) {
+        if (messageCount < 0) {
+            throw new IllegalArgumentException("Invalid message count "
+                    + messageCount);
+        }
+        this.seed = seed;
+        this.symbolCount = symbolCount;
+        this.maxLiveOrders = maxLiveOrders;
+        this.messageCount = messageCount;
+    }
+
+    @Override
+    public String getName() {
+        return "seed " + seed;
+    }
+
+    @Override
+    public long run(final IDoubleLimitBookAuction auction) {
+        final SyntheticOrderFlow flow = new SyntheticOrderFlow(seed,
+                symbolCount, maxLiveOrders);
+        configure(flow);
+        for (long i = 0; i < messageCount; i++) {
+            auction.handleMessage(flow.next());
+        }
+        return messageCount;
+    }
+
+    /**
+     * Shape the flow before the session runs, on the thread running the
+     * session. Does nothing by default.
+     * 
+     * @param flow
+     */
+    protected void configure(final SyntheticOrderFlow flow) {
+    }
+
+}
@@ -0,0 +1,528 @@
+package edu.nyu.fc.exchange;
+
+import java.util.Iterator;
+
+import orderGenerator.Message;
+import orderGenerator.NewOrder;
+import orderGenerator.OrderCxR;
+
+/**
+ * Seeded generator of an endless flow of new order, cancel and replace
+ * messages, reproducible from the seed alone, for load testing and for
+ * driving the benchmarks. Flow is shaped by:
+ * <ul>
+ * <li>symbol popularity - symbols are picked from a Zipf distribution, so
+ * that a few symbols get most of the messages</li>
+ * <li>burstiness - chance that a message goes to the same symbol as the
+ * previous one, producing runs of messages per symbol</li>
+ * <li>volatility - chance that mid price of the symbol moves by one tick up or
+ * down before every message, a random walk</li>
+ * <li>message mix - percent of aggressive orders, crossing the mid price and
+ * sweeping up to a number of levels, of cancels and of replaces, the rest
+ * being passive orders resting within a number of levels from the mid
+ * price</li>
+ * </ul>
+ * Order IDs come from a pool of pre-built strings, one per order that can be
+ * live at a time. Every order keeps its ID until canceled, after which the ID
+ * is reused, and a random live order gets canceled whenever all IDs are
+ * taken.
+ * <p>
+ * {@link #next()} does not allocate: it returns one of two mutable messages,
+ * which are only valid until the following call, so they must not be kept or
+ * passed to other threads. Use {@link #generate(int)} to get messages which
+ * can be kept.
+ * 
+ * @author Yourii Martiak
+ *
+ */
+public class SyntheticOrderFlow implements Iterator<Message> {
+
+    private static final long BASE_TICK = 10000;
+    private static final int LOT_SIZE = 100;
+
+    private final double tickSize;
+    private final String[] symbols;
+    private final long[] midTicks;
+
+    /**
+     * Alias table of symbol popularity, a symbol picked uniformly is kept
+     * with its probability or replaced by its alias otherwise, so that
+     * picking a symbol takes constant time
+     */
+    private final double[] symbolProbabilities;
+    private final int[] symbolAliases;
+    private final String[] orderIDs;
+
+    /**
+     * Symbol index and side of the live order with a given ID
+     */
+    private final int[] orderSymbols;
+    private final int[] orderSides;
+
+    /**
+     * IDs of live orders first, then free IDs, so that both picking a random
+     * live order and taking a free ID are constant time
+     */
+    private final int[] slots;
+    private int liveCount;
+
+    private final GeneratedNewOrder newOrder;
+    private final GeneratedOrderCxR orderCxR;
+
+    private long state;
+    private int symbol;
+    private double burstiness;
+    private double volatility;
+    private int aggressivePercent;
+    private int cancelPercent;
+    private int replacePercent;
+    private int priceLevels;
+    private int sweepLevels;
+    private int maxLots;
+
+    /**
+     * Creates new synthetic order flow with a default mix of 10% aggressive
+     * orders, 25% cancels and 15% replaces, uniform symbol popularity and no
+     * bursts
+     * 
+     * @param seed random seed, equal seeds and settings give equal flows
+     * @param symbolCount number of symbols
+     * @param maxLiveOrders number of order IDs
+     */
+    public SyntheticOrderFlow(final long seed, final int symbolCount,
+            final int maxLiveOrders) {
+        this(seed, symbolCount, maxLiveOrders,
+                TickSizeTable.DEFAULT_TICK_SIZE);
+    }
+
+    /**
+     * Creates new synthetic order flow
+     * 
+     * @param seed random seed, equal seeds and settings give equal flows
+     * @param symbolCount number of symbols
+     * @param maxLiveOrders number of order IDs
+     * @param tickSize tick size of generated prices
+     */
+    public SyntheticOrderFlow(final long seed, final int symbolCount,
+            final int maxLiveOrders, final double tickSize) {
+        if (symbolCount < 1) {
+            throw new IllegalArgumentException("Invalid symbol count "
+                    + symbolCount);
+        }
+        if (maxLiveOrders < 1) {
+            throw new IllegalArgumentException("Invalid max live orders "
+                    + maxLiveOrders);
+        }
+        if (!(tickSize > 0)) {
+            throw new IllegalArgumentException("Invalid tick size " + tickSize);
+        }
+        this.tickSize = tickSize;
+        this.symbols = new String[symbolCount];
+        this.midTicks = new long[symbolCount];
+        this.symbolProbabilities = new double[symbolCount];
+        this.symbolAliases = new int[symbolCount];
+        for (int i = 0; i < symbolCount; i++) {
+            symbols[i] = "SYM" + i;
+            midTicks[i] = BASE_TICK + i * 1000;
+        }
+        this.orderIDs = new String[maxLiveOrders];
+        this.orderSymbols = new int[maxLiveOrders];
+        this.orderSides = new int[maxLiveOrders];
+        this.slots = new int[maxLiveOrders];
+        for (int i = 0; i < maxLiveOrders; i++) {
+            orderIDs[i] = "O" + i;
+            slots[i] = i;
+        }
+        this.newOrder = new GeneratedNewOrder();
+        this.orderCxR = new GeneratedOrderCxR();
+        // xorshift state must not be zero
+        this.state = seed == 0 ? 0x9E3779B97F4A7C15L : seed;
+        setZipfExponent(0);
+        setAggressivePercent(10);
+        setCancelPercent(25);
+        setReplacePercent(15);
+        setPriceLevels(10);
+        setSweepLevels(3);
+        setMaxLots(10);
+        setVolatility(0.01);
+    }
+
+    /**
+     * Set skew of symbol popularity, weight of the symbol ranked k being
+     * 1/k^exponent
+     * 
+     * @param exponent 0 for uniform popularity, around 1 for typical markets
+     */
+    public void setZipfExponent(final double exponent) {
+        if (!(exponent >= 0)) {
+            throw new IllegalArgumentException("Invalid Zipf exponent "
+                    + exponent);
+        }
+        final int n = symbols.length;
+        final double[] weights = new double[n];
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            weights[i] = 1 / Math.pow(i + 1, exponent);
+            sum += weights[i];
+        }
+        // Vose's alias method, pairing every symbol below the average weight
+        // with one above it
+        final int[] small = new int[n];
+        final int[] large = new int[n];
+        int smallCount = 0;
+        int largeCount = 0;
+        for (int i = 0; i < n; i++) {
+            weights[i] *= n / sum;
+            if (weights[i] < 1) {
+                small[smallCount++] = i;
+            } else {
+                large[largeCount++] = i;
+            }
+        }
+        while (smallCount > 0 && largeCount > 0) {
+            final int less = small[--smallCount];
+            final int more = large[--largeCount];
+            symbolProbabilities[less] = weights[less];
+            symbolAliases[less] = more;
+            weights[more] -= 1 - weights[less];
+            if (weights[more] < 1) {
+                small[smallCount++] = more;
+            } else {
+                large[largeCount++] = more;
+            }
+        }
+        // the rest is only off by rounding errors
+        while (largeCount > 0) {
+            symbolProbabilities[large[--largeCount]] = 1;
+        }
+        while (smallCount > 0) {
+            symbolProbabilities[small[--smallCount]] = 1;
+        }
+    }
+
+    /**
+     * Set chance that a message goes to the same symbol as the previous one,
+     * rather than to a symbol picked by popularity
+     * 
+     * @param burstiness between 0 and 1 exclusive
+     */
+    public void setBurstiness(final double burstiness) {
+        if (!(burstiness >= 0 && burstiness < 1)) {
+            throw new IllegalArgumentException("Invalid burstiness "
+                    + burstiness);
+        }
+        this.burstiness = burstiness;
+    }
+
+    /**
+     * Set chance that mid price of the symbol moves by a tick before a message
+     * 
+     * @param volatility between 0 and 1
+     */
+    public void setVolatility(final double volatility) {
+        if (!(volatility >= 0 && volatility <= 1)) {
+            throw new IllegalArgumentException("Invalid volatility "
+                    + volatility);
+        }
+        this.volatility = volatility;
+    }
+
+    public void setAggressivePercent(final int aggressivePercent) {
+        checkMix(aggressivePercent, cancelPercent, replacePercent);
+        this.aggressivePercent = aggressivePercent;
+    }
+
+    public void setCancelPercent(final int cancelPercent) {
+        checkMix(aggressivePercent, cancelPercent, replacePercent);
+        this.cancelPercent = cancelPercent;
+    }
+
+    public void setReplacePercent(final int replacePercent) {
+        checkMix(aggressivePercent, cancelPercent, replacePercent);
+        this.replacePercent = replacePercent;
+    }
+
+    /**
+     * Set number of levels from the mid price within which passive orders
+     * rest
+     * 
+     * @param priceLevels
+     */
+    public void setPriceLevels(final int priceLevels) {
+        if (priceLevels < 1) {
+            throw new IllegalArgumentException("Invalid price levels "
+                    + priceLevels);
+        }
+        this.priceLevels = priceLevels;
+    }
+
+    /**
+     * Set largest number of levels past the mid price aggressive orders are
+     * limited to
+     * 
+     * @param sweepLevels
+     */
+    public void setSweepLevels(final int sweepLevels) {
+        if (sweepLevels < 1) {
+            throw new IllegalArgumentException("Invalid sweep levels "
+                    + sweepLevels);
+        }
+        this.sweepLevels = sweepLevels;
+    }
+
+    /**
+     * Set largest order size in lots of {@value #LOT_SIZE}
+     * 
+     * @param maxLots
+     */
+    public void setMaxLots(final int maxLots) {
+        if (maxLots < 1) {
+            throw new IllegalArgumentException("Invalid max lots " + maxLots);
+        }
+        this.maxLots = maxLots;
+    }
+
+    private static void checkMix(final int aggressivePercent,
+            final int cancelPercent, final int replacePercent) {
+        if (aggressivePercent < 0 || cancelPercent < 0 || replacePercent < 0
+                || aggressivePercent + cancelPercent + replacePercent > 100) {
+            throw new IllegalArgumentException("Invalid message mix "
+                    + aggressivePercent + "/" + cancelPercent + "/"
+                    + replacePercent);
+        }
+    }
+
+    public String[] getSymbols() {
+        return symbols.clone();
+    }
+
+    /**
+     * Get number of orders the flow has not canceled yet, some of which may
+     * have been filled
+     * 
+     * @return number of live order IDs
+     */
+    public int getLiveCount() {
+        return liveCount;
+    }
+
+    /**
+     * Flow never ends
+     * 
+     * @return true
+     */
+    @Override
+    public boolean hasNext() {
+        return true;
+    }
+
+    /**
+     * Generate next message, valid until the following call
+     * 
+     * @return new order or cancel/replace message
+     */
+    @Override
+    public Message next() {
+        if (nextDouble() >= burstiness) {
+            symbol = nextSymbol();
+        }
+        final double move = nextDouble();
+        if (move < volatility / 2) {
+            midTicks[symbol]++;
+        } else if (move < volatility
+                && midTicks[symbol] > priceLevels + sweepLevels + 1) {
+            midTicks[symbol]--;
+        }
+
+        final int r = nextInt(100);
+        if (liveCount == orderIDs.length) {
+            // all IDs taken, cancel any live order to free one
+            return cancel(nextInt(liveCount));
+        }
+        if (r < aggressivePercent + cancelPercent + replacePercent
+                && r >= aggressivePercent && liveCount > 0) {
+            final int position = nextInt(liveCount);
+            if (r < aggressivePercent + cancelPercent) {
+                return cancel(position);
+            }
+            final int slot = slots[position];
+            final int side = orderSides[slot];
+            orderCxR.orderID = orderIDs[slot];
+            orderCxR.size = side * nextSize();
+            orderCxR.limitPrice = toPrice(midTicks[orderSymbols[slot]] - side
+                    * (1 + nextInt(priceLevels)));
+            return orderCxR;
+        }
+
+        final int slot = slots[liveCount++];
+        final int side = (nextInt(2) << 1) - 1;
+        orderSymbols[slot] = symbol;
+        orderSides[slot] = side;
+        newOrder.orderID = orderIDs[slot];
+        newOrder.symbol = symbols[symbol];
+        if (r < aggressivePercent) {
+            final int levels = 1 + nextInt(sweepLevels);
+            newOrder.size = side * nextSize() * levels;
+            newOrder.limitPrice = toPrice(midTicks[symbol] + side * levels);
+        } else {
+            newOrder.size = side * nextSize();
+            newOrder.limitPrice = toPrice(midTicks[symbol] - side
+                    * (1 + nextInt(priceLevels)));
+        }
+        return newOrder;
+    }
+
+    /**
+     * Generate messages which can be kept, allocating every one of them
+     * 
+     * @param count number of messages
+     * @return messages in the order of the flow
+     */
+    public Message[] generate(final int count) {
+        final Message[] messages = new Message[count];
+        for (int i = 0; i < count; i++) {
+            final Message message = next();
+            if (message == newOrder) {
+                messages[i] = new GeneratedNewOrder(newOrder);
+            } else {
+                messages[i] = new GeneratedOrderCxR(orderCxR);
+            }
+        }
+        return messages;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    private Message cancel(final int position) {
+        final int slot = slots[position];
+        orderCxR.orderID = orderIDs[slot];
+        orderCxR.size = 0;
+        orderCxR.limitPrice = 0;
+        // move last live ID into the freed position, keep freed ID right
+        // after the live ones
+        final int last = --liveCount;
+        slots[position] = slots[last];
+        slots[last] = slot;
+        return orderCxR;
+    }
+
+    private int nextSymbol() {
+        final int i = nextInt(symbols.length);
+        return nextDouble() < symbolProbabilities[i] ? i : symbolAliases[i];
+    }
+
+    private int nextSize() {
+        return LOT_SIZE * (1 + nextInt(maxLots));
+    }
+
+    private double toPrice(final long tick) {
+        return TickSizeTable.toPrice(tick, tickSize);
+    }
+
+    /**
+     * Next random number of xorshift64*, which is fast, has no state beyond
+     * a single long and passes most statistical tests
+     * 
+     * @return random long
+     */
+    private long nextLong() {
+        long x = state;
+        x ^= x >>> 12;
+        x ^= x << 25;
+        x ^= x >>> 27;
+        state = x;
+        return x * 0x2545F4914F6CDD1DL;
+    }
+
+    private int nextInt(final int bound) {
+        return (int) (((nextLong() >>> 32) * bound) >>> 32);
+    }
+
+    private double nextDouble() {
+        return (nextLong() >>> 11) * 0x1.0p-53;
+    }
+
+    private static final class GeneratedNewOrder implements NewOrder {
+
+        private String orderID;
+        private String symbol;
+        private int size;
+        private double limitPrice;
+
+        private GeneratedNewOrder() {
+        }
+
+        private GeneratedNewOrder(final GeneratedNewOrder order) {
+            this.orderID = order.orderID;
+            this.symbol = order.symbol;
+            this.size = order.size;
+            this.limitPrice = order.limitPrice;
+        }
+
+        @Override
+        public double getLimitPrice() {
+            return limitPrice;
+        }
+
+        @Override
+        public String getOrderId() {
+            return orderID;
+        }
+
+        @Override
+        public int getSize() {
+            return size;
+        }
+
+        @Override
+        public String getSymbol() {
+            return symbol;
+        }
+
+        @Override
+        public String toString() {
+            return "NewOrder " + orderID + " " + symbol + " " + size + " @ "
+                    + limitPrice;
+        }
+    }
+
+    private static final class GeneratedOrderCxR implements OrderCxR {
+
+        private String orderID;
+        private int size;
+        private double limitPrice;
+
+        private GeneratedOrderCxR() {
+        }
+
+        private GeneratedOrderCxR(final GeneratedOrderCxR orderCxR) {
+            this.orderID = orderCxR.orderID;
+            this.size = orderCxR.size;
+            this.limitPrice = orderCxR.limitPrice;
+        }
+
+        @Override
+        public double getLimitPrice() {
+            return limitPrice;
+        }
+
+        @Override
+        public String getOrderId() {
+            return orderID;
+        }
+
+        @Override
+        public int getSize() {
+            return size;
+        }
+
+        @Override
+        public String toString() {
+            return "OrderCxR " + orderID + " " + size + " @ " + limitPrice;
+        }
+    }
+
+}
@@ -0,0 +1,503 @@
+package edu.nyu.fc.exchange;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Implementation of limit order book functionality backed by a tick-indexed
+ * price ladder. Every price level lives in an array slot addressed by its
+ * distance in ticks from the base of the ladder, so locating a price level is
+ * a single array access. Best price slot is maintained on every add and poll,
+ * so top of the book is always known without searching. Non-empty slots are
+ * tracked by a {@link PriceLevelBitmap}, so the next best price level is found
+ * in a few word scans once the top of the book empties, however sparse the
+ * ladder is. Once prices fall outside of the ladder, it is recentered around
+ * the price levels in use if they fit in half of the ladder, and grown
+ * otherwise, so that a ladder following a drifting market does not grow
+ * without bounds. This class needs to be extended to define direction of the
+ * ladder for ask and bid sides.
+ * 
+ * @author Yourii Martiak
+ *
+ */
+public abstract class TickLadderLimitOrderBook implements ILimitOrderBook {
+
+    /**
+     * Largest number of price levels a single ladder is allowed to span
+     */
+    public static final int MAX_LADDER_SIZE = 1 << 24;
+
+    /**
+     * Default number of price levels a single ladder is allowed to span
+     */
+    public static final int DEFAULT_MAX_LADDER_SIZE = 1 << 20;
+
+    /**
+     * Number of price levels this ladder is allowed to span
+     */
+    private final int maxLadderSize;
+
+    /**
+     * Price levels indexed by their distance in ticks from the base tick. Each
+     * level is a queue of orders in time priority, created on first use and
+     * kept in its slot once empty to avoid allocation.
+     */
+    private PriceLevel[] ladder;
+
+    /**
+     * Bitmap of ladder slots holding non-empty price levels
+     */
+    private PriceLevelBitmap index;
+
+    /**
+     * Price in ticks of the very first slot of the ladder
+     */
+    private long baseTick;
+
+    /**
+     * Slot holding top of the book price level or -1 if the book is empty
+     */
+    private int bestSlot;
+
+    /**
+     * Number of orders resting in the book
+     */
+    private int orderCount;
+
+    /**
+     * Number of non-empty price levels in the ladder
+     */
+    private int levelCount;
+
+    /**
+     * Creates new limit order book with a given initial number of price
+     * levels, spanning up to {@link #DEFAULT_MAX_LADDER_SIZE} price levels
+     * 
+     * @param ladderSize number of price levels allocated up front
+     */
+    public TickLadderLimitOrderBook(final int ladderSize) {
+        this(ladderSize, Math.max(ladderSize, DEFAULT_MAX_LADDER_SIZE));
+    }
+
+    /**
+     * Creates new limit order book with a given initial and largest number of
+     * price levels
+     * 
+     * @param ladderSize number of price levels allocated up front
+     * @param maxLadderSize largest number of price levels the ladder may span,
+     *            orders priced outside of it cannot rest in the book
+     */
+    public TickLadderLimitOrderBook(final int ladderSize,
+            final int maxLadderSize) {
+        if (ladderSize < 1 || ladderSize > MAX_LADDER_SIZE) {
+            throw new IllegalArgumentException("Invalid ladder size "
+                    + ladderSize);
+        }
+        if (maxLadderSize < ladderSize || maxLadderSize > MAX_LADDER_SIZE) {
+            throw new IllegalArgumentException("Invalid max ladder size "
+                    + maxLadderSize);
+        }
+        this.maxLadderSize = maxLadderSize;
+        this.ladder = new PriceLevel[ladderSize];
+        this.index = new PriceLevelBitmap(ladderSize);
+        this.baseTick = Long.MIN_VALUE;
+        this.bestSlot = -1;
+    }
+
+    /**
+     * Get direction in which price levels get worse when walking the ladder
+     * 
+     * @return +1 if worse prices are in higher slots, -1 otherwise
+     */
+    protected abstract int getStep();
+
+    /**
+     * Check if price level at a given tick can trade against an opposite side
+     * order limited by a given tick
+     * 
+     * @param tick price level
+     * @param limitTick limit of the opposite side order
+     * @return true if the price level crosses the limit
+     */
+    protected abstract boolean isCrossing(long tick, long limitTick);
+
+    @Override
+    public ILimitOrder pollNextOrderFor(final long limitTick) {
+        if (bestSlot < 0 || !isCrossing(baseTick + bestSlot, limitTick)) {
+            return null;
+        }
+
+        return pollBest();
+    }
+
+    @Override
+    public ILimitOrder pollNextOrder() {
+        if (bestSlot < 0) {
+            return null;
+        }
+
+        return pollBest();
+    }
+
+    @Override
+    public int sweep(final ILimitOrder order, final FillBuffer fills) {
+        final boolean isMarket = order.getOrderType() == OrderType.MARKET;
+        final long limitTick = order.getLimitTick();
+        final int quantity = Math.abs(order.getSize());
+        int filled = 0;
+        while (filled < quantity && bestSlot >= 0
+                && (isMarket || isCrossing(baseTick + bestSlot, limitTick))) {
+            final PriceLevel level = ladder[bestSlot];
+            final int levelOrderCount = level.getOrderCount();
+            filled += level.fill(quantity - filled, fills);
+            orderCount -= levelOrderCount - level.getOrderCount();
+            if (level.isEmpty()) {
+                index.clear(bestSlot);
+                levelCount--;
+                advanceBestSlot();
+            }
+        }
+
+        return filled;
+    }
+
+    private ILimitOrder pollBest() {
+        final PriceLevel level = ladder[bestSlot];
+        final ILimitOrder order = level.pollFirst();
+        orderCount--;
+        if (level.isEmpty()) {
+            index.clear(bestSlot);
+            levelCount--;
+            advanceBestSlot();
+        }
+
+        return order;
+    }
+
+    @Override
+    public void addFirst(final ILimitOrder limitOrder) {
+        final PriceLevel level = getLevelFor(limitOrder);
+        if (level != null) {
+            level.addFirst(limitOrder);
+            orderCount++;
+        }
+    }
+
+    @Override
+    public void addLast(final ILimitOrder limitOrder) {
+        final PriceLevel level = getLevelFor(limitOrder);
+        if (level != null) {
+            level.addLast(limitOrder);
+            orderCount++;
+        }
+    }
+
+    @Override
+    public boolean remove(final ILimitOrder limitOrder) {
+        final PriceLevel level = limitOrder.getPriceLevel();
+        if (level == null) {
+            return false;
+        }
+        final long offset = level.getTick() - baseTick;
+        if (offset < 0 || offset >= ladder.length || ladder[(int) offset] != level) {
+            return false;
+        }
+
+        level.remove(limitOrder);
+        orderCount--;
+        if (level.isEmpty()) {
+            index.clear((int) offset);
+            levelCount--;
+            if (offset == bestSlot) {
+                advanceBestSlot();
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public long getBestTick() {
+        return bestSlot < 0 ? 0 : baseTick + bestSlot;
+    }
+
+    @Override
+    public long getBestSize() {
+        return bestSlot < 0 ? 0 : ladder[bestSlot].getTotalSize();
+    }
+
+    @Override
+    public ILimitOrder getBestOrder() {
+        return bestSlot < 0 ? null : ladder[bestSlot].peekFirst();
+    }
+
+    @Override
+    public int getDepth(final long[] ticks, final long[] sizes,
+            final int maxLevels) {
+        final int step = getStep();
+        int count = 0;
+        for (int slot = bestSlot; slot >= 0 && count < maxLevels; slot = findSlot(slot
+                + step)) {
+            final PriceLevel level = ladder[slot];
+            ticks[count] = level.getTick();
+            sizes[count] = level.getTotalSize();
+            count++;
+        }
+
+        return count;
+    }
+
+    @Override
+    public List<PriceLevel> getPriceLevels() {
+        final List<PriceLevel> levels = new ArrayList<PriceLevel>();
+        final int step = getStep();
+        for (int slot = bestSlot; slot >= 0; slot = findSlot(slot + step)) {
+            levels.add(ladder[slot]);
+        }
+
+        return levels;
+    }
+
+    /**
+     * Add price level in place of the ladder slot for its price
+     */
+    @Override
+    public void addPriceLevel(final PriceLevel priceLevel) {
+        if (priceLevel.isEmpty()) {
+            throw new IllegalArgumentException("Invalid price level "
+                    + priceLevel);
+        }
+        final int slot = getSlotFor(priceLevel.getTick());
+        final PriceLevel level = ladder[slot];
+        if (level != null && !level.isEmpty()) {
+            throw new IllegalArgumentException("Price level already in book "
+                    + priceLevel);
+        }
+        ladder[slot] = priceLevel;
+        index.set(slot);
+        orderCount += priceLevel.getOrderCount();
+        levelCount++;
+        if (bestSlot < 0 || (slot - bestSlot) * getStep() < 0) {
+            bestSlot = slot;
+        }
+    }
+
+    @Override
+    public int getOrderCount() {
+        return orderCount;
+    }
+
+    @Override
+    public int getPriceLevelCount() {
+        return levelCount;
+    }
+
+    /**
+     * Empty price levels are never looked at, as the index only marks
+     * non-empty ones
+     */
+    @Override
+    public int getStaleLevelCount() {
+        return 0;
+    }
+
+    /**
+     * Get number of price level slots currently allocated
+     * 
+     * @return ladder size
+     */
+    int getLadderSize() {
+        return ladder.length;
+    }
+
+    @Override
+    public String getTopOfBook() {
+        final ILimitOrder order = getBestOrder();
+
+        return order == null ? null : order.toString();
+    }
+
+    /**
+     * Locate price level queue for a given order, creating it if necessary,
+     * and update best price slot accordingly
+     * 
+     * @param limitOrder
+     * @return price level queue or null for market orders
+     */
+    private PriceLevel getLevelFor(final ILimitOrder limitOrder) {
+        if (limitOrder.getOrderType() == OrderType.MARKET) {
+            return null;
+        }
+
+        final long tick = limitOrder.getLimitTick();
+        final int slot = getSlotFor(tick);
+        PriceLevel level = ladder[slot];
+        if (level == null) {
+            level = new PriceLevel(tick);
+            ladder[slot] = level;
+        }
+        if (level.isEmpty()) {
+            if (level.getTick() != tick) {
+                // left behind when the ladder moved while the book was empty
+                level.setTick(tick);
+            }
+            index.set(slot);
+            levelCount++;
+            if (bestSlot < 0 || (slot - bestSlot) * getStep() < 0) {
+                bestSlot = slot;
+            }
+        }
+
+        return level;
+    }
+
+    /**
+     * Determine ladder slot for a given price, moving or growing the ladder if
+     * the price falls outside of the current range
+     * 
+     * @param tick price in ticks
+     * @return slot index
+     */
+    private int getSlotFor(final long tick) {
+        if (baseTick == Long.MIN_VALUE) {
+            // center the ladder around the very first price we see
+            baseTick = tick - ladder.length / 2;
+        }
+        final long offset = tick - baseTick;
+        if (offset < 0 || offset >= ladder.length) {
+            moveToInclude(tick);
+            return (int) (tick - baseTick);
+        }
+
+        return (int) offset;
+    }
+
+    /**
+     * Make the ladder cover a given price along with all non-empty price
+     * levels, keeping non-empty price levels in place relative to their
+     * prices. The ladder is recentered in place if the covered range fits in
+     * half of it, and grown otherwise.
+     * 
+     * @param tick price in ticks
+     */
+    private void moveToInclude(final long tick) {
+        final int length = ladder.length;
+        final int lowSlot = index.nextSetBit(0);
+        if (lowSlot < 0) {
+            // nothing to keep, price levels left in the ladder are empty and
+            // get their prices reset on reuse
+            baseTick = tick - length / 2;
+            return;
+        }
+        final int highSlot = index.previousSetBit(length - 1);
+        if (!isInRange(tick, lowSlot, highSlot)) {
+            throw new IllegalArgumentException("Price " + tick
+                    + " is too far from the current price range");
+        }
+        final long low = Math.min(baseTick + lowSlot, tick);
+        final long high = Math.max(baseTick + highSlot, tick) + 1;
+        int newLength = length;
+        if (high - low > length / 2) {
+            while (newLength < (high - low) * 2 && newLength < maxLadderSize) {
+                newLength <<= 1;
+            }
+            newLength = Math.min(newLength, maxLadderSize);
+        }
+
+        // spread spare capacity evenly on both sides of the covered range
+        final long newBaseTick = low - (newLength - (high - low)) / 2;
+        final int shift = (int) (baseTick - newBaseTick);
+        if (newLength == length) {
+            // move all slots that stay within the ladder, and drop the rest,
+            // which are known to be empty
+            if (shift > 0) {
+                System.arraycopy(ladder, 0, ladder, shift, length - shift);
+                Arrays.fill(ladder, 0, shift, null);
+            } else {
+                System.arraycopy(ladder, -shift, ladder, 0, length + shift);
+                Arrays.fill(ladder, length + shift, length, null);
+            }
+            index.clear();
+        } else {
+            final PriceLevel[] newLadder = new PriceLevel[newLength];
+            System.arraycopy(ladder, lowSlot, newLadder, lowSlot + shift,
+                    highSlot - lowSlot + 1);
+            ladder = newLadder;
+            index = new PriceLevelBitmap(newLength);
+        }
+        for (int slot = lowSlot + shift; slot <= highSlot + shift; slot++) {
+            final PriceLevel level = ladder[slot];
+            if (level != null && !level.isEmpty()) {
+                index.set(slot);
+            }
+        }
+        bestSlot += shift;
+        baseTick = newBaseTick;
+    }
+
+    /**
+     * Any price can be held as long as the ladder spanning it along with all
+     * non-empty price levels stays within its largest size
+     */
+    @Override
+    public boolean canRest(final long tick) {
+        if (baseTick == Long.MIN_VALUE) {
+            return true;
+        }
+        final long offset = tick - baseTick;
+        if (offset >= 0 && offset < ladder.length) {
+            return true;
+        }
+        final int lowSlot = index.nextSetBit(0);
+
+        return lowSlot < 0
+                || isInRange(tick, lowSlot, index.previousSetBit(ladder.length - 1));
+    }
+
+    /**
+     * Check if a price along with non-empty price levels between given slots
+     * fits in the largest ladder
+     * 
+     * @param tick price in ticks
+     * @param lowSlot lowest non-empty slot
+     * @param highSlot highest non-empty slot
+     * @return true if the ladder can span them all
+     */
+    private boolean isInRange(final long tick, final int lowSlot,
+            final int highSlot) {
+        return Math.max(baseTick + highSlot, tick)
+                - Math.min(baseTick + lowSlot, tick) < maxLadderSize;
+    }
+
+    /**
+     * Find the first non-empty price level at or worse than a given slot
+     * 
+     * @param slot
+     * @return slot of the price level or -1 if there is none
+     */
+    private int findSlot(final int slot) {
+        return getStep() > 0 ? index.nextSetBit(slot) : index
+                .previousSetBit(slot);
+    }
+
+    /**
+     * Move best price slot towards worse prices until non-empty price level
+     * found, or mark the book empty
+     */
+    private void advanceBestSlot() {
+        bestSlot = findSlot(bestSlot + getStep());
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        final int step = getStep();
+        for (int slot = bestSlot; slot >= 0; slot = findSlot(slot + step)) {
+            ladder[slot].appendStatusString(sb);
+        }
+
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,71 @@
+package edu.nyu.fc.exchange;
+
+/**
+ * Limit order book factory creating books backed by a tick-indexed price
+ * ladder, where every price level is an array slot addressed directly by its
+ * distance in ticks from the base of the ladder.
+ * 
+ * @author Yourii Martiak
+ *
+ */
+public class TickLadderLimitOrderBookFactory implements ILimitOrderBookFactory {
+
+    /**
+     * Default number of price levels allocated up front for every book
+     */
+    public static final int DEFAULT_LADDER_SIZE = 4096;
+
+    private final int ladderSize;
+    private final int maxLadderSize;
+
+    /**
+     * Creates new factory with default ladder size
+     */
+    public TickLadderLimitOrderBookFactory() {
+        this(DEFAULT_LADDER_SIZE);
+    }
+
+    /**
+     * Creates new factory for books with a given initial number of price
+     * levels
+     * 
+     * @param ladderSize number of price levels allocated up front
+     */
+    public TickLadderLimitOrderBookFactory(final int ladderSize) {
+        this(ladderSize, Math.max(ladderSize,
+                TickLadderLimitOrderBook.DEFAULT_MAX_LADDER_SIZE));
+    }
+
+    /**
+     * Creates new factory for books with a given initial and largest number
+     * of price levels
+     * 
+     * @param ladderSize number of price levels allocated up front
+     * @param maxLadderSize largest number of price levels a ladder may span
+     */
+    public TickLadderLimitOrderBookFactory(final int ladderSize,
+            final int maxLadderSize) {
+        if (ladderSize < 1) {
+            throw new IllegalArgumentException("Invalid ladder size "
+                    + ladderSize);
+        }
+        if (maxLadderSize < ladderSize
+                || maxLadderSize > TickLadderLimitOrderBook.MAX_LADDER_SIZE) {
+            throw new IllegalArgumentException("Invalid max ladder size "
+                    + maxLadderSize);
+        }
+        this.ladderSize = ladderSize;
+        this.maxLadderSize = maxLadderSize;
+    }
+
+    @Override
+    public ILimitOrderBook newAskBook(final String symbol) {
+        return new AskTickLadderLimitOrderBook(ladderSize, maxLadderSize);
+    }
+
+    @Override
+    public ILimitOrderBook newBidBook(final String symbol) {
+        return new BidTickLadderLimitOrderBook(ladderSize, maxLadderSize);
+    }
+
+}
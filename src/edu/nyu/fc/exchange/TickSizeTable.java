@@ -0,0 +1,127 @@
+package edu.nyu.fc.exchange;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tick sizes per symbol, along with conversions between prices and the
+ * fixed-point tick representation used within the books. A price in ticks is
+ * the number of tick size increments from zero, so that price levels can be
+ * compared and looked up as plain longs. Tick sizes are expected to be set up
+ * before any messages are handled, after which the table is only read.
+ * 
+ * @author Yourii Martiak
+ *
+ */
+public class TickSizeTable {
+
+    /**
+     * Tick size used for symbols without a tick size of their own
+     */
+    public static final double DEFAULT_TICK_SIZE = 0.01d;
+
+    /**
+     * Tolerance used when converting limit prices that are off the tick grid
+     */
+    private static final double TICK_EPSILON = 1e-6;
+
+    private final double defaultTickSize;
+    private final Map<String, Double> tickSizeMap;
+
+    /**
+     * Creates new tick size table using the default tick size for all symbols
+     */
+    public TickSizeTable() {
+        this(DEFAULT_TICK_SIZE);
+    }
+
+    /**
+     * Creates new tick size table using a given tick size for all symbols
+     * that do not have a tick size of their own
+     * 
+     * @param defaultTickSize
+     */
+    public TickSizeTable(final double defaultTickSize) {
+        checkTickSize(defaultTickSize);
+        this.defaultTickSize = defaultTickSize;
+        this.tickSizeMap = new HashMap<String, Double>();
+    }
+
+    /**
+     * Set tick size of a symbol
+     * 
+     * @param symbol
+     * @param tickSize minimum price increment
+     */
+    public void setTickSize(final String symbol, final double tickSize) {
+        if (symbol == null) {
+            throw new IllegalArgumentException("Missing symbol");
+        }
+        checkTickSize(tickSize);
+        tickSizeMap.put(symbol, tickSize);
+    }
+
+    /**
+     * Get tick size of a symbol
+     * 
+     * @param symbol
+     * @return minimum price increment
+     */
+    public double getTickSize(final String symbol) {
+        final Double tickSize = tickSizeMap.get(symbol);
+
+        return tickSize == null ? defaultTickSize : tickSize;
+    }
+
+    /**
+     * Convert limit price of a buy order to ticks, rounding down so that the
+     * order never pays more than its limit, while tolerating small
+     * representation errors of the price
+     * 
+     * @param price
+     * @param tickSize
+     * @return price in ticks
+     */
+    public static long toBidTick(final double price, final double tickSize) {
+        return (long) Math.floor(price / tickSize + TICK_EPSILON);
+    }
+
+    /**
+     * Convert limit price of a sell order to ticks, rounding up so that the
+     * order never receives less than its limit, while tolerating small
+     * representation errors of the price
+     * 
+     * @param price
+     * @param tickSize
+     * @return price in ticks
+     */
+    public static long toAskTick(final double price, final double tickSize) {
+        return (long) Math.ceil(price / tickSize - TICK_EPSILON);
+    }
+
+    /**
+     * Convert price in ticks back to price. Tick sizes that divide one
+     * evenly, such as 0.01, are applied as a division by the number of ticks
+     * per unit, which gives the closest double to the exact price.
+     * 
+     * @param tick
+     * @param tickSize
+     * @return price
+     */
+    public static double toPrice(final long tick, final double tickSize) {
+        final double ticksPerUnit = Math.rint(1.0d / tickSize);
+        if (ticksPerUnit >= 1.0d
+                && Math.abs(ticksPerUnit * tickSize - 1.0d) < TICK_EPSILON) {
+            return tick / ticksPerUnit;
+        }
+
+        return tick * tickSize;
+    }
+
+    private static void checkTickSize(final double tickSize) {
+        if (!(tickSize > 0) || Double.isInfinite(tickSize)) {
+            throw new IllegalArgumentException("Invalid tick size " + tickSize);
+        }
+    }
+
+}
@@ -0,0 +1,174 @@
+package edu.nyu.fc.exchange;
+
+/**
+ * Top of the book for a single symbol, holding best bid and ask prices in
+ * ticks along with aggregate quantities at those prices. Maintained
+ * incrementally by the double limit book auction after every message touching
+ * the symbol, so that querying it never walks the books. Instances are mutable
+ * and owned by the auction, and may only be read from the thread driving the
+ * auction.
+ * 
+ * @author Yourii Martiak
+ *
+ */
+public class TopOfBook {
+
+    private final String symbol;
+    private final double tickSize;
+    private final ILimitOrderBook bidBook;
+    private final ILimitOrderBook askBook;
+
+    private long bidTick;
+    private long bidSize;
+    private long askTick;
+    private long askSize;
+
+    /**
+     * Orders at the top of each book as of the last update, used for telling
+     * if the string representation of the top of the book needs rebuilding
+     */
+    private ILimitOrder bidOrder;
+    private ILimitOrder askOrder;
+    private String bidString;
+    private String askString;
+
+    /**
+     * Creates new top of the book over a pair of limit order books
+     * 
+     * @param symbol
+     * @param tickSize tick size of the symbol
+     * @param bidBook
+     * @param askBook
+     */
+    public TopOfBook(final String symbol, final double tickSize,
+            final ILimitOrderBook bidBook, final ILimitOrderBook askBook) {
+        this.symbol = symbol;
+        this.tickSize = tickSize;
+        this.bidBook = bidBook;
+        this.askBook = askBook;
+    }
+
+    /**
+     * Refresh top of the book from the underlying books
+     * 
+     * @return true if anything changed since the last update
+     */
+    public boolean update() {
+        final long newBidTick = bidBook.getBestTick();
+        final long newBidSize = bidBook.getBestSize();
+        final ILimitOrder newBidOrder = bidBook.getBestOrder();
+        final long newAskTick = askBook.getBestTick();
+        final long newAskSize = askBook.getBestSize();
+        final ILimitOrder newAskOrder = askBook.getBestOrder();
+        if (newBidTick == bidTick && newBidSize == bidSize
+                && newBidOrder == bidOrder && newAskTick == askTick
+                && newAskSize == askSize && newAskOrder == askOrder) {
+            return false;
+        }
+
+        bidTick = newBidTick;
+        bidSize = newBidSize;
+        bidOrder = newBidOrder;
+        askTick = newAskTick;
+        askSize = newAskSize;
+        askOrder = newAskOrder;
+        bidString = null;
+        askString = null;
+
+        return true;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    /**
+     * @return tick size of the symbol, used to convert ticks to prices
+     */
+    public double getTickSize() {
+        return tickSize;
+    }
+
+    public ILimitOrderBook getBidBook() {
+        return bidBook;
+    }
+
+    public ILimitOrderBook getAskBook() {
+        return askBook;
+    }
+
+    /**
+     * @return best bid price in ticks or zero if there are no bids
+     */
+    public long getBidTick() {
+        return bidTick;
+    }
+
+    /**
+     * @return best bid price or zero if there are no bids
+     */
+    public double getBidPrice() {
+        return TickSizeTable.toPrice(bidTick, tickSize);
+    }
+
+    /**
+     * @return aggregate quantity at best bid price
+     */
+    public long getBidSize() {
+        return bidSize;
+    }
+
+    /**
+     * @return best ask price in ticks or zero if there are no asks
+     */
+    public long getAskTick() {
+        return askTick;
+    }
+
+    /**
+     * @return best ask price or zero if there are no asks
+     */
+    public double getAskPrice() {
+        return TickSizeTable.toPrice(askTick, tickSize);
+    }
+
+    /**
+     * @return aggregate quantity at best ask price
+     */
+    public long getAskSize() {
+        return askSize;
+    }
+
+    /**
+     * Get string representation of the top of the bid book, built only once
+     * per change
+     * 
+     * @return top of book order representation or null if there are no bids
+     */
+    public String getBidString() {
+        if (bidString == null && bidOrder != null) {
+            bidString = bidOrder.toString();
+        }
+        return bidString;
+    }
+
+    /**
+     * Get string representation of the top of the ask book, built only once
+     * per change
+     * 
+     * @return top of book order representation or null if there are no asks
+     */
+    public String getAskString() {
+        if (askString == null && askOrder != null) {
+            askString = askOrder.toString();
+        }
+        return askString;
+    }
+
+    @Override
+    public String toString() {
+        return symbol + " " + bidSize + " @ " + getBidPrice() + " / "
+                + askSize + " @ " + getAskPrice();
+    }
+
+}
@@ -0,0 +1,88 @@
+package edu.nyu.fc.exchange;
+
+/**
+ * Reusable buffer of trade events. Events are pre-allocated and overwritten on
+ * every use, and the buffer only grows, so once warmed up collecting fills into
+ * it does not allocate.
+ * 
+ * @author Yourii Martiak
+ *
+ */
+public class TradeBuffer {
+
+    private TradeEvent[] trades;
+    private int size;
+
+    /**
+     * Creates new trade buffer with a given initial capacity
+     * 
+     * @param capacity
+     */
+    public TradeBuffer(final int capacity) {
+        trades = new TradeEvent[Math.max(capacity, 1)];
+        for (int i = 0; i < trades.length; i++) {
+            trades[i] = new TradeEvent();
+        }
+    }
+
+    /**
+     * Append a copy of a given trade event
+     * 
+     * @param trade
+     */
+    public void add(final TradeEvent trade) {
+        if (size == trades.length) {
+            final TradeEvent[] newTrades = new TradeEvent[size << 1];
+            System.arraycopy(trades, 0, newTrades, 0, size);
+            for (int i = size; i < newTrades.length; i++) {
+                newTrades[i] = new TradeEvent();
+            }
+            trades = newTrades;
+        }
+        trades[size++].copyFrom(trade);
+    }
+
+    /**
+     * Get trade event at a given position
+     * 
+     * @param index
+     * @return trade event, valid until the buffer is cleared
+     */
+    public TradeEvent get(final int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " size "
+                    + size);
+        }
+        return trades[index];
+    }
+
+    /**
+     * Get number of trade events in the buffer
+     * 
+     * @return number of trade events
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Discard all trade events, keeping them allocated for reuse
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Deliver all trade events in the buffer to a trade listener, followed by
+     * an end of batch notification
+     * 
+     * @param tradeListener
+     */
+    public void publishTo(final ITradeListener tradeListener) {
+        for (int i = 0; i < size; i++) {
+            tradeListener.onTrade(trades[i]);
+        }
+        tradeListener.onEndOfBatch();
+    }
+
+}
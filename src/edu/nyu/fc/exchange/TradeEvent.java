@@ -0,0 +1,127 @@
+package edu.nyu.fc.exchange;
+
+/**
+ * Fill between a bid and an ask order. Instances of this class are mutable and
+ * reused by their producers, so listeners must copy any information they need
+ * to keep beyond the callback they received the event in.
+ * 
+ * @author Yourii Martiak
+ *
+ */
+public class TradeEvent {
+
+    private long sequence;
+    private String symbol;
+    private String bidOrderID;
+    private String askOrderID;
+    private double price;
+    private int quantity;
+    private Side aggressorSide;
+    private long ingressNanos;
+    private long matchNanos;
+    private long emitNanos;
+
+    /**
+     * Set all properties of this trade event
+     * 
+     * @param sequence sequence number of the trade within the auction
+     * @param symbol
+     * @param bidOrderID order ID of the buy side
+     * @param askOrderID order ID of the sell side
+     * @param price execution price
+     * @param quantity executed quantity, always positive
+     * @param aggressorSide side of the incoming order that crossed the book
+     */
+    public void set(final long sequence, final String symbol,
+            final String bidOrderID, final String askOrderID,
+            final double price, final int quantity, final Side aggressorSide) {
+        this.sequence = sequence;
+        this.symbol = symbol;
+        this.bidOrderID = bidOrderID;
+        this.askOrderID = askOrderID;
+        this.price = price;
+        this.quantity = quantity;
+        this.aggressorSide = aggressorSide;
+    }
+
+    /**
+     * Renumber this trade event, for auctions numbering trades on delivery
+     * 
+     * @param sequence
+     */
+    void setSequence(final long sequence) {
+        this.sequence = sequence;
+    }
+
+    /**
+     * Copy all properties of another trade event into this one
+     * 
+     * @param trade
+     */
+    public void copyFrom(final TradeEvent trade) {
+        set(trade.sequence, trade.symbol, trade.bidOrderID, trade.askOrderID,
+                trade.price, trade.quantity, trade.aggressorSide);
+        setTimestamps(trade.ingressNanos, trade.matchNanos, trade.emitNanos);
+    }
+
+    /**
+     * Set timestamps of the message that produced this trade, as given by
+     * {@link System#nanoTime()}, all 0 unless the auction stamps messages
+     * 
+     * @param ingressNanos time the message entered the exchange
+     * @param matchNanos time matching of the message started
+     * @param emitNanos time this trade was handed to the trade listener
+     */
+    public void setTimestamps(final long ingressNanos, final long matchNanos,
+            final long emitNanos) {
+        this.ingressNanos = ingressNanos;
+        this.matchNanos = matchNanos;
+        this.emitNanos = emitNanos;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public String getBidOrderID() {
+        return bidOrderID;
+    }
+
+    public String getAskOrderID() {
+        return askOrderID;
+    }
+
+    public double getPrice() {
+        return price;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public Side getAggressorSide() {
+        return aggressorSide;
+    }
+
+    public long getIngressNanos() {
+        return ingressNanos;
+    }
+
+    public long getMatchNanos() {
+        return matchNanos;
+    }
+
+    public long getEmitNanos() {
+        return emitNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "Order " + bidOrderID + " traded with order " + askOrderID;
+    }
+
+}
@@ -0,0 +1,149 @@
+package edu.nyu.fc.exchange;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+
+import org.junit.Test;
+
+/**
+ * JUnit test class to verify that functionality of
+ * {@link edu.nyu.fc.exchange.AuctionMetrics} works as expected.
+ * 
+ * @author Yourii Martiak
+ *
+ */
+public class AuctionMetricsTest {
+
+    /**
+     * Test and verify that order and price level counts kept by both book
+     * implementations match their contents
+     */
+    @Test
+    public void testBookCounts() {
+        verifyBookCounts(new LimitOrderBookFactory());
+        verifyBookCounts(new TickLadderLimitOrderBookFactory(16));
+    }
+
+    private static void verifyBookCounts(final ILimitOrderBookFactory factory) {
+        final DoubleLimitBookAuction auction = new DoubleLimitBookAuction(
+                factory, new NullTradeListener());
+        final AuctionMetrics metrics = new AuctionMetrics(auction);
+        final SyntheticOrderFlow flow = new SyntheticOrderFlow(3, 4, 2000);
+        flow.setVolatility(0.3);
+        for (int i = 1; i <= 50000; i++) {
+            auction.handleMessage(flow.next());
+            if (i % 5000 == 0) {
+                long orderCount = 0;
+                long levelCount = 0;
+                for (final TopOfBook topOfBook : auction.getTopOfBooks()) {
+                    orderCount += verifyBook(topOfBook.getBidBook());
+                    orderCount += verifyBook(topOfBook.getAskBook());
+                    levelCount += topOfBook.getBidBook().getPriceLevels()
+                            .size()
+                            + topOfBook.getAskBook().getPriceLevels().size();
+                }
+                assertEquals("Messages", i, metrics.getMessageCount());
+                assertEquals("Fills", auction.getTradeSequence(), metrics
+                        .getFillCount());
+                assertEquals("Resting orders", orderCount, metrics
+                        .getRestingOrderCount());
+                assertEquals("Order index", orderCount, metrics
+                        .getOrderIndexSize());
+                assertEquals("Price levels", levelCount, metrics
+                        .getPriceLevelCount());
+                assertEquals("Books", 8, metrics.getBooks().size());
+            }
+        }
+        assertEquals("Symbols", 4, metrics.getSymbolCount());
+        assertTrue("Stale ratio", metrics.getMaxStaleLevelRatio() < 1);
+    }
+
+    private static int verifyBook(final ILimitOrderBook book) {
+        int orderCount = 0;
+        for (final PriceLevel level : book.getPriceLevels()) {
+            orderCount += level.getOrderCount();
+        }
+        assertEquals("Order count", orderCount, book.getOrderCount());
+        assertEquals("Level count", book.getPriceLevels().size(), book
+                .getPriceLevelCount());
+        return orderCount;
+    }
+
+    /**
+     * Test and verify that metrics can be read through the platform MBean
+     * server
+     */
+    @Test
+    public void testRegister() throws JMException {
+        final DoubleLimitBookAuction auction = new DoubleLimitBookAuction(
+                new LimitOrderBookFactory(), new NullTradeListener());
+        final SyntheticOrderFlow flow = new SyntheticOrderFlow(5, 2, 100);
+        for (int i = 0; i < 1000; i++) {
+            auction.handleMessage(flow.next());
+        }
+        final AuctionMetrics metrics = new AuctionMetrics(auction);
+        metrics.register("test");
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        final ObjectName objectName = metrics.getObjectName();
+        try {
+            assertTrue("Registered", server.isRegistered(objectName));
+            assertEquals("Messages", 1000L, server.getAttribute(objectName,
+                    "MessageCount"));
+            final CompositeData[] books = (CompositeData[]) server
+                    .getAttribute(objectName, "Books");
+            assertEquals("Books", 4, books.length);
+            assertEquals("Side", "BID", books[0].get("side"));
+            assertEquals("Inbound queue", 0, server.getAttribute(objectName,
+                    "InboundQueueDepth"));
+        } finally {
+            metrics.unregister();
+        }
+        assertFalse("Unregistered", server.isRegistered(objectName));
+        assertNull("Name", metrics.getObjectName());
+    }
+
+    /**
+     * Test and verify that rates are sampled while registered, and that
+     * reading them does not change what the next reader sees
+     */
+    @Test
+    public void testRates() throws JMException, InterruptedException {
+        final DoubleLimitBookAuction auction = new DoubleLimitBookAuction(
+                new LimitOrderBookFactory(), new NullTradeListener());
+        final AuctionMetrics metrics = new AuctionMetrics(auction);
+        metrics.register("rates");
+        try {
+            assertEquals("No sample yet", 0.0d, metrics.getMessageRate(), 0.0d);
+            final SyntheticOrderFlow flow = new SyntheticOrderFlow(7, 2, 100);
+            for (int i = 0; i < 1000; i++) {
+                auction.handleMessage(flow.next());
+            }
+            final long deadline = System.currentTimeMillis() + 5
+                    * AuctionMetrics.SAMPLE_PERIOD_MILLIS;
+            while (metrics.getMessageRate() == 0.0d
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            final double messageRate = metrics.getMessageRate();
+            final double fillRate = metrics.getFillRate();
+            assertTrue("Message rate", messageRate > 0.0d);
+            assertEquals("Same message rate", messageRate, metrics
+                    .getMessageRate(), 0.0d);
+            assertEquals("Same fill rate", fillRate, metrics.getFillRate(),
+                    0.0d);
+        } finally {
+            metrics.unregister();
+        }
+        assertEquals("Stopped", 0.0d, metrics.getMessageRate(), 0.0d);
+    }
+
+}
@@ -0,0 +1,77 @@
+package edu.nyu.fc.exchange;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * JUnit test class to verify that functionality of
+ * {@link edu.nyu.fc.exchange.BacktestRunner} works as expected.
+ * 
+ * @author Yourii Martiak
+ *
+ */
+public class BacktestRunnerTest {
+
+    private static final int SESSIONS = 6;
+    private static final long MESSAGES = 20000;
+
+    /**
+     * Test and verify that sessions run in parallel give the same results as
+     * sessions run one after another, and that totals add up
+     */
+    @Test
+    public void testParallel() throws IOException, InterruptedException {
+        final List<IBacktestSession> sessions = new ArrayList<IBacktestSession>();
+        for (int i = 0; i < SESSIONS; i++) {
+            sessions.add(new SyntheticBacktestSession(i, 10, 1000, MESSAGES));
+        }
+        final List<BacktestStatistics> parallel = new BacktestRunner(
+                new TickLadderLimitOrderBookFactory(), 4).run(sessions);
+        final List<BacktestStatistics> serial = new BacktestRunner(
+                new LimitOrderBookFactory(), 1).run(sessions);
+
+        assertEquals("Sessions", SESSIONS, parallel.size());
+        long tradeCount = 0;
+        for (int i = 0; i < SESSIONS; i++) {
+            assertEquals("Name", "seed " + i, parallel.get(i).getName());
+            assertEquals("Messages", MESSAGES, parallel.get(i)
+                    .getMessageCount());
+            assertTrue("Traded", parallel.get(i).getTradeCount() > 0);
+            assertEquals("Trades", serial.get(i).getTradeCount(), parallel
+                    .get(i).getTradeCount());
+            assertEquals("Quantity", serial.get(i).getTradedQuantity(),
+                    parallel.get(i).getTradedQuantity());
+            tradeCount += parallel.get(i).getTradeCount();
+        }
+
+        final BacktestStatistics total = BacktestRunner.total(parallel);
+        assertEquals("Total sessions", SESSIONS, total.getSessionCount());
+        assertEquals("Total messages", SESSIONS * MESSAGES, total
+                .getMessageCount());
+        assertEquals("Total trades", tradeCount, total.getTradeCount());
+        long latencyCount = 0;
+        for (int type = LatencyRecordingDoubleLimitBookAuction.NEW_PASSIVE; type <= LatencyRecordingDoubleLimitBookAuction.REPLACE; type++) {
+            latencyCount += total.getHistogram(type).getTotalCount();
+        }
+        assertEquals("Latencies", SESSIONS * MESSAGES, latencyCount);
+    }
+
+    /**
+     * Test and verify that failure of a session is reported to the caller
+     */
+    @Test(expected = IOException.class)
+    public void testMissingJournal() throws IOException, InterruptedException {
+        new BacktestRunner(new LimitOrderBookFactory(), 2).run(Collections
+                .singletonList(new JournalBacktestSession(new File(
+                        "missing.journal"))));
+    }
+
+}
@@ -0,0 +1,201 @@
+package edu.nyu.fc.exchange;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import orderGenerator.NewOrder;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * JUnit test class to verify that functionality of
+ * {@link edu.nyu.fc.exchange.BookDepthViews} works as expected, both when
+ * read by the matching thread and while being written by it.
+ * 
+ * @author Yourii Martiak
+ *
+ */
+public class BookDepthViewsTest {
+
+    private static final int DEPTH = 3;
+
+    private DoubleLimitBookAuction auction;
+    private BookDepthViews views;
+
+    @Before
+    public void setUp() {
+        auction = new DoubleLimitBookAuction(new LimitOrderBookFactory(),
+                new ITradeListener() {
+
+                    @Override
+                    public void onTrade(TradeEvent trade) {
+                    }
+
+                    @Override
+                    public void onEndOfBatch() {
+                    }
+                });
+        views = new BookDepthViews(DEPTH);
+        auction.setBookUpdateListener(views);
+    }
+
+    /**
+     * Test and verify that views match depth of the books and that version
+     * only changes when depth does
+     */
+    @Test
+    public void testRead() {
+        final BookDepth bookDepth = views.newBookDepth();
+        assertFalse("Nothing read yet", views.read("IBM", bookDepth));
+
+        auction.handleMessage(new Order("B1", 100, 10.00));
+        auction.handleMessage(new Order("B2", 50, 10.01));
+        auction.handleMessage(new Order("B3", 70, 9.99));
+        auction.handleMessage(new Order("B4", 30, 9.98));
+        auction.handleMessage(new Order("A1", -40, 10.05));
+        auction.handleMessage(new Order("A2", -20, 10.01));
+
+        assertTrue("Read", views.read("IBM", bookDepth));
+        assertEquals("Symbol", "IBM", bookDepth.getSymbol());
+        assertEquals("Bid count", DEPTH, bookDepth.getBidCount());
+        assertEquals("Best bid", 10.01, bookDepth.getBidPrice(0), 1e-9);
+        assertEquals("Best bid size", 30, bookDepth.getBidSize(0));
+        assertEquals("Third bid", 9.99, bookDepth.getBidPrice(2), 1e-9);
+        assertEquals("Ask count", 1, bookDepth.getAskCount());
+        assertEquals("Best ask size", 40, bookDepth.getAskSize(0));
+        verifyBooks(auction.getTopOfBook("IBM"), bookDepth);
+
+        // below the visible depth, nothing written
+        final long version = bookDepth.getVersion();
+        auction.handleMessage(new Order("B5", 10, 9.90));
+        views.read("IBM", bookDepth);
+        assertEquals("Version unchanged", version, bookDepth.getVersion());
+
+        auction.handleMessage(new Order("B6", 10, 10.00));
+        views.read("IBM", bookDepth);
+        assertTrue("Version changed", bookDepth.getVersion() > version);
+        verifyBooks(auction.getTopOfBook("IBM"), bookDepth);
+    }
+
+    /**
+     * Test and verify that a reader thread never sees a depth which is torn
+     * between two writes while the matching thread keeps crossing the books
+     */
+    @Test
+    public void testConcurrentRead() throws InterruptedException {
+        auction.handleMessage(new Order("S", 1, 50.00));
+        final AtomicBoolean isDone = new AtomicBoolean();
+        final AtomicReference<String> failure = new AtomicReference<String>();
+        final Thread reader = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                final BookDepth bookDepth = views.newBookDepth();
+                long version = 0;
+                while (!isDone.get() && failure.get() == null) {
+                    views.read("IBM", bookDepth);
+                    final String error = checkDepth(bookDepth, version);
+                    if (error != null) {
+                        failure.set(error + ": " + bookDepth);
+                    }
+                    version = bookDepth.getVersion();
+                }
+            }
+        });
+        reader.start();
+        final Random random = new Random(42);
+        double mid = 50.00;
+        for (int i = 0; i < 200000 && failure.get() == null; i++) {
+            mid = Math.max(10.00, mid + (random.nextInt(3) - 1) * 0.01);
+            final int size = (1 + random.nextInt(100))
+                    * (random.nextBoolean() ? 1 : -1);
+            final double price = mid + (random.nextInt(9) - 4) * 0.01;
+            auction.handleMessage(new Order("O" + i, size, price));
+        }
+        isDone.set(true);
+        reader.join();
+        assertNull(failure.get(), failure.get());
+    }
+
+    private static String checkDepth(final BookDepth bookDepth,
+            final long version) {
+        if (bookDepth.getVersion() < version) {
+            return "Version went back";
+        }
+        for (int i = 1; i < bookDepth.getBidCount(); i++) {
+            if (bookDepth.getBidTick(i) >= bookDepth.getBidTick(i - 1)) {
+                return "Bids out of order";
+            }
+        }
+        for (int i = 1; i < bookDepth.getAskCount(); i++) {
+            if (bookDepth.getAskTick(i) <= bookDepth.getAskTick(i - 1)) {
+                return "Asks out of order";
+            }
+        }
+        if (bookDepth.getBidCount() > 0 && bookDepth.getAskCount() > 0
+                && bookDepth.getBidTick(0) >= bookDepth.getAskTick(0)) {
+            return "Crossed";
+        }
+        return null;
+    }
+
+    private static void verifyBooks(final TopOfBook topOfBook,
+            final BookDepth bookDepth) {
+        final long[] ticks = new long[DEPTH];
+        final long[] sizes = new long[DEPTH];
+        int count = topOfBook.getBidBook().getDepth(ticks, sizes, DEPTH);
+        assertEquals("Bid count", count, bookDepth.getBidCount());
+        for (int i = 0; i < count; i++) {
+            assertEquals("Bid tick", ticks[i], bookDepth.getBidTick(i));
+            assertEquals("Bid size", sizes[i], bookDepth.getBidSize(i));
+        }
+        count = topOfBook.getAskBook().getDepth(ticks, sizes, DEPTH);
+        assertEquals("Ask count", count, bookDepth.getAskCount());
+        for (int i = 0; i < count; i++) {
+            assertEquals("Ask tick", ticks[i], bookDepth.getAskTick(i));
+            assertEquals("Ask size", sizes[i], bookDepth.getAskSize(i));
+        }
+    }
+
+    private static class Order implements NewOrder {
+
+        private final String orderID;
+        private final int size;
+        private final double limitPrice;
+
+        private Order(final String orderID, final int size,
+                final double limitPrice) {
+            this.orderID = orderID;
+            this.size = size;
+            this.limitPrice = limitPrice;
+        }
+
+        @Override
+        public double getLimitPrice() {
+            return limitPrice;
+        }
+
+        @Override
+        public String getOrderId() {
+            return orderID;
+        }
+
+        @Override
+        public int getSize() {
+            return size;
+        }
+
+        @Override
+        public String getSymbol() {
+            return "IBM";
+        }
+    }
+
+}
@@ -0,0 +1,169 @@
+package edu.nyu.fc.exchange;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+
+import orderGenerator.Message;
+import orderGenerator.NewOrder;
+import orderGenerator.OrderCxR;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * JUnit test class to verify that functionality of
+ * {@link edu.nyu.fc.exchange.BookSnapshot} works as expected, by restoring a
+ * snapshot into a new auction and comparing it to the original auction.
+ * 
+ * @author Yourii Martiak
+ *
+ */
+public class BookSnapshotTest {
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("snapshot", ".bin");
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void testRestoreHashBooks() throws IOException {
+        verifyRestore(new LimitOrderBookFactory());
+    }
+
+    @Test
+    public void testRestoreTickLadderBooks() throws IOException {
+        verifyRestore(new TickLadderLimitOrderBookFactory());
+    }
+
+    /**
+     * Restore snapshot and verify that the restored auction keeps behaving
+     * exactly as the original one, including cancels of restored orders
+     * 
+     * @param factory
+     * @throws IOException
+     */
+    private void verifyRestore(final ILimitOrderBookFactory factory)
+            throws IOException {
+        final DoubleLimitBookAuction auction = new DoubleLimitBookAuction(
+                factory, new NullTradeListener());
+        auction.handleMessage(new Order("B1", "IBM", 100, 10.00));
+        auction.handleMessage(new Order("B2", "IBM", 50, 10.01));
+        auction.handleMessage(new Order("B3", "IBM", 70, 10.00));
+        auction.handleMessage(new Order("A1", "IBM", -70, 10.01));
+        auction.handleMessage(new Order("A2", "IBM", -30, 10.05));
+        auction.handleMessage(new Order("A3", "MSFT", -30, 25.50));
+        BookSnapshot.save(auction, 6, file);
+
+        final RecordingTradeListener trades = new RecordingTradeListener();
+        final DoubleLimitBookAuction restored = new DoubleLimitBookAuction(
+                factory, trades);
+        assertEquals(6, BookSnapshot.restore(file, restored));
+        assertEquals(auction.toString(), restored.toString());
+        assertEquals(auction.getTopOfTheBooks(), restored.getTopOfTheBooks());
+
+        final Message[] tail = new Message[] { new Replace("B1", 0, 0),
+                new Order("A4", "IBM", -80, 9.90),
+                new Order("B4", "MSFT", 40, 26.00) };
+        for (final Message message : tail) {
+            auction.handleMessage(message);
+            restored.handleMessage(message);
+        }
+        assertEquals(auction.toString(), restored.toString());
+        assertEquals("IBM,B3,A4,10.0,70\nMSFT,B4,A3,25.5,30\n",
+                trades.sb.toString());
+    }
+
+    private static class RecordingTradeListener implements ITradeListener {
+
+        private final StringBuilder sb = new StringBuilder();
+
+        @Override
+        public void onTrade(final TradeEvent trade) {
+            sb.append(trade.getSymbol()).append(',')
+                    .append(trade.getBidOrderID()).append(',')
+                    .append(trade.getAskOrderID()).append(',')
+                    .append(trade.getPrice()).append(',')
+                    .append(trade.getQuantity()).append('\n');
+        }
+
+        @Override
+        public void onEndOfBatch() {
+        }
+    }
+
+    private static class Order implements NewOrder {
+
+        private final String orderID;
+        private final String symbol;
+        private final int size;
+        private final double limitPrice;
+
+        private Order(final String orderID, final String symbol,
+                final int size, final double limitPrice) {
+            this.orderID = orderID;
+            this.symbol = symbol;
+            this.size = size;
+            this.limitPrice = limitPrice;
+        }
+
+        @Override
+        public double getLimitPrice() {
+            return limitPrice;
+        }
+
+        @Override
+        public String getOrderId() {
+            return orderID;
+        }
+
+        @Override
+        public int getSize() {
+            return size;
+        }
+
+        @Override
+        public String getSymbol() {
+            return symbol;
+        }
+    }
+
+    private static class Replace implements OrderCxR {
+
+        private final String orderID;
+        private final int size;
+        private final double limitPrice;
+
+        private Replace(final String orderID, final int size,
+                final double limitPrice) {
+            this.orderID = orderID;
+            this.size = size;
+            this.limitPrice = limitPrice;
+        }
+
+        @Override
+        public double getLimitPrice() {
+            return limitPrice;
+        }
+
+        @Override
+        public String getOrderId() {
+            return orderID;
+        }
+
+        @Override
+        public int getSize() {
+            return size;
+        }
+    }
+
+}
@@ -1,5 +1,6 @@
 package edu.nyu.fc.exchange;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
 
 import java.util.ArrayList;
@@ -38,6 +39,98 @@ public class DoubleLimitBookAuctionTest {
         System.out.println(auction.getTopOfTheBooks());
     }
     
+    /**
+     * Test and verify that a batch of messages ends up in the same books as
+     * the same messages handled one by one, with fills of the whole batch
+     * delivered as one batch
+     */
+    @Test
+    public void testHandleMessages() {
+        final int[] counts = new int[2];
+        final ITradeListener countingListener = new ITradeListener() {
+
+            @Override
+            public void onTrade(final TradeEvent trade) {
+                counts[0]++;
+            }
+
+            @Override
+            public void onEndOfBatch() {
+                counts[1]++;
+            }
+        };
+        final IDoubleLimitBookAuction batchAuction = new DoubleLimitBookAuction(
+                new LimitOrderBookFactory(), countingListener);
+        final IDoubleLimitBookAuction auction = new DoubleLimitBookAuction(
+                new LimitOrderBookFactory(), new NullTradeListener());
+        final Message[] messages = ordersIterator.list
+                .toArray(new Message[ordersIterator.list.size() + 1]);
+        for (int i = 1; i < messages.length - 1; i++) {
+            auction.handleMessage(messages[i]);
+        }
+        batchAuction.handleMessages(messages, 1, messages.length - 2);
+
+        assertEquals("Same books", auction.toString(), batchAuction.toString());
+        assertEquals("Trades", 6, counts[0]);
+        assertEquals("One batch", 1, counts[1]);
+        try {
+            batchAuction.handleMessages(messages, 2, messages.length);
+            fail("Invalid range accepted");
+        } catch (final IllegalArgumentException e) {
+            // expected
+        }
+    }
+    
+    /**
+     * Test and verify that replaces reducing size at the same price keep time
+     * priority, also for prices rounding to the same tick, while replaces
+     * increasing size go to the end of the queue
+     */
+    @Test
+    public void testAmend() {
+        final List<String> bidOrderIDs = new ArrayList<String>();
+        final IDoubleLimitBookAuction auction = new DoubleLimitBookAuction(
+                new LimitOrderBookFactory(), new ITradeListener() {
+
+                    @Override
+                    public void onTrade(final TradeEvent trade) {
+                        bidOrderIDs.add(trade.getBidOrderID() + ":"
+                                + trade.getQuantity());
+                    }
+
+                    @Override
+                    public void onEndOfBatch() {
+                    }
+                });
+        auction.handleMessage(new NOMessage("B1", 100, "IBM", 100.0));
+        auction.handleMessage(new NOMessage("B2", 100, "IBM", 100.0));
+        auction.handleMessage(new NOMessage("B3", 100, "IBM", 100.0));
+        // size down in place, and size up moving to the end of the queue
+        auction.handleMessage(new CXRMessage("B1", 40, "IBM", 100.004));
+        auction.handleMessage(new CXRMessage("B2", 120, "IBM", 100.0));
+        auction.handleMessage(new NOMessage("A1", -300, "IBM", 100.0));
+
+        assertEquals("Fills", "[B1:40, B3:100, B2:120]", bidOrderIDs.toString());
+    }
+    
+    /**
+     * Test and verify that an order reusing the order ID of a live order can
+     * still be canceled once the earlier order got filled
+     */
+    @Test
+    public void testDuplicateOrderID() {
+        final DoubleLimitBookAuction auction = new DoubleLimitBookAuction(
+                new LimitOrderBookFactory(), new NullTradeListener());
+        auction.handleMessage(new NOMessage("O1", 100, "IBM", 100.0));
+        auction.handleMessage(new NOMessage("O1", 50, "IBM", 99.0));
+        auction.handleMessage(new NOMessage("A1", -100, "IBM", 100.0));
+        auction.handleMessage(new CXRMessage("O1", 0, "IBM", 0));
+
+        final TopOfBook topOfBook = auction.getTopOfBook("IBM");
+        assertEquals("Bids", 0, topOfBook.getBidBook().getOrderCount());
+        assertEquals("Asks", 0, topOfBook.getAskBook().getOrderCount());
+    }
+
     public class OrdersIterator {
         
         List<Message> list;
@@ -0,0 +1,66 @@
+package edu.nyu.fc.exchange;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * JUnit test class to verify that functionality of
+ * {@link edu.nyu.fc.exchange.LatencyHistogram} works as expected.
+ * 
+ * @author Yourii Martiak
+ *
+ */
+public class LatencyHistogramTest {
+
+    private LatencyHistogram histogram;
+
+    @Before
+    public void setUp() {
+        histogram = new LatencyHistogram();
+    }
+
+    /**
+     * Test and verify that small values are recorded exactly
+     */
+    @Test
+    public void testSmallValuesExact() {
+        for (int i = 1; i <= 100; i++) {
+            histogram.recordValue(i);
+        }
+        assertEquals("Count", 100, histogram.getTotalCount());
+        assertEquals("Min", 1, histogram.getMinValue());
+        assertEquals("Max", 100, histogram.getMaxValue());
+        assertEquals("Median", 50, histogram.getValueAtPercentile(50.0d));
+        assertEquals("99th percentile", 99,
+                histogram.getValueAtPercentile(99.0d));
+        assertEquals("Mean", 50.5d, histogram.getMean(), 1e-9);
+    }
+
+    /**
+     * Test and verify that percentiles of large values stay within 1% of the
+     * exact value, and that intervals add up
+     */
+    @Test
+    public void testLargeValuesWithinPrecision() {
+        final LatencyHistogram interval = new LatencyHistogram();
+        for (long value = 1000; value <= 1000000; value += 1000) {
+            interval.recordValue(value);
+        }
+        histogram.add(interval);
+        interval.reset();
+        assertEquals("Reset count", 0, interval.getTotalCount());
+        interval.recordValue(5000000000L);
+        histogram.add(interval);
+
+        assertEquals("Count", 1001, histogram.getTotalCount());
+        final long median = histogram.getValueAtPercentile(50.0d);
+        assertTrue("Median " + median, Math.abs(median - 501000) <= 5010);
+        final long p99 = histogram.getValueAtPercentile(99.0d);
+        assertTrue("99th percentile " + p99, Math.abs(p99 - 991000) <= 9910);
+        assertEquals("Max", 5000000000L, histogram.getValueAtPercentile(100.0d));
+    }
+
+}
@@ -0,0 +1,154 @@
+package edu.nyu.fc.exchange;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import orderGenerator.NewOrder;
+import orderGenerator.OrderCxR;
+
+import org.junit.Test;
+
+/**
+ * JUnit test class to verify that {@link edu.nyu.fc.exchange.LimitOrderPool}
+ * and {@link edu.nyu.fc.exchange.PriceLevelPool} hand out released objects
+ * reset for their next use.
+ * 
+ * @author Yourii Martiak
+ *
+ */
+public class LimitOrderPoolTest {
+
+    private static final double TICK_SIZE = 0.01;
+
+    /**
+     * Test and verify that released orders are reused with none of the state
+     * of their previous use
+     */
+    @Test
+    public void testOrderReuse() {
+        final LimitOrderPool pool = new LimitOrderPool(1);
+        final LimitOrder order = pool.acquire(newOrder("IBM1", 100, 100.0),
+                TICK_SIZE);
+        final PriceLevel level = new PriceLevel(order.getLimitTick());
+        level.addLast(order);
+        level.remove(order);
+        order.setDead();
+        pool.release(order);
+        pool.release(new LimitOrder(newOrder("IBM2", 100, 100.0)));
+        assertEquals("Pool bounded", 1, pool.size());
+
+        final LimitOrder reused = pool.acquire(newOrder("MSFT1", -50,
+                Double.NaN), TICK_SIZE);
+        assertSame("Order reused", order, reused);
+        assertEquals("Order ID", "MSFT1", reused.getOrderId());
+        assertEquals("Symbol", "MSFT", reused.getSymbol());
+        assertEquals("Size", -50, reused.getSize());
+        assertEquals("Market order", OrderType.MARKET, reused.getOrderType());
+        assertFalse("Live again", reused.isDead());
+        assertNull("Not resting", reused.getPriceLevel());
+        assertEquals("Pool empty", 0, pool.size());
+
+        pool.release(reused);
+        final LimitOrder replace = pool.acquire(reused, new OrderCxR() {
+
+            @Override
+            public double getLimitPrice() {
+                return 101.0;
+            }
+
+            @Override
+            public String getOrderId() {
+                return "MSFT1";
+            }
+
+            @Override
+            public int getSize() {
+                return -20;
+            }
+        });
+        assertSame("Order reused", order, replace);
+        assertEquals("Replace order ID", "MSFT1", replace.getOrderId());
+        assertEquals("Replace limit", 10100, replace.getLimitTick());
+        assertEquals("Replace size", -20, replace.getSize());
+    }
+
+    /**
+     * Test and verify that releasing an order twice is refused, whether the
+     * order got pooled or left to the garbage collector, and that an order
+     * taken from the pool again can be released once more
+     */
+    @Test
+    public void testDoubleRelease() {
+        final LimitOrderPool pool = new LimitOrderPool(1);
+        final LimitOrder order = pool.acquire(newOrder("IBM1", 100, 100.0),
+                TICK_SIZE);
+        final LimitOrder discarded = pool.acquire(newOrder("IBM2", 100, 100.0),
+                TICK_SIZE);
+        pool.release(order);
+        pool.release(discarded);
+        try {
+            pool.release(order);
+            fail("Pooled order released twice");
+        } catch (final IllegalStateException e) {
+            // expected
+        }
+        try {
+            pool.release(discarded);
+            fail("Discarded order released twice");
+        } catch (final IllegalStateException e) {
+            // expected
+        }
+        assertEquals("Pooled once", 1, pool.size());
+
+        final LimitOrder reused = pool.acquire(newOrder("IBM3", 100, 100.0),
+                TICK_SIZE);
+        assertSame("Order reused", order, reused);
+        pool.release(reused);
+        assertEquals("Pooled again", 1, pool.size());
+    }
+
+    /**
+     * Test and verify that released price levels are reused at a new price
+     */
+    @Test
+    public void testPriceLevelReuse() {
+        final PriceLevelPool pool = new PriceLevelPool(4);
+        final PriceLevel level = pool.acquire(10000);
+        pool.release(level);
+
+        final PriceLevel reused = pool.acquire(10005);
+        assertSame("Price level reused", level, reused);
+        assertEquals("New price", 10005, reused.getTick());
+        assertEquals("Empty", 0, reused.getOrderCount());
+    }
+
+    private static NewOrder newOrder(final String orderID, final int size,
+            final double limitPrice) {
+        return new NewOrder() {
+
+            @Override
+            public double getLimitPrice() {
+                return limitPrice;
+            }
+
+            @Override
+            public String getOrderId() {
+                return orderID;
+            }
+
+            @Override
+            public int getSize() {
+                return size;
+            }
+
+            @Override
+            public String getSymbol() {
+                return orderID.substring(0, orderID.length() - 1);
+            }
+        };
+    }
+
+}
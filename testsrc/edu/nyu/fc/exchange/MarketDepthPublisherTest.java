@@ -0,0 +1,241 @@
+package edu.nyu.fc.exchange;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import orderGenerator.NewOrder;
+import orderGenerator.OrderCxR;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * JUnit test class to verify that functionality of
+ * {@link edu.nyu.fc.exchange.MarketDepthPublisher} works as expected, by
+ * rebuilding depth from published messages and comparing it to the books.
+ * 
+ * @author Yourii Martiak
+ *
+ */
+public class MarketDepthPublisherTest {
+
+    private static final int DEPTH = 2;
+    private static final double DELTA = 1e-9;
+
+    private DoubleLimitBookAuction auction;
+    private MarketDepthPublisher publisher;
+    private DepthConsumer consumer;
+
+    @Before
+    public void setUp() {
+        auction = new DoubleLimitBookAuction(new LimitOrderBookFactory(),
+                new ITradeListener() {
+
+                    @Override
+                    public void onTrade(TradeEvent trade) {
+                    }
+
+                    @Override
+                    public void onEndOfBatch() {
+                    }
+                });
+        consumer = new DepthConsumer();
+        publisher = new MarketDepthPublisher(consumer, DEPTH, 1000);
+        auction.setBookUpdateListener(publisher);
+    }
+
+    /**
+     * Test and verify that depth rebuilt from snapshot and incremental
+     * messages always matches depth of the books
+     */
+    @Test
+    public void testDepthRebuiltFromDeltas() {
+        handle(new Order("B1", 100, 10.00));
+        handle(new Order("B2", 50, 10.01));
+        handle(new Order("B3", 70, 9.99));
+        handle(new Order("B4", 30, 10.01));
+        handle(new Order("A1", -40, 10.05));
+        handle(new Cancel("B2", 0, 0));
+        handle(new Order("A2", -100, 10.00));
+        handle(new Cancel("B3", 20, 9.98));
+        handle(new Order("A3", -10, 10.04));
+
+        assertEquals("Snapshot first", MarketDepthPublisher.SNAPSHOT,
+                consumer.firstMessageType);
+        assertEquals("No gaps", consumer.messageCount, publisher.getSequence());
+    }
+
+    /**
+     * Test and verify that a new top of the book replacing the old one in a
+     * single message is applied correctly by level, as deletes come first
+     */
+    @Test
+    public void testDeltasAppliedByLevel() {
+        handle(new Order("B1", 100, 10.00));
+        handle(new Order("B2", 50, 9.99));
+        final long sequence = publisher.getSequence();
+        handle(new Cancel("B1", 100, 10.01));
+
+        assertEquals("Single message", sequence + 1, publisher.getSequence());
+        assertEquals("Top of the book", 10.01, consumer.bidLevels.get(0)[0],
+                DELTA);
+        assertEquals("Second level", 9.99, consumer.bidLevels.get(1)[0], DELTA);
+    }
+
+    private void handle(final orderGenerator.Message message) {
+        auction.handleMessage(message);
+        final TopOfBook topOfBook = auction.getTopOfBook("IBM");
+        verifySide(topOfBook.getBidBook(), consumer.bids, consumer.bidLevels,
+                true);
+        verifySide(topOfBook.getAskBook(), consumer.asks, consumer.askLevels,
+                false);
+    }
+
+    private static void verifySide(final ILimitOrderBook book,
+            final TreeMap<Double, Long> levels,
+            final List<double[]> levelsByIndex, final boolean isBid) {
+        final long[] ticks = new long[DEPTH];
+        final long[] sizes = new long[DEPTH];
+        final int count = book.getDepth(ticks, sizes, DEPTH);
+        assertEquals("Level count", count, levels.size());
+        assertEquals("Level count by index", count, levelsByIndex.size());
+        int i = 0;
+        for (final Map.Entry<Double, Long> level : (isBid ? levels
+                .descendingMap() : levels).entrySet()) {
+            final double price = TickSizeTable.toPrice(ticks[i],
+                    TickSizeTable.DEFAULT_TICK_SIZE);
+            assertEquals("Level price", price, level.getKey(), DELTA);
+            assertEquals("Level size", sizes[i], level.getValue().longValue());
+            assertEquals("Level price by index", price,
+                    levelsByIndex.get(i)[0], DELTA);
+            assertEquals("Level size by index", sizes[i],
+                    (long) levelsByIndex.get(i)[1]);
+            i++;
+        }
+    }
+
+    /**
+     * Market data consumer rebuilding depth twice, once keyed by price and
+     * once applying entries by level to lists of price and size pairs
+     */
+    private static class DepthConsumer implements IMarketDataListener {
+
+        private final TreeMap<Double, Long> bids = new TreeMap<Double, Long>();
+        private final TreeMap<Double, Long> asks = new TreeMap<Double, Long>();
+        private final List<double[]> bidLevels = new ArrayList<double[]>();
+        private final List<double[]> askLevels = new ArrayList<double[]>();
+        private long messageCount;
+        private byte firstMessageType;
+
+        @Override
+        public void onMarketData(final ByteBuffer buffer) {
+            final byte messageType = buffer.get();
+            assertEquals("Sequence", ++messageCount, buffer.getLong());
+            if (messageCount == 1) {
+                firstMessageType = messageType;
+            }
+            final byte[] symbol = new byte[buffer.get()];
+            buffer.get(symbol);
+            assertEquals("Symbol", "IBM", new String(symbol));
+            if (messageType == MarketDepthPublisher.SNAPSHOT) {
+                bids.clear();
+                asks.clear();
+                bidLevels.clear();
+                askLevels.clear();
+            }
+            final int entryCount = buffer.getShort();
+            for (int i = 0; i < entryCount; i++) {
+                final byte action = buffer.get();
+                final Side side = Side.values()[buffer.get()];
+                final int level = buffer.get();
+                final double price = buffer.getDouble();
+                final long size = buffer.getLong();
+                final TreeMap<Double, Long> levels = side == Side.BID ? bids : asks;
+                final List<double[]> levelsByIndex = side == Side.BID ? bidLevels
+                        : askLevels;
+                if (action == MarketDepthPublisher.DELETE) {
+                    levels.remove(price);
+                    assertEquals("Deleted price", price,
+                            levelsByIndex.remove(level)[0], DELTA);
+                } else {
+                    levels.put(price, size);
+                    if (action == MarketDepthPublisher.MODIFY) {
+                        levelsByIndex.set(level, new double[] { price, size });
+                    } else {
+                        levelsByIndex.add(level, new double[] { price, size });
+                    }
+                }
+            }
+            assertEquals("Message consumed", 0, buffer.remaining());
+        }
+    }
+
+    private static class Order implements NewOrder {
+
+        private final String orderID;
+        private final int size;
+        private final double limitPrice;
+
+        private Order(final String orderID, final int size,
+                final double limitPrice) {
+            this.orderID = orderID;
+            this.size = size;
+            this.limitPrice = limitPrice;
+        }
+
+        @Override
+        public double getLimitPrice() {
+            return limitPrice;
+        }
+
+        @Override
+        public String getOrderId() {
+            return orderID;
+        }
+
+        @Override
+        public int getSize() {
+            return size;
+        }
+
+        @Override
+        public String getSymbol() {
+            return "IBM";
+        }
+    }
+
+    private static class Cancel implements OrderCxR {
+
+        private final String orderID;
+        private final int size;
+        private final double limitPrice;
+
+        private Cancel(final String orderID, final int size,
+                final double limitPrice) {
+            this.orderID = orderID;
+            this.size = size;
+            this.limitPrice = limitPrice;
+        }
+
+        @Override
+        public double getLimitPrice() {
+            return limitPrice;
+        }
+
+        @Override
+        public String getOrderId() {
+            return orderID;
+        }
+
+        @Override
+        public int getSize() {
+            return size;
+        }
+    }
+
+}
@@ -0,0 +1,218 @@
+package edu.nyu.fc.exchange;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+
+import orderGenerator.Message;
+import orderGenerator.NewOrder;
+import orderGenerator.OrderCxR;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * JUnit test class to verify that functionality of
+ * {@link edu.nyu.fc.exchange.MessageJournal} and
+ * {@link edu.nyu.fc.exchange.JournalReplayer} works as expected, by replaying
+ * a journal into a new auction and comparing the books.
+ * 
+ * @author Yourii Martiak
+ *
+ */
+public class MessageJournalTest {
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("journal", ".bin");
+        file.delete();
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    /**
+     * Test and verify that replaying the journal rebuilds the same books,
+     * including messages appended after reopening the journal
+     */
+    @Test
+    public void testReplayRebuildsBooks() throws IOException {
+        final DoubleLimitBookAuction auction = new DoubleLimitBookAuction(
+                new LimitOrderBookFactory(), new NullTradeListener());
+        MessageJournal journal = new MessageJournal(file);
+        JournalingDoubleLimitBookAuction journaling = new JournalingDoubleLimitBookAuction(
+                auction, journal);
+        journaling.handleMessage(new Order("B1", "IBM", 100, 10.00));
+        journaling.handleMessage(new Order("B2", "IBM", 50, 10.01));
+        journaling.handleMessage(new Order("A1", "IBM", -70, 10.00));
+        journaling.handleMessage(new Order("A2", "MSFT", -30, 25.50));
+        journal.close();
+
+        journal = new MessageJournal(file);
+        assertEquals(4, journal.getRecordCount());
+        journaling = new JournalingDoubleLimitBookAuction(auction, journal);
+        journaling.handleMessage(new Replace("B1", 60, 9.99));
+        journaling.handleMessage(new Order("B3", "MSFT", 10, 25.00));
+        journaling.handleMessage(new Replace("B3", 0, 0));
+        journal.close();
+
+        final DoubleLimitBookAuction replayed = new DoubleLimitBookAuction(
+                new LimitOrderBookFactory(), new NullTradeListener());
+        assertEquals(7, new JournalReplayer(file).replay(replayed));
+        assertEquals(auction.getTopOfTheBooks(), replayed.getTopOfTheBooks());
+        assertEquals(auction.getTopOfBook("IBM").getBidString(), replayed
+                .getTopOfBook("IBM").getBidString());
+    }
+
+    /**
+     * Test and verify that replaying into a sharded auction, which handles
+     * messages on its shard threads after replay has moved on, cancels every
+     * journaled order
+     */
+    @Test
+    public void testReplayIntoShardedAuction() throws IOException,
+            InterruptedException {
+        final int orderCount = 20000;
+        final MessageJournal journal = new MessageJournal(file);
+        for (int i = 0; i < orderCount; i++) {
+            journal.append(new Order("B" + i, "S" + i % 8, 100, 10.00));
+        }
+        for (int i = 0; i < orderCount; i++) {
+            journal.append(new Replace("B" + i, 0, 0));
+        }
+        journal.close();
+
+        final ShardedDoubleLimitBookAuction shardedAuction = new ShardedDoubleLimitBookAuction(
+                4, new LimitOrderBookFactory(), new NullTradeListener());
+        assertEquals(2 * orderCount, new JournalReplayer(file)
+                .replay(shardedAuction));
+        shardedAuction.close();
+
+        int restingCount = 0;
+        for (final DoubleLimitBookAuction auction : shardedAuction
+                .getShardAuctions()) {
+            for (final TopOfBook topOfBook : auction.getTopOfBookArray()) {
+                if (topOfBook != null) {
+                    restingCount += topOfBook.getBidBook().getOrderCount();
+                }
+            }
+        }
+        assertEquals("Resting", 0, restingCount);
+    }
+
+    /**
+     * Test and verify that a message the journal cannot encode is refused
+     * loudly, and that the auction only sees messages that were journaled
+     */
+    @Test
+    public void testUnencodableMessage() throws IOException {
+        final DoubleLimitBookAuction auction = new DoubleLimitBookAuction(
+                new LimitOrderBookFactory(), new NullTradeListener());
+        final MessageJournal journal = new MessageJournal(file);
+        final JournalingDoubleLimitBookAuction journaling = new JournalingDoubleLimitBookAuction(
+                auction, journal);
+        try {
+            journaling.handleMessages(new Message[] {
+                    new Order("B1", "IBM", 100, 10.00),
+                    new Order("B2", "SYMBOL.TOO.LONG.TO.JOURNAL", 100, 10.00),
+                    new Order("B3", "IBM", 100, 10.01) }, 0, 3);
+            fail("Message too long to journal accepted");
+        } catch (final IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            journaling.handleMessage(new Replace(
+                    "ORDER.ID.WAY.TOO.LONG.TO.FIT.IN.A.SINGLE.FIXED.SIZE.RECORD.OF.THE.JOURNAL",
+                    0, 0));
+            fail("Message too long to journal accepted");
+        } catch (final IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            journaling.handleMessage(new Order("B4", null, 100, 10.00));
+            fail("Message without symbol accepted");
+        } catch (final IllegalArgumentException e) {
+            // expected
+        }
+        assertEquals("Journaled", 1, journal.getRecordCount());
+        journal.close();
+
+        assertEquals("Handled", 1, auction.getTopOfBook("IBM").getBidBook()
+                .getOrderCount());
+        assertEquals("Best bid", 1000, auction.getTopOfBook("IBM")
+                .getBidBook().getBestTick());
+    }
+
+    private static class Order implements NewOrder {
+
+        private final String orderID;
+        private final String symbol;
+        private final int size;
+        private final double limitPrice;
+
+        private Order(final String orderID, final String symbol,
+                final int size, final double limitPrice) {
+            this.orderID = orderID;
+            this.symbol = symbol;
+            this.size = size;
+            this.limitPrice = limitPrice;
+        }
+
+        @Override
+        public double getLimitPrice() {
+            return limitPrice;
+        }
+
+        @Override
+        public String getOrderId() {
+            return orderID;
+        }
+
+        @Override
+        public int getSize() {
+            return size;
+        }
+
+        @Override
+        public String getSymbol() {
+            return symbol;
+        }
+    }
+
+    private static class Replace implements OrderCxR {
+
+        private final String orderID;
+        private final int size;
+        private final double limitPrice;
+
+        private Replace(final String orderID, final int size,
+                final double limitPrice) {
+            this.orderID = orderID;
+            this.size = size;
+            this.limitPrice = limitPrice;
+        }
+
+        @Override
+        public double getLimitPrice() {
+            return limitPrice;
+        }
+
+        @Override
+        public String getOrderId() {
+            return orderID;
+        }
+
+        @Override
+        public int getSize() {
+            return size;
+        }
+    }
+
+}
@@ -0,0 +1,231 @@
+package edu.nyu.fc.exchange;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Random;
+
+import orderGenerator.Message;
+import orderGenerator.NewOrder;
+import orderGenerator.OrderCxR;
+
+import org.junit.Test;
+
+/**
+ * JUnit test class to verify that {@link edu.nyu.fc.exchange.OffHeapOrderStore}
+ * keeps orders the same way as the default on-heap order store.
+ * 
+ * @author Yourii Martiak
+ *
+ */
+public class OffHeapOrderStoreTest {
+
+    /**
+     * Test and verify that an auction keeping its orders off heap produces the
+     * same fills and books as one keeping them on heap, for both book
+     * implementations
+     */
+    @Test
+    public void testSameAsHeapStore() {
+        final Message[] messages = newMessages(20000);
+        final ILimitOrderBookFactory[] factories = {
+                new LimitOrderBookFactory(),
+                new TickLadderLimitOrderBookFactory(16) };
+        for (final ILimitOrderBookFactory factory : factories) {
+            final StringBuilder heapTrades = new StringBuilder();
+            final StringBuilder offHeapTrades = new StringBuilder();
+            final OffHeapOrderStore store = new OffHeapOrderStore(256);
+            final DoubleLimitBookAuction heap = new DoubleLimitBookAuction(
+                    factory, new RecordingTradeListener(heapTrades),
+                    new TickSizeTable());
+            final DoubleLimitBookAuction offHeap = new DoubleLimitBookAuction(
+                    factory, new RecordingTradeListener(offHeapTrades),
+                    new TickSizeTable(), store);
+            heap.handleMessages(messages, 0, messages.length);
+            offHeap.handleMessages(messages, 0, messages.length);
+
+            assertEquals("Same trades", heapTrades.toString(),
+                    offHeapTrades.toString());
+            assertEquals("Same books", heap.toString(), offHeap.toString());
+            assertTrue("Records reused",
+                    store.getCapacity() < messages.length / 4);
+        }
+    }
+
+    /**
+     * Test and verify that released records are reused along with their views,
+     * and that orders of other stores cannot be linked
+     */
+    @Test
+    public void testRecordReuse() {
+        final OffHeapOrderStore store = new OffHeapOrderStore(1);
+        final OffHeapLimitOrder first = store.acquire("IBM1", "IBM", 100,
+                10000, 0.01);
+        final OffHeapLimitOrder second = store.acquire("IBM2", "IBM", -50,
+                10001, 0.01);
+        assertEquals("Segment per record", 2, store.getCapacity());
+        first.setDead();
+        store.release(first);
+        assertEquals("Live orders", 1, store.size());
+
+        final OffHeapLimitOrder reused = store.acquire("MSFT1", "MSFT", -10,
+                20000, 0.05);
+        assertSame("View reused", first, reused);
+        assertEquals("Order ID", "MSFT1", reused.getOrderId());
+        assertEquals("Size", -10, reused.getSize());
+        assertEquals("Limit price", 1000.0, reused.getLimitPrice(), 0.0);
+        assertFalse("Live again", reused.isDead());
+
+        final PriceLevel level = new PriceLevel(10001);
+        level.addLast(second);
+        try {
+            level.addLast(new LimitOrder(new NewOrder() {
+
+                @Override
+                public double getLimitPrice() {
+                    return 100.01;
+                }
+
+                @Override
+                public String getOrderId() {
+                    return "IBM3";
+                }
+
+                @Override
+                public int getSize() {
+                    return -50;
+                }
+
+                @Override
+                public String getSymbol() {
+                    return "IBM";
+                }
+            }));
+            fail("Order of another store linked");
+        } catch (final IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Test and verify that releasing an order twice is detected, and that the
+     * view of a released order is only handed out again for a new order
+     */
+    @Test
+    public void testDoubleRelease() {
+        final OffHeapOrderStore store = new OffHeapOrderStore(16);
+        final OffHeapLimitOrder order = store.acquire("IBM1", "IBM", 100,
+                10000, 0.01);
+        store.release(order);
+        assertEquals("Released", -1, order.getRecord());
+        try {
+            store.release(order);
+            fail("Order released twice");
+        } catch (final IllegalStateException e) {
+            // expected
+        }
+        assertEquals("Live orders", 0, store.size());
+
+        final OffHeapLimitOrder other = store.acquire("IBM2", "IBM", 100,
+                10000, 0.01);
+        assertSame("View reused", order, other);
+        assertEquals("Order ID", "IBM2", order.getOrderId());
+        assertEquals("Live orders", 1, store.size());
+    }
+
+    /**
+     * Test and verify that orders are only stamped with entry time if asked
+     * for
+     */
+    @Test
+    public void testTimestamp() {
+        assertEquals("Not stamped", 0, new OffHeapOrderStore(16).acquire(
+                "IBM1", "IBM", 100, 10000, 0.01).getTimestamp());
+        assertTrue("Stamped", new OffHeapOrderStore(16, true).acquire("IBM1",
+                "IBM", 100, 10000, 0.01).getTimestamp() != 0);
+    }
+
+    /**
+     * Generate random flow of new orders, cancels and replaces around a fixed
+     * price over a few symbols
+     */
+    private static Message[] newMessages(final int count) {
+        final Random random = new Random(7);
+        final Message[] messages = new Message[count];
+        for (int i = 0; i < count; i++) {
+            final String symbol = "SYM" + random.nextInt(3);
+            final int size = (1 + random.nextInt(20)) * 10
+                    * (random.nextBoolean() ? 1 : -1);
+            final double limitPrice = random.nextInt(50) == 0 ? Double.NaN
+                    : 100.0 + (random.nextInt(41) - 20) * 0.01;
+            if (i > 0 && random.nextInt(3) == 0) {
+                final String orderID = "O" + random.nextInt(i);
+                final int newSize = random.nextInt(4) == 0 ? 0 : size;
+                messages[i] = new OrderCxR() {
+
+                    @Override
+                    public double getLimitPrice() {
+                        return limitPrice;
+                    }
+
+                    @Override
+                    public String getOrderId() {
+                        return orderID;
+                    }
+
+                    @Override
+                    public int getSize() {
+                        return newSize;
+                    }
+                };
+            } else {
+                final String orderID = "O" + i;
+                messages[i] = new NewOrder() {
+
+                    @Override
+                    public double getLimitPrice() {
+                        return limitPrice;
+                    }
+
+                    @Override
+                    public String getOrderId() {
+                        return orderID;
+                    }
+
+                    @Override
+                    public int getSize() {
+                        return size;
+                    }
+
+                    @Override
+                    public String getSymbol() {
+                        return symbol;
+                    }
+                };
+            }
+        }
+        return messages;
+    }
+
+    private static class RecordingTradeListener implements ITradeListener {
+
+        private final StringBuilder trades;
+
+        private RecordingTradeListener(final StringBuilder trades) {
+            this.trades = trades;
+        }
+
+        @Override
+        public void onTrade(final TradeEvent trade) {
+            trades.append(trade).append('\n');
+        }
+
+        @Override
+        public void onEndOfBatch() {
+        }
+    }
+
+}
@@ -0,0 +1,131 @@
+package edu.nyu.fc.exchange;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import orderGenerator.NewOrder;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * JUnit test class to verify that functionality of
+ * {@link edu.nyu.fc.exchange.OrderIndex} works as expected.
+ * 
+ * @author Yourii Martiak
+ *
+ */
+public class OrderIndexTest {
+
+    private static final int COUNT = 10000;
+
+    private OrderIndex orderIndex;
+
+    @Before
+    public void setUp() {
+        orderIndex = new OrderIndex(4);
+    }
+
+    /**
+     * Test and verify that orders can be located after the index has grown
+     */
+    @Test
+    public void testPutAndGet() {
+        final ILimitOrder[] orders = new ILimitOrder[COUNT];
+        for (int i = 0; i < COUNT; i++) {
+            orders[i] = newOrder("ORD" + i);
+            assertNull("New order ID", orderIndex.put(orders[i]));
+        }
+        assertEquals("Index size", COUNT, orderIndex.size());
+        for (int i = 0; i < COUNT; i++) {
+            assertSame("Order found", orders[i], orderIndex.get("ORD" + i));
+        }
+        assertNull("Unknown order ID", orderIndex.get("ORD" + COUNT));
+    }
+
+    /**
+     * Test and verify that indexing an order with an existing order ID replaces
+     * the previous order
+     */
+    @Test
+    public void testPutReplaces() {
+        final ILimitOrder first = newOrder("IBM1");
+        final ILimitOrder second = newOrder("IBM1");
+        orderIndex.put(first);
+
+        assertSame("Previous order", first, orderIndex.put(second));
+        assertSame("Replaced order", second, orderIndex.get("IBM1"));
+        assertEquals("Index size", 1, orderIndex.size());
+    }
+
+    /**
+     * Test and verify that removing every other order keeps the remaining
+     * orders reachable
+     */
+    @Test
+    public void testRemove() {
+        for (int i = 0; i < COUNT; i++) {
+            orderIndex.put(newOrder("ORD" + i));
+        }
+        for (int i = 0; i < COUNT; i += 2) {
+            assertEquals("Removed order", "ORD" + i, orderIndex.remove("ORD" + i)
+                    .getOrderId());
+        }
+        assertNull("Already removed", orderIndex.remove("ORD0"));
+        assertEquals("Index size", COUNT / 2, orderIndex.size());
+        for (int i = 0; i < COUNT; i++) {
+            if (i % 2 == 0) {
+                assertNull("Removed order", orderIndex.get("ORD" + i));
+            } else {
+                assertEquals("Remaining order", "ORD" + i, orderIndex.get("ORD" + i)
+                        .getOrderId());
+            }
+        }
+    }
+
+    /**
+     * Test and verify that removing an order shadowed by a later order with
+     * the same order ID keeps the later order indexed
+     */
+    @Test
+    public void testRemoveShadowed() {
+        final ILimitOrder first = newOrder("IBM1");
+        final ILimitOrder second = newOrder("IBM1");
+        orderIndex.put(first);
+        orderIndex.put(second);
+
+        assertFalse("Shadowed order", orderIndex.remove("IBM1", first));
+        assertSame("Later order", second, orderIndex.get("IBM1"));
+        assertTrue("Later order", orderIndex.remove("IBM1", second));
+        assertEquals("Index size", 0, orderIndex.size());
+    }
+
+    private static ILimitOrder newOrder(final String orderID) {
+        return new LimitOrder(new NewOrder() {
+
+            @Override
+            public double getLimitPrice() {
+                return 100.0;
+            }
+
+            @Override
+            public String getOrderId() {
+                return orderID;
+            }
+
+            @Override
+            public int getSize() {
+                return 100;
+            }
+
+            @Override
+            public String getSymbol() {
+                return "IBM";
+            }
+        });
+    }
+
+}
@@ -0,0 +1,235 @@
+package edu.nyu.fc.exchange;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import orderGenerator.Message;
+import orderGenerator.NewOrder;
+
+import org.junit.Test;
+
+/**
+ * JUnit test class to verify that functionality of
+ * {@link edu.nyu.fc.exchange.OrderPipeline} works as expected.
+ *
+ * @author Yourii Martiak
+ *
+ */
+public class OrderPipelineTest {
+
+    private static final int MESSAGES = 100000;
+
+    /**
+     * Test and verify that the pipeline delivers the same fills in the same
+     * order as the auction handling the same messages directly, even when
+     * wrapping around a small ring buffer many times
+     */
+    @Test
+    public void testOrdering() throws InterruptedException {
+        final Message[] messages = new SyntheticOrderFlow(7, 20, 2000)
+                .generate(MESSAGES);
+
+        final RecordingTradeListener expected = new RecordingTradeListener();
+        final DoubleLimitBookAuction auction = new DoubleLimitBookAuction(
+                new LimitOrderBookFactory(), expected);
+        for (final Message message : messages) {
+            auction.handleMessage(message);
+        }
+
+        final RecordingTradeListener actual = new RecordingTradeListener();
+        final OrderPipeline pipeline = new OrderPipeline(
+                new LimitOrderBookFactory(), actual, 64,
+                new BackoffWaitStrategy());
+        for (final Message message : messages) {
+            pipeline.publish(message);
+        }
+        pipeline.close();
+
+        assertTrue("Traded", expected.fills.size() > 0);
+        assertEquals("Same fills", expected.fills, actual.fills);
+        assertEquals("Rejected", 0, pipeline.getRejectedCount());
+    }
+
+    /**
+     * Test and verify that the producer is held back once the pipeline is
+     * full, and carries on once the trade listener catches up
+     */
+    @Test
+    public void testBackpressure() throws InterruptedException {
+        final int capacity = 8;
+        final CountDownLatch released = new CountDownLatch(1);
+        final RecordingTradeListener tradeListener = new RecordingTradeListener() {
+
+            @Override
+            public void onTrade(final TradeEvent trade) {
+                try {
+                    released.await();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.onTrade(trade);
+            }
+        };
+        final OrderPipeline pipeline = new OrderPipeline(
+                new LimitOrderBookFactory(), tradeListener, capacity,
+                new BackoffWaitStrategy());
+        final int orderCount = 1000;
+        final Thread producer = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                for (int i = 0; i < orderCount; i++) {
+                    pipeline.publish(new NOMessage("O" + i, i % 2 == 0 ? 100
+                            : -100, "IBM", 10.0));
+                }
+            }
+        });
+        producer.start();
+
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (pipeline.getQueueDepth() < capacity
+                && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals("Pipeline full", capacity, pipeline.getQueueDepth());
+        producer.join(100);
+        assertTrue("Producer held back", producer.isAlive());
+
+        released.countDown();
+        producer.join();
+        pipeline.close();
+        assertEquals("All orders matched", orderCount / 2,
+                tradeListener.fills.size());
+    }
+
+    /**
+     * Test and verify that closing the pipeline delivers fills of every
+     * message published before, and stops all stages
+     */
+    @Test
+    public void testShutdown() throws InterruptedException {
+        final RecordingTradeListener tradeListener = new RecordingTradeListener();
+        final OrderPipeline pipeline = new OrderPipeline(
+                new LimitOrderBookFactory(), tradeListener);
+        pipeline.publish(new NOMessage("B1", 100, "IBM", 10.0));
+        pipeline.publish(new NOMessage("A1", -60, "IBM", 10.0));
+        pipeline.publish(new NOMessage("A2", -40, "IBM", Double.NaN));
+        pipeline.publish(new NOMessage("A3", 0, "IBM", 10.0));
+        pipeline.close();
+
+        assertEquals("Fills", 2, tradeListener.fills.size());
+        assertEquals("Rejected", 1, pipeline.getRejectedCount());
+        assertEquals("Drained", 0, pipeline.getQueueDepth());
+        assertFalse("Stages stopped", isThreadAlive("pipeline-decode")
+                || isThreadAlive("pipeline-match"));
+    }
+
+    /**
+     * Test and verify that a failing stage is reported to the producer on
+     * publishing and on closing, instead of stalling it
+     */
+    @Test
+    public void testStageFailure() throws InterruptedException {
+        final RuntimeException cause = new RuntimeException("No books");
+        final OrderPipeline pipeline = new OrderPipeline(
+                new ILimitOrderBookFactory() {
+
+                    @Override
+                    public ILimitOrderBook newAskBook(final String symbol) {
+                        throw cause;
+                    }
+
+                    @Override
+                    public ILimitOrderBook newBidBook(final String symbol) {
+                        throw cause;
+                    }
+                }, new RecordingTradeListener(), 4, new BackoffWaitStrategy());
+        try {
+            for (int i = 0; i < 100; i++) {
+                pipeline.publish(new NOMessage("O" + i, 100, "IBM", 10.0));
+            }
+            fail("Failure not reported on publishing");
+        } catch (final IllegalStateException e) {
+            assertSame("Cause", cause, e.getCause());
+        }
+        try {
+            pipeline.close();
+            fail("Failure not reported on closing");
+        } catch (final IllegalStateException e) {
+            assertSame("Cause", cause, e.getCause());
+        }
+    }
+
+    private static boolean isThreadAlive(final String name) {
+        for (final Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (name.equals(thread.getName()) && thread.isAlive()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Trade listener recording fills in the order delivered
+     */
+    private static class RecordingTradeListener implements ITradeListener {
+
+        private final List<String> fills = new ArrayList<String>();
+
+        @Override
+        public void onTrade(final TradeEvent trade) {
+            fills.add(trade.getSequence() + "," + trade.getSymbol() + ","
+                    + trade.getBidOrderID() + "," + trade.getAskOrderID() + ","
+                    + trade.getPrice() + "," + trade.getQuantity() + ","
+                    + trade.getAggressorSide());
+        }
+
+        @Override
+        public void onEndOfBatch() {
+        }
+    }
+
+    private static class NOMessage implements NewOrder {
+
+        private final String orderID;
+        private final int size;
+        private final String symbol;
+        private final double limitPrice;
+
+        public NOMessage(String orderID, int size, String symbol, double limitPrice) {
+            this.orderID = orderID;
+            this.size = size;
+            this.symbol = symbol;
+            this.limitPrice = limitPrice;
+        }
+
+        @Override
+        public double getLimitPrice() {
+            return limitPrice;
+        }
+
+        @Override
+        public String getOrderId() {
+            return orderID;
+        }
+
+        @Override
+        public int getSize() {
+            return size;
+        }
+
+        @Override
+        public String getSymbol() {
+            return symbol;
+        }
+    }
+
+}
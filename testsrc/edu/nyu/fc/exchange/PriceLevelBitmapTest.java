@@ -0,0 +1,59 @@
+package edu.nyu.fc.exchange;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * JUnit test class to verify that {@link edu.nyu.fc.exchange.PriceLevelBitmap}
+ * finds set bits the same way as {@link java.util.BitSet}.
+ * 
+ * @author Yourii Martiak
+ *
+ */
+public class PriceLevelBitmapTest {
+
+    /**
+     * Test and verify searches in both directions across all layers against a
+     * plain bit set, while bits get set and cleared at random
+     */
+    @Test
+    public void testAgainstBitSet() {
+        final int size = 300000;
+        final PriceLevelBitmap bitmap = new PriceLevelBitmap(size);
+        final BitSet expected = new BitSet(size);
+        final Random random = new Random(3);
+        assertEquals("Empty", -1, bitmap.nextSetBit(0));
+        assertEquals("Empty", -1, bitmap.previousSetBit(size - 1));
+
+        for (int i = 0; i < 20000; i++) {
+            // sparse bits, with runs of nearby bits from time to time
+            final int slot = random.nextInt(8) == 0 ? random.nextInt(size)
+                    : Math.min(size - 1, 150000 + random.nextInt(200));
+            if (random.nextBoolean()) {
+                bitmap.set(slot);
+                expected.set(slot);
+            } else {
+                bitmap.clear(slot);
+                expected.clear(slot);
+            }
+            final int from = random.nextInt(size);
+            assertEquals("Next from " + from, expected.nextSetBit(from),
+                    bitmap.nextSetBit(from));
+            assertEquals("Previous from " + from, expected
+                    .previousSetBit(from), bitmap.previousSetBit(from));
+            assertEquals("Get " + slot, expected.get(slot), bitmap.get(slot));
+        }
+        assertEquals("First", expected.nextSetBit(0), bitmap.nextSetBit(0));
+        assertEquals("Last", expected.previousSetBit(size - 1),
+                bitmap.previousSetBit(size - 1));
+        assertEquals("Past end", -1, bitmap.nextSetBit(size));
+
+        bitmap.clear();
+        assertEquals("Cleared", -1, bitmap.nextSetBit(0));
+    }
+
+}
@@ -0,0 +1,86 @@
+package edu.nyu.fc.exchange;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * JUnit test class to verify that {@link edu.nyu.fc.exchange.PriceLevelHeap}
+ * keeps the best price level on top, and that the depth collected by walking
+ * it matches price levels of the book sorted in full.
+ *
+ * @author Yourii Martiak
+ *
+ */
+public class PriceLevelHeapTest {
+
+    /**
+     * Test and verify that price levels are polled in price priority
+     */
+    @Test
+    public void testPollOrder() {
+        final PriceLevelHeap heap = new PriceLevelHeap(1,
+                new TopOfBidBookComparator<PriceLevel>());
+        final Random random = new Random(5);
+        for (int i = 0; i < 1000; i++) {
+            heap.offer(new PriceLevel(random.nextInt(500)));
+        }
+        long lastTick = Long.MAX_VALUE;
+        for (int i = 0; i < 1000; i++) {
+            final long tick = heap.poll().getTick();
+            assertTrue("Price priority", tick <= lastTick);
+            lastTick = tick;
+        }
+        assertNull("Empty", heap.poll());
+    }
+
+    /**
+     * Test and verify that book depth matches the sorted price levels of the
+     * book, while orders get added and removed at random and empty price
+     * levels are left behind in the heap
+     */
+    @Test
+    public void testDepthAgainstSortedLevels() {
+        final LimitOrderPool pool = new LimitOrderPool(0);
+        final ILimitOrderBook[] books = { new BidLimitOrderBook(),
+                new AskLimitOrderBook() };
+        final long[] ticks = new long[10];
+        final long[] sizes = new long[10];
+        final Random random = new Random(11);
+        for (final ILimitOrderBook book : books) {
+            final int sign = book instanceof BidLimitOrderBook ? 1 : -1;
+            final List<ILimitOrder> orders = new ArrayList<ILimitOrder>();
+            for (int i = 0; i < 20000; i++) {
+                if (orders.isEmpty() || random.nextInt(5) < 3) {
+                    final ILimitOrder order = pool.acquire("O" + i, "IBM",
+                            sign * (1 + random.nextInt(100)),
+                            10000 + random.nextInt(300), 0.01);
+                    book.addLast(order);
+                    orders.add(order);
+                } else {
+                    book.remove(orders.remove(random.nextInt(orders.size())));
+                }
+                if (i % 50 == 0) {
+                    final int maxLevels = random.nextInt(ticks.length + 1);
+                    final List<PriceLevel> levels = book.getPriceLevels();
+                    final int count = book.getDepth(ticks, sizes, maxLevels);
+                    assertEquals("Levels",
+                            Math.min(maxLevels, levels.size()), count);
+                    for (int level = 0; level < count; level++) {
+                        assertEquals("Price", levels.get(level).getTick(),
+                                ticks[level]);
+                        assertEquals("Size", levels.get(level).getTotalSize(),
+                                sizes[level]);
+                    }
+                }
+            }
+        }
+    }
+
+}
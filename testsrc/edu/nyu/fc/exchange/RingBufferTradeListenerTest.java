@@ -0,0 +1,63 @@
+package edu.nyu.fc.exchange;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * JUnit test class to verify that functionality of
+ * {@link edu.nyu.fc.exchange.RingBufferTradeListener} works as expected.
+ * 
+ * @author Yourii Martiak
+ *
+ */
+public class RingBufferTradeListenerTest {
+
+    private static final int COUNT = 100000;
+
+    /**
+     * Test and verify that all trades are delivered to the consumer in order,
+     * even when the producer wraps around a small ring buffer many times
+     */
+    @Test
+    public void testTradesDeliveredInOrder() throws InterruptedException {
+        final RecordingTradeListener consumer = new RecordingTradeListener();
+        final RingBufferTradeListener listener = new RingBufferTradeListener(
+                consumer, 64, new BackoffWaitStrategy());
+        final TradeEvent trade = new TradeEvent();
+        for (int i = 1; i <= COUNT; i++) {
+            trade.set(i, "IBM", "B" + i, "A" + i, 100.0, i, Side.BID);
+            listener.onTrade(trade);
+            if (i % 10 == 0) {
+                listener.onEndOfBatch();
+            }
+        }
+        listener.close();
+
+        assertEquals("All trades delivered", COUNT, consumer.count);
+        assertEquals("Last sequence", COUNT, consumer.lastSequence);
+        assertTrue("Batches delivered", consumer.batchCount > 0);
+    }
+
+    private static class RecordingTradeListener implements ITradeListener {
+
+        private int count;
+        private long lastSequence;
+        private int batchCount;
+
+        @Override
+        public void onTrade(final TradeEvent trade) {
+            assertEquals("Sequence order", lastSequence + 1, trade.getSequence());
+            assertEquals("Quantity", trade.getSequence(), trade.getQuantity());
+            lastSequence = trade.getSequence();
+            count++;
+        }
+
+        @Override
+        public void onEndOfBatch() {
+            batchCount++;
+        }
+    }
+
+}
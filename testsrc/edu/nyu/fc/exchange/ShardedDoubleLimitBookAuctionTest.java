@@ -0,0 +1,256 @@
+package edu.nyu.fc.exchange;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import orderGenerator.Message;
+import orderGenerator.NewOrder;
+import orderGenerator.OrderCxR;
+
+import org.junit.Test;
+
+/**
+ * JUnit test class to verify that functionality of
+ * {@link edu.nyu.fc.exchange.ShardedDoubleLimitBookAuction} works as expected.
+ *
+ * @author Yourii Martiak
+ *
+ */
+public class ShardedDoubleLimitBookAuctionTest {
+
+    private static final int MESSAGES = 200000;
+
+    /**
+     * Test and verify that sharded auction gives the same fills per symbol and
+     * leaves the same orders resting as a single auction on the same flow, and
+     * that trade sequence numbers are global
+     */
+    @Test
+    public void testSameAsUnsharded() throws InterruptedException {
+        final Message[] messages = new SyntheticOrderFlow(42, 50, 5000)
+                .generate(MESSAGES);
+
+        final RecordingTradeListener expected = new RecordingTradeListener();
+        final DoubleLimitBookAuction auction = new DoubleLimitBookAuction(
+                new LimitOrderBookFactory(), expected);
+        for (final Message message : messages) {
+            auction.handleMessage(message);
+        }
+
+        final RecordingTradeListener actual = new RecordingTradeListener();
+        final ShardedDoubleLimitBookAuction shardedAuction = new ShardedDoubleLimitBookAuction(
+                4, new LimitOrderBookFactory(), actual, 1 << 10,
+                new BackoffWaitStrategy());
+        for (final Message message : messages) {
+            shardedAuction.handleMessage(message);
+        }
+        shardedAuction.close();
+
+        assertTrue("Traded", expected.count > 0);
+        assertEquals("Trades", expected.count, actual.count);
+        assertEquals("Sequence order", 0, actual.outOfSequenceCount);
+        assertEquals("Fills", expected.fills, actual.fills);
+        int restingCount = 0;
+        for (final DoubleLimitBookAuction shardAuction : shardedAuction
+                .getShardAuctions()) {
+            restingCount += getRestingCount(shardAuction);
+        }
+        assertEquals("Resting", getRestingCount(auction), restingCount);
+    }
+
+    /**
+     * Test and verify that an order ID reused while the shard still holds the
+     * previous order with that ID can be canceled
+     */
+    @Test
+    public void testReusedOrderID() throws InterruptedException {
+        final ShardedDoubleLimitBookAuction shardedAuction = new ShardedDoubleLimitBookAuction(
+                1, new LimitOrderBookFactory(), new RecordingTradeListener());
+        shardedAuction.handleMessage(new NOMessage("O1", 100, "IBM", 10.0));
+        shardedAuction.handleMessage(new CXRMessage("O1", 0, 0));
+        shardedAuction.handleMessage(new NOMessage("O1", 100, "IBM", 10.0));
+        shardedAuction.drain();
+        shardedAuction.handleMessage(new CXRMessage("O1", 0, 0));
+        shardedAuction.close();
+
+        assertEquals("Resting", 0, getRestingCount(shardedAuction
+                .getShardAuctions()[0]));
+    }
+
+    /**
+     * Test and verify that trade executed directly is delivered with the next
+     * trade sequence number
+     */
+    @Test
+    public void testNewTrade() throws InterruptedException {
+        final RecordingTradeListener tradeListener = new RecordingTradeListener();
+        final ShardedDoubleLimitBookAuction shardedAuction = new ShardedDoubleLimitBookAuction(
+                2, new LimitOrderBookFactory(), tradeListener);
+        shardedAuction.handleMessage(new NOMessage("B1", 100, "IBM", 10.0));
+        shardedAuction.handleMessage(new NOMessage("A1", -40, "IBM", 10.0));
+        final ILimitOrder bid = new LimitOrder(new NOMessage("B2", 100, "MSFT",
+                20.0));
+        final ILimitOrder ask = new LimitOrder(new NOMessage("A2", -60, "MSFT",
+                20.0));
+        shardedAuction.newTrade(bid, ask, Side.ASK);
+        shardedAuction.close();
+
+        assertEquals("Trades", 2, tradeListener.count);
+        assertEquals("Sequence order", 0, tradeListener.outOfSequenceCount);
+        assertEquals("Fill", "B2,A2,20.0,60", tradeListener.fills.get("MSFT")
+                .get(0));
+        assertEquals("Bid leaves", 40, bid.getSize());
+        assertEquals("Ask leaves", 0, ask.getSize());
+    }
+
+    /**
+     * Test and verify that a failing shard is reported to the submitter on
+     * submitting and on closing, instead of stalling it
+     */
+    @Test
+    public void testShardFailure() throws InterruptedException {
+        final RuntimeException cause = new RuntimeException("No books");
+        final ShardedDoubleLimitBookAuction shardedAuction = new ShardedDoubleLimitBookAuction(
+                1, new ILimitOrderBookFactory() {
+
+                    @Override
+                    public ILimitOrderBook newAskBook(final String symbol) {
+                        throw cause;
+                    }
+
+                    @Override
+                    public ILimitOrderBook newBidBook(final String symbol) {
+                        throw cause;
+                    }
+                }, new RecordingTradeListener(), 4, new BackoffWaitStrategy());
+        try {
+            for (int i = 0; i < 100; i++) {
+                shardedAuction.handleMessage(new NOMessage("O" + i, 100,
+                        "IBM", 10.0));
+            }
+            fail("Failure not reported on submitting");
+        } catch (final IllegalStateException e) {
+            assertSame("Cause", cause, e.getCause());
+        }
+        try {
+            shardedAuction.close();
+            fail("Failure not reported on closing");
+        } catch (final IllegalStateException e) {
+            assertSame("Cause", cause, e.getCause());
+        }
+    }
+
+    private static int getRestingCount(final DoubleLimitBookAuction auction) {
+        int count = 0;
+        for (final TopOfBook topOfBook : auction.getTopOfBookArray()) {
+            if (topOfBook != null) {
+                count += topOfBook.getBidBook().getOrderCount()
+                        + topOfBook.getAskBook().getOrderCount();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Trade listener recording fills per symbol, in the order delivered
+     */
+    private static class RecordingTradeListener implements ITradeListener {
+
+        private final Map<String, List<String>> fills = new HashMap<String, List<String>>();
+        private int count;
+        private int outOfSequenceCount;
+        private long lastSequence;
+
+        @Override
+        public void onTrade(final TradeEvent trade) {
+            // called on shard threads, so failures are asserted by the test
+            if (trade.getSequence() != lastSequence + 1) {
+                outOfSequenceCount++;
+            }
+            lastSequence = trade.getSequence();
+            count++;
+            List<String> symbolFills = fills.get(trade.getSymbol());
+            if (symbolFills == null) {
+                symbolFills = new ArrayList<String>();
+                fills.put(trade.getSymbol(), symbolFills);
+            }
+            symbolFills.add(trade.getBidOrderID() + "," + trade.getAskOrderID()
+                    + "," + trade.getPrice() + "," + trade.getQuantity());
+        }
+
+        @Override
+        public void onEndOfBatch() {
+        }
+    }
+
+    private static class NOMessage implements NewOrder {
+
+        private final String orderID;
+        private final int size;
+        private final String symbol;
+        private final double limitPrice;
+
+        public NOMessage(String orderID, int size, String symbol, double limitPrice) {
+            this.orderID = orderID;
+            this.size = size;
+            this.symbol = symbol;
+            this.limitPrice = limitPrice;
+        }
+
+        @Override
+        public double getLimitPrice() {
+            return limitPrice;
+        }
+
+        @Override
+        public String getOrderId() {
+            return orderID;
+        }
+
+        @Override
+        public int getSize() {
+            return size;
+        }
+
+        @Override
+        public String getSymbol() {
+            return symbol;
+        }
+    }
+
+    private static class CXRMessage implements OrderCxR {
+
+        private final String orderID;
+        private final int size;
+        private final double limitPrice;
+
+        public CXRMessage(String orderID, int size, double limitPrice) {
+            this.orderID = orderID;
+            this.size = size;
+            this.limitPrice = limitPrice;
+        }
+
+        @Override
+        public double getLimitPrice() {
+            return limitPrice;
+        }
+
+        @Override
+        public String getOrderId() {
+            return orderID;
+        }
+
+        @Override
+        public int getSize() {
+            return size;
+        }
+    }
+
+}
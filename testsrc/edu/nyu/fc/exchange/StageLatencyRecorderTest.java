@@ -0,0 +1,121 @@
+package edu.nyu.fc.exchange;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import orderGenerator.Message;
+
+import org.junit.Test;
+
+/**
+ * JUnit test class to verify that functionality of
+ * {@link edu.nyu.fc.exchange.StageLatencyRecorder} works as expected, both
+ * with messages handed to the auction directly and through an order
+ * pipeline.
+ * 
+ * @author Yourii Martiak
+ *
+ */
+public class StageLatencyRecorderTest {
+
+    private static final int MESSAGES = 20000;
+
+    /**
+     * Test and verify that every message and fill gets recorded, and that
+     * fills carry ordered timestamps
+     */
+    @Test
+    public void testAuction() {
+        final StampCheckingTradeListener consumer = new StampCheckingTradeListener();
+        final StageLatencyRecorder recorder = new StageLatencyRecorder(consumer);
+        final DoubleLimitBookAuction auction = new DoubleLimitBookAuction(
+                new TickLadderLimitOrderBookFactory(), recorder);
+        auction.setStageLatencyRecorder(recorder);
+        final Message[] messages = new SyntheticOrderFlow(9, 2, 1000)
+                .generate(MESSAGES);
+        auction.handleMessages(messages, 0, MESSAGES / 2);
+        for (int i = MESSAGES / 2; i < MESSAGES; i++) {
+            auction.handleMessage(messages[i]);
+        }
+
+        assertTrue("Traded", consumer.tradeCount > 0);
+        assertEquals("Stamped", consumer.tradeCount, consumer.stampedCount);
+        assertEquals("Queue", MESSAGES, recorder.getHistogram(
+                StageLatencyRecorder.QUEUE).getTotalCount());
+        assertEquals("No queue", 0, recorder.getHistogram(
+                StageLatencyRecorder.QUEUE).getMaxValue());
+        assertEquals("Match", MESSAGES, recorder.getHistogram(
+                StageLatencyRecorder.MATCH).getTotalCount());
+        for (int stage = StageLatencyRecorder.EMIT; stage <= StageLatencyRecorder.TOTAL; stage++) {
+            assertEquals("Fills", consumer.tradeCount, recorder.getHistogram(
+                    stage).getTotalCount());
+        }
+    }
+
+    /**
+     * Test and verify that fills are not stamped without a recorder
+     */
+    @Test
+    public void testNotStamped() {
+        final StampCheckingTradeListener consumer = new StampCheckingTradeListener();
+        final DoubleLimitBookAuction auction = new DoubleLimitBookAuction(
+                new LimitOrderBookFactory(), consumer);
+        final SyntheticOrderFlow flow = new SyntheticOrderFlow(9, 2, 1000);
+        for (int i = 0; i < MESSAGES; i++) {
+            auction.handleMessage(flow.next());
+        }
+        assertTrue("Traded", consumer.tradeCount > 0);
+        assertEquals("Stamped", 0, consumer.stampedCount);
+    }
+
+    /**
+     * Test and verify that time spent in the pipeline is attributed to the
+     * queue stage
+     */
+    @Test
+    public void testPipeline() throws InterruptedException {
+        final StampCheckingTradeListener consumer = new StampCheckingTradeListener();
+        final StageLatencyRecorder recorder = new StageLatencyRecorder(consumer);
+        final OrderPipeline pipeline = new OrderPipeline(
+                new LimitOrderBookFactory(), recorder, 1024,
+                new BackoffWaitStrategy());
+        pipeline.setStageLatencyRecorder(recorder);
+        final SyntheticOrderFlow flow = new SyntheticOrderFlow(9, 2, 1000);
+        for (final Message message : flow.generate(MESSAGES)) {
+            pipeline.publish(message);
+        }
+        pipeline.close();
+
+        assertTrue("Traded", consumer.tradeCount > 0);
+        assertEquals("Stamped", consumer.tradeCount, consumer.stampedCount);
+        assertEquals("Queue", MESSAGES, recorder.getHistogram(
+                StageLatencyRecorder.QUEUE).getTotalCount());
+        assertTrue("Queued", recorder.getHistogram(StageLatencyRecorder.QUEUE)
+                .getMaxValue() > 0);
+        assertEquals("Total", consumer.tradeCount, recorder.getHistogram(
+                StageLatencyRecorder.TOTAL).getTotalCount());
+    }
+
+    private static class StampCheckingTradeListener implements ITradeListener {
+
+        private long tradeCount;
+        private long stampedCount;
+
+        @Override
+        public void onTrade(final TradeEvent trade) {
+            tradeCount++;
+            if (trade.getEmitNanos() != 0) {
+                assertTrue("Ingress before match",
+                        trade.getIngressNanos() <= trade.getMatchNanos());
+                assertTrue("Match before emit",
+                        trade.getMatchNanos() <= trade.getEmitNanos());
+                stampedCount++;
+            }
+        }
+
+        @Override
+        public void onEndOfBatch() {
+        }
+    }
+
+}
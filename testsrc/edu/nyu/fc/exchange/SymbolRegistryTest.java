@@ -0,0 +1,41 @@
+package edu.nyu.fc.exchange;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+/**
+ * JUnit test class to verify that {@link edu.nyu.fc.exchange.SymbolRegistry}
+ * assigns dense symbol IDs in order of first sight.
+ * 
+ * @author Yourii Martiak
+ *
+ */
+public class SymbolRegistryTest {
+
+    /**
+     * Test and verify that symbols get dense IDs which stay stable while the
+     * registry grows, and that unknown symbols are not registered by lookup
+     */
+    @Test
+    public void testIntern() {
+        final SymbolRegistry registry = new SymbolRegistry(2);
+        assertEquals("Unknown symbol", -1, registry.getId("IBM"));
+        assertEquals("Not registered", 0, registry.size());
+
+        for (int i = 0; i < 1000; i++) {
+            assertEquals("Dense ID", i, registry.intern("SYM" + i));
+        }
+        for (int i = 0; i < 1000; i++) {
+            final String symbol = "SYM" + i;
+            assertEquals("Stable ID", i, registry.intern(new String(symbol)));
+            assertEquals("Stable ID", i, registry.getId(symbol));
+            assertEquals("Symbol by ID", symbol, registry.getSymbol(i));
+        }
+        assertEquals("Size", 1000, registry.size());
+        assertSame("Interned instance", registry.getSymbol(7),
+                registry.getSymbol(registry.intern("SYM7")));
+    }
+
+}
@@ -0,0 +1,101 @@
+package edu.nyu.fc.exchange;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import orderGenerator.Message;
+import orderGenerator.NewOrder;
+import orderGenerator.OrderCxR;
+
+import org.junit.Test;
+
+/**
+ * JUnit test class to verify that functionality of
+ * {@link edu.nyu.fc.exchange.SyntheticOrderFlow} works as expected.
+ * 
+ * @author Yourii Martiak
+ *
+ */
+public class SyntheticOrderFlowTest {
+
+    /**
+     * Test and verify that equal seeds give equal flows, and that kept
+     * messages match the reused ones
+     */
+    @Test
+    public void testReproducible() {
+        final Message[] messages = new SyntheticOrderFlow(7, 4, 100)
+                .generate(10000);
+        final SyntheticOrderFlow flow = new SyntheticOrderFlow(7, 4, 100);
+        for (final Message expected : messages) {
+            assertEquals("Message", expected.toString(), flow.next()
+                    .toString());
+        }
+        assertSame("Reused", flow.next().getClass(), flow.next().getClass());
+    }
+
+    /**
+     * Test and verify that live orders never reuse an order ID, and that
+     * popularity and message mix follow the settings
+     */
+    @Test
+    public void testShape() {
+        final SyntheticOrderFlow flow = new SyntheticOrderFlow(42, 8, 50000);
+        flow.setZipfExponent(1);
+        flow.setCancelPercent(30);
+        flow.setReplacePercent(0);
+        final Set<String> liveOrderIDs = new HashSet<String>();
+        final int[] symbolCounts = new int[8];
+        int cancelCount = 0;
+        final int count = 100000;
+        for (int i = 0; i < count; i++) {
+            final Message message = flow.next();
+            if (message instanceof NewOrder) {
+                final NewOrder order = (NewOrder) message;
+                assertTrue("Unique ID", liveOrderIDs.add(order.getOrderId()));
+                symbolCounts[Integer.parseInt(order.getSymbol().substring(3))]++;
+            } else {
+                final OrderCxR orderCxR = (OrderCxR) message;
+                assertEquals("Cancel", 0, orderCxR.getSize());
+                assertTrue("Live ID", liveOrderIDs.remove(orderCxR
+                        .getOrderId()));
+                cancelCount++;
+            }
+            assertEquals("Live count", liveOrderIDs.size(), flow
+                    .getLiveCount());
+        }
+        assertTrue("Popular symbol", symbolCounts[0] > 4 * symbolCounts[7]);
+        assertEquals("Cancels", 0.3, (double) cancelCount / count, 0.02);
+    }
+
+    /**
+     * Test and verify that the flow can be handled by the auction
+     */
+    @Test
+    public void testHandle() {
+        final SyntheticOrderFlow flow = new SyntheticOrderFlow(1, 3, 500);
+        flow.setBurstiness(0.5);
+        flow.setVolatility(0.2);
+        final DoubleLimitBookAuction auction = new DoubleLimitBookAuction(
+                new TickLadderLimitOrderBookFactory(), new NullTradeListener());
+        for (int i = 0; i < 100000; i++) {
+            auction.handleMessage(flow.next());
+        }
+        assertEquals("Symbols", 3, auction.getTopOfBooks().size());
+        final long[] bidTicks = new long[1];
+        final long[] askTicks = new long[1];
+        final long[] sizes = new long[1];
+        for (final TopOfBook topOfBook : auction.getTopOfBooks()) {
+            assertEquals("Bids", 1, topOfBook.getBidBook().getDepth(bidTicks,
+                    sizes, 1));
+            assertEquals("Asks", 1, topOfBook.getAskBook().getDepth(askTicks,
+                    sizes, 1));
+            assertTrue("Not crossed", bidTicks[0] < askTicks[0]);
+        }
+    }
+
+}
@@ -0,0 +1,298 @@
+package edu.nyu.fc.exchange;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import orderGenerator.NewOrder;
+import orderGenerator.OrderCxR;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * JUnit test class to verify that functionality of
+ * {@link edu.nyu.fc.exchange.TickLadderLimitOrderBook} works as expected for
+ * both sides of the book.
+ * 
+ * @author Yourii Martiak
+ *
+ */
+public class TickLadderLimitOrderBookTest {
+
+    private static final double TICK_SIZE = 0.01;
+
+    private ILimitOrderBook askBook;
+    private ILimitOrderBook bidBook;
+
+    @Before
+    public void setUp() {
+        // deliberately small ladder to exercise growing
+        askBook = new AskTickLadderLimitOrderBook(4);
+        bidBook = new BidTickLadderLimitOrderBook(4);
+    }
+
+    /**
+     * Test and verify that empty books report zero best price and no orders
+     */
+    @Test
+    public void testEmptyBook() {
+        assertEquals("Empty ask book", 0, askBook.getBestTick());
+        assertEquals("Empty bid book", 0, bidBook.getBestTick());
+        assertNull("Nothing to poll", askBook.pollNextOrderFor(10000));
+        assertNull("Nothing to poll", bidBook.pollNextOrder());
+    }
+
+    /**
+     * Test and verify that ask book keeps the lowest price on top and fills in
+     * price/time priority up to the limit price
+     */
+    @Test
+    public void testAskPriceTimePriority() {
+        final ILimitOrder first = newOrder("A1", -10, 100.02);
+        final ILimitOrder second = newOrder("A2", -10, 100.00);
+        final ILimitOrder third = newOrder("A3", -10, 100.00);
+        final ILimitOrder far = newOrder("A4", -10, 100.50);
+        askBook.addLast(first);
+        askBook.addLast(second);
+        askBook.addLast(third);
+        askBook.addLast(far);
+
+        assertEquals("Best ask", 10000, askBook.getBestTick());
+        assertEquals("Best ask size", 20, askBook.getBestSize());
+        assertSame("Best ask order", second, askBook.getBestOrder());
+        assertSame("Time priority", second, askBook.pollNextOrderFor(10001));
+        assertSame("Time priority", third, askBook.pollNextOrderFor(10001));
+        assertNull("Limit respected", askBook.pollNextOrderFor(10001));
+        assertEquals("Best ask moved", 10002, askBook.getBestTick());
+        assertEquals("Best ask size moved", 10, askBook.getBestSize());
+        assertSame("Market order", first, askBook.pollNextOrder());
+        assertSame("Ladder grown", far, askBook.pollNextOrder());
+        assertEquals("Empty ask book", 0, askBook.getBestTick());
+    }
+
+    /**
+     * Test and verify that removing the last order of the top of the book
+     * price level moves the best price to the next non-empty level
+     */
+    @Test
+    public void testRemoveTopOfBook() {
+        final ILimitOrder top = newOrder("A1", -10, 100.00);
+        final ILimitOrder next = newOrder("A2", -10, 100.05);
+        askBook.addLast(top);
+        askBook.addLast(next);
+
+        assertTrue("Removed", askBook.remove(top));
+        assertEquals("Best ask moved", 10005, askBook.getBestTick());
+        assertSame("Next level", next, askBook.pollNextOrderFor(10005));
+    }
+
+    /**
+     * Test and verify that bid book keeps the highest price on top, puts
+     * orders added first in front of the queue and unlinks removed orders
+     */
+    @Test
+    public void testBidPriceTimePriority() {
+        final ILimitOrder first = newOrder("B1", 10, 99.98);
+        final ILimitOrder second = newOrder("B2", 10, 100.00);
+        final ILimitOrder third = newOrder("B3", 10, 100.00);
+        final ILimitOrder low = newOrder("B4", 10, 90.00);
+        bidBook.addLast(first);
+        bidBook.addLast(second);
+        bidBook.addFirst(third);
+        bidBook.addLast(low);
+        assertTrue("Removed", bidBook.remove(second));
+        assertFalse("Already removed", bidBook.remove(second));
+
+        assertEquals("Best bid", 10000, bidBook.getBestTick());
+        assertSame("Added first", third, bidBook.pollNextOrderFor(9999));
+        assertSame("Removed skipped", first, bidBook.pollNextOrderFor(9998));
+        assertNull("Limit respected", bidBook.pollNextOrderFor(9500));
+        assertSame("Market order", low, bidBook.pollNextOrder());
+        assertNull("Empty", bidBook.pollNextOrder());
+    }
+
+    /**
+     * Test and verify that sweeping walks price levels from the top up to the
+     * limit price, leaving a partially filled order in front of its queue
+     */
+    @Test
+    public void testSweep() {
+        final ILimitOrder first = newOrder("A1", -10, 100.00);
+        final ILimitOrder second = newOrder("A2", -10, 100.00);
+        final ILimitOrder third = newOrder("A3", -30, 100.01);
+        final ILimitOrder far = newOrder("A4", -10, 100.50);
+        askBook.addLast(first);
+        askBook.addLast(second);
+        askBook.addLast(third);
+        askBook.addLast(far);
+
+        final FillBuffer fills = new FillBuffer(1);
+        assertEquals("Filled", 35, askBook.sweep(newOrder("B1", 35, 100.01),
+                fills));
+        assertEquals("Fills", 3, fills.size());
+        assertSame("Time priority", first, fills.getOrder(0));
+        assertSame("Time priority", second, fills.getOrder(1));
+        assertSame("Next level", third, fills.getOrder(2));
+        assertEquals("Partial fill", 15, fills.getFillSize(2));
+        assertEquals("Fully filled", 0, first.getSize());
+        assertNull("Fully filled removed", first.getPriceLevel());
+        assertEquals("Leaves quantity", -15, third.getSize());
+        assertSame("Partially filled in front", third, askBook.getBestOrder());
+        assertEquals("Best ask size", 15, askBook.getBestSize());
+
+        fills.clear();
+        assertEquals("Market order", 25, askBook.sweep(newOrder("M1", 100,
+                Double.NaN), fills));
+        assertEquals("Fills", 2, fills.size());
+        assertEquals("Empty ask book", 0, askBook.getBestTick());
+    }
+
+    /**
+     * Test and verify that the ladder follows a drifting market by recentering
+     * rather than growing, and still finds price levels far apart
+     */
+    @Test
+    public void testRecenter() {
+        final TickLadderLimitOrderBook book = new AskTickLadderLimitOrderBook(64);
+        ILimitOrder resting = newOrder("A0", -10, 100.00);
+        book.addLast(resting);
+        for (int i = 1; i <= 1000; i++) {
+            // each new price is outside of the ladder once the previous
+            // order is gone
+            final ILimitOrder order = newOrder("A" + i, -10, 100.00 + i * 0.1);
+            book.addLast(order);
+            assertSame("Previous best", resting, book.pollNextOrder());
+            resting = order;
+        }
+        assertEquals("Best ask", 20000, book.getBestTick());
+        assertEquals("Ladder not grown", 64, book.getLadderSize());
+
+        final ILimitOrder near = newOrder("N1", -10, 200.01);
+        final ILimitOrder far = newOrder("F1", -10, 200.50);
+        book.addLast(near);
+        book.addLast(far);
+        assertEquals("Ladder grown", 128, book.getLadderSize());
+        assertSame("Best order", resting, book.pollNextOrder());
+        assertSame("Next level", near, book.pollNextOrder());
+        assertSame("Far level", far, book.pollNextOrder());
+        assertEquals("Empty ask book", 0, book.getBestTick());
+    }
+
+    /**
+     * Test and verify that limit prices off the tick grid are rounded towards
+     * the less aggressive price, and that NaN limit price gives market orders
+     * which never rest in the book
+     */
+    @Test
+    public void testLimitPriceConversion() {
+        final ILimitOrder bid = newOrder("B1", 10, 100.004);
+        final ILimitOrder ask = newOrder("A1", -10, 100.004);
+        final ILimitOrder market = newOrder("M1", 10, Double.NaN);
+        assertEquals("Bid rounded down", 10000, bid.getLimitTick());
+        assertEquals("Ask rounded up", 10001, ask.getLimitTick());
+        assertEquals("Price from ticks", 100.01, ask.getLimitPrice(), 0.0);
+        assertEquals("Market order", OrderType.MARKET, market.getOrderType());
+        assertTrue("Market price", Double.isNaN(market.getLimitPrice()));
+
+        bidBook.addLast(market);
+        assertNull("Market order not rested", market.getPriceLevel());
+        assertEquals("Empty bid book", 0, bidBook.getBestTick());
+    }
+
+    /**
+     * Test and verify that an order priced too far from the price levels in
+     * use is rejected before it trades, leaving the auction as it was, and
+     * that the ladder does not grow to hold it
+     */
+    @Test
+    public void testPriceOutOfRange() {
+        final TickLadderLimitOrderBook book = new BidTickLadderLimitOrderBook(
+                16, 1024);
+        book.addLast(newOrder("B1", 10, 100.00));
+        assertTrue("Within ladder", book.canRest(10005));
+        assertTrue("Within largest ladder", book.canRest(10000 + 1023));
+        assertFalse("Beyond largest ladder", book.canRest(10000 + 1024));
+        assertEquals("Ladder not grown", 16, book.getLadderSize());
+
+        final StringBuilder trades = new StringBuilder();
+        final DoubleLimitBookAuction auction = new DoubleLimitBookAuction(
+                new TickLadderLimitOrderBookFactory(16, 1024),
+                new ITradeListener() {
+
+                    @Override
+                    public void onTrade(final TradeEvent trade) {
+                        trades.append(trade).append('\n');
+                    }
+
+                    @Override
+                    public void onEndOfBatch() {
+                    }
+                });
+        auction.handleMessage(newMessage("B1", 100, 99.99));
+        auction.handleMessage(newMessage("A1", -50, 100.00));
+        auction.handleMessage(newMessage("A2", -50, 100.05));
+        final String books = auction.toString();
+        auction.handleMessage(newMessage("B2", 100, 1000.00));
+        assertEquals("No fills", "", trades.toString());
+        assertEquals("Books untouched", books, auction.toString());
+
+        // replace to an unreachable price keeps the original order
+        auction.handleMessage(new OrderCxR() {
+
+            @Override
+            public double getLimitPrice() {
+                return 1000.00;
+            }
+
+            @Override
+            public String getOrderId() {
+                return "A1";
+            }
+
+            @Override
+            public int getSize() {
+                return -50;
+            }
+        });
+        assertEquals("Replace rejected", books, auction.toString());
+
+        auction.handleMessage(newMessage("B3", 100, 100.00));
+        assertEquals("Original order trades", "Order B3 traded with order A1\n",
+                trades.toString());
+    }
+
+    private static ILimitOrder newOrder(final String orderID, final int size,
+            final double limitPrice) {
+        return new LimitOrder(newMessage(orderID, size, limitPrice), TICK_SIZE);
+    }
+
+    private static NewOrder newMessage(final String orderID, final int size,
+            final double limitPrice) {
+        return new NewOrder() {
+
+            @Override
+            public double getLimitPrice() {
+                return limitPrice;
+            }
+
+            @Override
+            public String getOrderId() {
+                return orderID;
+            }
+
+            @Override
+            public int getSize() {
+                return size;
+            }
+
+            @Override
+            public String getSymbol() {
+                return "IBM";
+            }
+        };
+    }
+
+}